@@ -415,6 +415,92 @@ public class AuthIT {
                 .andExpect(status().isOk());
     }
 
+    @Test
+    public void authorized_batchGetTasks() throws Exception {
+
+        mockElixir.givenThat(
+                WireMock.get("/")
+                        .willReturn(okJson("{\"sub\" : \"123\",  \"eduperson_entitlement\" : [\"urn:geant:elixir-europe.org:group:elixir:GA4GH:GA4GH-CAP:EBI#perun.elixir-czech.cz\", \"urn:geant:elixir-europe.org:group:elixir:GA4GH:GA4GH-CAP:EBI:TEST#perun.elixir-czech.cz\"]}")));
+
+        MockUtil.mockBatchGetTaskKubernetesResponses(this.mockKubernetes);
+        mockKubernetes.givenThat(
+                WireMock.get("/apis/batch/v1/namespaces/default/jobs/task-404")
+                        .willReturn(aResponse().withStatus(404)));
+
+        this.mvc.perform(post(TASK_URL + ":batchGet?view=BASIC")
+                .content("{\"ids\": [\"task-404\", \"task-123\", \"task-123\"]}")
+                .contentType(MediaType.APPLICATION_JSON)
+                .header("Authorization", "Bearer BAR"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.tasks.length()").value(1))
+                .andExpect(jsonPath("$.tasks[0].id").value("task-123"))
+                .andExpect(jsonPath("$.tasks[0].logs").exists())
+                .andExpect(jsonPath("$.missing_ids[0]").value("task-404"));
+        //one read per id, the rest listed at once
+        mockKubernetes.verify(1, getRequestedFor(urlEqualTo("/apis/batch/v1/namespaces/default/jobs/task-123")));
+        mockKubernetes.verify(0, getRequestedFor(urlEqualTo("/apis/batch/v1/namespaces/default/jobs?labelSelector=taskmaster-name%3Dtask-123")));
+    }
+
+    @Test
+    public void memberNonAuthor_batchGetTasks() throws Exception {
+
+        mockElixir.givenThat(
+                WireMock.get("/")
+                        .willReturn(okJson("{\"sub\" : \"124\",  \"eduperson_entitlement\" : [\"urn:geant:elixir-europe.org:group:elixir:GA4GH:GA4GH-CAP:EBI#perun.elixir-czech.cz\", \"urn:geant:elixir-europe.org:group:elixir:GA4GH:GA4GH-CAP:EBI:TEST#perun.elixir-czech.cz\"]}")));
+
+        MockUtil.mockBatchGetTaskKubernetesResponses(this.mockKubernetes);
+
+        this.mvc.perform(post(TASK_URL + ":batchGet")
+                .content("{\"ids\": [\"task-123\"]}")
+                .contentType(MediaType.APPLICATION_JSON)
+                .header("Authorization", "Bearer BAR"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.tasks").isEmpty())
+                .andExpect(jsonPath("$.missing_ids[0]").value("task-123"));
+    }
+
+    @Test
+    public void authorized_batchCancelTasks() throws Exception {
+
+        mockElixir.givenThat(
+                WireMock.get("/")
+                        .willReturn(okJson("{\"sub\" : \"123\",  \"eduperson_entitlement\" : [\"urn:geant:elixir-europe.org:group:elixir:GA4GH:GA4GH-CAP:EBI#perun.elixir-czech.cz\", \"urn:geant:elixir-europe.org:group:elixir:GA4GH:GA4GH-CAP:EBI:TEST#perun.elixir-czech.cz\"]}")));
+
+        MockUtil.mockGetTaskKubernetesResponses(this.mockKubernetes);
+        MockUtil.mockListTaskKubernetesResponses(this.mockKubernetes);
+        mockKubernetes.givenThat(
+                WireMock.get("/apis/batch/v1/namespaces/default/jobs/task-404")
+                        .willReturn(aResponse().withStatus(404)));
+
+        this.mvc.perform(post(TASK_URL + ":batchCancel")
+                .content("{\"ids\": [\"task-404\", \"task-123\"]}")
+                .contentType(MediaType.APPLICATION_JSON)
+                .header("Authorization", "Bearer BAR"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.results[0].id").value("task-404"))
+                .andExpect(jsonPath("$.results[0].result").value("NOT_FOUND"))
+                .andExpect(jsonPath("$.results[1].id").value("task-123"))
+                .andExpect(jsonPath("$.results[1].result").value("NOT_RUNNING"));
+    }
+
+    @Test
+    public void nonauthorized_batchCancelTasks() throws Exception {
+
+        mockElixir.givenThat(
+                WireMock.get("/")
+                        .willReturn(okJson("{\"sub\" : \"124\",  \"eduperson_entitlement\" : [\"urn:geant:elixir-europe.org:group:elixir:GA4GH:GA4GH-CAP:EBI#perun.elixir-czech.cz\", \"urn:geant:elixir-europe.org:group:elixir:GA4GH:GA4GH-CAP:EBI:TEST#perun.elixir-czech.cz\"]}")));
+
+        MockUtil.mockGetTaskKubernetesResponses(this.mockKubernetes);
+        MockUtil.mockListTaskKubernetesResponses(this.mockKubernetes);
+
+        this.mvc.perform(post(TASK_URL + ":batchCancel")
+                .content("{\"ids\": [\"task-123\"]}")
+                .contentType(MediaType.APPLICATION_JSON)
+                .header("Authorization", "Bearer BAR"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.results[0].result").value("NOT_FOUND"));
+    }
+
     @Test
     public void member_getList() throws Exception {
 
@@ -424,7 +510,7 @@ public class AuthIT {
 
         mockKubernetes.givenThat(
                 WireMock.get("/apis/batch/v1/namespaces/default/jobs?labelSelector=job-type%3Dtaskmaster" +
-                        "%2Ccreator-group-name%20in%20%28TEST%29%2Ccreator-user-id%3D123")
+                        "%2Ccreator-group-name%20in%20%28TEST%29%2Ccreator-user-id%3D123&limit=256")
                         .willReturn(aResponse().withBodyFile("list/taskmasters.json")));
         MockUtil.mockListTaskKubernetesResponses(this.mockKubernetes);
 
@@ -440,7 +526,7 @@ public class AuthIT {
                         .willReturn(okJson("{\"sub\" : \"123\",  \"eduperson_entitlement\" : [\"urn:geant:elixir-europe.org:group:elixir:GA4GH:GA4GH-CAP:EBI:ADMIN#perun.elixir-czech.cz\"]}")));
 
         mockKubernetes.givenThat(
-                WireMock.get("/apis/batch/v1/namespaces/default/jobs?labelSelector=job-type%3Dtaskmaster")
+                WireMock.get("/apis/batch/v1/namespaces/default/jobs?labelSelector=job-type%3Dtaskmaster&limit=256")
                         .willReturn(aResponse().withBodyFile("list/taskmasters.json")));
         MockUtil.mockListTaskKubernetesResponses(this.mockKubernetes);
 
@@ -457,7 +543,7 @@ public class AuthIT {
 
         mockKubernetes.givenThat(
                 WireMock.get("/apis/batch/v1/namespaces/default/jobs?labelSelector=job-type%3Dtaskmaster" +
-                        "%2Ccreator-group-name%20in%20%28TEST%29")
+                        "%2Ccreator-group-name%20in%20%28TEST%29&limit=256")
                         .willReturn(aResponse().withBodyFile("list/taskmasters.json")));
         MockUtil.mockListTaskKubernetesResponses(this.mockKubernetes);
 
@@ -474,7 +560,7 @@ public class AuthIT {
 
         mockKubernetes.givenThat(
                 WireMock.get("/apis/batch/v1/namespaces/default/jobs?labelSelector=job-type%3Dtaskmaster" +
-                        "%2Ccreator-group-name%20in%20%28TEST%2CABC%29")
+                        "%2Ccreator-group-name%20in%20%28TEST%2CABC%29&limit=256")
                         .willReturn(aResponse().withBodyFile("list/taskmasters.json")));
         MockUtil.mockListTaskKubernetesResponses(this.mockKubernetes);
 
@@ -0,0 +1,157 @@
+package uk.ac.ebi.tsc.tesk;
+
+import com.github.tomakehurst.wiremock.client.WireMock;
+import com.github.tomakehurst.wiremock.junit.WireMockRule;
+import io.kubernetes.client.ApiClient;
+import io.kubernetes.client.util.Config;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Primary;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.wireMockConfig;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+import static uk.ac.ebi.tsc.tesk.UrlConstants.TASK_URL;
+
+/**
+ * @author Ania Niewielska <aniewielska@ebi.ac.uk>
+ * <p>
+ * Integration testing of bulk cancellation (selection by tags and creator)
+ * Kubernetes API is WireMocked
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@AutoConfigureMockMvc
+@TestPropertySource(locations = {"classpath:application.properties"},
+        properties = {"security.oauth2.resource.user-info-uri = http://localhost:8090",
+                "spring.profiles.active=noauth"})
+public class BatchCancelIT {
+
+    @Autowired
+    private MockMvc mvc;
+
+    @Rule
+    public WireMockRule mockKubernetes = new WireMockRule(wireMockConfig().port(9000).usingFilesUnderDirectory("src/integration-test/resources"));
+
+    @TestConfiguration
+    static class KubernetesClientMock {
+        @Bean
+        @Primary
+        public ApiClient kubernetesApiClient() {
+
+            return Config.fromUrl("http://localhost:9000", false);
+
+        }
+
+        @Bean(name = "patchApiClient")
+        public ApiClient patchApiClient() {
+
+            return Config.fromUrl("http://localhost:9000", false);
+
+        }
+    }
+
+    private void mockTasks() {
+        mockKubernetes.givenThat(
+                WireMock.get("/apis/batch/v1/namespaces/default/jobs?labelSelector=job-type%3Dtaskmaster")
+                        .willReturn(aResponse().withBodyFile("cancel/taskmasters.json")));
+        mockKubernetes.givenThat(
+                WireMock.get(urlPathEqualTo("/api/v1/namespaces/default/pods"))
+                        .withQueryParam("labelSelector", matching("job-name in \\(.*\\)"))
+                        .willReturn(aResponse().withBodyFile("cancel/pods.json")));
+        mockKubernetes.givenThat(
+                WireMock.patch(urlPathMatching("/apis/batch/v1/namespaces/default/jobs/task-.*"))
+                        .withRequestBody(matchingJsonPath("$.metadata.labels[?(@.task-status == 'Cancelled')]"))
+                        .willReturn(okJson("{\"metadata\":{\"name\":\"task-201\"}}")));
+        mockKubernetes.givenThat(
+                WireMock.patch(urlPathMatching("/api/v1/namespaces/default/pods/pod-.*"))
+                        .withRequestBody(matchingJsonPath("$.metadata.labels[?(@.task-status == 'Cancelled')]"))
+                        .willReturn(okJson("{\"metadata\":{\"name\":\"pod-201\"}}")));
+    }
+
+    @Test
+    public void batchCancel_byTags() throws Exception {
+        this.mockTasks();
+
+        this.mvc.perform(post(TASK_URL + ":batchCancel")
+                .content("{\"tags\": {\"workflow\": \"wf-1\"}}")
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.results.length()").value(1))
+                .andExpect(jsonPath("$.results[0].id").value("task-201"))
+                .andExpect(jsonPath("$.results[0].result").value("CANCELED"));
+        //with resourceVersions of the read objects as preconditions
+        mockKubernetes.verify(1, patchRequestedFor(urlEqualTo("/apis/batch/v1/namespaces/default/jobs/task-201"))
+                .withRequestBody(matchingJsonPath("$.metadata[?(@.resourceVersion == '1010')]")));
+        mockKubernetes.verify(1, patchRequestedFor(urlEqualTo("/api/v1/namespaces/default/pods/pod-201"))
+                .withRequestBody(matchingJsonPath("$.metadata[?(@.resourceVersion == '3010')]")));
+        mockKubernetes.verify(0, patchRequestedFor(urlEqualTo("/apis/batch/v1/namespaces/default/jobs/task-202")));
+        mockKubernetes.verify(0, patchRequestedFor(urlEqualTo("/apis/batch/v1/namespaces/default/jobs/task-203")));
+    }
+
+    @Test
+    public void batchCancel_byCreator_patchFailed() throws Exception {
+        this.mockTasks();
+        mockKubernetes.givenThat(
+                WireMock.patch(urlEqualTo("/apis/batch/v1/namespaces/default/jobs/task-202"))
+                        .willReturn(aResponse().withStatus(500)));
+
+        this.mvc.perform(post(TASK_URL + ":batchCancel")
+                .content("{\"user_id\": \"anonymousUser\"}")
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.results.length()").value(2))
+                .andExpect(jsonPath("$.results[0].result").value("CANCELED"))
+                .andExpect(jsonPath("$.results[1].id").value("task-202"))
+                .andExpect(jsonPath("$.results[1].result").value("FAILED"));
+    }
+
+    @Test
+    public void batchCancel_completedBeforePatch_notRunning() throws Exception {
+        this.mockTasks();
+        mockKubernetes.givenThat(
+                WireMock.patch(urlEqualTo("/apis/batch/v1/namespaces/default/jobs/task-201"))
+                        .willReturn(aResponse().withStatus(409)));
+        mockKubernetes.givenThat(
+                WireMock.get("/apis/batch/v1/namespaces/default/jobs/task-201")
+                        .willReturn(aResponse().withBodyFile("cancel/task-201_succeeded.json")));
+        mockKubernetes.givenThat(
+                WireMock.get(urlPathEqualTo("/api/v1/namespaces/default/pods"))
+                        .withQueryParam("labelSelector", equalTo("controller-uid=uid-201"))
+                        .willReturn(okJson("{\"items\":[]}")));
+
+        this.mvc.perform(post(TASK_URL + ":batchCancel")
+                .content("{\"tags\": {\"workflow\": \"wf-1\"}}")
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.results[0].id").value("task-201"))
+                .andExpect(jsonPath("$.results[0].result").value("NOT_RUNNING"));
+        mockKubernetes.verify(1, patchRequestedFor(urlEqualTo("/apis/batch/v1/namespaces/default/jobs/task-201")));
+        mockKubernetes.verify(1, getRequestedFor(urlEqualTo("/apis/batch/v1/namespaces/default/jobs/task-201")));
+        mockKubernetes.verify(0, patchRequestedFor(urlEqualTo("/api/v1/namespaces/default/pods/pod-201")));
+    }
+
+    @Test
+    public void batchCancel_noSelection() throws Exception {
+        this.mvc.perform(post(TASK_URL + ":batchCancel")
+                .content("{\"ids\": [\"task-201\"], \"user_id\": \"anonymousUser\"}")
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isBadRequest());
+        this.mvc.perform(post(TASK_URL + ":batchCancel")
+                .content("{}")
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isBadRequest());
+    }
+}
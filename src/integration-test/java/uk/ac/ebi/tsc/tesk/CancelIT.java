@@ -0,0 +1,142 @@
+package uk.ac.ebi.tsc.tesk;
+
+import com.github.tomakehurst.wiremock.client.WireMock;
+import com.github.tomakehurst.wiremock.junit.WireMockRule;
+import io.kubernetes.client.ApiClient;
+import io.kubernetes.client.util.Config;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Primary;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.wireMockConfig;
+import static com.github.tomakehurst.wiremock.stubbing.Scenario.STARTED;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+import static uk.ac.ebi.tsc.tesk.UrlConstants.TASK_URL;
+
+/**
+ * @author Ania Niewielska <aniewielska@ebi.ac.uk>
+ * <p>
+ * Integration testing of single task cancellation (objects read once, resourceVersion preconditions on patches)
+ * Kubernetes API is WireMocked
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@AutoConfigureMockMvc
+@TestPropertySource(locations = {"classpath:application.properties"},
+        properties = {"security.oauth2.resource.user-info-uri = http://localhost:8090",
+                "spring.profiles.active=noauth"})
+public class CancelIT {
+
+    private static final String JOB_URL = "/apis/batch/v1/namespaces/default/jobs/task-201";
+
+    private static final String POD_URL = "/api/v1/namespaces/default/pods/pod-201";
+
+    @Autowired
+    private MockMvc mvc;
+
+    @Rule
+    public WireMockRule mockKubernetes = new WireMockRule(wireMockConfig().port(9000).usingFilesUnderDirectory("src/integration-test/resources"));
+
+    @TestConfiguration
+    static class KubernetesClientMock {
+        @Bean
+        @Primary
+        public ApiClient kubernetesApiClient() {
+
+            return Config.fromUrl("http://localhost:9000", false);
+
+        }
+
+        @Bean(name = "patchApiClient")
+        public ApiClient patchApiClient() {
+
+            return Config.fromUrl("http://localhost:9000", false);
+
+        }
+    }
+
+    @Before
+    public void setUp() {
+        mockKubernetes.givenThat(
+                WireMock.get(urlPathEqualTo("/api/v1/namespaces/default/pods"))
+                        .withQueryParam("labelSelector", equalTo("controller-uid=uid-201"))
+                        .willReturn(aResponse().withBodyFile("cancel/task-201_pods.json")));
+        mockKubernetes.givenThat(
+                WireMock.patch(urlEqualTo(POD_URL))
+                        .withRequestBody(matchingJsonPath("$.metadata[?(@.resourceVersion == '1003')]"))
+                        .withRequestBody(matchingJsonPath("$.metadata.labels[?(@.task-status == 'Cancelled')]"))
+                        .willReturn(okJson("{\"metadata\":{\"name\":\"pod-201\"}}")));
+    }
+
+    @Test
+    public void cancelTask_patchesWithPreconditions() throws Exception {
+        mockKubernetes.givenThat(
+                WireMock.get(JOB_URL)
+                        .willReturn(aResponse().withBodyFile("cancel/task-201.json")));
+        mockKubernetes.givenThat(
+                WireMock.patch(urlEqualTo(JOB_URL))
+                        .withRequestBody(matchingJsonPath("$.metadata[?(@.resourceVersion == '1001')]"))
+                        .withRequestBody(matchingJsonPath("$.metadata.labels[?(@.task-status == 'Cancelled')]"))
+                        .willReturn(okJson("{\"metadata\":{\"name\":\"task-201\"}}")));
+
+        this.mvc.perform(post(TASK_URL + "/{id}:cancel", "task-201"))
+                .andExpect(status().isOk());
+        mockKubernetes.verify(1, getRequestedFor(urlEqualTo(JOB_URL)));
+        mockKubernetes.verify(1, getRequestedFor(urlPathEqualTo("/api/v1/namespaces/default/pods")));
+        mockKubernetes.verify(1, patchRequestedFor(urlEqualTo(JOB_URL)));
+        mockKubernetes.verify(1, patchRequestedFor(urlEqualTo(POD_URL)));
+    }
+
+    @Test
+    public void cancelTask_conflict_retried() throws Exception {
+        mockKubernetes.givenThat(
+                WireMock.get(JOB_URL)
+                        .willReturn(aResponse().withBodyFile("cancel/task-201.json")));
+        mockKubernetes.givenThat(
+                WireMock.patch(urlEqualTo(JOB_URL)).inScenario("conflict").whenScenarioStateIs(STARTED)
+                        .willReturn(aResponse().withStatus(409))
+                        .willSetStateTo("reread"));
+        mockKubernetes.givenThat(
+                WireMock.patch(urlEqualTo(JOB_URL)).inScenario("conflict").whenScenarioStateIs("reread")
+                        .willReturn(okJson("{\"metadata\":{\"name\":\"task-201\"}}")));
+
+        this.mvc.perform(post(TASK_URL + "/{id}:cancel", "task-201"))
+                .andExpect(status().isOk());
+        mockKubernetes.verify(2, getRequestedFor(urlEqualTo(JOB_URL)));
+        mockKubernetes.verify(2, patchRequestedFor(urlEqualTo(JOB_URL)));
+        mockKubernetes.verify(1, patchRequestedFor(urlEqualTo(POD_URL)));
+    }
+
+    @Test
+    public void cancelTask_conflict_completedMeanwhile() throws Exception {
+        mockKubernetes.givenThat(
+                WireMock.get(JOB_URL).inScenario("completed").whenScenarioStateIs(STARTED)
+                        .willReturn(aResponse().withBodyFile("cancel/task-201.json")));
+        mockKubernetes.givenThat(
+                WireMock.patch(urlEqualTo(JOB_URL)).inScenario("completed").whenScenarioStateIs(STARTED)
+                        .willReturn(aResponse().withStatus(409))
+                        .willSetStateTo("succeeded"));
+        mockKubernetes.givenThat(
+                WireMock.get(JOB_URL).inScenario("completed").whenScenarioStateIs("succeeded")
+                        .willReturn(aResponse().withBodyFile("cancel/task-201_succeeded.json")));
+
+        this.mvc.perform(post(TASK_URL + "/{id}:cancel", "task-201"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("Job with ID=task-201 has no pods in RUNNING status."));
+        mockKubernetes.verify(1, patchRequestedFor(urlEqualTo(JOB_URL)));
+        mockKubernetes.verify(0, patchRequestedFor(urlEqualTo(POD_URL)));
+    }
+}
@@ -0,0 +1,101 @@
+package uk.ac.ebi.tsc.tesk;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.tomakehurst.wiremock.junit.WireMockRule;
+import io.kubernetes.client.ApiClient;
+import io.kubernetes.client.util.Config;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.util.EntityUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Primary;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+import uk.ac.ebi.tsc.tesk.tes.model.TesTask;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.wireMockConfig;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.startsWith;
+import static org.junit.Assert.assertThat;
+import static uk.ac.ebi.tsc.tesk.UrlConstants.TASK_URL;
+
+/**
+ * @author Ania Niewielska <aniewielska@ebi.ac.uk>
+ * <p>
+ * Integration testing of response compression and HTTP/2 (h2c) of the embedded server
+ * Kubernetes API is WireMocked
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@TestPropertySource(locations = {"classpath:application.properties"},
+        properties = {"security.oauth2.resource.user-info-uri = http://localhost:8090",
+                "spring.profiles.active=noauth"})
+public class CompressionIT {
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Rule
+    public WireMockRule mockKubernetes = new WireMockRule(wireMockConfig().port(9000).usingFilesUnderDirectory("src/integration-test/resources"));
+
+    @TestConfiguration
+    static class KubernetesClientMock {
+        @Bean
+        @Primary
+        public ApiClient kubernetesApiClient() {
+
+            return Config.fromUrl("http://localhost:9000", false);
+
+        }
+    }
+
+    @Test
+    public void getTask_gzipped() throws Exception {
+        MockUtil.mockGetTaskKubernetesResponses(this.mockKubernetes);
+        HttpGet request = new HttpGet("http://localhost:" + this.port + TASK_URL + "/task-123?view=FULL");
+        request.addHeader("Accept-Encoding", "gzip");
+        try (CloseableHttpClient client = HttpClientBuilder.create().disableContentCompression().build()) {
+            HttpResponse response = client.execute(request);
+            assertThat(response.getStatusLine().getStatusCode(), is(200));
+            assertThat(response.getFirstHeader("Content-Encoding").getValue(), is("gzip"));
+            byte[] body = EntityUtils.toByteArray(response.getEntity());
+            TesTask task = this.objectMapper.readValue(new GZIPInputStream(new ByteArrayInputStream(body)), TesTask.class);
+            assertThat(task.getId(), is("task-123"));
+        }
+    }
+
+    @Test
+    public void h2cUpgrade() throws Exception {
+        try (Socket socket = new Socket("localhost", this.port)) {
+            OutputStream out = socket.getOutputStream();
+            out.write(("GET /swagger-ui.html HTTP/1.1\r\n" +
+                    "Host: localhost\r\n" +
+                    "Connection: Upgrade, HTTP2-Settings\r\n" +
+                    "Upgrade: h2c\r\n" +
+                    "HTTP2-Settings: AAMAAABkAARAAAAAAAIAAAAA\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+            out.flush();
+            BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII));
+            assertThat(in.readLine(), startsWith("HTTP/1.1 101"));
+        }
+    }
+}
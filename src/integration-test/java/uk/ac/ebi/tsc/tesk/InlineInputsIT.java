@@ -0,0 +1,129 @@
+package uk.ac.ebi.tsc.tesk;
+
+import com.github.tomakehurst.wiremock.client.WireMock;
+import com.github.tomakehurst.wiremock.junit.WireMockRule;
+import io.kubernetes.client.ApiClient;
+import io.kubernetes.client.util.Config;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Primary;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.wireMockConfig;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+import static uk.ac.ebi.tsc.tesk.TestUtils.getFileContentFromResources;
+import static uk.ac.ebi.tsc.tesk.UrlConstants.TASK_URL;
+
+/**
+ * @author Ania Niewielska <aniewielska@ebi.ac.uk>
+ * <p>
+ * Integration testing of inline inputs mounted to executors from a config map (tesk.api.taskmaster.inline-inputs-max-size)
+ * Kubernetes API is WireMocked
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@AutoConfigureMockMvc
+@TestPropertySource(locations = {"classpath:application.properties"},
+        properties = {"security.oauth2.resource.user-info-uri = http://localhost:8090",
+                "spring.profiles.active=noauth",
+                "tesk.api.taskmaster.inline-inputs-max-size=1000"})
+public class InlineInputsIT {
+
+    @Autowired
+    private MockMvc mvc;
+
+    @Rule
+    public WireMockRule mockKubernetes = new WireMockRule(wireMockConfig().port(9000).usingFilesUnderDirectory("src/integration-test/resources"));
+
+    @TestConfiguration
+    static class KubernetesClientMock {
+        @Bean
+        @Primary
+        public ApiClient kubernetesApiClient() {
+
+            return Config.fromUrl("http://localhost:9000", false);
+
+        }
+
+        @Bean(name = "patchApiClient")
+        public ApiClient patchApiClient() {
+
+            return Config.fromUrl("http://localhost:9000", false);
+
+        }
+    }
+
+    @Test
+    public void createTask() throws Exception {
+
+        mockKubernetes.givenThat(
+                WireMock.post("/api/v1/namespaces/default/configmaps")
+                        .withRequestBody(matchingJsonPath("$.metadata.labels[?(@.creator-user-id == 'anonymousUser')]"))
+                        .withRequestBody(matchingJsonPath("$.data[?(@.input-0 == 'echo hello world')]"))
+                        .willReturn(okJson("{\"metadata\":{\"name\":\"task-fe99716a-inputs\"}}")));
+        mockKubernetes.givenThat(
+                WireMock.post("/apis/batch/v1/namespaces/default/jobs")
+                        //taskmaster's input (JSON as a string)
+                        .withRequestBody(containing("\\\"inputs\\\":[]"))
+                        .withRequestBody(containing("\\\"subPath\\\":\\\"input-0\\\""))
+                        .willReturn(okJson("{\"metadata\":{\"name\":\"task-fe99716a\",\"uid\":\"uid-1\"}}")));
+        mockKubernetes.givenThat(
+                WireMock.patch(urlPathMatching("/api/v1/namespaces/default/configmaps/task-.*-inputs"))
+                        .withRequestBody(matchingJsonPath("$.metadata.ownerReferences[?(@.uid == 'uid-1')]"))
+                        .willReturn(okJson("{\"metadata\":{\"name\":\"task-fe99716a-inputs\"}}")));
+
+        this.mvc.perform(post(TASK_URL)
+                .content(getFileContentFromResources("fromTesToK8s_inlineInputs/task.json"))
+                .contentType(MediaType.APPLICATION_JSON)
+                .accept(MediaType.APPLICATION_JSON)).andExpect(status().isOk())
+                .andExpect(jsonPath("$.id").value("task-fe99716a"));
+        mockKubernetes.verify(1, postRequestedFor(urlEqualTo("/api/v1/namespaces/default/configmaps")));
+        mockKubernetes.verify(1, patchRequestedFor(urlPathMatching("/api/v1/namespaces/default/configmaps/task-.*-inputs")));
+    }
+
+    @Test
+    public void createTask_jobFailed_configMapDeleted() throws Exception {
+
+        mockKubernetes.givenThat(
+                WireMock.post("/api/v1/namespaces/default/configmaps")
+                        .willReturn(okJson("{\"metadata\":{\"name\":\"task-fe99716a-inputs\"}}")));
+        mockKubernetes.givenThat(
+                WireMock.post("/apis/batch/v1/namespaces/default/jobs")
+                        .willReturn(aResponse().withStatus(500)));
+        mockKubernetes.givenThat(
+                WireMock.delete(urlPathMatching("/api/v1/namespaces/default/configmaps/task-.*-inputs"))
+                        .willReturn(okJson("{\"kind\":\"Status\",\"status\":\"Success\"}")));
+
+        this.mvc.perform(post(TASK_URL)
+                .content(getFileContentFromResources("fromTesToK8s_inlineInputs/task.json"))
+                .contentType(MediaType.APPLICATION_JSON)
+                .accept(MediaType.APPLICATION_JSON)).andExpect(status().isInternalServerError());
+        mockKubernetes.verify(1, deleteRequestedFor(urlPathMatching("/api/v1/namespaces/default/configmaps/task-.*-inputs")));
+    }
+
+    @Test
+    public void createTask_urlInput_noConfigMap() throws Exception {
+
+        mockKubernetes.givenThat(
+                WireMock.post("/apis/batch/v1/namespaces/default/jobs")
+                        .willReturn(okJson("{\"metadata\":{\"name\":\"task-fe99716a\",\"uid\":\"uid-1\"}}")));
+
+        this.mvc.perform(post(TASK_URL)
+                .content(getFileContentFromResources("fromTesToK8s/task.json"))
+                .contentType(MediaType.APPLICATION_JSON)
+                .accept(MediaType.APPLICATION_JSON)).andExpect(status().isOk());
+        mockKubernetes.verify(0, postRequestedFor(urlEqualTo("/api/v1/namespaces/default/configmaps")));
+    }
+}
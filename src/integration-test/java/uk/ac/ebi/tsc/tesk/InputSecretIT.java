@@ -0,0 +1,163 @@
+package uk.ac.ebi.tsc.tesk;
+
+import com.github.tomakehurst.wiremock.client.WireMock;
+import com.github.tomakehurst.wiremock.junit.WireMockRule;
+import io.kubernetes.client.ApiClient;
+import io.kubernetes.client.util.Config;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Primary;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.wireMockConfig;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+import static uk.ac.ebi.tsc.tesk.TestUtils.getFileContentFromResources;
+import static uk.ac.ebi.tsc.tesk.UrlConstants.TASK_URL;
+
+/**
+ * @author Ania Niewielska <aniewielska@ebi.ac.uk>
+ * <p>
+ * Integration testing of taskmaster's input moved to a secret (tesk.api.taskmaster.input-secret-threshold)
+ * Kubernetes API is WireMocked
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@AutoConfigureMockMvc
+@TestPropertySource(locations = {"classpath:application.properties"},
+        properties = {"security.oauth2.resource.user-info-uri = http://localhost:8090",
+                "spring.profiles.active=noauth",
+                "tesk.api.taskmaster.input-secret-threshold=1"})
+public class InputSecretIT {
+
+    @Autowired
+    private MockMvc mvc;
+
+    @Rule
+    public WireMockRule mockKubernetes = new WireMockRule(wireMockConfig().port(9000).usingFilesUnderDirectory("src/integration-test/resources"));
+
+    @TestConfiguration
+    static class KubernetesClientMock {
+        @Bean
+        @Primary
+        public ApiClient kubernetesApiClient() {
+
+            return Config.fromUrl("http://localhost:9000", false);
+
+        }
+
+        @Bean(name = "patchApiClient")
+        public ApiClient patchApiClient() {
+
+            return Config.fromUrl("http://localhost:9000", false);
+
+        }
+    }
+
+    @Test
+    public void createTask() throws Exception {
+
+        mockKubernetes.givenThat(
+                WireMock.post("/api/v1/namespaces/default/secrets")
+                        .withRequestBody(matchingJsonPath("$.metadata.labels[?(@.creator-user-id == 'anonymousUser')]"))
+                        .withRequestBody(matchingJsonPath("$.data['JSON_INPUT.gz']", matching("^H4sI.*")))
+                        .willReturn(okJson("{\"metadata\":{\"name\":\"task-fe99716a\"}}")));
+        mockKubernetes.givenThat(
+                WireMock.post("/apis/batch/v1/namespaces/default/jobs")
+                        .withRequestBody(matchingJsonPath("$.metadata.annotations['json-input-secret']"))
+                        .withRequestBody(matchingJsonPath("$.spec.template.spec.volumes[?(@.name == 'jsoninput')]"))
+                        .withRequestBody(matchingJsonPath("$.spec.template.spec.containers[0].args[?(@ == '/jsoninput/JSON_INPUT.gz')]"))
+                        .willReturn(okJson("{\"metadata\":{\"name\":\"task-fe99716a\",\"uid\":\"uid-1\"}}")));
+        mockKubernetes.givenThat(
+                WireMock.patch(urlPathMatching("/api/v1/namespaces/default/secrets/task-.*"))
+                        .withRequestBody(matchingJsonPath("$.metadata.ownerReferences[?(@.uid == 'uid-1')]"))
+                        .willReturn(okJson("{\"metadata\":{\"name\":\"task-fe99716a\"}}")));
+
+        this.mvc.perform(post(TASK_URL)
+                .content(getFileContentFromResources("fromTesToK8s_minimal/task.json"))
+                .contentType(MediaType.APPLICATION_JSON)
+                .accept(MediaType.APPLICATION_JSON)).andExpect(status().isOk())
+                .andExpect(jsonPath("$.id").value("task-fe99716a"));
+        mockKubernetes.verify(1, postRequestedFor(urlEqualTo("/api/v1/namespaces/default/secrets")));
+        mockKubernetes.verify(1, patchRequestedFor(urlPathMatching("/api/v1/namespaces/default/secrets/task-.*")));
+    }
+
+    @Test
+    public void createTask_jobFailed_secretDeleted() throws Exception {
+
+        mockKubernetes.givenThat(
+                WireMock.post("/api/v1/namespaces/default/secrets")
+                        .willReturn(okJson("{\"metadata\":{\"name\":\"task-fe99716a\"}}")));
+        mockKubernetes.givenThat(
+                WireMock.post("/apis/batch/v1/namespaces/default/jobs")
+                        .willReturn(aResponse().withStatus(500)));
+        mockKubernetes.givenThat(
+                WireMock.delete(urlPathMatching("/api/v1/namespaces/default/secrets/task-.*"))
+                        .willReturn(okJson("{\"kind\":\"Status\",\"status\":\"Success\"}")));
+
+        this.mvc.perform(post(TASK_URL)
+                .content(getFileContentFromResources("fromTesToK8s_minimal/task.json"))
+                .contentType(MediaType.APPLICATION_JSON)
+                .accept(MediaType.APPLICATION_JSON)).andExpect(status().isInternalServerError());
+        mockKubernetes.verify(1, deleteRequestedFor(urlPathMatching("/api/v1/namespaces/default/secrets/task-.*")));
+    }
+
+    @Test
+    public void getTask_inputContentsFromSecret() throws Exception {
+
+        MockUtil.mockGetTaskKubernetesResponses(this.mockKubernetes);
+        mockKubernetes.givenThat(
+                WireMock.get("/apis/batch/v1/namespaces/default/jobs/task-123")
+                        .willReturn(aResponse().withBodyFile("task-123/taskmaster_input_secret.json")));
+        mockKubernetes.givenThat(
+                WireMock.get("/api/v1/namespaces/default/secrets/task-123")
+                        .willReturn(aResponse().withBodyFile("task-123/input_secret.json")));
+
+        this.mvc.perform(get(TASK_URL + "/{id}?view=BASIC", "task-123"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.inputs[0].content").doesNotExist());
+        mockKubernetes.verify(0, getRequestedFor(urlEqualTo("/api/v1/namespaces/default/secrets/task-123")));
+
+        this.mvc.perform(get(TASK_URL + "/{id}?view=FULL", "task-123"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.inputs[0].content").value("hello input"))
+                .andExpect(jsonPath("$.inputs[1].url").value("http://example.org/b.txt"))
+                .andExpect(jsonPath("$.inputs[1].content").doesNotExist());
+        mockKubernetes.verify(1, getRequestedFor(urlEqualTo("/api/v1/namespaces/default/secrets/task-123")));
+    }
+
+    @Test
+    public void getTask_inputContentsFromConfigMap() throws Exception {
+
+        MockUtil.mockGetTaskKubernetesResponses(this.mockKubernetes);
+        mockKubernetes.givenThat(
+                WireMock.get("/apis/batch/v1/namespaces/default/jobs/task-123")
+                        .willReturn(aResponse().withBodyFile("task-123/taskmaster_input_configmap.json")));
+        mockKubernetes.givenThat(
+                WireMock.get("/api/v1/namespaces/default/configmaps/task-123-inputs")
+                        .willReturn(aResponse().withBodyFile("task-123/inputs_configmap.json")));
+
+        //inline inputs mounted from the config map - the secret has no inputs and is not read
+        //(field mask - FULL view of task-123 of the other test may be in the cache of terminal tasks)
+        this.mvc.perform(get(TASK_URL + "/{id}?view=FULL&fields=id,inputs", "task-123"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.inputs[0].name").value("in"))
+                .andExpect(jsonPath("$.inputs[0].content").value("hello input"))
+                .andExpect(jsonPath("$.inputs[1].path").value("/in/b.txt"))
+                .andExpect(jsonPath("$.inputs[1].content").value("hello again"));
+        mockKubernetes.verify(1, getRequestedFor(urlEqualTo("/api/v1/namespaces/default/configmaps/task-123-inputs")));
+        mockKubernetes.verify(0, getRequestedFor(urlEqualTo("/api/v1/namespaces/default/secrets/task-123")));
+    }
+}
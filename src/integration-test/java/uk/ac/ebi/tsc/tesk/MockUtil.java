@@ -18,6 +18,9 @@ class MockUtil {
         mockKubernetes.givenThat(WireMock.get("/apis/batch/v1/namespaces/default/jobs/task-123-outputs-filer")
                 .willReturn(aResponse().withStatus(HttpStatus.SC_NOT_FOUND)));
 
+        mockKubernetes.givenThat(
+                WireMock.get("/api/v1/namespaces/default/pods?labelSelector=taskmaster-name%3Dtask-123")
+                        .willReturn(aResponse().withBodyFile("task-123/task_pods.json")));
         mockKubernetes.givenThat(
                 WireMock.get("/api/v1/namespaces/default/pods?labelSelector=controller-uid%3D24a0504a-4a2b-11e8-a06f-fa163ecf0042")
                         .willReturn(aResponse().withBodyFile("task-123/taskmaster_pods.json")));
@@ -33,18 +36,33 @@ class MockUtil {
     }
 
 
+    /**
+     * Objects of task-123 listed by set-based selectors (batch get)
+     */
+    static void mockBatchGetTaskKubernetesResponses(WireMockRule mockKubernetes) {
+        mockGetTaskKubernetesResponses(mockKubernetes);
+        mockKubernetes.givenThat(
+                WireMock.get(urlPathEqualTo("/apis/batch/v1/namespaces/default/jobs"))
+                        .withQueryParam("labelSelector", equalTo("taskmaster-name in (task-123)"))
+                        .willReturn(aResponse().withBodyFile("task-123/executor.json")));
+        mockKubernetes.givenThat(
+                WireMock.get(urlPathEqualTo("/api/v1/namespaces/default/pods"))
+                        .withQueryParam("labelSelector", matching("(taskmaster-name|job-name) in \\(.*\\)"))
+                        .willReturn(aResponse().withBodyFile("task-123/task_pods.json")));
+    }
+
     static void mockListTaskKubernetesResponses(WireMockRule mockKubernetes) {
         mockKubernetes.givenThat(
-                WireMock.get("/apis/batch/v1/namespaces/default/jobs?labelSelector=job-type%3Dexecutor")
+                WireMock.get(urlPathEqualTo("/apis/batch/v1/namespaces/default/jobs"))
+                        .withQueryParam("labelSelector", matching("taskmaster-name in \\(.*\\)"))
                         .willReturn(aResponse().withBodyFile("list/executors.json")));
 
-        mockKubernetes.givenThat(WireMock.get("/apis/batch/v1/namespaces/default/jobs?labelSelector=%21job-type")
-                .willReturn(okJson("{\n" +
-                        "  \"items\": []\n" +
-                        "}")));
+        mockKubernetes.givenThat(WireMock.get(urlPathMatching("/apis/batch/v1/namespaces/default/jobs/([-a-z0-9]+)-outputs-filer"))
+                .willReturn(aResponse().withStatus(HttpStatus.SC_NOT_FOUND)));
 
         mockKubernetes.givenThat(
-                WireMock.get("/api/v1/namespaces/default/pods?labelSelector=job-name")
+                WireMock.get(urlPathEqualTo("/api/v1/namespaces/default/pods"))
+                        .withQueryParam("labelSelector", matching("job-name in \\(.*\\)"))
                         .willReturn(aResponse().withBodyFile("list/pods.json")));
         mockKubernetes.givenThat(
                 WireMock.get(urlPathMatching("/api/v1/namespaces/default/pods/([-a-z0-9]+)/log"))
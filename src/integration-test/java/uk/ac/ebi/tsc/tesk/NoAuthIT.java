@@ -22,6 +22,7 @@ import static com.github.tomakehurst.wiremock.client.WireMock.*;
 import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.wireMockConfig;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 import static uk.ac.ebi.tsc.tesk.TestUtils.getFileContentFromResources;
@@ -89,6 +90,67 @@ public class NoAuthIT {
                 .andExpect(status().isOk());
     }
 
+    @Test
+    public void getTask_singlePodsQuery() throws Exception {
+
+        MockUtil.mockGetTaskKubernetesResponses(this.mockKubernetes);
+
+        this.mvc.perform(get(TASK_URL + "/{id}?view=FULL", "task-123"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.logs[0].logs[0].stdout").value("hello executor!"))
+                .andExpect(jsonPath("$.logs[0].system_logs[0]").value("hello!"));
+        mockKubernetes.verify(1, getRequestedFor(urlPathEqualTo("/api/v1/namespaces/default/pods")));
+        mockKubernetes.verify(getRequestedFor(urlEqualTo("/api/v1/namespaces/default/pods?labelSelector=taskmaster-name%3Dtask-123")));
+    }
+
+    @Test
+    public void getTask_olderTaskPodsPerJob() throws Exception {
+
+        mockKubernetes.givenThat(WireMock.get("/apis/batch/v1/namespaces/default/jobs/task-201")
+                .willReturn(aResponse().withBodyFile("cancel/task-201.json")));
+        mockKubernetes.givenThat(WireMock.get("/apis/batch/v1/namespaces/default/jobs?labelSelector=taskmaster-name%3Dtask-201")
+                .willReturn(okJson("{\"items\":[]}")));
+        mockKubernetes.givenThat(WireMock.get("/apis/batch/v1/namespaces/default/jobs/task-201-outputs-filer")
+                .willReturn(aResponse().withStatus(404)));
+        mockKubernetes.givenThat(WireMock.get("/api/v1/namespaces/default/pods?labelSelector=controller-uid%3Duid-201")
+                .willReturn(aResponse().withBodyFile("cancel/task-201_pods.json")));
+
+        this.mvc.perform(get(TASK_URL + "/{id}", "task-201"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.id").value("task-201"));
+        //no task ID label in pod templates - pods listed per job only
+        mockKubernetes.verify(1, getRequestedFor(urlPathEqualTo("/api/v1/namespaces/default/pods")));
+        mockKubernetes.verify(getRequestedFor(urlEqualTo("/api/v1/namespaces/default/pods?labelSelector=controller-uid%3Duid-201")));
+    }
+
+    @Test
+    public void getTask_canceledNotCachedUntilPodsStopped() throws Exception {
+
+        mockKubernetes.givenThat(WireMock.get("/apis/batch/v1/namespaces/default/jobs/task-202")
+                .willReturn(aResponse().withBodyFile("cancel/task-202_cancelled.json")));
+        mockKubernetes.givenThat(WireMock.get("/apis/batch/v1/namespaces/default/jobs?labelSelector=taskmaster-name%3Dtask-202")
+                .willReturn(okJson("{\"items\":[]}")));
+        mockKubernetes.givenThat(WireMock.get("/apis/batch/v1/namespaces/default/jobs/task-202-outputs-filer")
+                .willReturn(aResponse().withStatus(404)));
+        mockKubernetes.givenThat(WireMock.get("/api/v1/namespaces/default/pods?labelSelector=controller-uid%3Duid-202")
+                .willReturn(aResponse().withBodyFile("cancel/task-202_pods_running.json")));
+
+        //pods still shutting down
+        this.mvc.perform(get(TASK_URL + "/{id}?view=BASIC", "task-202"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.state").value("CANCELED"))
+                .andExpect(header().doesNotExist("Cache-Control"));
+
+        mockKubernetes.givenThat(WireMock.get("/api/v1/namespaces/default/pods?labelSelector=controller-uid%3Duid-202")
+                .willReturn(aResponse().withBodyFile("cancel/task-202_pods_stopped.json")));
+        this.mvc.perform(get(TASK_URL + "/{id}?view=BASIC", "task-202"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.state").value("CANCELED"))
+                .andExpect(header().string("Cache-Control", "max-age=3600"));
+        //the first response was not cached
+        mockKubernetes.verify(2, getRequestedFor(urlEqualTo("/api/v1/namespaces/default/pods?labelSelector=controller-uid%3Duid-202")));
+    }
+
     @Test
     public void cancelTask() throws Exception {
 
@@ -102,11 +164,19 @@ public class NoAuthIT {
 
     }
 
+    @Test
+    public void watchTasks_cacheDisabled() throws Exception {
+
+        this.mvc.perform(get(TASK_URL + ":watch"))
+                .andExpect(status().isNotImplemented())
+                .andExpect(jsonPath("$.message").value("Watching tasks is not enabled on this server."));
+    }
+
     @Test
     public void getList() throws Exception {
 
         mockKubernetes.givenThat(
-                WireMock.get("/apis/batch/v1/namespaces/default/jobs?labelSelector=job-type%3Dtaskmaster")
+                WireMock.get("/apis/batch/v1/namespaces/default/jobs?labelSelector=job-type%3Dtaskmaster&limit=256")
                         .willReturn(aResponse().withBodyFile("list/taskmasters.json")));
         MockUtil.mockListTaskKubernetesResponses(this.mockKubernetes);
 
@@ -121,6 +191,87 @@ public class NoAuthIT {
                 .header("Authorization", "Bearer BAR"))
                 .andExpect(status().isOk()).andExpect(jsonPath("$.tasks.length()").value(4));
     }
+    @Test
+    public void getList_pageScopedQueries() throws Exception {
+
+        mockKubernetes.givenThat(
+                WireMock.get("/apis/batch/v1/namespaces/default/jobs?labelSelector=job-type%3Dtaskmaster&limit=2048")
+                        .willReturn(aResponse().withBodyFile("list/taskmasters.json")));
+        MockUtil.mockListTaskKubernetesResponses(this.mockKubernetes);
+
+        this.mvc.perform(get(TASK_URL + "?page_size=5000"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.tasks.length()").value(4));
+        mockKubernetes.verify(getRequestedFor(urlEqualTo("/apis/batch/v1/namespaces/default/jobs?labelSelector=" +
+                "taskmaster-name%20in%20%28task-123%2Ctask-124%2Ctask-125%2Ctask-126%29")));
+        //output filers only by their pods (one query), none failed - no filer jobs read
+        mockKubernetes.verify(getRequestedFor(urlEqualTo("/api/v1/namespaces/default/pods?labelSelector=job-name%20in%20%28" +
+                "task-123-outputs-filer%2Ctask-124-outputs-filer%2Ctask-125-outputs-filer%2Ctask-126-outputs-filer%29")));
+        mockKubernetes.verify(0, getRequestedFor(urlPathMatching("/apis/batch/v1/namespaces/default/jobs/task-12[3-6]-outputs-filer")));
+        mockKubernetes.verify(2, getRequestedFor(urlPathEqualTo("/api/v1/namespaces/default/pods")));
+        mockKubernetes.verify(0, getRequestedFor(urlEqualTo("/apis/batch/v1/namespaces/default/jobs?labelSelector=%21job-type")));
+    }
+
+    @Test
+    public void getList_failedOutputFiler() throws Exception {
+
+        mockKubernetes.givenThat(
+                WireMock.get("/apis/batch/v1/namespaces/default/jobs?labelSelector=job-type%3Dtaskmaster&limit=256")
+                        .willReturn(aResponse().withBodyFile("list/taskmasters.json")));
+        MockUtil.mockListTaskKubernetesResponses(this.mockKubernetes);
+        mockKubernetes.givenThat(
+                WireMock.get(urlPathEqualTo("/api/v1/namespaces/default/pods"))
+                        .withQueryParam("labelSelector", matching("job-name in \\(task-123-outputs-filer,.*\\)"))
+                        .willReturn(aResponse().withBodyFile("list/filer_pods.json")));
+        mockKubernetes.givenThat(WireMock.get("/apis/batch/v1/namespaces/default/jobs/task-124-outputs-filer")
+                .willReturn(aResponse().withBodyFile("list/task-124-outputs-filer.json")));
+
+        this.mvc.perform(get(TASK_URL))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.tasks[0].state").value("COMPLETE"))
+                .andExpect(jsonPath("$.tasks[1].state").value("SYSTEM_ERROR"));
+        mockKubernetes.verify(1, getRequestedFor(urlPathMatching("/apis/batch/v1/namespaces/default/jobs/task-12[3-6]-outputs-filer")));
+    }
+
+    @Test
+    public void batchGet_manyIds() throws Exception {
+
+        mockKubernetes.givenThat(
+                WireMock.get("/apis/batch/v1/namespaces/default/jobs?labelSelector=job-type%3Dtaskmaster&limit=100")
+                        .willReturn(aResponse().withBodyFile("list/taskmasters.json")));
+        MockUtil.mockListTaskKubernetesResponses(this.mockKubernetes);
+
+        this.mvc.perform(post(TASK_URL + ":batchGet")
+                .content("{\"ids\": [\"task-126\", \"task-200\", \"task-201\", \"task-202\", \"task-203\", \"task-204\"," +
+                        " \"task-205\", \"task-206\", \"task-207\", \"task-208\", \"task-124\"]}")
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.tasks.length()").value(2))
+                .andExpect(jsonPath("$.tasks[0].id").value("task-126"))
+                .andExpect(jsonPath("$.tasks[1].id").value("task-124"))
+                .andExpect(jsonPath("$.missing_ids.length()").value(9));
+        //taskmasters listed at once instead of read one by one
+        mockKubernetes.verify(1, getRequestedFor(urlEqualTo("/apis/batch/v1/namespaces/default/jobs?labelSelector=job-type%3Dtaskmaster&limit=100")));
+        mockKubernetes.verify(0, getRequestedFor(urlPathMatching("/apis/batch/v1/namespaces/default/jobs/task-.*")));
+    }
+
+    @Test
+    public void getList_namePrefix() throws Exception {
+
+        mockKubernetes.givenThat(
+                WireMock.get("/apis/batch/v1/namespaces/default/jobs?labelSelector=job-type%3Dtaskmaster&limit=256")
+                        .willReturn(aResponse().withBodyFile("list/taskmasters.json")));
+        MockUtil.mockListTaskKubernetesResponses(this.mockKubernetes);
+
+        this.mvc.perform(get(TASK_URL + "?name_prefix=hello"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.tasks.length()").value(2))
+                .andExpect(jsonPath("$.tasks[0].id").value("task-123"))
+                .andExpect(jsonPath("$.tasks[1].id").value("task-125"));
+        mockKubernetes.verify(getRequestedFor(urlEqualTo("/apis/batch/v1/namespaces/default/jobs?labelSelector=" +
+                "taskmaster-name%20in%20%28task-123%2Ctask-125%29")));
+    }
+
     @Test
     public void serviceInfo() throws Exception {
         this.mvc.perform(get(SERVICE_INFO_URL))
@@ -73,6 +73,7 @@ public class TrsToolClientIT {
     @Before
     public void setUp() {
         this.server.reset();
+        this.subject.clearCache();
     }
 
     @Test
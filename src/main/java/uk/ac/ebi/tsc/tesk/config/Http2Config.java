@@ -0,0 +1,55 @@
+package uk.ac.ebi.tsc.tesk.config;
+
+import org.apache.catalina.connector.Connector;
+import org.apache.coyote.UpgradeProtocol;
+import org.apache.coyote.http2.Http2Protocol;
+import org.springframework.boot.autoconfigure.web.ServerProperties;
+import org.springframework.boot.web.embedded.tomcat.TomcatServletWebServerFactory;
+import org.springframework.boot.web.server.Compression;
+import org.springframework.boot.web.server.WebServerFactoryCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.StringUtils;
+
+import java.util.Arrays;
+
+/**
+ * @author Ania Niewielska <aniewielska@ebi.ac.uk>
+ * <p>
+ * HTTP/2 of embedded Tomcat with server.http2.enabled. Spring Boot (this version) enables it only together with SSL (h2)
+ * and applies server.compression settings only to HTTP/1.1. Here HTTP/2 is added also to a plain connector
+ * (h2c - upgrade from HTTP/1.1) and compression settings are applied to HTTP/2 streams.
+ */
+@Configuration
+public class Http2Config {
+
+    @Bean
+    public WebServerFactoryCustomizer<TomcatServletWebServerFactory> http2Customizer(ServerProperties serverProperties) {
+        return factory -> factory.addConnectorCustomizers(connector -> {
+            if (serverProperties.getHttp2() == null || !serverProperties.getHttp2().isEnabled()) {
+                return;
+            }
+            if (Arrays.stream(connector.findUpgradeProtocols()).noneMatch(Http2Protocol.class::isInstance)) {
+                connector.addUpgradeProtocol(new Http2Protocol());
+            }
+            configureCompression(connector, serverProperties.getCompression());
+        });
+    }
+
+    private static void configureCompression(Connector connector, Compression compression) {
+        if (compression == null || !compression.getEnabled()) {
+            return;
+        }
+        for (UpgradeProtocol upgradeProtocol : connector.findUpgradeProtocols()) {
+            if (upgradeProtocol instanceof Http2Protocol) {
+                Http2Protocol http2Protocol = (Http2Protocol) upgradeProtocol;
+                http2Protocol.setCompression("on");
+                http2Protocol.setCompressibleMimeType(StringUtils.arrayToCommaDelimitedString(compression.getMimeTypes()));
+                http2Protocol.setCompressionMinSize(compression.getMinResponseSize());
+                if (compression.getExcludedUserAgents() != null) {
+                    http2Protocol.setNoCompressionUserAgents(StringUtils.arrayToCommaDelimitedString(compression.getExcludedUserAgents()));
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package uk.ac.ebi.tsc.tesk.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import uk.ac.ebi.tsc.tesk.tes.model.TesBatchGetTasksResponse;
+import uk.ac.ebi.tsc.tesk.tes.model.TesListTasksResponse;
+
+import java.util.List;
+
+/**
+ * @author Ania Niewielska <aniewielska@ebi.ac.uk>
+ * <p>
+ * Additional encodings of API responses:
+ * <ul>
+ * <li>JSON without pretty-printing (spring.jackson.serialization.indent_output) - always for listTasks and batchGetTasks responses
+ * (Jackson streams them to the response - with tasks converted lazily, one task at a time) and for any response
+ * requested with {@link #COMPACT_PARAM}=true</li>
+ * <li>Smile ({@link #APPLICATION_SMILE_VALUE}) and CBOR ({@link #APPLICATION_CBOR_VALUE}) - binary JSON, chosen by Accept header;
+ * same mapping of the model as JSON</li>
+ * </ul>
+ */
+@Configuration
+public class MessageConvertersConfig implements WebMvcConfigurer {
+
+    public static final String APPLICATION_SMILE_VALUE = "application/x-jackson-smile";
+
+    public static final String APPLICATION_CBOR_VALUE = "application/cbor";
+
+    /**
+     * Query param switching pretty-printing of JSON off
+     */
+    public static final String COMPACT_PARAM = "compact";
+
+    private final ObjectMapper objectMapper;
+
+    private final Jackson2ObjectMapperBuilder objectMapperBuilder;
+
+    public MessageConvertersConfig(ObjectMapper objectMapper, Jackson2ObjectMapperBuilder objectMapperBuilder) {
+        this.objectMapper = objectMapper;
+        this.objectMapperBuilder = objectMapperBuilder;
+    }
+
+    @Override
+    public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+        converters.add(0, new CompactJsonConverter(this.objectMapper.copy().disable(SerializationFeature.INDENT_OUTPUT)));
+        converters.add(new MappingJackson2SmileHttpMessageConverter(this.binaryObjectMapper(new ObjectMapper(new SmileFactory()))));
+        converters.add(new MappingJackson2CborHttpMessageConverter(this.binaryObjectMapper(new ObjectMapper(new CBORFactory()))));
+    }
+
+    /**
+     * Same (spring.jackson) settings as of JSON mapper
+     */
+    private ObjectMapper binaryObjectMapper(ObjectMapper objectMapper) {
+        this.objectMapperBuilder.configure(objectMapper);
+        return objectMapper.disable(SerializationFeature.INDENT_OUTPUT);
+    }
+
+    private static class CompactJsonConverter extends MappingJackson2HttpMessageConverter {
+
+        private CompactJsonConverter(ObjectMapper objectMapper) {
+            super(objectMapper);
+        }
+
+        @Override
+        public boolean canWrite(Class<?> clazz, MediaType mediaType) {
+            return (TesListTasksResponse.class.isAssignableFrom(clazz) || TesBatchGetTasksResponse.class.isAssignableFrom(clazz)
+                    || isCompactRequested()) && super.canWrite(clazz, mediaType);
+        }
+
+        @Override
+        public boolean canRead(Class<?> clazz, MediaType mediaType) {
+            return false;
+        }
+
+        private static boolean isCompactRequested() {
+            RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+            return attributes instanceof ServletRequestAttributes
+                    && Boolean.parseBoolean(((ServletRequestAttributes) attributes).getRequest().getParameter(COMPACT_PARAM));
+        }
+    }
+}
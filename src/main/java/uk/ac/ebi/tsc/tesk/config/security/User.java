@@ -93,6 +93,16 @@ public class User implements Serializable, UserDetails, Principal {
         return false;
     }
 
+    /**
+     * Is the user allowed to see (and cancel) a task created by a given user in a given group (null - no group):
+     * the author being a member of the group, group manager or TESK admin
+     */
+    public boolean canAccessTask(String creatorId, String groupName) {
+        return (getUsername().equals(creatorId) && groupName != null && isGroupMember(groupName))
+                || isTeskAdmin()
+                || (groupName != null && isGroupManager(groupName));
+    }
+
     public String getLabelSelector() {
         Set<String> allTeskGroups = new LinkedHashSet<>();
         if (this.teskMemberedGroups != null) {
@@ -0,0 +1,41 @@
+package uk.ac.ebi.tsc.tesk.k8s.cache;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * @author Ania Niewielska <aniewielska@ebi.ac.uk>
+ * <p>
+ * Settings of watch-driven local cache of Job and Pod objects
+ */
+@Configuration
+@ConfigurationProperties(prefix = "tesk.api.k8s.cache")
+@Data
+public class KubernetesCacheProperties {
+
+    /**
+     * If true, task reads are served from local cache, fed by K8s watch
+     */
+    private boolean enabled = false;
+
+    /**
+     * How often (in seconds) the full list of objects is fetched again, to correct any drift of the cache
+     */
+    private int resyncPeriod = 1800;
+
+    /**
+     * Server side timeout (in seconds) of a single watch call; the watch is then restarted from the last seen resourceVersion
+     */
+    private int watchTimeout = 300;
+
+    /**
+     * Page size used, when (re)listing objects to fill the cache
+     */
+    private int listChunkSize = 500;
+
+    /**
+     * Delay (in seconds) before retrying after failed list or watch
+     */
+    private int retryDelay = 5;
+}
@@ -0,0 +1,227 @@
+package uk.ac.ebi.tsc.tesk.k8s.cache;
+
+import com.google.gson.reflect.TypeToken;
+import com.squareup.okhttp.Call;
+import io.kubernetes.client.ApiClient;
+import io.kubernetes.client.ApiException;
+import io.kubernetes.client.apis.BatchV1Api;
+import io.kubernetes.client.apis.CoreV1Api;
+import io.kubernetes.client.models.*;
+import io.kubernetes.client.util.Watch;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.lang.reflect.Type;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.BiConsumer;
+import java.util.stream.Collectors;
+
+import static uk.ac.ebi.tsc.tesk.k8s.constant.K8sConstants.LABEL_JOB_NAME_KEY;
+
+/**
+ * @author Ania Niewielska <aniewielska@ebi.ac.uk>
+ * <p>
+ * Watch-driven local cache of all Job objects and all Job-controlled Pod objects in the namespace.
+ * Active only, when tesk.api.k8s.cache.enabled=true
+ */
+@Component
+@ConditionalOnProperty(value = "tesk.api.k8s.cache.enabled", havingValue = "true")
+public class KubernetesObjectsCache {
+
+    /**
+     * Only pods created by Job controller are of interest
+     */
+    private static final String POD_LABEL_SELECTOR = LABEL_JOB_NAME_KEY;
+
+    private final ResourceInformer<V1Job, V1JobList> jobInformer;
+
+    private final ResourceInformer<V1Pod, V1PodList> podInformer;
+
+    private final TaskNameIndex taskNameIndex = new TaskNameIndex();
+
+    private final TaskObjectsIndex<V1Job> taskJobsIndex = new TaskObjectsIndex<>(V1Job::getMetadata, TaskObjectsIndex::taskIdOfJob);
+
+    private final TaskObjectsIndex<V1Pod> taskPodsIndex = new TaskObjectsIndex<>(V1Pod::getMetadata, TaskObjectsIndex::taskIdOfPod);
+
+    @Autowired
+    public KubernetesObjectsCache(@Qualifier("watchBatchApi") BatchV1Api watchBatchApi,
+                                  @Qualifier("watchCoreApi") CoreV1Api watchCoreApi,
+                                  @Value("${tesk.api.k8s.namespace}") String namespace,
+                                  KubernetesCacheProperties properties) {
+        this(new JobInformer(watchBatchApi, namespace, properties), new PodInformer(watchCoreApi, namespace, properties));
+    }
+
+    KubernetesObjectsCache(ResourceInformer<V1Job, V1JobList> jobInformer, ResourceInformer<V1Pod, V1PodList> podInformer) {
+        this.jobInformer = jobInformer;
+        this.podInformer = podInformer;
+        //registered before start (and before other listeners), so that no object is missed
+        this.jobInformer.addListener(this.taskNameIndex);
+        this.jobInformer.addListener(this.taskJobsIndex);
+        this.podInformer.addListener(this.taskPodsIndex);
+    }
+
+    @PostConstruct
+    public void start() {
+        this.jobInformer.start();
+        this.podInformer.start();
+    }
+
+    @PreDestroy
+    public void stop() {
+        this.jobInformer.stop();
+        this.podInformer.stop();
+    }
+
+    /**
+     * @return true, if both jobs and pods are in sync with the cluster and can be used to serve reads
+     */
+    public boolean isSynced() {
+        return this.jobInformer.hasSynced() && this.podInformer.hasSynced();
+    }
+
+    public Optional<V1Job> getJob(String name) {
+        return this.jobInformer.get(name);
+    }
+
+    public List<V1Job> listJobs(LabelSelector selector) {
+        return this.jobInformer.list(selector);
+    }
+
+    /**
+     * @return taskmaster jobs of tasks, which name starts with a prefix (looked up in {@link TaskNameIndex})
+     */
+    public List<V1Job> listTaskmasterJobsByTaskNamePrefix(String taskNamePrefix) {
+        return this.taskNameIndex.findJobNames(taskNamePrefix).stream().map(this.jobInformer::get)
+                .filter(Optional::isPresent).map(Optional::get).collect(Collectors.toList());
+    }
+
+    /**
+     * @return jobs of a task (taskmaster, executors, output filer), looked up in {@link TaskObjectsIndex}
+     */
+    public List<V1Job> listTaskJobs(String taskId) {
+        return this.taskJobsIndex.findNames(taskId).stream().map(this.jobInformer::get)
+                .filter(Optional::isPresent).map(Optional::get).collect(Collectors.toList());
+    }
+
+    public List<V1Pod> listPods(LabelSelector selector) {
+        return this.podInformer.list(selector);
+    }
+
+    /**
+     * @return pods of all the jobs of a task, looked up in {@link TaskObjectsIndex}
+     */
+    public List<V1Pod> listTaskPods(String taskId) {
+        return this.taskPodsIndex.findNames(taskId).stream().map(this.podInformer::get)
+                .filter(Optional::isPresent).map(Optional::get).collect(Collectors.toList());
+    }
+
+    public void putJob(V1Job job) {
+        this.jobInformer.put(job);
+    }
+
+    public void putPod(V1Pod pod) {
+        this.podInformer.put(pod);
+    }
+
+    public void addJobListener(BiConsumer<V1Job, V1Job> listener) {
+        this.jobInformer.addListener(listener);
+    }
+
+    public void addPodListener(BiConsumer<V1Pod, V1Pod> listener) {
+        this.podInformer.addListener(listener);
+    }
+
+    private static class JobInformer extends ResourceInformer<V1Job, V1JobList> {
+
+        private final BatchV1Api api;
+
+        private final String namespace;
+
+        JobInformer(BatchV1Api api, String namespace, KubernetesCacheProperties properties) {
+            super("job", api.getApiClient(), properties);
+            this.api = api;
+            this.namespace = namespace;
+        }
+
+        @Override
+        protected V1JobList list(String _continue, int limit) throws ApiException {
+            return this.api.listNamespacedJob(namespace, null, _continue, null, null, null, limit, null, null, false);
+        }
+
+        @Override
+        protected List<V1Job> getItems(V1JobList list) {
+            return list.getItems();
+        }
+
+        @Override
+        protected V1ListMeta getListMetadata(V1JobList list) {
+            return list.getMetadata();
+        }
+
+        @Override
+        protected Call watchCall(String resourceVersion, int timeoutSeconds) throws ApiException {
+            return this.api.listNamespacedJobCall(namespace, null, null, null, null, null, null, resourceVersion, timeoutSeconds, true, null, null);
+        }
+
+        @Override
+        protected Type watchType() {
+            return new TypeToken<Watch.Response<V1Job>>() {
+            }.getType();
+        }
+
+        @Override
+        protected V1ObjectMeta getMetadata(V1Job object) {
+            return object.getMetadata();
+        }
+    }
+
+    private static class PodInformer extends ResourceInformer<V1Pod, V1PodList> {
+
+        private final CoreV1Api api;
+
+        private final String namespace;
+
+        PodInformer(CoreV1Api api, String namespace, KubernetesCacheProperties properties) {
+            super("pod", api.getApiClient(), properties);
+            this.api = api;
+            this.namespace = namespace;
+        }
+
+        @Override
+        protected V1PodList list(String _continue, int limit) throws ApiException {
+            return this.api.listNamespacedPod(namespace, null, _continue, null, null, POD_LABEL_SELECTOR, limit, null, null, false);
+        }
+
+        @Override
+        protected List<V1Pod> getItems(V1PodList list) {
+            return list.getItems();
+        }
+
+        @Override
+        protected V1ListMeta getListMetadata(V1PodList list) {
+            return list.getMetadata();
+        }
+
+        @Override
+        protected Call watchCall(String resourceVersion, int timeoutSeconds) throws ApiException {
+            return this.api.listNamespacedPodCall(namespace, null, null, null, null, POD_LABEL_SELECTOR, null, resourceVersion, timeoutSeconds, true, null, null);
+        }
+
+        @Override
+        protected Type watchType() {
+            return new TypeToken<Watch.Response<V1Pod>>() {
+            }.getType();
+        }
+
+        @Override
+        protected V1ObjectMeta getMetadata(V1Pod object) {
+            return object.getMetadata();
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package uk.ac.ebi.tsc.tesk.k8s.cache;
+
+import org.springframework.util.StringUtils;
+
+import java.util.*;
+import java.util.function.Predicate;
+
+/**
+ * @author Ania Niewielska <aniewielska@ebi.ac.uk>
+ * <p>
+ * In-memory equivalent of Kubernetes label selector string (the same syntax as passed to labelSelector parameter
+ * of K8s API list calls). Supports equality-based (key=value, key==value, key!=value)
+ * and set-based (key in (a,b), key notin (a,b), key, !key) requirements, joined by commas (logical AND).
+ * Used to answer the label-selector based queries of {@link uk.ac.ebi.tsc.tesk.k8s.service.KubernetesClientWrapper}
+ * from locally cached objects.
+ */
+public final class LabelSelector {
+
+    /**
+     * Selector matching all objects
+     */
+    public static final LabelSelector EVERYTHING = new LabelSelector(Collections.emptyList());
+
+    private final List<Predicate<Map<String, String>>> requirements;
+
+    private LabelSelector(List<Predicate<Map<String, String>>> requirements) {
+        this.requirements = requirements;
+    }
+
+    /**
+     * Parses label selector string. Empty or null selector matches all objects.
+     *
+     * @throws IllegalArgumentException - if selector string cannot be parsed
+     */
+    public static LabelSelector parse(String selector) {
+        if (StringUtils.isEmpty(selector)) {
+            return EVERYTHING;
+        }
+        List<Predicate<Map<String, String>>> requirements = new ArrayList<>();
+        for (String requirement : splitRequirements(selector)) {
+            requirements.add(parseRequirement(requirement.trim()));
+        }
+        return new LabelSelector(requirements);
+    }
+
+    /**
+     * Tests, if all requirements of the selector are satisfied by the label set.
+     *
+     * @param labels - labels of the tested object (can be null)
+     */
+    public boolean matches(Map<String, String> labels) {
+        Map<String, String> tested = labels == null ? Collections.emptyMap() : labels;
+        for (Predicate<Map<String, String>> requirement : this.requirements) {
+            if (!requirement.test(tested)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Splits selector on commas, that are not part of a set of values (in parentheses)
+     */
+    private static List<String> splitRequirements(String selector) {
+        List<String> result = new ArrayList<>();
+        int depth = 0;
+        int start = 0;
+        for (int i = 0; i < selector.length(); i++) {
+            char c = selector.charAt(i);
+            if (c == '(') {
+                depth++;
+            } else if (c == ')') {
+                depth--;
+            } else if (c == ',' && depth == 0) {
+                result.add(selector.substring(start, i));
+                start = i + 1;
+            }
+        }
+        if (depth != 0) {
+            throw new IllegalArgumentException("Unbalanced parentheses in label selector: " + selector);
+        }
+        result.add(selector.substring(start));
+        return result;
+    }
+
+    private static Predicate<Map<String, String>> parseRequirement(String requirement) {
+        if (requirement.isEmpty()) {
+            throw new IllegalArgumentException("Empty requirement in label selector");
+        }
+        int setStart = requirement.indexOf('(');
+        if (setStart > -1) {
+            if (!requirement.endsWith(")")) {
+                throw new IllegalArgumentException("Invalid set-based requirement: " + requirement);
+            }
+            String[] keyAndOperator = requirement.substring(0, setStart).trim().split("\\s+");
+            if (keyAndOperator.length != 2) {
+                throw new IllegalArgumentException("Invalid set-based requirement: " + requirement);
+            }
+            String key = keyAndOperator[0];
+            Set<String> values = new HashSet<>();
+            for (String value : requirement.substring(setStart + 1, requirement.length() - 1).split(",")) {
+                values.add(value.trim());
+            }
+            if ("in".equals(keyAndOperator[1])) {
+                return labels -> labels.containsKey(key) && values.contains(labels.get(key));
+            }
+            if ("notin".equals(keyAndOperator[1])) {
+                return labels -> !labels.containsKey(key) || !values.contains(labels.get(key));
+            }
+            throw new IllegalArgumentException("Unknown operator in requirement: " + requirement);
+        }
+        int notEquals = requirement.indexOf("!=");
+        if (notEquals > -1) {
+            String key = requirement.substring(0, notEquals).trim();
+            String value = requirement.substring(notEquals + 2).trim();
+            return labels -> !value.equals(labels.get(key));
+        }
+        int equals = requirement.indexOf('=');
+        if (equals > -1) {
+            String key = requirement.substring(0, equals).trim();
+            int valueStart = requirement.startsWith("==", equals) ? equals + 2 : equals + 1;
+            String value = requirement.substring(valueStart).trim();
+            return labels -> value.equals(labels.get(key));
+        }
+        if (requirement.startsWith("!")) {
+            String key = requirement.substring(1).trim();
+            return labels -> !labels.containsKey(key);
+        }
+        return labels -> labels.containsKey(requirement);
+    }
+
+}
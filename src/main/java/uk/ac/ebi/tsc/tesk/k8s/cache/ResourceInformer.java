@@ -0,0 +1,309 @@
+package uk.ac.ebi.tsc.tesk.k8s.cache;
+
+import com.squareup.okhttp.Call;
+import io.kubernetes.client.ApiClient;
+import io.kubernetes.client.ApiException;
+import io.kubernetes.client.models.V1ListMeta;
+import io.kubernetes.client.models.V1ObjectMeta;
+import io.kubernetes.client.util.Watch;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.Type;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.stream.Collectors;
+
+/**
+ * @author Ania Niewielska <aniewielska@ebi.ac.uk>
+ * <p>
+ * Keeps a local copy of all objects of a single kind (matching a label selector) in the namespace.
+ * Objects are first listed (in chunks) and then kept up to date by a watch, started from the resourceVersion of the list.
+ * The watch is restarted from the last seen resourceVersion, after it times out.
+ * Full relist happens periodically (resync) and whenever the watch fails (e.g. resourceVersion too old).
+ * Objects put directly to the store (write-through) are not overwritten by events carrying older resourceVersion.
+ * <p>
+ * Objects returned from the store are shared and must not be modified.
+ */
+public abstract class ResourceInformer<T, L> implements Runnable {
+
+    private static final Logger logger = LoggerFactory.getLogger(ResourceInformer.class);
+
+    private static final String EVENT_ADDED = "ADDED";
+    private static final String EVENT_MODIFIED = "MODIFIED";
+    private static final String EVENT_DELETED = "DELETED";
+
+    private final String kind;
+
+    private final ApiClient watchApiClient;
+
+    private final KubernetesCacheProperties properties;
+
+    private final Map<String, T> store = new ConcurrentHashMap<>();
+
+    private final List<BiConsumer<T, T>> listeners = new CopyOnWriteArrayList<>();
+
+    private volatile boolean running;
+
+    private volatile boolean synced;
+
+    private volatile String resourceVersion;
+
+    private volatile long lastListTime;
+
+    private volatile Call currentWatch;
+
+    private Thread thread;
+
+    protected ResourceInformer(String kind, ApiClient watchApiClient, KubernetesCacheProperties properties) {
+        this.kind = kind;
+        this.watchApiClient = watchApiClient;
+        this.properties = properties;
+    }
+
+    /**
+     * Single chunk of full list of objects
+     */
+    protected abstract L list(String _continue, int limit) throws ApiException;
+
+    protected abstract List<T> getItems(L list);
+
+    protected abstract V1ListMeta getListMetadata(L list);
+
+    /**
+     * Call, that will be used to create a watch, starting from a given resourceVersion
+     */
+    protected abstract Call watchCall(String resourceVersion, int timeoutSeconds) throws ApiException;
+
+    /**
+     * Type of a single watch event ({@link Watch.Response} of T)
+     */
+    protected abstract Type watchType();
+
+    protected abstract V1ObjectMeta getMetadata(T object);
+
+    public synchronized void start() {
+        if (this.running) {
+            return;
+        }
+        this.running = true;
+        this.thread = new Thread(this, "k8s-informer-" + this.kind);
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    public synchronized void stop() {
+        this.running = false;
+        Call watch = this.currentWatch;
+        if (watch != null) {
+            watch.cancel();
+        }
+        if (this.thread != null) {
+            this.thread.interrupt();
+        }
+    }
+
+    /**
+     * @return true, if the store reflects a successful list and the watch has not failed since
+     */
+    public boolean hasSynced() {
+        return this.synced;
+    }
+
+    public Optional<T> get(String name) {
+        return Optional.ofNullable(this.store.get(name));
+    }
+
+    public List<T> list(LabelSelector selector) {
+        return this.store.values().stream().filter(object -> selector.matches(getMetadata(object).getLabels())).collect(Collectors.toList());
+    }
+
+    /**
+     * Write-through of an object returned by K8s API (after create or patch), so that own writes are visible immediately
+     */
+    public void put(T object) {
+        if (object != null && getMetadata(object) != null) {
+            this.update(object);
+        }
+    }
+
+    /**
+     * Registers a listener, notified on every change of the store with (old, new) object.
+     * Old object is null for new objects, new object is null for deleted ones.
+     */
+    public void addListener(BiConsumer<T, T> listener) {
+        this.listeners.add(listener);
+    }
+
+    @Override
+    public void run() {
+        while (this.running) {
+            try {
+                if (this.resourceVersion == null || this.isResyncDue()) {
+                    this.relist();
+                }
+                this.watch();
+            } catch (Exception e) {
+                if (!this.running) {
+                    break;
+                }
+                logger.warn("Watching " + this.kind + " objects failed, will relist.", e);
+                this.synced = false;
+                this.resourceVersion = null;
+                try {
+                    TimeUnit.SECONDS.sleep(this.properties.getRetryDelay());
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+        }
+    }
+
+    private boolean isResyncDue() {
+        return System.currentTimeMillis() - this.lastListTime > TimeUnit.SECONDS.toMillis(this.properties.getResyncPeriod());
+    }
+
+    /**
+     * Lists all objects (in chunks) and replaces store content. Objects missing from the list are removed,
+     * unless they have been written through with a resourceVersion newer than the list.
+     */
+    void relist() throws ApiException {
+        String _continue = null;
+        String listResourceVersion = null;
+        Map<String, T> listed = new HashMap<>();
+        do {
+            L chunk = this.list(_continue, this.properties.getListChunkSize());
+            for (T object : this.getItems(chunk)) {
+                listed.put(getMetadata(object).getName(), object);
+            }
+            V1ListMeta listMeta = this.getListMetadata(chunk);
+            if (listResourceVersion == null) {
+                listResourceVersion = listMeta.getResourceVersion();
+            }
+            _continue = listMeta.getContinue();
+        } while (_continue != null && !_continue.isEmpty());
+
+        for (T object : listed.values()) {
+            this.update(object);
+        }
+        for (String name : new ArrayList<>(this.store.keySet())) {
+            if (!listed.containsKey(name)) {
+                this.delete(name, listResourceVersion);
+            }
+        }
+        this.resourceVersion = listResourceVersion;
+        this.lastListTime = System.currentTimeMillis();
+        this.synced = true;
+        logger.debug("Listed {} {} objects, resourceVersion {}", listed.size(), this.kind, listResourceVersion);
+    }
+
+    private void watch() throws ApiException {
+        int timeout = this.properties.getWatchTimeout();
+        Call call = this.watchCall(this.resourceVersion, timeout);
+        this.currentWatch = call;
+        try {
+            Watch<T> watch = Watch.createWatch(this.watchApiClient, call, this.watchType());
+            for (Watch.Response<T> event : watch) {
+                if (!this.running) {
+                    return;
+                }
+                if (!this.handle(event)) {
+                    //ERROR event (usually 410 Gone - resourceVersion too old); start again from full list
+                    this.resourceVersion = null;
+                    return;
+                }
+                if (this.isResyncDue()) {
+                    return;
+                }
+            }
+        } finally {
+            call.cancel();
+            this.currentWatch = null;
+        }
+    }
+
+    /**
+     * @return false, if the event is an ERROR event
+     */
+    boolean handle(Watch.Response<T> event) {
+        if (event.object == null || getMetadata(event.object) == null) {
+            return !"ERROR".equals(event.type);
+        }
+        V1ObjectMeta metadata = getMetadata(event.object);
+        switch (event.type) {
+            case EVENT_ADDED:
+            case EVENT_MODIFIED:
+                this.update(event.object);
+                break;
+            case EVENT_DELETED:
+                this.delete(metadata.getName(), metadata.getResourceVersion());
+                break;
+            default:
+                return false;
+        }
+        if (metadata.getResourceVersion() != null) {
+            this.resourceVersion = metadata.getResourceVersion();
+        }
+        return true;
+    }
+
+    private void update(T object) {
+        String name = getMetadata(object).getName();
+        List<T> previous = new ArrayList<>(1);
+        T current = this.store.compute(name, (key, existing) -> {
+            if (existing != null && !isNewer(getMetadata(object).getResourceVersion(), getMetadata(existing).getResourceVersion())) {
+                return existing;
+            }
+            previous.add(existing);
+            return object;
+        });
+        if (!previous.isEmpty()) {
+            this.notifyListeners(previous.get(0), current);
+        }
+    }
+
+    private void delete(String name, String deletedResourceVersion) {
+        List<T> previous = new ArrayList<>(1);
+        this.store.computeIfPresent(name, (key, existing) -> {
+            if (!isNewer(deletedResourceVersion, getMetadata(existing).getResourceVersion())
+                    && !deletedResourceVersion.equals(getMetadata(existing).getResourceVersion())) {
+                return existing;
+            }
+            previous.add(existing);
+            return null;
+        });
+        if (!previous.isEmpty()) {
+            this.notifyListeners(previous.get(0), null);
+        }
+    }
+
+    private void notifyListeners(T oldObject, T newObject) {
+        for (BiConsumer<T, T> listener : this.listeners) {
+            try {
+                listener.accept(oldObject, newObject);
+            } catch (RuntimeException e) {
+                logger.warn("Cache listener failed for " + this.kind, e);
+            }
+        }
+    }
+
+    /**
+     * ResourceVersion is officially opaque, but in practice (etcd backed apiserver) a number.
+     * If versions cannot be compared, incoming version is treated as newer.
+     */
+    static boolean isNewer(String incoming, String existing) {
+        if (incoming == null || existing == null) {
+            return true;
+        }
+        try {
+            return Long.parseLong(incoming) > Long.parseLong(existing);
+        } catch (NumberFormatException e) {
+            return !incoming.equals(existing);
+        }
+    }
+
+}
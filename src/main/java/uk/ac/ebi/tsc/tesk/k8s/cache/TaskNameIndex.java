@@ -0,0 +1,85 @@
+package uk.ac.ebi.tsc.tesk.k8s.cache;
+
+import io.kubernetes.client.models.V1Job;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.function.BiConsumer;
+
+import static uk.ac.ebi.tsc.tesk.k8s.constant.Constants.*;
+
+/**
+ * @author Ania Niewielska <aniewielska@ebi.ac.uk>
+ * <p>
+ * Sorted index of TES task names (from {@link uk.ac.ebi.tsc.tesk.k8s.constant.Constants#ANN_TESTASK_NAME_KEY} annotation
+ * of taskmaster jobs), used to find tasks by name prefix without scanning all the jobs.
+ * Kept up to date as a listener of the job cache ({@link ResourceInformer#addListener(BiConsumer)}).
+ */
+public class TaskNameIndex implements BiConsumer<V1Job, V1Job> {
+
+    private static final Comparator<Entry> ORDER = Comparator.comparing((Entry entry) -> entry.taskName).thenComparing(entry -> entry.jobName);
+
+    private final NavigableSet<Entry> entries = new ConcurrentSkipListSet<>(ORDER);
+
+    /**
+     * Updates the index on a change of a job (old job is null for new jobs, new job is null for deleted ones)
+     */
+    @Override
+    public void accept(V1Job oldJob, V1Job newJob) {
+        Entry oldEntry = entry(oldJob);
+        Entry newEntry = entry(newJob);
+        if (oldEntry != null && (newEntry == null || ORDER.compare(oldEntry, newEntry) != 0)) {
+            this.entries.remove(oldEntry);
+        }
+        if (newEntry != null) {
+            this.entries.add(newEntry);
+        }
+    }
+
+    /**
+     * @return names of taskmaster jobs (==task IDs) of tasks, which name starts with a prefix, in order of task names
+     */
+    public List<String> findJobNames(String taskNamePrefix) {
+        List<String> jobNames = new ArrayList<>();
+        for (Entry entry : this.entries.tailSet(new Entry(taskNamePrefix, ""), true)) {
+            if (!entry.taskName.startsWith(taskNamePrefix)) {
+                break;
+            }
+            jobNames.add(entry.jobName);
+        }
+        return jobNames;
+    }
+
+    public int size() {
+        return this.entries.size();
+    }
+
+    private static Entry entry(V1Job job) {
+        if (job == null || job.getMetadata() == null) {
+            return null;
+        }
+        Map<String, String> labels = job.getMetadata().getLabels();
+        Map<String, String> annotations = job.getMetadata().getAnnotations();
+        if (labels == null || !LABEL_JOBTYPE_VALUE_TASKM.equals(labels.get(LABEL_JOBTYPE_KEY))
+                || annotations == null || annotations.get(ANN_TESTASK_NAME_KEY) == null) {
+            return null;
+        }
+        return new Entry(annotations.get(ANN_TESTASK_NAME_KEY), job.getMetadata().getName());
+    }
+
+    private static class Entry {
+
+        private final String taskName;
+
+        private final String jobName;
+
+        private Entry(String taskName, String jobName) {
+            this.taskName = taskName;
+            this.jobName = jobName;
+        }
+    }
+}
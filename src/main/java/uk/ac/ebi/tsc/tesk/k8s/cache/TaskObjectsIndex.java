@@ -0,0 +1,110 @@
+package uk.ac.ebi.tsc.tesk.k8s.cache;
+
+import io.kubernetes.client.models.V1Job;
+import io.kubernetes.client.models.V1ObjectMeta;
+import io.kubernetes.client.models.V1Pod;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+import static uk.ac.ebi.tsc.tesk.k8s.constant.Constants.*;
+import static uk.ac.ebi.tsc.tesk.k8s.constant.K8sConstants.LABEL_JOB_NAME_KEY;
+
+/**
+ * @author Ania Niewielska <aniewielska@ebi.ac.uk>
+ * <p>
+ * Index of names of cached objects (jobs or pods) by ID of the task, they belong to (see {@link #taskIdOfJob}, {@link #taskIdOfPod}),
+ * used to find all the objects of a task without scanning the whole namespace.
+ * Kept up to date as a listener of the cache ({@link ResourceInformer#addListener(BiConsumer)}).
+ */
+public class TaskObjectsIndex<T> implements BiConsumer<T, T> {
+
+    private final Function<T, V1ObjectMeta> metadata;
+
+    private final Function<T, String> taskId;
+
+    private final Map<String, Set<String>> namesByTaskId = new ConcurrentHashMap<>();
+
+    public TaskObjectsIndex(Function<T, V1ObjectMeta> metadata, Function<T, String> taskId) {
+        this.metadata = metadata;
+        this.taskId = taskId;
+    }
+
+    /**
+     * Updates the index on a change of an object (old object is null for new objects, new object is null for deleted ones)
+     */
+    @Override
+    public void accept(T oldObject, T newObject) {
+        String oldTaskId = oldObject == null ? null : this.taskId.apply(oldObject);
+        String newTaskId = newObject == null ? null : this.taskId.apply(newObject);
+        if (oldTaskId != null && !oldTaskId.equals(newTaskId)) {
+            this.namesByTaskId.computeIfPresent(oldTaskId, (id, names) -> {
+                names.remove(this.metadata.apply(oldObject).getName());
+                return names.isEmpty() ? null : names;
+            });
+        }
+        if (newTaskId != null) {
+            this.namesByTaskId.compute(newTaskId, (id, names) -> {
+                Set<String> taskNames = names != null ? names : ConcurrentHashMap.newKeySet();
+                taskNames.add(this.metadata.apply(newObject).getName());
+                return taskNames;
+            });
+        }
+    }
+
+    /**
+     * @return names of objects of a task
+     */
+    public Set<String> findNames(String taskId) {
+        Set<String> names = this.namesByTaskId.get(taskId);
+        return names == null ? Collections.emptySet() : new HashSet<>(names);
+    }
+
+    public int size() {
+        return this.namesByTaskId.size();
+    }
+
+    /**
+     * ID of a task, a job belongs to (taskmaster, executor or output filer)
+     */
+    public static String taskIdOfJob(V1Job job) {
+        Map<String, String> labels = job.getMetadata().getLabels();
+        if (labels != null && LABEL_JOBTYPE_VALUE_TASKM.equals(labels.get(LABEL_JOBTYPE_KEY))) {
+            return job.getMetadata().getName();
+        }
+        if (labels != null && labels.containsKey(LABEL_TESTASK_ID_KEY)) {
+            return labels.get(LABEL_TESTASK_ID_KEY);
+        }
+        return taskIdOfJobName(job.getMetadata().getName());
+    }
+
+    /**
+     * ID of a task, a pod belongs to (by task ID label or by the name of its job)
+     */
+    public static String taskIdOfPod(V1Pod pod) {
+        Map<String, String> labels = pod.getMetadata().getLabels();
+        if (labels == null) {
+            return null;
+        }
+        if (labels.containsKey(LABEL_TESTASK_ID_KEY)) {
+            return labels.get(LABEL_TESTASK_ID_KEY);
+        }
+        return labels.containsKey(LABEL_JOB_NAME_KEY) ? taskIdOfJobName(labels.get(LABEL_JOB_NAME_KEY)) : null;
+    }
+
+    /**
+     * ID of a task, a job of a given name belongs to (taskmaster, executor or output filer)
+     */
+    public static String taskIdOfJobName(String jobName) {
+        if (jobName.endsWith(JOB_NAME_FILER_SUF)) {
+            return jobName.substring(0, jobName.length() - JOB_NAME_FILER_SUF.length());
+        }
+        int executorSuffix = jobName.indexOf(JOB_NAME_EXEC_PREFIX);
+        return executorSuffix > -1 ? jobName.substring(0, executorSuffix) : jobName;
+    }
+}
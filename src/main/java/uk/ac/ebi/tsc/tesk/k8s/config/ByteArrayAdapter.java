@@ -0,0 +1,46 @@
+package uk.ac.ebi.tsc.tesk.k8s.config;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import io.kubernetes.client.ApiClient;
+
+import java.io.IOException;
+import java.util.Base64;
+
+/**
+ * @author Ania Niewielska <aniewielska@ebi.ac.uk>
+ * <p>
+ * Gson adapter for byte[] fields of K8s objects (e.g. data of a Secret), which K8s API represents as base64 strings.
+ * Kube client (this version) has no such adapter and would (de)serialize them as arrays of numbers.
+ */
+public class ByteArrayAdapter extends TypeAdapter<byte[]> {
+
+    /**
+     * Adds the adapter to Gson used by the client
+     */
+    public static ApiClient register(ApiClient apiClient) {
+        apiClient.getJSON().setGson(apiClient.getJSON().getGson().newBuilder()
+                .registerTypeAdapter(byte[].class, new ByteArrayAdapter()).create());
+        return apiClient;
+    }
+
+    @Override
+    public void write(JsonWriter out, byte[] value) throws IOException {
+        if (value == null) {
+            out.nullValue();
+        } else {
+            out.value(Base64.getEncoder().encodeToString(value));
+        }
+    }
+
+    @Override
+    public byte[] read(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        return Base64.getDecoder().decode(in.nextString());
+    }
+}
@@ -6,11 +6,13 @@ import io.kubernetes.client.apis.CoreV1Api;
 import io.kubernetes.client.auth.ApiKeyAuth;
 import io.kubernetes.client.util.Config;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Primary;
 
 import java.io.IOException;
+import java.util.concurrent.TimeUnit;
 
 /**
  * @author Ania Niewielska <aniewielska@ebi.ac.uk>
@@ -34,11 +36,14 @@ public class KubernetesClientConfig {
 
     }
 
+    /**
+     * Core API client with support for base64 encoded byte[] fields (Secrets)
+     */
     @Bean
     @Primary
     public CoreV1Api coreApi(ApiClient apiClient) {
 
-        return new CoreV1Api(apiClient);
+        return new CoreV1Api(ByteArrayAdapter.register(apiClient));
 
     }
 
@@ -74,6 +79,35 @@ public class KubernetesClientConfig {
 
     }
 
+    /**
+     * Separate instance of ApiClient for long-running watch calls of the cache (no read timeout)
+     */
+    @Bean(name = "watchApiClient")
+    @ConditionalOnProperty(value = "tesk.api.k8s.cache.enabled", havingValue = "true")
+    public ApiClient watchApiClient() throws IOException {
+
+        ApiClient watchClient = Config.defaultClient();
+        watchClient.getHttpClient().setReadTimeout(0, TimeUnit.SECONDS);
+        return watchClient;
+
+    }
+
+    @Bean(name = "watchBatchApi")
+    @ConditionalOnProperty(value = "tesk.api.k8s.cache.enabled", havingValue = "true")
+    public BatchV1Api watchBatchApi(@Qualifier("watchApiClient") ApiClient watchApiClient) {
+
+        return new BatchV1Api(watchApiClient);
+
+    }
+
+    @Bean(name = "watchCoreApi")
+    @ConditionalOnProperty(value = "tesk.api.k8s.cache.enabled", havingValue = "true")
+    public CoreV1Api watchCoreApi(@Qualifier("watchApiClient") ApiClient watchApiClient) {
+
+        return new CoreV1Api(watchApiClient);
+
+    }
+
     /**
      * This client should in theory work exactly as the original one, just always use application/merge-patch header
      * Accepts auto-configured instance as parameter of a constructor and - hopefully - initializes accordingly
@@ -35,6 +35,11 @@ public class Constants {
      */
     public static final int JOB_CREATE_ATTEMPTS_NO = 5;
 
+    /**
+     * Number of attempts of labelling taskmaster's job/pod as cancelled in case of conflict (object changed since read)
+     */
+    public static final int CANCEL_ATTEMPTS_NO = 3;
+
     /**
      * Constant prefix of taskmaster's job name (== TES task ID)
      */
@@ -57,6 +62,29 @@ public class Constants {
      */
     public static final String JOB_NAME_FILER_SUF = "-outputs-filer";
 
+    /**
+     * Max number of values in a single set-based label selector (key in (...)), to keep K8s API request URL short.
+     * Longer lists of task IDs or job names are split into more calls.
+     */
+    public static final int LABEL_SELECTOR_MAX_VALUES = 100;
+
+    /**
+     * Min number of taskmaster jobs listed in a single call, when they are filtered by task name (not possible in K8s API),
+     * so that sparse matches do not take many small calls.
+     */
+    public static final int NAME_PREFIX_MIN_CHUNK_SIZE = 100;
+
+    /**
+     * Max number of taskmaster jobs read by name (one call each) in a batch get; more are found by listing taskmasters
+     * (in chunks of {@link #BATCH_GET_LIST_CHUNK_SIZE}) and filtering by IDs
+     */
+    public static final int BATCH_GET_MAX_READS = 10;
+
+    /**
+     * Number of taskmaster jobs listed in a single call, when taskmasters of a batch get are found by listing
+     */
+    public static final int BATCH_GET_LIST_CHUNK_SIZE = 100;
+
     /**
      * Key of the annotation, that stores name of TES task in both taskmaster's job and executor's jobs.
      */
@@ -67,8 +95,62 @@ public class Constants {
      */
     public static final String ANN_JSON_INPUT_KEY = "json-input";
 
+    /**
+     * Key of the annotation of taskmaster's job, that stores name of the secret with taskmaster's input,
+     * when the input was too large to be kept in the job (then contents of inputs are left out from {@link #ANN_JSON_INPUT_KEY})
+     */
+    public static final String ANN_JSON_INPUT_SECRET_KEY = "json-input-secret";
+
+    /**
+     * Key of the annotation of taskmaster's job, that stores name of the config map with contents of inline inputs,
+     * when the input was moved to a secret and inline inputs were mounted from the config map
+     * (then the secret has no inputs and contents are restored from the config map)
+     */
+    public static final String ANN_JSON_INPUT_CONFIGMAP_KEY = "json-input-configmap";
+
+    /**
+     * Tags of TES task with URL, to which state changes of the task are posted, and which changes: TERMINAL (default) or ALL
+     */
+    public static final String TAG_CALLBACK_URL = "CALLBACK_URL";
+    public static final String TAG_CALLBACK_EVENTS = "CALLBACK_EVENTS";
+    public static final String CALLBACK_EVENTS_TERMINAL = "TERMINAL";
+    public static final String CALLBACK_EVENTS_ALL = "ALL";
+
+    /**
+     * Keys of the annotations of taskmaster's job, that store callback URL and events (copied from tags)
+     */
+    public static final String ANN_CALLBACK_URL_KEY = "callback-url";
+    public static final String ANN_CALLBACK_EVENTS_KEY = "callback-events";
+
+    /**
+     * Key in the secret (== file name in taskmaster's container), under which gzipped taskmaster's input is stored
+     */
+    public static final String SECRET_TASKMASTER_INPUT_KEY = "JSON_INPUT.gz";
+
+    /**
+     * Name of the volume and the path, where the secret with taskmaster's input is mounted in taskmaster's container
+     */
+    public static final String TASKMASTER_INPUT_VOLUME_NAME = "jsoninput";
+    public static final String TASKMASTER_INPUT_MOUNT_PATH = "/jsoninput";
+
+    /**
+     * Suffix of the name of the config map with contents of inline inputs (mounted directly to executors)
+     */
+    public static final String INPUTS_CONFIGMAP_SUF = "-inputs";
+
+    /**
+     * Name of executors' volume with contents of inline inputs
+     */
+    public static final String INPUTS_VOLUME_NAME = "inline-inputs";
+
+    /**
+     * Prefix of keys of inline inputs in the config map (followed by index of the input)
+     */
+    public static final String INPUTS_CONFIGMAP_KEY_PREFIX = "input-";
+
     /**
      * Key of the label, that stores taskmaster's name (==TES task generated ID) in executor jobs
+     * and in pod templates of both taskmaster and executor jobs (to list all pods of a task at once)
      */
     public static final String LABEL_TESTASK_ID_KEY = "taskmaster-name";
 
@@ -8,7 +8,9 @@ package uk.ac.ebi.tsc.tesk.k8s.constant;
 public class K8sConstants {
 
     public enum PodPhase {
-        PENDING("Pending");
+        PENDING("Pending"),
+        SUCCEEDED("Succeeded"),
+        FAILED("Failed");
         private String code;
 
         PodPhase(String code) {
@@ -30,6 +32,15 @@ public class K8sConstants {
 
     public static final String JOB_RESTART_POLICY = "Never";
 
+    /**
+     * Label set by Job controller on job's pods (and in job's selector) - UID of the job
+     */
+    public static final String LABEL_CONTROLLER_UID_KEY = "controller-uid";
+    /**
+     * Label set by Job controller on job's pods (and in job's selector) - name of the job
+     */
+    public static final String LABEL_JOB_NAME_KEY = "job-name";
+
     /**
      * Executor CPU resource label
      */
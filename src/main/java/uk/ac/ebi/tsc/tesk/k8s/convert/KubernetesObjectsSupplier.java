@@ -1,11 +1,12 @@
 package uk.ac.ebi.tsc.tesk.k8s.convert;
 
+import com.google.common.base.Suppliers;
 import com.google.gson.Gson;
+import com.google.gson.JsonElement;
 import io.kubernetes.client.models.*;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.context.annotation.Scope;
 import uk.ac.ebi.tsc.tesk.k8s.convert.data.Job;
 
 import java.io.*;
@@ -36,6 +37,8 @@ public class KubernetesObjectsSupplier {
 
     private final String namespace;
 
+    private final Supplier<JsonElement> taskMasterTemplate = Suppliers.memoize(this::buildTaskMasterTemplate);
+
     public KubernetesObjectsSupplier(Gson gson, JobNameGenerator jobNameGenerator,
                                      TaskmasterEnvProperties taskmasterEnvProperties, @Value("${tesk.api.k8s.namespace}") String namespace) {
         this.gson = gson;
@@ -46,14 +49,25 @@ public class KubernetesObjectsSupplier {
 
     /**
      * Creates a new empty taskmaster's K8s job object with auto-generated name.
-     * Uses JSON file from resources as a template and adds generated name to it.
-     * Additionally, places appropriately taskmaster's image name and version from parameters
+     * Each job is a deep copy of the template (see {@link #buildTaskMasterTemplate()}) with generated name added to it.
      *
      * @return - new K8s Job object with auto-generated name.
      */
-    @Bean
-    @Scope(value = "prototype")
     public V1Job taskMasterTemplate() {
+        V1Job job = this.gson.fromJson(this.taskMasterTemplate.get(), V1Job.class);
+        String taskMasterName = this.jobNameGenerator.getTaskMasterName();
+        new Job(job).changeJobName(taskMasterName);
+        job.getSpec().getTemplate().getMetadata().putLabelsItem(LABEL_TESTASK_ID_KEY, taskMasterName);
+        return job;
+    }
+
+    /**
+     * Builds taskmaster's job template (without a name) - only once.
+     * Uses JSON file from resources as a template.
+     * Additionally, places appropriately taskmaster's image name and version, args and environment from parameters.
+     * Kept as JSON tree, so that copying it does not need reading and parsing the file.
+     */
+    JsonElement buildTaskMasterTemplate() {
         try (InputStream inputStream = getClass().getClassLoader().getResourceAsStream("taskmaster.json");
              Reader reader = new BufferedReader(new InputStreamReader(inputStream))) {
             V1Job job = gson.fromJson(reader, V1Job.class);
@@ -70,8 +84,6 @@ public class KubernetesObjectsSupplier {
                         .setImagePullPolicy("Always");
             }
             job.getMetadata().putLabelsItem(LABEL_JOBTYPE_KEY, LABEL_JOBTYPE_VALUE_TASKM);
-            String taskMasterName = this.jobNameGenerator.getTaskMasterName();
-            new Job(job).changeJobName(taskMasterName);
             Set<V1EnvVar> toBeRemoved = new HashSet<>();
             List<V1EnvVar> containerEnvironment = job.getSpec().getTemplate().getSpec().getContainers().get(0).getEnv();
             containerEnvironment.addAll(taskmasterEnvProperties.getEnvironment().entrySet().stream().map(e -> new V1EnvVar().name(e.getKey().toUpperCase().replaceAll("\\.", "_")).value(e.getValue())).collect(Collectors.toList()));
@@ -87,9 +99,9 @@ public class KubernetesObjectsSupplier {
                     });
 
             toBeRemoved.stream().forEach(containerEnvironment::remove);
-            return job;
+            return gson.toJsonTree(job);
         } catch (IOException ex) {
-            throw new RuntimeException(ex);
+            throw new UncheckedIOException(ex);
         }
     }
 
@@ -98,10 +110,10 @@ public class KubernetesObjectsSupplier {
      * by initializing required objects in the graph (new new new)
      * and putting constants.
      *
+     * Cheap enough (no parsing) to be built from scratch for each executor.
+     *
      * @return
      */
-    @Bean
-    @Scope(value = "prototype")
     public V1Job executorTemplate() {
         V1Container container = new V1Container().
                 resources(new V1ResourceRequirements());
@@ -134,7 +146,7 @@ public class KubernetesObjectsSupplier {
 
     @Bean(name = "taskmaster")
     public Supplier<V1Job> taskMasterSupplier() {
-        return () -> taskMasterTemplate();
+        return this::taskMasterTemplate;
     }
 
     @Bean(name = "executor")
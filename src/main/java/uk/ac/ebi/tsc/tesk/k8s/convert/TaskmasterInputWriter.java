@@ -0,0 +1,111 @@
+package uk.ac.ebi.tsc.tesk.k8s.convert;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+import com.google.gson.Gson;
+import com.google.gson.stream.JsonWriter;
+import io.kubernetes.client.models.V1Job;
+import uk.ac.ebi.tsc.tesk.tes.model.TesResources;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.List;
+
+import static uk.ac.ebi.tsc.tesk.k8s.constant.Constants.TASKMASTER_INPUT_EXEC_KEY;
+
+/**
+ * @author Ania Niewielska <aniewielska@ebi.ac.uk>
+ * <p>
+ * Writes taskmaster's input document (value of {@link uk.ac.ebi.tsc.tesk.k8s.constant.Constants#TASKMASTER_INPUT} env variable)
+ * in a single pass into one Gson {@link JsonWriter}: TES parts (inputs, outputs, volumes, disk size) are serialized by Jackson
+ * (TES model relies on Jackson annotations) into a token buffer and replayed into the writer, executor jobs are serialized by Gson directly.
+ * <p>
+ * Output is the same as of the former Jackson -> Gson Map -> Gson conversion: same order of top level keys,
+ * numbers of TES parts written as doubles, nulls omitted, Gson escaping of strings.
+ */
+class TaskmasterInputWriter {
+
+    private final ObjectMapper objectMapper;
+
+    private final Gson gson;
+
+    TaskmasterInputWriter(ObjectMapper objectMapper, Gson gson) {
+        this.objectMapper = objectMapper;
+        this.gson = gson;
+    }
+
+    String write(List<?> inputs, List<?> outputs, List<String> volumes, Double diskGb, List<V1Job> executors) throws IOException {
+        StringWriter result = new StringWriter();
+        JsonWriter writer = this.gson.newJsonWriter(result);
+        //as in Gson.toJson (not set by newJsonWriter)
+        writer.setHtmlSafe(this.gson.htmlSafe());
+        writer.beginObject();
+        this.writeTesValue(writer, "outputs", outputs);
+        this.writeTesValue(writer, "inputs", inputs);
+        this.writeTesValue(writer, "volumes", volumes);
+        this.writeTesValue(writer, "resources", new TesResources().diskGb(diskGb));
+        writer.name(TASKMASTER_INPUT_EXEC_KEY);
+        writer.beginArray();
+        for (V1Job executor : executors) {
+            this.gson.toJson(executor, V1Job.class, writer);
+        }
+        writer.endArray();
+        writer.endObject();
+        writer.flush();
+        return result.toString();
+    }
+
+    private void writeTesValue(JsonWriter writer, String name, Object value) throws IOException {
+        TokenBuffer buffer = new TokenBuffer(this.objectMapper, false);
+        this.objectMapper.writeValue(buffer, value);
+        writer.name(name);
+        try (JsonParser parser = buffer.asParser()) {
+            copy(parser, writer);
+        }
+    }
+
+    /**
+     * Copies all the tokens
+     */
+    private static void copy(JsonParser parser, JsonWriter writer) throws IOException {
+        JsonToken token;
+        while ((token = parser.nextToken()) != null) {
+            switch (token) {
+                case START_OBJECT:
+                    writer.beginObject();
+                    break;
+                case END_OBJECT:
+                    writer.endObject();
+                    break;
+                case START_ARRAY:
+                    writer.beginArray();
+                    break;
+                case END_ARRAY:
+                    writer.endArray();
+                    break;
+                case FIELD_NAME:
+                    writer.name(parser.getCurrentName());
+                    break;
+                case VALUE_STRING:
+                    writer.value(parser.getText());
+                    break;
+                case VALUE_NUMBER_INT:
+                case VALUE_NUMBER_FLOAT:
+                    //untyped Gson parsing used to turn all numbers into doubles
+                    writer.value(parser.getDoubleValue());
+                    break;
+                case VALUE_TRUE:
+                case VALUE_FALSE:
+                    writer.value(parser.getBooleanValue());
+                    break;
+                case VALUE_NULL:
+                    writer.nullValue();
+                    break;
+                default:
+                    throw new IllegalStateException("Unexpected token " + token);
+            }
+        }
+    }
+}
@@ -1,7 +1,12 @@
 package uk.ac.ebi.tsc.tesk.k8s.convert;
 
+import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.gson.Gson;
 import io.kubernetes.client.models.*;
 import org.joda.time.format.DateTimeFormatter;
@@ -9,6 +14,7 @@ import org.joda.time.format.ISODateTimeFormat;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 import uk.ac.ebi.tsc.tesk.config.security.User;
 import uk.ac.ebi.tsc.tesk.tes.model.*;
@@ -17,11 +23,19 @@ import uk.ac.ebi.tsc.tesk.k8s.constant.K8sConstants;
 import uk.ac.ebi.tsc.tesk.k8s.convert.data.Job;
 import uk.ac.ebi.tsc.tesk.k8s.convert.data.Task;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
 
 import static uk.ac.ebi.tsc.tesk.k8s.constant.Constants.*;
 import static uk.ac.ebi.tsc.tesk.k8s.constant.K8sConstants.*;
@@ -46,17 +60,44 @@ public class TesKubernetesConverter {
 
     private final TrsToolClient trsClient;
 
+    private final TaskmasterInputWriter taskmasterInputWriter;
+
+    private final long inputSecretThreshold;
+
+    private final long inlineInputsMaxSize;
+
+    /**
+     * Request part of TES tasks deserialized from taskmaster's {@link uk.ac.ebi.tsc.tesk.k8s.constant.Constants#ANN_JSON_INPUT_KEY} annotation,
+     * by taskmaster job's uid. The annotation never changes, so cached objects are shared and must not be modified
+     * (see {@link #copyOfRequest(TesTask, boolean)}). Weighed by length of the JSON.
+     */
+    private final Cache<String, ParsedRequest> parsedRequests;
+
     private enum JOB_STATUS {ACTIVE, SUCCEEDED, FAILED}
 
     private static final DateTimeFormatter DATE_FORMATTER = ISODateTimeFormat.dateTime().withZoneUTC();
 
+    /**
+     * Fields of a task, that come from the original request (taskmaster's annotation)
+     */
+    private static final List<String> REQUEST_FIELDS = Arrays.asList("name", "description", "inputs", "outputs", "resources",
+            "executors", "volumes", "tags");
+
     public TesKubernetesConverter(@Qualifier("executor") Supplier<V1Job> executorTemplateSupplier, @Qualifier("taskmaster")
-            Supplier<V1Job> taskmasterTemplateSupplier, ObjectMapper objectMapper, Gson gson, TrsToolClient trsClient) {
+            Supplier<V1Job> taskmasterTemplateSupplier, ObjectMapper objectMapper, Gson gson, TrsToolClient trsClient,
+                                  @Value("${tesk.api.k8s.parsed-request-cache-size}") long parsedRequestCacheSize,
+                                  @Value("${tesk.api.taskmaster.input-secret-threshold}") long inputSecretThreshold,
+                                  @Value("${tesk.api.taskmaster.inline-inputs-max-size}") long inlineInputsMaxSize) {
         this.executorTemplateSupplier = executorTemplateSupplier;
         this.taskmasterTemplateSupplier = taskmasterTemplateSupplier;
         this.objectMapper = objectMapper;
         this.gson = gson;
         this.trsClient = trsClient;
+        this.taskmasterInputWriter = new TaskmasterInputWriter(objectMapper, gson);
+        this.inputSecretThreshold = inputSecretThreshold;
+        this.inlineInputsMaxSize = inlineInputsMaxSize;
+        this.parsedRequests = CacheBuilder.newBuilder().maximumWeight(parsedRequestCacheSize)
+                .weigher((String uid, ParsedRequest request) -> request.jsonLength).build();
     }
 
     /**
@@ -65,7 +106,6 @@ public class TesKubernetesConverter {
      * @param task - TES Task input object
      * @return K8s Job Object
      */
-    @SuppressWarnings("unchecked")
     public V1Job fromTesTaskToK8sJob(TesTask task, User user) {
         //get new Job template with random generated name;
         V1Job taskMasterJob = this.taskmasterTemplateSupplier.get();
@@ -78,6 +118,11 @@ public class TesKubernetesConverter {
         } else if (user.isMember()) {
             taskMasterJob.getMetadata().putLabelsItem(LABEL_GROUPNAME_KEY, user.getAnyGroup());
         }
+        //callback - in own annotations, read without parsing the task
+        if (task.getTags() != null && task.getTags().containsKey(TAG_CALLBACK_URL)) {
+            taskMasterJob.getMetadata().putAnnotationsItem(ANN_CALLBACK_URL_KEY, task.getTags().get(TAG_CALLBACK_URL));
+            taskMasterJob.getMetadata().putAnnotationsItem(ANN_CALLBACK_EVENTS_KEY, task.getTags().getOrDefault(TAG_CALLBACK_EVENTS, CALLBACK_EVENTS_TERMINAL));
+        }
         try {
             //in order to retrieve task details, when querying for task details, whole tesTask object is placed as taskMaster's annotation
             //Jackson for TES objects - because, we rely on auto-generated annotations for Json mapping
@@ -85,33 +130,221 @@ public class TesKubernetesConverter {
         } catch (JsonProcessingException ex) {
             logger.info(String.format("Serializing task %s to JSON failed", taskMasterJob.getMetadata().getName()), ex);
         }
+        //Resolving potential TRS URIs of all executors at once (concurrently)
+        Map<String, String> images = this.trsClient.resolveDockerImages(task.getExecutors().stream().map(TesExecutor::getImage).collect(Collectors.toList()));
         //Converting executors to Kubernetes Job Objects
         List<V1Job> executorsAsJobs = IntStream.range(0, task.getExecutors().size()).
-                mapToObj(i -> this.fromTesExecutorToK8sJob(taskMasterJob.getMetadata().getName(), task.getName(), task.getExecutors().get(i), i, task.getResources(), user)).
+                mapToObj(i -> this.fromTesExecutorToK8sJob(taskMasterJob.getMetadata().getName(), task.getName(), task.getExecutors().get(i),
+                        images.getOrDefault(task.getExecutors().get(i).getImage(), task.getExecutors().get(i).getImage()), i, task.getResources(), user)).
                 collect(Collectors.toList());
-        Map<String, Object> taskMasterInput = new HashMap<>();
-       try {
-            //converting original inputs, outputs, volumes and disk size back again to JSON (will be part of taskMaster's input parameter)
-            //Jackson - for TES objects
-            List<TesInput> inputs = task.getInputs() == null ? new ArrayList<>() : task.getInputs();
-            List<TesOutput> outputs = task.getOutputs() == null ? new ArrayList<>() : task.getOutputs();
-            List<String> volumes = task.getVolumes() == null ? new ArrayList<>() : task.getVolumes();
-            String jobAsJson = this.objectMapper.writeValueAsString(new TesTask().inputs(inputs).outputs(outputs).volumes(volumes).
-                    resources(new TesResources().diskGb(Optional.ofNullable(task.getResources()).map(TesResources::getDiskGb).orElse(RESOURCE_DISK_DEFAULT))));
-            //merging 2 JSONs together into one map
-            Map<String, Object> jobAsMap = gson.fromJson(jobAsJson, Map.class);
-            taskMasterInput.putAll(jobAsMap);
-        } catch (JsonProcessingException e) {
-            logger.info(String.format("Serializing copy of task %s to JSON failed", taskMasterJob.getMetadata().getName()), e);
-            //TODO throw
-        }
-        taskMasterInput.put(TASKMASTER_INPUT_EXEC_KEY, executorsAsJobs);
-        String taskMasterInputAsJSON = this.gson.toJson(taskMasterInput);
+        boolean inlineInputsMounted = this.hasMountableInlineInputs(task);
+        if (inlineInputsMounted) {
+            //contents of inputs mounted to executors from a config map, so no inputs for the taskmaster to download
+            executorsAsJobs.forEach(job -> this.mountInlineInputs(job, taskMasterJob.getMetadata().getName(), task.getInputs()));
+        }
+        String taskMasterInputAsJSON = this.toTaskMasterInput(taskMasterJob.getMetadata().getName(), task, inlineInputsMounted, executorsAsJobs);
         //placing taskmaster's parameter (JSONed map of: inputs, outputs, volumes, executors (as jobs) into ENV variable in taskmaster spec
         taskMasterJob.getSpec().getTemplate().getSpec().getContainers().get(0).getEnv().stream().filter(x -> x.getName().equals(TASKMASTER_INPUT)).forEach(x -> x.setValue(taskMasterInputAsJSON));
         return taskMasterJob;
     }
 
+    private String toTaskMasterInput(String taskId, TesTask task, boolean withoutInputs, List<V1Job> executorsAsJobs) {
+        try {
+            //original inputs, outputs, volumes and disk size - Jackson (TES objects), executors - Gson; written in one pass
+            return this.taskmasterInputWriter.write(
+                    task.getInputs() == null || withoutInputs ? new ArrayList<>() : task.getInputs(),
+                    task.getOutputs() == null ? new ArrayList<>() : task.getOutputs(),
+                    task.getVolumes() == null ? new ArrayList<>() : task.getVolumes(),
+                    Optional.ofNullable(task.getResources()).map(TesResources::getDiskGb).orElse(RESOURCE_DISK_DEFAULT),
+                    executorsAsJobs);
+        } catch (IOException e) {
+            logger.info(String.format("Serializing taskmaster input of task %s to JSON failed", taskId), e);
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * True, if tesk.api.taskmaster.inline-inputs-max-size is on and all the inputs of the task are inline (have contents)
+     * of total size within the limit - such inputs are mounted to executors from a config map instead of being created by the inputs filer
+     */
+    private boolean hasMountableInlineInputs(TesTask task) {
+        if (this.inlineInputsMaxSize <= 0 || task.getInputs() == null || task.getInputs().isEmpty()) {
+            return false;
+        }
+        long size = 0;
+        for (TesInput input : task.getInputs()) {
+            if (input.getContent() == null || input.getPath() == null) {
+                return false;
+            }
+            size += input.getContent().length();
+        }
+        return size <= this.inlineInputsMaxSize;
+    }
+
+    /**
+     * Mounts each of the inputs as a single (read-only) file from the task's inline inputs config map
+     */
+    private void mountInlineInputs(V1Job executorJob, String taskId, List<TesInput> inputs) {
+        V1PodSpec podSpec = executorJob.getSpec().getTemplate().getSpec();
+        podSpec.addVolumesItem(new V1Volume().name(INPUTS_VOLUME_NAME)
+                .configMap(new V1ConfigMapVolumeSource().name(taskId + INPUTS_CONFIGMAP_SUF)));
+        V1Container container = podSpec.getContainers().get(0);
+        for (int i = 0; i < inputs.size(); i++) {
+            container.addVolumeMountsItem(new V1VolumeMount().name(INPUTS_VOLUME_NAME).mountPath(inputs.get(i).getPath())
+                    .subPath(INPUTS_CONFIGMAP_KEY_PREFIX + i).readOnly(true));
+        }
+    }
+
+    /**
+     * Config map with contents of inline inputs, if they are mounted to executors
+     * (see tesk.api.taskmaster.inline-inputs-max-size). Named as the task + {@link uk.ac.ebi.tsc.tesk.k8s.constant.Constants#INPUTS_CONFIGMAP_SUF}.
+     *
+     * @param taskMasterJob - new taskmaster's job (from {@link #fromTesTaskToK8sJob(TesTask, User)})
+     * @param task          - TES task, the job was created from
+     * @return - config map to be created before the job, if inline inputs are mounted
+     */
+    public Optional<V1ConfigMap> fromTesTaskToInputsConfigMap(V1Job taskMasterJob, TesTask task) {
+        if (!this.hasMountableInlineInputs(task)) {
+            return Optional.empty();
+        }
+        V1ObjectMeta metadata = taskMasterJob.getMetadata();
+        V1ConfigMap configMap = new V1ConfigMap().apiVersion("v1").kind("ConfigMap")
+                .metadata(new V1ObjectMeta().name(metadata.getName() + INPUTS_CONFIGMAP_SUF)
+                        .putLabelsItem(LABEL_TESTASK_ID_KEY, metadata.getName())
+                        .putLabelsItem(LABEL_USERID_KEY, metadata.getLabels().get(LABEL_USERID_KEY)));
+        for (int i = 0; i < task.getInputs().size(); i++) {
+            configMap.putDataItem(INPUTS_CONFIGMAP_KEY_PREFIX + i, task.getInputs().get(i).getContent());
+        }
+        return Optional.of(configMap);
+    }
+
+    /**
+     * Moves large taskmaster's input out of the job: if the size of taskmaster's input and json-input annotation together
+     * exceeds tesk.api.taskmaster.input-secret-threshold, the input is stored gzipped in a new secret (named as the job),
+     * mounted to taskmaster's container as a file and passed to taskmaster with -f param instead of the env variable.
+     * The annotation keeps then the task without contents of inputs (restored from the secret in FULL view
+     * - see {@link #restoreInputContents(TesTask, V1Secret)}) and the name of the secret. If inline inputs are mounted
+     * from a config map, the input in the secret has no inputs and the name of the config map is kept instead
+     * (contents restored from the config map - see {@link #restoreInputContents(TesTask, V1ConfigMap)}).
+     *
+     * @param taskMasterJob - new taskmaster's job (from {@link #fromTesTaskToK8sJob(TesTask, User)}); modified, if the input is moved
+     * @param task          - TES task, the job was created from
+     * @return - secret to be created before the job, if the input is moved
+     */
+    public Optional<V1Secret> fromTaskMasterJobToInputSecret(V1Job taskMasterJob, TesTask task) {
+        if (this.inputSecretThreshold <= 0) {
+            return Optional.empty();
+        }
+        V1ObjectMeta metadata = taskMasterJob.getMetadata();
+        V1PodSpec podSpec = taskMasterJob.getSpec().getTemplate().getSpec();
+        V1Container container = podSpec.getContainers().get(0);
+        Optional<V1EnvVar> inputEnv = container.getEnv().stream().filter(env -> TASKMASTER_INPUT.equals(env.getName())).findFirst();
+        int inputArg = container.getArgs().indexOf("$(" + TASKMASTER_INPUT + ")");
+        String input = inputEnv.map(V1EnvVar::getValue).orElse(null);
+        String annotation = Optional.ofNullable(metadata.getAnnotations()).map(ann -> ann.get(ANN_JSON_INPUT_KEY)).orElse("");
+        if (input == null || inputArg < 0 || input.length() + annotation.length() <= this.inputSecretThreshold) {
+            return Optional.empty();
+        }
+        String annotationWithoutContents;
+        byte[] gzippedInput;
+        try {
+            annotationWithoutContents = this.objectMapper.writeValueAsString(copyOfRequest(task, true));
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(input.length() / 4);
+            try (OutputStream gzip = new GZIPOutputStream(bytes)) {
+                gzip.write(input.getBytes(StandardCharsets.UTF_8));
+            }
+            gzippedInput = bytes.toByteArray();
+        } catch (IOException e) {
+            logger.info(String.format("Moving input of task %s to a secret failed", metadata.getName()), e);
+            return Optional.empty();
+        }
+        String secretName = metadata.getName();
+        container.getEnv().remove(inputEnv.get());
+        container.getArgs().set(inputArg, "-f");
+        container.getArgs().add(inputArg + 1, TASKMASTER_INPUT_MOUNT_PATH + "/" + SECRET_TASKMASTER_INPUT_KEY);
+        container.addVolumeMountsItem(new V1VolumeMount().name(TASKMASTER_INPUT_VOLUME_NAME).mountPath(TASKMASTER_INPUT_MOUNT_PATH).readOnly(true));
+        podSpec.addVolumesItem(new V1Volume().name(TASKMASTER_INPUT_VOLUME_NAME).secret(new V1SecretVolumeSource().secretName(secretName)));
+        metadata.putAnnotationsItem(ANN_JSON_INPUT_KEY, annotationWithoutContents);
+        metadata.putAnnotationsItem(ANN_JSON_INPUT_SECRET_KEY, secretName);
+        if (this.hasMountableInlineInputs(task)) {
+            metadata.putAnnotationsItem(ANN_JSON_INPUT_CONFIGMAP_KEY, secretName + INPUTS_CONFIGMAP_SUF);
+        }
+        return Optional.of(new V1Secret().apiVersion("v1").kind("Secret").type("Opaque")
+                .metadata(new V1ObjectMeta().name(secretName)
+                        .putLabelsItem(LABEL_TESTASK_ID_KEY, secretName)
+                        .putLabelsItem(LABEL_USERID_KEY, metadata.getLabels().get(LABEL_USERID_KEY)))
+                .putDataItem(SECRET_TASKMASTER_INPUT_KEY, gzippedInput));
+    }
+
+    /**
+     * @return name of the secret with taskmaster's input, if it was moved out of the job
+     */
+    public Optional<String> getInputSecretName(V1Job taskMasterJob) {
+        return Optional.ofNullable(taskMasterJob.getMetadata().getAnnotations()).map(ann -> ann.get(ANN_JSON_INPUT_SECRET_KEY));
+    }
+
+    /**
+     * @return name of the config map with contents of inline inputs, if the input was moved out of the job
+     * and inline inputs were mounted from the config map (contents are then not in the secret)
+     */
+    public Optional<String> getInputsConfigMapName(V1Job taskMasterJob) {
+        return Optional.ofNullable(taskMasterJob.getMetadata().getAnnotations()).map(ann -> ann.get(ANN_JSON_INPUT_CONFIGMAP_KEY));
+    }
+
+    /**
+     * Puts back contents of inputs to a task, which inputs were stored without contents in taskmaster's annotation.
+     * Inputs (with contents) are read from taskmaster's input in the secret. Replaces the list of inputs of the task
+     * (the original list is shared with the cache). An empty list of inputs in the secret (inputs mounted from
+     * a config map) leaves the inputs of the task as they are.
+     */
+    public void restoreInputContents(TesTask task, V1Secret inputSecret) {
+        byte[] gzippedInput = Optional.ofNullable(inputSecret.getData()).map(data -> data.get(SECRET_TASKMASTER_INPUT_KEY)).orElse(null);
+        if (gzippedInput == null) {
+            return;
+        }
+        try (InputStream input = new GZIPInputStream(new ByteArrayInputStream(gzippedInput));
+             JsonParser parser = this.objectMapper.getFactory().createParser(input)) {
+            //only inputs are read, executors are skipped
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return;
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                parser.nextToken();
+                if ("inputs".equals(field)) {
+                    List<TesInput> inputs = this.objectMapper.readValue(parser, new TypeReference<List<TesInput>>() {
+                    });
+                    if (inputs != null && !inputs.isEmpty()) {
+                        task.setInputs(inputs);
+                    }
+                    return;
+                }
+                parser.skipChildren();
+            }
+        } catch (IOException e) {
+            logger.info("Reading inputs of task {} from secret failed; {}", task.getId(), e.getMessage());
+        }
+    }
+
+    /**
+     * Puts back contents of inline inputs to a task, which inputs were stored without contents in taskmaster's annotation
+     * and mounted from the config map (see {@link #fromTesTaskToInputsConfigMap(V1Job, TesTask)}).
+     * Replaces the list of inputs of the task (the original list is shared with the cache).
+     */
+    public void restoreInputContents(TesTask task, V1ConfigMap inputsConfigMap) {
+        if (task.getInputs() == null || inputsConfigMap.getData() == null) {
+            return;
+        }
+        List<TesInput> inputs = new ArrayList<>(task.getInputs().size());
+        for (int i = 0; i < task.getInputs().size(); i++) {
+            TesInput input = task.getInputs().get(i);
+            inputs.add(new TesInput().name(input.getName()).description(input.getDescription()).url(input.getUrl())
+                    .path(input.getPath()).type(input.getType())
+                    .content(inputsConfigMap.getData().getOrDefault(INPUTS_CONFIGMAP_KEY_PREFIX + i, input.getContent())));
+        }
+        task.setInputs(inputs);
+    }
+
     /**
      * Converts TES executor to new K8s Job object, that is passed to taskMaster
      * as part of input parameters
@@ -126,6 +359,12 @@ public class TesKubernetesConverter {
      * @return - executor K8s job object. To be placed in taskMaster input JSON map in the list of executors
      */
     public V1Job fromTesExecutorToK8sJob(String generatedTaskId, String tesTaskName, TesExecutor executor, int executorIndex, TesResources resources, User user) {
+        //Tries to convert potential TRS URI into docker image. If conversion unsuccessful -> leaves the original image value.
+        return this.fromTesExecutorToK8sJob(generatedTaskId, tesTaskName, executor, this.trsClient.getDockerImageForToolVersionURI(executor.getImage()),
+                executorIndex, resources, user);
+    }
+
+    private V1Job fromTesExecutorToK8sJob(String generatedTaskId, String tesTaskName, TesExecutor executor, String image, int executorIndex, TesResources resources, User user) {
         //get new template executor Job object
         V1Job job = executorTemplateSupplier.get();
         //set executors name based on taskmaster's job name
@@ -133,12 +372,13 @@ public class TesKubernetesConverter {
         //put arbitrary labels and annotations:
         //the important one --> taskId - to search for executors of a given task
         job.getMetadata().putLabelsItem(LABEL_TESTASK_ID_KEY, generatedTaskId);
+        //taskId also in pod's labels - to search for all pods of a given task
+        job.getSpec().getTemplate().getMetadata().putLabelsItem(LABEL_TESTASK_ID_KEY, generatedTaskId);
         job.getMetadata().putLabelsItem(LABEL_EXECNO_KEY, Integer.valueOf(executorIndex).toString());
         job.getMetadata().putAnnotationsItem(ANN_TESTASK_NAME_KEY, tesTaskName);
         job.getMetadata().putLabelsItem(LABEL_USERID_KEY, user.getUsername());
         V1Container container = job.getSpec().getTemplate().getSpec().getContainers().get(0);
-        //Tries to convert potential TRS URI into docker image. If conversion unsuccessful -> leaves the original image value.
-        container.image(this.trsClient.getDockerImageForToolVersionURI(executor.getImage()));
+        container.image(image);
         //Should we map executor's command to job container's command (==ENTRYPOINT) or job container's args (==CMD)?
         //It will be command == ENTRYPOINT, because of shell requirement and no custom entrypoints in bio tools.
         new ExecutorCommandWrapper(executor).getCommandsWithStreamRedirects().forEach(container::addCommandItem);
@@ -282,18 +522,9 @@ public class TesKubernetesConverter {
      * @param nullifyInputContent - true, if input.content has to be removed from the result (in BASIC view)
      */
     public TesTask fromK8sJobsToTesTaskBasic(Task taskmasterWithExecutors, boolean nullifyInputContent) {
-        TesTask task = new TesTask();
         V1Job taskMasterJob = taskmasterWithExecutors.getTaskmaster().getJob();
         V1ObjectMeta taskMasterJobMetadata = taskMasterJob.getMetadata();
-        String inputJson = Optional.ofNullable(taskMasterJobMetadata.getAnnotations()).map(ann -> ann.get(ANN_JSON_INPUT_KEY)).orElse("");
-        try {
-            task = this.objectMapper.readValue(inputJson, TesTask.class);
-            if (nullifyInputContent && task.getInputs() != null) {
-                task.getInputs().forEach(input -> input.setContent(null));
-            }
-        } catch (IOException ex) {
-            logger.info("Deserializing task {} from JSON failed; {}", taskMasterJobMetadata.getName(), ex.getMessage());
-        }
+        TesTask task = this.copyOfRequest(this.getParsedRequest(taskMasterJobMetadata), nullifyInputContent);
         task.setId(taskMasterJobMetadata.getName());
         task.setState(this.extractStateFromK8sJobs(taskmasterWithExecutors));
         task.setCreationTime(DATE_FORMATTER.print(taskMasterJobMetadata.getCreationTimestamp()));
@@ -312,8 +543,114 @@ public class TesKubernetesConverter {
         return task;
     }
 
+    /**
+     * Extracts fields of TesTask required by a field mask from taskMaster's and executors' job and pod objects.
+     * Taskmaster's annotation is parsed only for request fields, state and executor logs are extracted (from pods)
+     * only if asked for. Contents of inputs are included, if asked for (and not moved to a secret).
+     * Result may contain more fields (e.g. creator - needed for authorisation of getTask), than selected.
+     */
+    public TesTask fromK8sJobsToTesTaskPartial(Task taskmasterWithExecutors, TaskFields fields, boolean isList) {
+        V1Job taskMasterJob = taskmasterWithExecutors.getTaskmaster().getJob();
+        V1ObjectMeta taskMasterJobMetadata = taskMasterJob.getMetadata();
+        TesTask task = fields.requiresAny(REQUEST_FIELDS) ?
+                this.copyOfRequest(this.getParsedRequest(taskMasterJobMetadata), !fields.requires("inputs.content")) : new TesTask();
+        task.setId(taskMasterJobMetadata.getName());
+        if (fields.requires("state")) {
+            task.setState(this.extractStateFromK8sJobs(taskmasterWithExecutors));
+        }
+        if (fields.requires("creation_time")) {
+            task.setCreationTime(DATE_FORMATTER.print(taskMasterJobMetadata.getCreationTimestamp()));
+        }
+        if (!fields.requires("logs") && isList) {
+            return task;
+        }
+        TesTaskLog log = new TesTaskLog();
+        task.addLogsItem(log);
+        //always for getTask - for postAuthorization
+        if (fields.requires("logs.metadata") || !isList) {
+            log.putMetadataItem("USER_ID", taskMasterJobMetadata.getLabels().get(LABEL_USERID_KEY));
+            if (taskMasterJobMetadata.getLabels().containsKey(LABEL_GROUPNAME_KEY)) {
+                log.putMetadataItem("GROUP_NAME", taskMasterJobMetadata.getLabels().get(LABEL_GROUPNAME_KEY));
+            }
+        }
+        if (fields.requires("logs.start_time")) {
+            log.setStartTime(Optional.ofNullable(taskMasterJob.getStatus().getStartTime()).map(DATE_FORMATTER::print).orElse(null));
+        }
+        if (fields.requires("logs.end_time")) {
+            log.setEndTime(Optional.ofNullable(taskMasterJob.getStatus().getCompletionTime()).map(DATE_FORMATTER::print).orElse(null));
+        }
+        if (fields.requires("logs.logs")) {
+            for (Job executorJob : taskmasterWithExecutors.getExecutors()) {
+                log.addLogsItem(this.extractExecutorLogFromK8sJobAndPod(executorJob));
+            }
+        }
+        return task;
+    }
+
+    /**
+     * Tags of TES task (from taskmaster's annotation; parsed request is cached)
+     */
+    public Map<String, String> getTags(V1Job taskMasterJob) {
+        Map<String, String> tags = this.getParsedRequest(taskMasterJob.getMetadata()).getTags();
+        return tags == null ? Collections.emptyMap() : tags;
+    }
+
+    /**
+     * Deserializes request part of TES task from taskmaster's annotation or takes it from cache (by job's uid)
+     */
+    private TesTask getParsedRequest(V1ObjectMeta taskMasterJobMetadata) {
+        String uid = taskMasterJobMetadata.getUid();
+        ParsedRequest cached = uid == null ? null : this.parsedRequests.getIfPresent(uid);
+        if (cached != null) {
+            return cached.task;
+        }
+        String inputJson = Optional.ofNullable(taskMasterJobMetadata.getAnnotations()).map(ann -> ann.get(ANN_JSON_INPUT_KEY)).orElse("");
+        try {
+            TesTask task = this.objectMapper.readValue(inputJson, TesTask.class);
+            if (uid != null) {
+                this.parsedRequests.put(uid, new ParsedRequest(task, inputJson.length()));
+            }
+            return task;
+        } catch (IOException ex) {
+            logger.info("Deserializing task {} from JSON failed; {}", taskMasterJobMetadata.getName(), ex.getMessage());
+        }
+        return new TesTask();
+    }
+
+    /**
+     * New TesTask with request fields of the (shared) parsed request. Nested objects are shared, apart from inputs
+     * copied without content, if content is to be removed.
+     */
+    private static TesTask copyOfRequest(TesTask request, boolean nullifyInputContent) {
+        TesTask task = new TesTask().name(request.getName()).description(request.getDescription())
+                .outputs(request.getOutputs()).resources(request.getResources()).executors(request.getExecutors())
+                .volumes(request.getVolumes()).tags(request.getTags());
+        if (request.getInputs() != null) {
+            task.setInputs(nullifyInputContent ? request.getInputs().stream().map(input -> new TesInput().name(input.getName())
+                    .description(input.getDescription()).url(input.getUrl()).path(input.getPath()).type(input.getType()))
+                    .collect(Collectors.toList()) : request.getInputs());
+        }
+        return task;
+    }
+
+    private static class ParsedRequest {
+
+        private final TesTask task;
+
+        private final int jsonLength;
+
+        private ParsedRequest(TesTask task, int jsonLength) {
+            this.task = task;
+            this.jsonLength = jsonLength;
+        }
+    }
+
     public Optional<String> getNameOfFirstRunningPod(V1PodList podList) {
-        return podList.getItems().stream().filter(pod -> "Running".equals(pod.getStatus().getPhase())).findFirst().map(pod -> pod.getMetadata().getName());
+        return this.getFirstRunningPod(podList).map(pod -> pod.getMetadata().getName());
+    }
+
+    public Optional<V1Pod> getFirstRunningPod(V1PodList podList) {
+        return podList.getItems().stream().filter(pod -> "Running".equals(pod.getStatus().getPhase())).findFirst();
     }
 
 }
@@ -5,7 +5,6 @@ import io.kubernetes.client.models.V1Job;
 import io.kubernetes.client.models.V1ObjectMeta;
 
 import java.util.*;
-import java.util.stream.Collectors;
 
 import static uk.ac.ebi.tsc.tesk.k8s.constant.Constants.JOB_NAME_EXEC_NO_LENGTH;
 import static uk.ac.ebi.tsc.tesk.k8s.constant.Constants.JOB_NAME_EXEC_PREFIX;
@@ -22,12 +21,19 @@ public class Task {
      * Taskmaster job (with corresponding pods)
      */
     private Job taskmaster;
+    /**
+     * Names of all executor objects (to skip duplicates)
+     */
+    private Set<String> executorNames = new HashSet<>();
     /**
      * All executor objects (each with corresponding pods)
-     * mapped by their K8s job object name
-     * (Random order -> sorting in getExecutors)
+     * kept sorted by executor number at insertion
+     */
+    private List<Job> executors = new ArrayList<>();
+    /**
+     * Executor numbers (parsed once from job names) of the executors in {@link #executors} (same order)
      */
-    private Map<String, Job> executorsByName = new HashMap<>();
+    private List<Integer> executorNumbers = new ArrayList<>();
     /**
      * Outputs filer job (with corresponding pods) - used to capture failure of handling outputs
      */
@@ -50,7 +56,17 @@ public class Task {
      * @param executor - executor job with corresponsing pods
      */
     public void addExecutor(Job executor) {
-        this.executorsByName.putIfAbsent(executor.getJob().getMetadata().getName(), executor);
+        if (!this.executorNames.add(executor.getJob().getMetadata().getName())) {
+            return;
+        }
+        int executorNumber = this.extractExecutorNumber(executor);
+        //insert after all executors with lower or equal number (executors usually come in order, so it is the end of the list)
+        int position = this.executorNumbers.size();
+        while (position > 0 && this.executorNumbers.get(position - 1) > executorNumber) {
+            position--;
+        }
+        this.executors.add(position, executor);
+        this.executorNumbers.add(position, executorNumber);
     }
 
     public void setOutputFiler(Job filer) {
@@ -65,14 +81,11 @@ public class Task {
     }
 
     /**
-     * Returns a shallow copy of executor's list
+     * Returns unmodifiable view of executor's list
      * sorted by executor number or empty list, if no executors.
      */
     public List<Job> getExecutors() {
-        List<Job> executors = new ArrayList<>();
-        executors.addAll(this.executorsByName.values().stream().sorted(Comparator.comparing(
-                job -> this.extractExecutorNumber(job))).collect(Collectors.toList()));
-        return executors;
+        return Collections.unmodifiableList(this.executors);
     }
 
     /**
@@ -80,10 +93,9 @@ public class Task {
      * sorted by executor number or empty Optional, if no executors.
      */
     public Optional<Job> getLastExecutor() {
-        if (this.executorsByName.values().isEmpty())
+        if (this.executors.isEmpty())
             return Optional.empty();
-        List<Job> executors = this.getExecutors();
-        return Optional.of(executors.get(executors.size() - 1));
+        return Optional.of(this.executors.get(this.executors.size() - 1));
     }
 
     public Optional<Job> getOutputFiler() {
@@ -95,7 +107,11 @@ public class Task {
         String taskmasterName = this.taskmaster.getJobName();
         String prefix = taskmasterName + JOB_NAME_EXEC_PREFIX;
         if (executor.getJobName().startsWith(prefix)) {
-            return Integer.parseInt(executor.getJobName().substring(prefix.length()));
+            try {
+                return Integer.parseInt(executor.getJobName().substring(prefix.length()));
+            } catch (NumberFormatException e) {
+                return Integer.MAX_VALUE;
+            }
         }
         return Integer.MAX_VALUE;
     }
@@ -1,15 +1,14 @@
 package uk.ac.ebi.tsc.tesk.k8s.convert.data;
 
-import com.google.common.collect.MapDifference;
-import com.google.common.collect.Maps;
 import io.kubernetes.client.models.V1Job;
+import io.kubernetes.client.models.V1JobSpec;
 import io.kubernetes.client.models.V1Pod;
 
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
+import java.util.*;
 
 import static uk.ac.ebi.tsc.tesk.k8s.constant.Constants.*;
+import static uk.ac.ebi.tsc.tesk.k8s.constant.K8sConstants.LABEL_CONTROLLER_UID_KEY;
+import static uk.ac.ebi.tsc.tesk.k8s.constant.K8sConstants.LABEL_JOB_NAME_KEY;
 
 /**
  * @author Ania Niewielska <aniewielska@ebi.ac.uk>
@@ -38,12 +37,27 @@ public class TaskBuilder {
         this.buildStrategy = buildStrategy;
     }
 
+    /**
+     * Selector labels (set by Job controller), by which jobs are indexed (in order of preference)
+     */
+    private static final List<String> INDEXED_SELECTOR_KEYS = Arrays.asList(LABEL_CONTROLLER_UID_KEY, LABEL_JOB_NAME_KEY);
+
     /**
      * All jobs - both taskmasters and executors, can belong to different tasks, mapped by name.
-     * Used internally by adding pods, to find a job-pod match.
      */
     private Map<String, Job> allJobsByName = new HashMap<>();
 
+    /**
+     * Jobs indexed by one of their selector's match labels ({@link #INDEXED_SELECTOR_KEYS}) as "key=value".
+     * Used internally by adding pods, to find a job-pod match.
+     */
+    private Map<String, List<Job>> jobsBySelectorLabel = new HashMap<>();
+
+    /**
+     * Jobs, which selector has none of {@link #INDEXED_SELECTOR_KEYS} (checked one by one for each pod)
+     */
+    private List<Job> unindexedJobs = new ArrayList<>();
+
     /**
      * Adds single job to the composite. Recognizes the type (taskmaster/executor) by label
      * and calls appropriate storage method.
@@ -57,10 +71,27 @@ public class TaskBuilder {
         } else {
             this.buildStrategy.addOutputFilerJob(wrappedJob);
         }
-        this.allJobsByName.putIfAbsent(job.getMetadata().getName(), wrappedJob);
+        if (this.allJobsByName.putIfAbsent(job.getMetadata().getName(), wrappedJob) == null) {
+            this.indexJob(wrappedJob);
+        }
         return this;
     }
 
+    private void indexJob(Job job) {
+        Map<String, String> selectors = getMatchLabels(job);
+        if (selectors == null) {
+            //job without selector does not get any pods
+            return;
+        }
+        for (String key : INDEXED_SELECTOR_KEYS) {
+            if (selectors.containsKey(key)) {
+                this.jobsBySelectorLabel.computeIfAbsent(key + "=" + selectors.get(key), k -> new ArrayList<>(1)).add(job);
+                return;
+            }
+        }
+        this.unindexedJobs.add(job);
+    }
+
 
     /**
      * Adds a list of jobs to the composite.
@@ -93,19 +124,53 @@ public class TaskBuilder {
      * of job's selector and comparing them with labels of the pod.
      * If all selectors of the job are present in pod's label set, match is detected
      * (first job-pod match stops search).
+     * Candidate jobs are looked up in the index by pod's controller-uid/job-name labels,
+     * only jobs with neither of them in selector are checked one by one.
      * Will accept also unmatching pod, which won't get stored.
      */
     private void addPod(V1Pod pod) {
-        for (Job job : allJobsByName.values()) {
-            Map<String, String> selectors = job.getJob().getSpec().getSelector().getMatchLabels();
-            Map<String, String> labels = pod.getMetadata().getLabels();
-            MapDifference<String, String> diff = Maps.difference(selectors, labels);
-            if (selectors.size() == diff.entriesInCommon().size()) {
+        Map<String, String> labels = pod.getMetadata().getLabels();
+        if (labels == null) {
+            return;
+        }
+        for (String key : INDEXED_SELECTOR_KEYS) {
+            String value = labels.get(key);
+            if (value != null && this.addPodToFirstMatchingJob(pod, labels, this.jobsBySelectorLabel.get(key + "=" + value))) {
+                return;
+            }
+        }
+        this.addPodToFirstMatchingJob(pod, labels, this.unindexedJobs);
+    }
+
+    private boolean addPodToFirstMatchingJob(V1Pod pod, Map<String, String> labels, List<Job> candidates) {
+        if (candidates == null) {
+            return false;
+        }
+        for (Job job : candidates) {
+            if (selectorMatches(getMatchLabels(job), labels)) {
                 //found matching job (only matchLabels taken into account)
                 job.addPod(pod);
-                break;
+                return true;
             }
         }
+        return false;
+    }
+
+    private static boolean selectorMatches(Map<String, String> selectors, Map<String, String> labels) {
+        for (Map.Entry<String, String> selector : selectors.entrySet()) {
+            if (!selector.getValue().equals(labels.get(selector.getKey()))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static Map<String, String> getMatchLabels(Job job) {
+        V1JobSpec spec = job.getJob().getSpec();
+        if (spec == null || spec.getSelector() == null) {
+            return null;
+        }
+        return spec.getSelector().getMatchLabels() == null ? Collections.emptyMap() : spec.getSelector().getMatchLabels();
     }
 
     public Task getTask() {
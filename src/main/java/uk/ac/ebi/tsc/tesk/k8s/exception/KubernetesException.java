@@ -28,4 +28,11 @@ public class KubernetesException extends RuntimeException {
     public boolean isObjectNameDuplicated() {
         return apiException.getCode() == HttpStatus.CONFLICT.value();
     }
+
+    /**
+     * Object modified since read (resourceVersion precondition of an update failed)
+     */
+    public boolean isConflict() {
+        return apiException.getCode() == HttpStatus.CONFLICT.value();
+    }
 }
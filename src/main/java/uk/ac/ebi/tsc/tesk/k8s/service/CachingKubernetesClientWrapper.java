@@ -0,0 +1,216 @@
+package uk.ac.ebi.tsc.tesk.k8s.service;
+
+import io.kubernetes.client.apis.BatchV1Api;
+import io.kubernetes.client.apis.CoreV1Api;
+import io.kubernetes.client.models.*;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Component;
+import uk.ac.ebi.tsc.tesk.config.security.User;
+import uk.ac.ebi.tsc.tesk.k8s.cache.KubernetesObjectsCache;
+import uk.ac.ebi.tsc.tesk.k8s.cache.LabelSelector;
+import uk.ac.ebi.tsc.tesk.k8s.cache.TaskObjectsIndex;
+import uk.ac.ebi.tsc.tesk.tes.exception.TaskNotFoundException;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+import static uk.ac.ebi.tsc.tesk.k8s.constant.Constants.*;
+import static uk.ac.ebi.tsc.tesk.k8s.constant.K8sConstants.LABEL_JOB_NAME_KEY;
+
+/**
+ * @author Ania Niewielska <aniewielska@ebi.ac.uk>
+ * <p>
+ * Variant of {@link KubernetesClientWrapper} serving reads of Jobs and Pods from watch-driven local cache
+ * ({@link KubernetesObjectsCache}), instead of calling K8s API. Falls back to API calls, when the cache is not in sync.
+ * Created and patched objects are written through to the cache, so that own writes are visible immediately.
+ * Jobs and pods of tasks are looked up by task ID in the cache's indexes, not by scanning all cached objects.
+ * Active only, when tesk.api.k8s.cache.enabled=true
+ */
+@Component
+@Primary
+@ConditionalOnProperty(value = "tesk.api.k8s.cache.enabled", havingValue = "true")
+public class CachingKubernetesClientWrapper extends KubernetesClientWrapper {
+
+    private static final Comparator<V1Job> BY_NAME = Comparator.comparing(job -> job.getMetadata().getName());
+
+    private final KubernetesObjectsCache cache;
+
+    public CachingKubernetesClientWrapper(BatchV1Api batchApi, @Qualifier("patchBatchApi") BatchV1Api patchBatchApi,
+                                          CoreV1Api coreApi, @Qualifier("patchCoreApi") CoreV1Api patchCoreApi,
+                                          @Value("${tesk.api.k8s.namespace}") String namespace,
+                                          KubernetesObjectsCache cache) {
+        super(batchApi, patchBatchApi, coreApi, patchCoreApi, namespace);
+        this.cache = cache;
+    }
+
+    @Override
+    public V1Job createJob(V1Job job) {
+        V1Job createdJob = super.createJob(job);
+        this.cache.putJob(createdJob);
+        return createdJob;
+    }
+
+    /**
+     * Reads from cache; a job missing from the cache may have been just created (by other API instance),
+     * so it is then looked up in K8s API.
+     */
+    @Override
+    public V1Job readTaskmasterJob(String taskId) {
+        if (!this.cache.isSynced()) {
+            return super.readTaskmasterJob(taskId);
+        }
+        Optional<V1Job> job = this.cache.getJob(taskId);
+        if (!job.isPresent()) {
+            return super.readTaskmasterJob(taskId);
+        }
+        if (LABEL_JOBTYPE_VALUE_TASKM.equals(job.get().getMetadata().getLabels() == null ? null : job.get().getMetadata().getLabels().get(LABEL_JOBTYPE_KEY))) {
+            return job.get();
+        }
+        throw new TaskNotFoundException(taskId);
+    }
+
+    /**
+     * Results from cache are ordered by name, like from K8s API; page token ({@link PageToken}) is the same as from
+     * K8s API, so that paging continues, when the cache gets in or out of sync.
+     */
+    @Override
+    public V1JobList listAllTaskmasterJobsForUser(String pageToken, Integer itemsPerPage, User user) {
+        if (!this.cache.isSynced()) {
+            return super.listAllTaskmasterJobsForUser(pageToken, itemsPerPage, user);
+        }
+        return this.page(this.cache.listJobs(LabelSelector.parse(this.taskmasterLabelSelector(user))), pageToken, itemsPerPage, user);
+    }
+
+    /**
+     * Candidate jobs are found in sorted index of task names. Results are ordered by name, like in
+     * {@link #listAllTaskmasterJobsForUser(String, Integer, User)}.
+     */
+    @Override
+    public V1JobList listTaskmasterJobsForUserByNamePrefix(String namePrefix, String pageToken, Integer itemsPerPage, User user) {
+        if (!this.cache.isSynced()) {
+            return super.listTaskmasterJobsForUserByNamePrefix(namePrefix, pageToken, itemsPerPage, user);
+        }
+        LabelSelector selector = LabelSelector.parse(this.taskmasterLabelSelector(user));
+        List<V1Job> jobs = this.cache.listTaskmasterJobsByTaskNamePrefix(namePrefix).stream()
+                .filter(job -> selector.matches(job.getMetadata().getLabels())).collect(Collectors.toList());
+        return this.page(jobs, pageToken, itemsPerPage, user);
+    }
+
+    /**
+     * Jobs filtered for the user before the page is cut, like chunks from K8s API, so that pages are full
+     */
+    private V1JobList page(List<V1Job> allJobs, String pageToken, Integer itemsPerPage, User user) {
+        PageToken token = PageToken.parse(pageToken);
+        Predicate<Map<String, String>> userFilter = this.taskmasterLabelsFilter(user);
+        List<V1Job> jobs = allJobs.stream()
+                .filter(job -> token.isAfter(job.getMetadata().getName()) && userFilter.test(job.getMetadata().getLabels()))
+                .sorted(BY_NAME).collect(Collectors.toList());
+        String nextPageToken = null;
+        if (itemsPerPage != null && itemsPerPage > 0 && jobs.size() > itemsPerPage) {
+            jobs = jobs.subList(0, itemsPerPage);
+            nextPageToken = new PageToken(jobs.get(itemsPerPage - 1).getMetadata().getName(), null).toString();
+        }
+        return new V1JobList().items(jobs).metadata(new V1ListMeta()._continue(nextPageToken));
+    }
+
+    @Override
+    public V1JobList listSingleTaskExecutorJobs(String taskId) {
+        if (!this.cache.isSynced()) {
+            return super.listSingleTaskExecutorJobs(taskId);
+        }
+        return this.taskJobList(Collections.singleton(taskId), LABEL_TESTASK_ID_KEY + "=" + taskId);
+    }
+
+    @Override
+    public Optional<V1Job> getSingleTaskOutputFilerJob(String taskId) {
+        if (!this.cache.isSynced()) {
+            return super.getSingleTaskOutputFilerJob(taskId);
+        }
+        return this.cache.getJob(taskId + JOB_NAME_FILER_SUF);
+    }
+
+    @Override
+    public V1JobList listTaskExecutorJobs(Collection<String> taskIds) {
+        if (!this.cache.isSynced()) {
+            return super.listTaskExecutorJobs(taskIds);
+        }
+        return this.taskJobList(taskIds, setBasedSelector(LABEL_TESTASK_ID_KEY, taskIds));
+    }
+
+    @Override
+    public V1PodList listSingleJobPods(V1Job job) {
+        if (!this.cache.isSynced()) {
+            return super.listSingleJobPods(job);
+        }
+        return this.taskPodList(Collections.singleton(TaskObjectsIndex.taskIdOfJob(job)), this.jobPodsLabelSelector(job));
+    }
+
+    @Override
+    public V1PodList listSingleTaskPods(String taskId) {
+        if (!this.cache.isSynced()) {
+            return super.listSingleTaskPods(taskId);
+        }
+        return this.taskPodList(Collections.singleton(taskId), LABEL_TESTASK_ID_KEY + "=" + taskId);
+    }
+
+    @Override
+    public V1PodList listTaskPods(Collection<String> taskIds) {
+        if (!this.cache.isSynced()) {
+            return super.listTaskPods(taskIds);
+        }
+        return this.taskPodList(taskIds, setBasedSelector(LABEL_TESTASK_ID_KEY, taskIds));
+    }
+
+    @Override
+    public V1PodList listJobsPods(Collection<String> jobNames) {
+        if (!this.cache.isSynced()) {
+            return super.listJobsPods(jobNames);
+        }
+        List<String> taskIds = jobNames.stream().map(TaskObjectsIndex::taskIdOfJobName).collect(Collectors.toList());
+        return this.taskPodList(taskIds, setBasedSelector(LABEL_JOB_NAME_KEY, jobNames));
+    }
+
+    @Override
+    public V1Job labelJobAsCancelled(String taskId, String resourceVersion) {
+        V1Job patchedJob = super.labelJobAsCancelled(taskId, resourceVersion);
+        this.cache.putJob(patchedJob);
+        return patchedJob;
+    }
+
+    @Override
+    public V1Pod labelPodAsCancelled(String podName, String resourceVersion) {
+        V1Pod patchedPod = super.labelPodAsCancelled(podName, resourceVersion);
+        this.cache.putPod(patchedPod);
+        return patchedPod;
+    }
+
+    /**
+     * Jobs of given tasks (looked up by task ID in the cache, not scanning all jobs), matching a label selector
+     */
+    private V1JobList taskJobList(Collection<String> taskIds, String labelSelector) {
+        LabelSelector selector = LabelSelector.parse(labelSelector);
+        List<V1Job> jobs = taskIds.stream().distinct().flatMap(taskId -> this.cache.listTaskJobs(taskId).stream())
+                .filter(job -> selector.matches(job.getMetadata().getLabels())).collect(Collectors.toList());
+        return new V1JobList().items(jobs).metadata(new V1ListMeta());
+    }
+
+    /**
+     * Pods of given tasks (looked up by task ID in the cache, not scanning all pods), matching a label selector
+     */
+    private V1PodList taskPodList(Collection<String> taskIds, String labelSelector) {
+        LabelSelector selector = LabelSelector.parse(labelSelector);
+        List<V1Pod> pods = taskIds.stream().distinct().flatMap(taskId -> this.cache.listTaskPods(taskId).stream())
+                .filter(pod -> selector.matches(pod.getMetadata().getLabels())).collect(Collectors.toList());
+        return new V1PodList().items(pods).metadata(new V1ListMeta());
+    }
+
+}
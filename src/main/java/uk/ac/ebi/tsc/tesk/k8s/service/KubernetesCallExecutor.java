@@ -0,0 +1,89 @@
+package uk.ac.ebi.tsc.tesk.k8s.service;
+
+import io.kubernetes.client.ApiException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import uk.ac.ebi.tsc.tesk.k8s.exception.KubernetesException;
+
+import javax.annotation.PreDestroy;
+import java.util.concurrent.*;
+import java.util.function.Supplier;
+
+/**
+ * @author Ania Niewielska <aniewielska@ebi.ac.uk>
+ * <p>
+ * Runs independent Kubernetes API calls (via {@link KubernetesClientWrapper}) concurrently
+ * on a bounded thread pool. When the pool and its queue are full, calls run in the calling thread.
+ * Waiting for a result of a single call is limited by a timeout.
+ */
+@Component
+public class KubernetesCallExecutor {
+
+    private final ThreadPoolExecutor executor;
+
+    private final long timeoutMillis;
+
+    public KubernetesCallExecutor(@Value("${tesk.api.k8s.calls.threads}") int threads,
+                                  @Value("${tesk.api.k8s.calls.queue-capacity}") int queueCapacity,
+                                  @Value("${tesk.api.k8s.calls.timeout}") long timeoutMillis) {
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("k8s-call-");
+        threadFactory.setDaemon(true);
+        this.executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(queueCapacity), threadFactory, new ThreadPoolExecutor.CallerRunsPolicy());
+        this.executor.allowCoreThreadTimeOut(true);
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    /**
+     * Starts a call asynchronously
+     */
+    public <T> CompletableFuture<T> async(Supplier<T> call) {
+        return CompletableFuture.supplyAsync(call, this.executor);
+    }
+
+    /**
+     * Executor to chain dependent calls (e.g. with thenApplyAsync)
+     */
+    public Executor getExecutor() {
+        return this.executor;
+    }
+
+    /**
+     * Waits for the result of a call. Runtime exceptions thrown by the call (e.g. {@link KubernetesException},
+     * {@link uk.ac.ebi.tsc.tesk.tes.exception.TaskNotFoundException}) are rethrown unchanged.
+     *
+     * @throws KubernetesException - if the result is not available within the timeout
+     */
+    public <T> T join(CompletableFuture<T> call) {
+        try {
+            return call.get(this.timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof CompletionException && cause.getCause() != null) {
+                cause = cause.getCause();
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException(cause);
+        } catch (TimeoutException e) {
+            call.cancel(true);
+            throw KubernetesException.fromApiException(new ApiException(HttpStatus.GATEWAY_TIMEOUT.value(),
+                    "Kubernetes API call did not complete within " + this.timeoutMillis + " ms"));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            call.cancel(true);
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        this.executor.shutdownNow();
+    }
+}
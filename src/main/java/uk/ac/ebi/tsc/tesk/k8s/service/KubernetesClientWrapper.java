@@ -3,25 +3,43 @@ package uk.ac.ebi.tsc.tesk.k8s.service;
 import io.kubernetes.client.ApiException;
 import io.kubernetes.client.apis.BatchV1Api;
 import io.kubernetes.client.apis.CoreV1Api;
+import io.kubernetes.client.models.V1ConfigMap;
+import io.kubernetes.client.models.V1DeleteOptions;
 import io.kubernetes.client.models.V1Job;
 import io.kubernetes.client.models.V1JobList;
+import io.kubernetes.client.models.V1JobSpec;
+import io.kubernetes.client.models.V1ListMeta;
+import io.kubernetes.client.models.V1ObjectMeta;
+import io.kubernetes.client.models.V1OwnerReference;
+import io.kubernetes.client.models.V1Pod;
 import io.kubernetes.client.models.V1PodList;
+import io.kubernetes.client.models.V1PodTemplateSpec;
+import io.kubernetes.client.models.V1Secret;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
 import uk.ac.ebi.tsc.tesk.config.security.User;
+import uk.ac.ebi.tsc.tesk.k8s.cache.LabelSelector;
 import uk.ac.ebi.tsc.tesk.k8s.exception.KubernetesException;
 import uk.ac.ebi.tsc.tesk.tes.exception.TaskNotFoundException;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.StringJoiner;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
 import static uk.ac.ebi.tsc.tesk.k8s.constant.Constants.*;
+import static uk.ac.ebi.tsc.tesk.k8s.constant.K8sConstants.K8S_BATCH_API_JOB_TYPE;
+import static uk.ac.ebi.tsc.tesk.k8s.constant.K8sConstants.K8S_BATCH_API_VERSION;
+import static uk.ac.ebi.tsc.tesk.k8s.constant.K8sConstants.LABEL_JOB_NAME_KEY;
 
 /**
  * @author Ania Niewielska <aniewielska@ebi.ac.uk>
@@ -59,6 +77,101 @@ public class KubernetesClientWrapper {
         }
     }
 
+    public V1Secret createSecret(V1Secret secret) {
+        try {
+            return this.coreApi.createNamespacedSecret(namespace, secret, null);
+        } catch (ApiException e) {
+            throw KubernetesException.fromApiException(e);
+        }
+    }
+
+    public Optional<V1Secret> readSecret(String name) {
+        try {
+            return Optional.of(this.coreApi.readNamespacedSecret(name, namespace, null, null, null));
+        } catch (ApiException e) {
+            if (e.getCode() != HttpStatus.NOT_FOUND.value()) {
+                throw KubernetesException.fromApiException(e);
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Best effort - failure is only logged
+     */
+    public void deleteSecret(String name) {
+        try {
+            this.coreApi.deleteNamespacedSecret(name, namespace, new V1DeleteOptions(), null, null, null, null);
+        } catch (ApiException | RuntimeException e) {
+            //RuntimeException - this client version fails parsing some of delete responses
+            logger.info("Deleting secret " + name + " failed.", e);
+        }
+    }
+
+    /**
+     * Makes the job an owner of the secret, so that the secret is deleted together with the job
+     */
+    public V1Secret setSecretOwner(String secretName, V1Job job) {
+        V1Secret patch = new V1Secret().metadata(ownedBy(job));
+        try {
+            return this.patchCoreApi.patchNamespacedSecret(secretName, namespace, patch, null);
+        } catch (ApiException e) {
+            throw KubernetesException.fromApiException(e);
+        }
+    }
+
+    public V1ConfigMap createConfigMap(V1ConfigMap configMap) {
+        try {
+            return this.coreApi.createNamespacedConfigMap(namespace, configMap, null);
+        } catch (ApiException e) {
+            throw KubernetesException.fromApiException(e);
+        }
+    }
+
+    public Optional<V1ConfigMap> readConfigMap(String name) {
+        try {
+            return Optional.of(this.coreApi.readNamespacedConfigMap(name, namespace, null, null, null));
+        } catch (ApiException e) {
+            if (e.getCode() != HttpStatus.NOT_FOUND.value()) {
+                throw KubernetesException.fromApiException(e);
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Best effort - failure is only logged
+     */
+    public void deleteConfigMap(String name) {
+        try {
+            this.coreApi.deleteNamespacedConfigMap(name, namespace, new V1DeleteOptions(), null, null, null, null);
+        } catch (ApiException | RuntimeException e) {
+            //RuntimeException - this client version fails parsing some of delete responses
+            logger.info("Deleting config map " + name + " failed.", e);
+        }
+    }
+
+    /**
+     * Makes the job an owner of the config map, so that the config map is deleted together with the job
+     */
+    public V1ConfigMap setConfigMapOwner(String configMapName, V1Job job) {
+        V1ConfigMap patch = new V1ConfigMap().metadata(ownedBy(job));
+        try {
+            return this.patchCoreApi.patchNamespacedConfigMap(configMapName, namespace, patch, null);
+        } catch (ApiException e) {
+            throw KubernetesException.fromApiException(e);
+        }
+    }
+
+    /**
+     * Metadata (patch) with the job as the owner
+     */
+    private static V1ObjectMeta ownedBy(V1Job job) {
+        return new V1ObjectMeta().addOwnerReferencesItem(new V1OwnerReference()
+                .apiVersion(K8S_BATCH_API_VERSION).kind(K8S_BATCH_API_JOB_TYPE)
+                .name(job.getMetadata().getName()).uid(job.getMetadata().getUid()));
+    }
+
     public V1Job readTaskmasterJob(String taskId) {
         try {
             V1Job job = this.batchApi.readNamespacedJob(taskId, namespace, null, null, null);
@@ -81,12 +194,85 @@ public class KubernetesClientWrapper {
 
     /**
      * Gets all Taskmaster job objects, a User is allowed to see
-     * @param pageToken - pageToken supplied by user (from previous result; points to next page of results)
+     * @param pageToken - pageToken supplied by user (from previous result; points to next page of results), see {@link PageToken}
      * @param itemsPerPage - value submitted by user, limiting number of results
      * @param user - authenticated user
      * @return all Taskmaster job objects, a User is allowed to see in V1JobList
      */
     public V1JobList listAllTaskmasterJobsForUser(String pageToken, Integer itemsPerPage, User user) {
+        return this.listTaskmasterJobsForUser(PageToken.parse(pageToken), itemsPerPage, itemsPerPage, job -> true, user);
+    }
+
+    /**
+     * Gets Taskmaster job objects, a User is allowed to see, of tasks which name starts with a prefix.
+     * K8s API cannot filter by annotation, so taskmaster jobs are listed in chunks of fixed size (page size, but not less than
+     * {@link uk.ac.ebi.tsc.tesk.k8s.constant.Constants#NAME_PREFIX_MIN_CHUNK_SIZE}) and filtered here, until the page is full
+     * or there are no more jobs. Matches not fitting in the page are left for the next one (the page token points to the last returned job).
+     * @param namePrefix - prefix of TES task name
+     * @param pageToken - pageToken supplied by user (from previous result; points to next page of results), see {@link PageToken}
+     * @param itemsPerPage - value submitted by user, limiting number of results
+     * @param user - authenticated user
+     * @return matching Taskmaster job objects in V1JobList
+     */
+    public V1JobList listTaskmasterJobsForUserByNamePrefix(String namePrefix, String pageToken, Integer itemsPerPage, User user) {
+        Integer chunkSize = itemsPerPage == null ? null : Math.max(itemsPerPage, NAME_PREFIX_MIN_CHUNK_SIZE);
+        return this.listTaskmasterJobsForUser(PageToken.parse(pageToken), itemsPerPage, chunkSize,
+                job -> hasTaskNamePrefix(job, namePrefix), user);
+    }
+
+    /**
+     * Lists Taskmaster jobs, a User is allowed to see, in chunks (from the chunk and after the job of the page token),
+     * keeping the ones passing the filter, until the page is full or there are no more jobs.
+     * The next page token points to the last returned job (and the chunk, where the next page starts).
+     */
+    private V1JobList listTaskmasterJobsForUser(PageToken pageToken, Integer itemsPerPage, Integer chunkSize,
+                                                Predicate<V1Job> filter, User user) {
+        List<V1Job> page = new ArrayList<>();
+        String chunkStart = pageToken.getContinueToken();
+        while (true) {
+            V1JobList chunk = this.filterTaskmasterJobsForUser(this.listJobs(chunkStart, this.taskmasterLabelSelector(user), chunkSize), user);
+            for (V1Job job : chunk.getItems()) {
+                if (!pageToken.isAfter(job.getMetadata().getName()) || !filter.test(job)) {
+                    continue;
+                }
+                if (itemsPerPage != null && page.size() >= itemsPerPage) {
+                    //the rest of the chunk - on the next page
+                    return jobPage(page, new PageToken(lastJobName(page, pageToken), chunkStart));
+                }
+                page.add(job);
+            }
+            String nextChunk = chunk.getMetadata() == null ? null : chunk.getMetadata().getContinue();
+            if (StringUtils.isEmpty(nextChunk)) {
+                return jobPage(page, null);
+            }
+            if (itemsPerPage != null && page.size() >= itemsPerPage) {
+                return jobPage(page, new PageToken(lastJobName(page, pageToken), nextChunk));
+            }
+            chunkStart = nextChunk;
+        }
+    }
+
+    private static String lastJobName(List<V1Job> page, PageToken pageToken) {
+        return page.isEmpty() ? pageToken.getAfter() : page.get(page.size() - 1).getMetadata().getName();
+    }
+
+    private static V1JobList jobPage(List<V1Job> jobs, PageToken nextPageToken) {
+        return new V1JobList().items(jobs).metadata(new V1ListMeta()._continue(nextPageToken == null ? null : nextPageToken.toString()));
+    }
+
+    /**
+     * Tests, if name of TES task (stored in taskmaster job's annotation) starts with a prefix
+     */
+    public static boolean hasTaskNamePrefix(V1Job job, String namePrefix) {
+        Map<String, String> annotations = job.getMetadata().getAnnotations();
+        String taskName = annotations == null ? null : annotations.get(ANN_TESTASK_NAME_KEY);
+        return taskName != null && taskName.startsWith(namePrefix);
+    }
+
+    /**
+     * Label selector of all Taskmaster jobs, a User is allowed to see (apart from filtering in {@link #filterTaskmasterJobsForUser})
+     */
+    protected String taskmasterLabelSelector(User user) {
         //Jobs of taskmaster type
         String labelSelector = new StringJoiner("=").add(LABEL_JOBTYPE_KEY).add(LABEL_JOBTYPE_VALUE_TASKM).toString();
         if (user.getLabelSelector() != null) {
@@ -94,19 +280,34 @@ public class KubernetesClientWrapper {
             // and optionally also to only those jobs, which were created bu the user
             labelSelector += "," + user.getLabelSelector();
         }
-        V1JobList result = this.listJobs(pageToken, labelSelector, itemsPerPage);
+        return labelSelector;
+    }
+
+    protected V1JobList filterTaskmasterJobsForUser(V1JobList result, User user) {
         if (user.isMemberInNonManagedGroups()) {
             //if there are groups, where user is a manager and other groups, where user is only a member
             //filter the results (as it was not handled by label selector)
             List<V1Job> filteredJobList = result.getItems();
-            filteredJobList = filteredJobList.stream().filter(job ->
-                    user.isGroupManager(job.getMetadata().getLabels().get(LABEL_GROUPNAME_KEY))
-                            || user.getUsername().equals(job.getMetadata().getLabels().get(LABEL_USERID_KEY))).collect(Collectors.toList());
+            filteredJobList = filteredJobList.stream().filter(job -> isManagedOrOwn(job.getMetadata().getLabels(), user)).collect(Collectors.toList());
             result.setItems(filteredJobList);
         }
         return result;
     }
 
+    private static boolean isManagedOrOwn(Map<String, String> labels, User user) {
+        return user.isGroupManager(labels.get(LABEL_GROUPNAME_KEY)) || user.getUsername().equals(labels.get(LABEL_USERID_KEY));
+    }
+
+    /**
+     * Tests labels of a taskmaster job against the same rules as {@link #listAllTaskmasterJobsForUser} (label selector and filtering),
+     * for taskmaster jobs not listed from K8s API (e.g. known from watch events)
+     */
+    public Predicate<Map<String, String>> taskmasterLabelsFilter(User user) {
+        LabelSelector selector = LabelSelector.parse(this.taskmasterLabelSelector(user));
+        boolean filtered = user.isMemberInNonManagedGroups();
+        return labels -> labels != null && selector.matches(labels) && (!filtered || isManagedOrOwn(labels, user));
+    }
+
     public V1JobList listSingleTaskExecutorJobs(String taskId) {
         String labelSelector = new StringJoiner("=").add(LABEL_TESTASK_ID_KEY).add(taskId).toString();
         return this.listJobs(null, labelSelector, null);
@@ -124,27 +325,59 @@ public class KubernetesClientWrapper {
         return Optional.empty();
     }
 
-    public V1JobList listAllTaskExecutorJobs() {
-        String labelSelector = new StringJoiner("=").add(LABEL_JOBTYPE_KEY).add(LABEL_JOBTYPE_VALUE_EXEC).toString();
-        return this.listJobs(null, labelSelector, null);
+    /**
+     * Lists executor jobs of a number of tasks at once
+     */
+    public V1JobList listTaskExecutorJobs(Collection<String> taskIds) {
+        return this.listJobs(null, setBasedSelector(LABEL_TESTASK_ID_KEY, taskIds), null);
     }
 
-    public V1JobList listAllFilerJobs() {
-        String labelSelector = "!" + LABEL_JOBTYPE_KEY;
-        return this.listJobs(null, labelSelector, null);
+    public V1PodList listSingleJobPods(V1Job job) {
+        String labelSelector = this.jobPodsLabelSelector(job);
+        return this.listPods(labelSelector);
     }
 
-    public V1PodList listSingleJobPods(V1Job job) {
-        String labelSelector = job.getSpec().getSelector().getMatchLabels().entrySet().stream().map(entry -> entry.getKey() + "=" + entry.getValue()).collect(Collectors.joining(","));
-        try {
-            return this.coreApi.listNamespacedPod(namespace, null, null, null, null, labelSelector, null, null, null, null);
-        } catch (ApiException e) {
-            throw KubernetesException.fromApiException(e);
-        }
+    /**
+     * Lists pods of all the jobs of a task (taskmaster and executors) at once.
+     * Pods of tasks created before taskmaster's and executors' pod templates had been labelled with task ID
+     * will not be found (see {@link #hasTaskIdPodLabel(V1Job)}).
+     */
+    public V1PodList listSingleTaskPods(String taskId) {
+        String labelSelector = new StringJoiner("=").add(LABEL_TESTASK_ID_KEY).add(taskId).toString();
+        return this.listPods(labelSelector);
+    }
+
+    /**
+     * Tests, if pods of the job are labelled with task ID (and so can be found with {@link #listSingleTaskPods(String)})
+     */
+    public static boolean hasTaskIdPodLabel(V1Job job) {
+        return Optional.ofNullable(job.getSpec()).map(V1JobSpec::getTemplate).map(V1PodTemplateSpec::getMetadata).map(V1ObjectMeta::getLabels)
+                .map(labels -> labels.containsKey(LABEL_TESTASK_ID_KEY)).orElse(false);
+    }
+
+    /**
+     * Label selector of pods controlled by the job (from job's selector)
+     */
+    protected String jobPodsLabelSelector(V1Job job) {
+        return job.getSpec().getSelector().getMatchLabels().entrySet().stream().map(entry -> entry.getKey() + "=" + entry.getValue()).collect(Collectors.joining(","));
     }
 
-    public V1PodList listAllJobPods() {
-        String labelSelector = "job-name";
+    /**
+     * Lists pods of all the jobs of a number of tasks at once (only pods of tasks with task ID label in pod templates,
+     * see {@link #hasTaskIdPodLabel(V1Job)})
+     */
+    public V1PodList listTaskPods(Collection<String> taskIds) {
+        return this.listPods(setBasedSelector(LABEL_TESTASK_ID_KEY, taskIds));
+    }
+
+    /**
+     * Lists pods of a number of jobs at once (by job-name label set by Job controller)
+     */
+    public V1PodList listJobsPods(Collection<String> jobNames) {
+        return this.listPods(setBasedSelector(LABEL_JOB_NAME_KEY, jobNames));
+    }
+
+    private V1PodList listPods(String labelSelector) {
         try {
             return this.coreApi.listNamespacedPod(namespace, null, null, null, null, labelSelector, null, null, null, null);
         } catch (ApiException e) {
@@ -152,6 +385,13 @@ public class KubernetesClientWrapper {
         }
     }
 
+    /**
+     * Set-based label selector (key in (value1,value2,...))
+     */
+    protected static String setBasedSelector(String key, Collection<String> values) {
+        return key + " in (" + String.join(",", values) + ")";
+    }
+
     public String readPodLog(String podName) {
         try {
             return this.coreApi.readNamespacedPodLog(podName, namespace, null, null, null, null, null, null, null, null);
@@ -162,17 +402,27 @@ public class KubernetesClientWrapper {
     }
 
 
-    public void labelJobAsCancelled(String taskId) {
+    /**
+     * @param resourceVersion - if not null, precondition of the patch: it fails with 409 Conflict, if the job has changed since read
+     */
+    public V1Job labelJobAsCancelled(String taskId, String resourceVersion) {
+        V1Job patch = resourceVersion == null ? JOB_CANCEL_PATCH :
+                new V1Job().metadata(new V1ObjectMeta().resourceVersion(resourceVersion).labels(JOB_CANCEL_PATCH.getMetadata().getLabels()));
         try {
-            this.patchBatchApi.patchNamespacedJob(taskId, namespace, JOB_CANCEL_PATCH, null);
+            return this.patchBatchApi.patchNamespacedJob(taskId, namespace, patch, null);
         } catch (ApiException e) {
             throw KubernetesException.fromApiException(e);
         }
     }
 
-    public void labelPodAsCancelled(String podName) {
+    /**
+     * @param resourceVersion - if not null, precondition of the patch: it fails with 409 Conflict, if the pod has changed since read
+     */
+    public V1Pod labelPodAsCancelled(String podName, String resourceVersion) {
+        V1Pod patch = resourceVersion == null ? POD_CANCEL_PATCH :
+                new V1Pod().metadata(new V1ObjectMeta().resourceVersion(resourceVersion).labels(POD_CANCEL_PATCH.getMetadata().getLabels()));
         try {
-            this.patchCoreApi.patchNamespacedPod(podName, namespace, POD_CANCEL_PATCH, null);
+            return this.patchCoreApi.patchNamespacedPod(podName, namespace, patch, null);
         } catch (ApiException e) {
             throw KubernetesException.fromApiException(e);
         }
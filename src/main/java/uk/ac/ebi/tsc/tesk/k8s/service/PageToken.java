@@ -0,0 +1,74 @@
+package uk.ac.ebi.tsc.tesk.k8s.service;
+
+import org.springframework.util.StringUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * @author Ania Niewielska <aniewielska@ebi.ac.uk>
+ * <p>
+ * Page token of listTasks, the same for listing from K8s API and from the cache of K8s objects, so that a listing
+ * survives the switch between them (cache getting in or out of sync): name of the last returned taskmaster job
+ * (both K8s API and the cache list jobs ordered by name) and K8s continue token of the chunk it comes from
+ * (only a shortcut for K8s API; the cache uses the name alone, K8s API without continue token lists from the beginning
+ * and skips jobs up to the name). Tokens not in this format are taken as plain K8s continue tokens.
+ */
+final class PageToken {
+
+    private static final String VERSION_PREFIX = "1.";
+
+    /**
+     * Name of the last returned job (null - none, the next page starts at the continue token)
+     */
+    private final String after;
+
+    /**
+     * K8s continue token of the chunk, the next page starts in (null - the beginning)
+     */
+    private final String continueToken;
+
+    PageToken(String after, String continueToken) {
+        this.after = StringUtils.isEmpty(after) ? null : after;
+        this.continueToken = StringUtils.isEmpty(continueToken) ? null : continueToken;
+    }
+
+    static PageToken parse(String pageToken) {
+        if (StringUtils.isEmpty(pageToken)) {
+            return new PageToken(null, null);
+        }
+        if (pageToken.startsWith(VERSION_PREFIX)) {
+            try {
+                String decoded = new String(Base64.getUrlDecoder().decode(pageToken.substring(VERSION_PREFIX.length())), StandardCharsets.UTF_8);
+                int separator = decoded.indexOf('\n');
+                if (separator >= 0) {
+                    return new PageToken(decoded.substring(0, separator), decoded.substring(separator + 1));
+                }
+            } catch (IllegalArgumentException e) {
+                //not ours
+            }
+        }
+        return new PageToken(null, pageToken);
+    }
+
+    String getAfter() {
+        return after;
+    }
+
+    String getContinueToken() {
+        return continueToken;
+    }
+
+    /**
+     * Tests, if the job comes after the last returned one
+     */
+    boolean isAfter(String jobName) {
+        return this.after == null || jobName.compareTo(this.after) > 0;
+    }
+
+    @Override
+    public String toString() {
+        String value = (this.after == null ? "" : this.after) + '\n' + (this.continueToken == null ? "" : this.continueToken);
+        return VERSION_PREFIX + Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+}
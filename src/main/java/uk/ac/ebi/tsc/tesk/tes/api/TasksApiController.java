@@ -1,23 +1,59 @@
 package uk.ac.ebi.tsc.tesk.tes.api;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.collect.Lists;
+import io.swagger.annotations.ApiImplicitParam;
+import io.swagger.annotations.ApiImplicitParams;
+import io.swagger.annotations.ApiOperation;
 import io.swagger.annotations.ApiParam;
+import io.swagger.annotations.ApiResponse;
+import io.swagger.annotations.ApiResponses;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.oauth2.provider.OAuth2Authentication;
 import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 import uk.ac.ebi.tsc.tesk.config.security.User;
+import uk.ac.ebi.tsc.tesk.k8s.convert.data.Task;
+import uk.ac.ebi.tsc.tesk.tes.exception.InvalidWaitParameter;
 import uk.ac.ebi.tsc.tesk.tes.model.*;
 import uk.ac.ebi.tsc.tesk.tes.service.TesService;
+import uk.ac.ebi.tsc.tesk.tes.service.Versioned;
 import uk.ac.ebi.tsc.tesk.tes.model.TaskView;
 
 import javax.validation.Valid;
+import java.time.Duration;
+import java.time.temporal.ChronoUnit;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static uk.ac.ebi.tsc.tesk.config.MessageConvertersConfig.APPLICATION_CBOR_VALUE;
+import static uk.ac.ebi.tsc.tesk.config.MessageConvertersConfig.APPLICATION_SMILE_VALUE;
 
 @javax.annotation.Generated(value = "io.swagger.codegen.languages.SpringCodegen", date = "2017-11-07T14:45:12.993Z")
 
@@ -26,12 +62,41 @@ import javax.validation.Valid;
 @RequestMapping("${openapi.taskExecutionService.base-path:/ga4gh/tes/v1}")
 public class TasksApiController implements TasksApi {
 
+    private static final String FIELDS_PARAM = "fields";
+
+    private static final String LAST_EVENT_ID_HEADER = "Last-Event-ID";
+
+    private static final String WAIT_PARAM = "wait_for_change_from";
+
+    private static final String WAIT_TIMEOUT_PARAM = "timeout";
+
+    /**
+     * Async request timeout on top of waiting (reading the changed task) - only a safety net, waiting ends by itself
+     */
+    private static final long WAIT_TIMEOUT_MARGIN = TimeUnit.SECONDS.toMillis(30);
+
+    private static final String FIELDS_DESCRIPTION = "OPTIONAL. Comma separated fields of a task to return (nested with dots), e.g. id,state,logs.end_time. If given, replaces the view.";
+
     private final TesService tesService;
 
+    private final ObjectMapper objectMapper;
+
+    private final NativeWebRequest request;
+
+    /**
+     * How long (in seconds) responses with tasks in terminal state may be cached
+     */
+    @Value("${tesk.api.terminal-task-max-age}")
+    private long terminalTaskMaxAge;
+
+    @Override
+    public Optional<NativeWebRequest> getRequest() {
+        return Optional.of(this.request);
+    }
+
     public ResponseEntity<Object> cancelTask(@ApiParam(value = "", required = true) @PathVariable("id") String id) {
-        //getTask - for authZ purposes (cancellation only possible for the same tasks, a user can actually see
-        this.tesService.getTask(id, TaskView.MINIMAL, getUser());
-        this.tesService.cancelTask(id);
+        //objects read once - for authZ (cancellation only possible for the same tasks, a user can actually see), state check and patches
+        this.tesService.cancelTask(this.tesService.getTaskToCancel(id, this.getUser()));
         return new ResponseEntity<Object>(HttpStatus.OK);
     }
 
@@ -40,21 +105,192 @@ public class TasksApiController implements TasksApi {
         return new ResponseEntity<>(response, HttpStatus.OK);
     }
 
+    //binary encodings for the polled endpoints (see MessageConvertersConfig)
+    @ApiImplicitParams({@ApiImplicitParam(name = FIELDS_PARAM, value = FIELDS_DESCRIPTION, paramType = "query", dataType = "string"),
+            @ApiImplicitParam(name = WAIT_PARAM, value = "OPTIONAL (TESK extension). Holds the request until the state of the task differs from the given one or the timeout expires (requires the cache of K8s objects).", paramType = "query", dataType = "string", allowableValues = "UNKNOWN, QUEUED, INITIALIZING, RUNNING, PAUSED, COMPLETE, EXECUTOR_ERROR, SYSTEM_ERROR, CANCELED"),
+            @ApiImplicitParam(name = WAIT_TIMEOUT_PARAM, value = "OPTIONAL (TESK extension). How long to wait for the change of state, e.g. 60s or 2m (server side maximum applies). Defaults to 60s.", paramType = "query", dataType = "string")})
+    @GetMapping(value = "/tasks/{id}", produces = {MediaType.APPLICATION_JSON_VALUE, APPLICATION_SMILE_VALUE, APPLICATION_CBOR_VALUE})
     public ResponseEntity<TesTask> getTask(@ApiParam(value = "", required = true) @PathVariable("id") String id,
                                            @ApiParam(value = "OPTIONAL. Affects the fields included in the returned Task messages. See TaskView below.   - MINIMAL: Task message will include ONLY the fields:   Task.Id   Task.State  - BASIC: Task message will include all fields EXCEPT:   Task.ExecutorLog.stdout   Task.ExecutorLog.stderr   Input.content   TaskLog.system_logs  - FULL: Task message includes all fields.", allowableValues = "MINIMAL, BASIC, FULL", defaultValue = "MINIMAL") @RequestParam(value = "view", required = false, defaultValue = "MINIMAL") String view) {
 
         TaskView taskView = TaskView.fromString(view);
-        TesTask task = this.tesService.getTask(id, taskView, this.getUser());
+        TaskFields fields = this.getFields();
+        Versioned<TesTask> task = this.tesService.getTask(id, taskView, fields, this.request.getHeader(HttpHeaders.IF_NONE_MATCH), this.getUser());
+        ResponseEntity.BodyBuilder response = this.versionedResponse(task);
+        //terminal task no longer changes
+        if (task.isTerminal() && task.getETag() != null) {
+            response.cacheControl(CacheControl.maxAge(this.terminalTaskMaxAge, TimeUnit.SECONDS));
+        }
+        return task.isNotModified() ? response.build() : response.body(this.taskBody(task.getValue(), taskView, fields));
+    }
+
+    /**
+     * Long-polling version of getTask (TESK extension, documented as getTask's params).
+     * Waits for a change of task state without holding a servlet thread; responds with the task as getTask would.
+     */
+    @ApiOperation(value = "", hidden = true)
+    @GetMapping(value = "/tasks/{id}", params = WAIT_PARAM, produces = {MediaType.APPLICATION_JSON_VALUE, APPLICATION_SMILE_VALUE, APPLICATION_CBOR_VALUE})
+    public DeferredResult<ResponseEntity<TesTask>> getTaskOnStateChange(@PathVariable("id") String id,
+                                                                        @RequestParam(WAIT_PARAM) String waitForChangeFrom,
+                                                                        @RequestParam(value = WAIT_TIMEOUT_PARAM, required = false, defaultValue = "60s") String timeout,
+                                                                        @RequestParam(value = "view", required = false, defaultValue = "MINIMAL") String view) {
+
+        TesState fromState = TesState.fromValue(waitForChangeFrom);
+        if (fromState == null) {
+            throw new InvalidWaitParameter(WAIT_PARAM, waitForChangeFrom);
+        }
+        long timeoutMillis = this.parseTimeout(timeout);
+        TaskView taskView = TaskView.fromString(view);
+        TaskFields fields = this.getFields();
+        User user = this.getUser();
+        //authZ and current state
+        TesTask current = this.tesService.getTask(id, TaskView.MINIMAL, TaskFields.all(), user);
+        CompletableFuture<TesTask> task = this.tesService.getTaskOnStateChange(current, fromState, timeoutMillis, taskView, fields, user);
+
+        DeferredResult<ResponseEntity<TesTask>> result = new DeferredResult<>(timeoutMillis + WAIT_TIMEOUT_MARGIN);
+        //client gone or timed out - stop waiting
+        result.onCompletion(() -> task.cancel(false));
+        task.whenComplete((changedTask, e) -> {
+            if (e == null) {
+                result.setResult(new ResponseEntity<>(this.taskBody(changedTask, taskView, fields), HttpStatus.OK));
+            } else {
+                result.setErrorResult(e instanceof CompletionException && e.getCause() != null ? e.getCause() : e);
+            }
+        });
+        return result;
+    }
+
+    @ApiImplicitParams(@ApiImplicitParam(name = FIELDS_PARAM, value = FIELDS_DESCRIPTION, paramType = "query", dataType = "string"))
+    @GetMapping(value = "/tasks", produces = {MediaType.APPLICATION_JSON_VALUE, APPLICATION_SMILE_VALUE, APPLICATION_CBOR_VALUE})
+    public ResponseEntity<TesListTasksResponse> listTasks(@ApiParam(value = "OPTIONAL. Filter the list to include tasks where the name matches this prefix. If unspecified, no task name filtering is done.") @RequestParam(value = "name_prefix", required = false) String namePrefix, @ApiParam(value = "OPTIONAL. Number of tasks to return in one page. Must be less than 2048. Defaults to 256.") @RequestParam(value = "page_size", required = false) Long pageSize, @ApiParam(value = "OPTIONAL. Page token is used to retrieve the next page of results. If unspecified, returns the first page of results. See ListTasksResponse.next_page_token") @RequestParam(value = "page_token", required = false) String pageToken, @ApiParam(value = "OPTIONAL. Affects the fields included in the returned Task messages. See TaskView below.   - MINIMAL: Task message will include ONLY the fields:   Task.Id   Task.State  - BASIC: Task message will include all fields EXCEPT:   Task.ExecutorLog.stdout   Task.ExecutorLog.stderr   Input.content   TaskLog.system_logs  - FULL: Task message includes all fields.", allowableValues = "MINIMAL, BASIC, FULL", defaultValue = "MINIMAL") @RequestParam(value = "view", required = false, defaultValue = "MINIMAL") String view) {
+
+        TaskFields fields = this.getFields();
+        Versioned<TesListTasksResponse> result = this.tesService.listTasks(namePrefix, pageSize, pageToken,  TaskView.fromString(view), fields,
+                this.request.getHeader(HttpHeaders.IF_NONE_MATCH), this.getUser());
+        if (result.isNotModified()) {
+            return this.versionedResponse(result).build();
+        }
+        TesListTasksResponse response = result.getValue();
+        if (!fields.isAll()) {
+            //lazily - tasks are still converted one by one, while written
+            response.setTasks(Lists.transform(response.getTasks(), task -> this.retainFields(task, fields)));
+        }
+        return this.versionedResponse(result).body(response);
+    }
+
+    /**
+     * Batch version of getTask (TESK extension, not part of the generated API interface)
+     */
+    @ApiOperation(value = "BatchGetTasks", nickname = "batchGetTasks", notes = "Get a number of tasks by IDs at once. Tasks, that do not exist or the user is not allowed to see, are listed as missing.", response = TesBatchGetTasksResponse.class, tags = {"TaskService",})
+    @ApiResponses(value = {@ApiResponse(code = 200, message = "", response = TesBatchGetTasksResponse.class)})
+    @ApiImplicitParams(@ApiImplicitParam(name = FIELDS_PARAM, value = FIELDS_DESCRIPTION, paramType = "query", dataType = "string"))
+    @PostMapping(value = "/tasks:batchGet", consumes = MediaType.APPLICATION_JSON_VALUE,
+            produces = {MediaType.APPLICATION_JSON_VALUE, APPLICATION_SMILE_VALUE, APPLICATION_CBOR_VALUE})
+    public ResponseEntity<TesBatchGetTasksResponse> batchGetTasks(@ApiParam(value = "", required = true) @Valid @RequestBody TesBatchGetTasksRequest body, @ApiParam(value = "OPTIONAL. Affects the fields included in the returned Task messages. See GetTask.", allowableValues = "MINIMAL, BASIC, FULL", defaultValue = "MINIMAL") @RequestParam(value = "view", required = false, defaultValue = "MINIMAL") String view) {
+
+        TaskView taskView = TaskView.fromString(view);
+        TaskFields fields = this.getFields();
+        List<TesTask> tasks = this.tesService.getTasks(body.getIds(), taskView, fields, this.getUser());
+        TesBatchGetTasksResponse response = new TesBatchGetTasksResponse();
+        Set<String> foundIds = new HashSet<>();
+        for (TesTask task : tasks) {
+            foundIds.add(task.getId());
+            if (!fields.isAll()) {
+                response.addTasksItem(this.retainFields(task, fields));
+            } else {
+                if (taskView == TaskView.MINIMAL) {
+                    task.setLogs(null);
+                }
+                response.addTasksItem(task);
+            }
+        }
+        body.getIds().stream().distinct().filter(id -> !foundIds.contains(id)).forEach(response::addMissingIdsItem);
+        return new ResponseEntity<>(response, HttpStatus.OK);
+    }
+
+    /**
+     * Bulk version of cancelTask (TESK extension, not part of the generated API interface)
+     */
+    @ApiOperation(value = "BatchCancelTasks", nickname = "batchCancelTasks", notes = "Cancel a number of tasks selected either by IDs, or by tags and/or creator (running tasks only). Reports a result per task; tasks that do not exist or the user is not allowed to see are reported as NOT_FOUND.", response = TesBatchCancelTasksResponse.class, tags = {"TaskService",})
+    @ApiResponses(value = {@ApiResponse(code = 200, message = "", response = TesBatchCancelTasksResponse.class)})
+    @PostMapping(value = "/tasks:batchCancel", consumes = MediaType.APPLICATION_JSON_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<TesBatchCancelTasksResponse> batchCancelTasks(@ApiParam(value = "", required = true) @Valid @RequestBody TesBatchCancelTasksRequest body) {
+        List<Task> selected = this.tesService.getTasksToCancel(body, this.getUser());
+        List<TesCancelTaskResult> results = this.tesService.cancelTasks(selected);
+        if (body.getIds() == null || body.getIds().isEmpty()) {
+            return new ResponseEntity<>(new TesBatchCancelTasksResponse().results(results), HttpStatus.OK);
+        }
+        //in the order of IDs; not existing and not visible tasks reported as not found
+        Map<String, TesCancelTaskResult> resultsById = results.stream().collect(Collectors.toMap(TesCancelTaskResult::getId, Function.identity()));
+        TesBatchCancelTasksResponse response = new TesBatchCancelTasksResponse();
+        body.getIds().stream().distinct().map(id -> resultsById.getOrDefault(id, new TesCancelTaskResult().id(id).result(TesCancelTaskResult.ResultEnum.NOT_FOUND)))
+                .forEach(response::addResultsItem);
+        return new ResponseEntity<>(response, HttpStatus.OK);
+    }
+
+    /**
+     * Stream of task state changes (TESK extension, not part of the generated API interface)
+     */
+    @ApiOperation(value = "WatchTasks", nickname = "watchTasks", notes = "Stream (server-sent events) of state changes of tasks. Event 'state' carries task ID and its new state; event 'reset' means, that the client should list tasks again and continue from that event's ID. Resume from the ID of the last received event (Last-Event-ID header or cursor param).", tags = {"TaskService",})
+    @ApiResponses(value = {@ApiResponse(code = 200, message = "")})
+    //JSON - for error responses
+    @GetMapping(value = "/tasks:watch", produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.TEXT_EVENT_STREAM_VALUE})
+    public SseEmitter watchTasks(@ApiParam(value = "OPTIONAL. ID of the last received event, to resume the stream from. Last-Event-ID header is used, if not given.") @RequestParam(value = "cursor", required = false) String cursor,
+                                 @ApiParam(hidden = true) @RequestHeader(value = LAST_EVENT_ID_HEADER, required = false) String lastEventId) {
+        return this.tesService.watchTasks(cursor != null ? cursor : lastEventId, this.getUser());
+    }
+
+    /**
+     * Single task in the response - only selected fields or no logs in minimal view
+     */
+    private TesTask taskBody(TesTask task, TaskView taskView, TaskFields fields) {
+        if (!fields.isAll()) {
+            return this.retainFields(task, fields);
+        }
         if (taskView == TaskView.MINIMAL) {
             task.setLogs(null);
         }
-        return new ResponseEntity<>(task, HttpStatus.OK);
+        return task;
     }
 
-    public ResponseEntity<TesListTasksResponse> listTasks(@ApiParam(value = "OPTIONAL. Filter the list to include tasks where the name matches this prefix. If unspecified, no task name filtering is done.") @RequestParam(value = "name_prefix", required = false) String namePrefix, @ApiParam(value = "OPTIONAL. Number of tasks to return in one page. Must be less than 2048. Defaults to 256.") @RequestParam(value = "page_size", required = false) Long pageSize, @ApiParam(value = "OPTIONAL. Page token is used to retrieve the next page of results. If unspecified, returns the first page of results. See ListTasksResponse.next_page_token") @RequestParam(value = "page_token", required = false) String pageToken, @ApiParam(value = "OPTIONAL. Affects the fields included in the returned Task messages. See TaskView below.   - MINIMAL: Task message will include ONLY the fields:   Task.Id   Task.State  - BASIC: Task message will include all fields EXCEPT:   Task.ExecutorLog.stdout   Task.ExecutorLog.stderr   Input.content   TaskLog.system_logs  - FULL: Task message includes all fields.", allowableValues = "MINIMAL, BASIC, FULL", defaultValue = "MINIMAL") @RequestParam(value = "view", required = false, defaultValue = "MINIMAL") String view) {
+    /**
+     * 304 or 200 with ETag (if there is a version); the same version for all encodings
+     */
+    private ResponseEntity.BodyBuilder versionedResponse(Versioned<?> result) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.status(result.isNotModified() ? HttpStatus.NOT_MODIFIED : HttpStatus.OK);
+        if (result.getETag() != null) {
+            response.eTag(result.getETag()).varyBy(HttpHeaders.ACCEPT);
+        }
+        return response;
+    }
+
+    /**
+     * Wait timeout, e.g. 60s, 2m, 500ms or ISO-8601 (PT1M); plain number means seconds
+     */
+    private long parseTimeout(String timeout) {
+        try {
+            Duration duration = DurationStyle.detectAndParse(timeout, ChronoUnit.SECONDS);
+            if (duration.isNegative()) {
+                throw new InvalidWaitParameter(WAIT_TIMEOUT_PARAM, timeout);
+            }
+            return duration.toMillis();
+        } catch (IllegalArgumentException | ArithmeticException e) {
+            throw new InvalidWaitParameter(WAIT_TIMEOUT_PARAM, timeout);
+        }
+    }
+
+    /**
+     * Field mask from fields param (not part of generated API interface)
+     */
+    private TaskFields getFields() {
+        return TaskFields.fromString(this.request.getParameter(FIELDS_PARAM));
+    }
 
-        TesListTasksResponse response = this.tesService.listTasks(namePrefix, pageSize, pageToken,  TaskView.fromString(view), this.getUser());
-        return new ResponseEntity<TesListTasksResponse>(response, HttpStatus.OK);
+    /**
+     * Copy of the task with selected fields only
+     */
+    private TesTask retainFields(TesTask task, TaskFields fields) {
+        return this.objectMapper.convertValue(fields.retain(this.objectMapper.valueToTree(task)), TesTask.class);
     }
 
     private User getUser() {
@@ -0,0 +1,17 @@
+package uk.ac.ebi.tsc.tesk.tes.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * @author Ania Niewielska <aniewielska@ebi.ac.uk>
+ *
+ * 400 - task created with a callback URL, which is malformed or not allowed, or with unknown callback events
+ */
+@ResponseStatus(HttpStatus.BAD_REQUEST)
+public class InvalidCallback extends RuntimeException {
+    private static final String message = "Invalid value %s of tag %s.";
+    public InvalidCallback(String tag, String value) {
+        super(String.format(message, value, tag));
+    }
+}
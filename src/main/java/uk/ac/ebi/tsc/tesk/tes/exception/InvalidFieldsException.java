@@ -0,0 +1,17 @@
+package uk.ac.ebi.tsc.tesk.tes.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * @author Ania Niewielska <aniewielska@ebi.ac.uk>
+ *
+ * 400 - fields param refers to an unknown field of a task
+ */
+@ResponseStatus(HttpStatus.BAD_REQUEST)
+public class InvalidFieldsException extends RuntimeException {
+    private static final String message = "Unknown field %s in fields parameter.";
+    public InvalidFieldsException(String field) {
+        super(String.format(message, field));
+    }
+}
@@ -0,0 +1,17 @@
+package uk.ac.ebi.tsc.tesk.tes.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * @author Ania Niewielska <aniewielska@ebi.ac.uk>
+ *
+ * 400 - batch cancel request selecting no tasks or selecting them both by IDs and by tags/user
+ */
+@ResponseStatus(HttpStatus.BAD_REQUEST)
+public class InvalidTaskSelection extends RuntimeException {
+    private static final String message = "Select tasks either by ids or by tags and/or user_id.";
+    public InvalidTaskSelection() {
+        super(message);
+    }
+}
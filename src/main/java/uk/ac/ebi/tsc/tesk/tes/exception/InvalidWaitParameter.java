@@ -0,0 +1,17 @@
+package uk.ac.ebi.tsc.tesk.tes.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * @author Ania Niewielska <aniewielska@ebi.ac.uk>
+ *
+ * 400 - waiting for a change of task state requested with an unknown state or a malformed timeout
+ */
+@ResponseStatus(HttpStatus.BAD_REQUEST)
+public class InvalidWaitParameter extends RuntimeException {
+    private static final String message = "Invalid value %s of %s parameter.";
+    public InvalidWaitParameter(String param, String value) {
+        super(String.format(message, value, param));
+    }
+}
@@ -0,0 +1,17 @@
+package uk.ac.ebi.tsc.tesk.tes.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * @author Ania Niewielska <aniewielska@ebi.ac.uk>
+ *
+ * 501 - stream of task state changes requested, but the watch-driven cache of K8s objects (which feeds it) is not enabled
+ */
+@ResponseStatus(HttpStatus.NOT_IMPLEMENTED)
+public class TaskWatchNotAvailable extends RuntimeException {
+    private static final String message = "Watching tasks is not enabled on this server.";
+    public TaskWatchNotAvailable() {
+        super(message);
+    }
+}
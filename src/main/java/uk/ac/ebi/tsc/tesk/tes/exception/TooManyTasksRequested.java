@@ -0,0 +1,17 @@
+package uk.ac.ebi.tsc.tesk.tes.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * @author Ania Niewielska <aniewielska@ebi.ac.uk>
+ *
+ * 400 - more task IDs in a batch request than allowed
+ */
+@ResponseStatus(HttpStatus.BAD_REQUEST)
+public class TooManyTasksRequested extends RuntimeException {
+    private static final String message = "Too many task IDs requested: %d (maximum %d).";
+    public TooManyTasksRequested(int requested, int max) {
+        super(String.format(message, requested, max));
+    }
+}
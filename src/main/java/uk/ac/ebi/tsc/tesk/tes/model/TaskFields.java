@@ -0,0 +1,138 @@
+package uk.ac.ebi.tsc.tesk.tes.model;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.springframework.util.StringUtils;
+import uk.ac.ebi.tsc.tesk.tes.exception.InvalidFieldsException;
+
+import java.util.*;
+
+/**
+ * @author Ania Niewielska <aniewielska@ebi.ac.uk>
+ * <p>
+ * Field mask - value of fields parameter of getTask and listTasks: comma separated paths of fields of a task
+ * (JSON names, nested with dots), e.g. <code>id,state,logs.end_time,logs.logs.exit_code</code>.
+ * A path selects the field with all its nested fields. When given, it replaces the view:
+ * only what the selected fields need is computed ({@link #requires(String)}) and only selected fields are returned ({@link #retain(ObjectNode)}).
+ */
+public class TaskFields {
+
+    private static final Set<String> TASK_FIELDS = new HashSet<>(Arrays.asList("id", "state", "name", "description",
+            "inputs", "outputs", "resources", "executors", "volumes", "tags", "logs", "creation_time"));
+
+    private static final TaskFields ALL = new TaskFields(null);
+
+    /**
+     * Selected paths; null - no mask
+     */
+    private final Set<String> paths;
+
+    private TaskFields(Set<String> paths) {
+        this.paths = paths;
+    }
+
+    public static TaskFields all() {
+        return ALL;
+    }
+
+    /**
+     * @param fields - value of fields param; empty - no mask
+     * @throws InvalidFieldsException - if a path does not start with a field of a task
+     */
+    public static TaskFields fromString(String fields) {
+        if (StringUtils.isEmpty(fields) || fields.trim().isEmpty()) {
+            return ALL;
+        }
+        Set<String> paths = new HashSet<>();
+        for (String path : fields.split(",")) {
+            String trimmed = path.trim();
+            if (trimmed.isEmpty()) {
+                continue;
+            }
+            if (!TASK_FIELDS.contains(trimmed.split("\\.", 2)[0]) || trimmed.endsWith(".")) {
+                throw new InvalidFieldsException(trimmed);
+            }
+            paths.add(trimmed);
+        }
+        return paths.isEmpty() ? ALL : new TaskFields(paths);
+    }
+
+    /**
+     * @return true, if there is no mask (whole task according to the view)
+     */
+    public boolean isAll() {
+        return this.paths == null;
+    }
+
+    /**
+     * True, if the field at the path has to be computed: it is selected itself, as a part of a selected field
+     * or some of its nested fields are selected.
+     */
+    public boolean requires(String path) {
+        if (this.paths == null) {
+            return true;
+        }
+        for (String selected : this.paths) {
+            if (selected.equals(path) || path.startsWith(selected + ".") || selected.startsWith(path + ".")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public boolean requiresAny(Collection<String> paths) {
+        return paths.stream().anyMatch(this::requires);
+    }
+
+    /**
+     * Removes not selected fields from JSON tree of a task (in place)
+     */
+    public ObjectNode retain(ObjectNode task) {
+        if (this.paths != null) {
+            this.retain(task, "");
+        }
+        return task;
+    }
+
+    private void retain(ObjectNode node, String prefix) {
+        Iterator<Map.Entry<String, JsonNode>> fields = node.fields();
+        while (fields.hasNext()) {
+            Map.Entry<String, JsonNode> field = fields.next();
+            String path = prefix + field.getKey();
+            if (this.isSelected(path)) {
+                continue;
+            }
+            if (!this.requires(path)) {
+                fields.remove();
+            } else if (field.getValue().isObject()) {
+                this.retain((ObjectNode) field.getValue(), path + ".");
+            } else if (field.getValue().isArray()) {
+                for (JsonNode item : field.getValue()) {
+                    if (item.isObject()) {
+                        this.retain((ObjectNode) item, path + ".");
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Selected paths in a stable form (sorted), "*" - no mask
+     */
+    @Override
+    public String toString() {
+        return this.paths == null ? "*" : String.join(",", new TreeSet<>(this.paths));
+    }
+
+    /**
+     * Path or any of its parents selected
+     */
+    private boolean isSelected(String path) {
+        for (String selected : this.paths) {
+            if (selected.equals(path) || path.startsWith(selected + ".")) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
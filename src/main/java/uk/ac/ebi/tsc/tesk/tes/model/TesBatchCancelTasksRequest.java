@@ -0,0 +1,145 @@
+package uk.ac.ebi.tsc.tesk.tes.model;
+
+import java.util.Objects;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import io.swagger.annotations.ApiModel;
+import io.swagger.annotations.ApiModelProperty;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * BatchCancelTasksRequest describes a request to the BatchCancelTasks endpoint (TESK extension).
+ * Tasks are selected either by IDs, or by tags and/or creator.
+ */
+@ApiModel(description = "BatchCancelTasksRequest describes a request to the BatchCancelTasks endpoint (TESK extension). Tasks are selected either by IDs, or by tags and/or creator.")
+public class TesBatchCancelTasksRequest   {
+  @JsonProperty("ids")
+  private List<String> ids = new ArrayList<>();
+
+  @JsonProperty("tags")
+  private Map<String, String> tags = new HashMap<>();
+
+  @JsonProperty("user_id")
+  private String userId;
+
+  public TesBatchCancelTasksRequest ids(List<String> ids) {
+    this.ids = ids;
+    return this;
+  }
+
+  public TesBatchCancelTasksRequest addIdsItem(String idsItem) {
+    if (this.ids == null) {
+      this.ids = new ArrayList<>();
+    }
+    this.ids.add(idsItem);
+    return this;
+  }
+
+  /**
+   * IDs of tasks to cancel. Number of distinct IDs must not exceed the maximum page size of ListTasks.
+   * @return ids
+  */
+  @ApiModelProperty(value = "IDs of tasks to cancel. Number of distinct IDs must not exceed the maximum page size of ListTasks.")
+
+
+  public List<String> getIds() {
+    return ids;
+  }
+
+  public void setIds(List<String> ids) {
+    this.ids = ids;
+  }
+
+  public TesBatchCancelTasksRequest tags(Map<String, String> tags) {
+    this.tags = tags;
+    return this;
+  }
+
+  public TesBatchCancelTasksRequest putTagsItem(String key, String tagsItem) {
+    if (this.tags == null) {
+      this.tags = new HashMap<>();
+    }
+    this.tags.put(key, tagsItem);
+    return this;
+  }
+
+  /**
+   * Cancel running tasks (the user is allowed to see) having all these tags.
+   * @return tags
+  */
+  @ApiModelProperty(value = "Cancel running tasks (the user is allowed to see) having all these tags.")
+
+
+  public Map<String, String> getTags() {
+    return tags;
+  }
+
+  public void setTags(Map<String, String> tags) {
+    this.tags = tags;
+  }
+
+  public TesBatchCancelTasksRequest userId(String userId) {
+    this.userId = userId;
+    return this;
+  }
+
+  /**
+   * Cancel running tasks (the user is allowed to see) created by this user.
+   * @return userId
+  */
+  @ApiModelProperty(value = "Cancel running tasks (the user is allowed to see) created by this user.")
+
+
+  public String getUserId() {
+    return userId;
+  }
+
+  public void setUserId(String userId) {
+    this.userId = userId;
+  }
+
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (o == null || getClass() != o.getClass()) {
+      return false;
+    }
+    TesBatchCancelTasksRequest tesBatchCancelTasksRequest = (TesBatchCancelTasksRequest) o;
+    return Objects.equals(this.ids, tesBatchCancelTasksRequest.ids) &&
+        Objects.equals(this.tags, tesBatchCancelTasksRequest.tags) &&
+        Objects.equals(this.userId, tesBatchCancelTasksRequest.userId);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(ids, tags, userId);
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder sb = new StringBuilder();
+    sb.append("class TesBatchCancelTasksRequest {\n");
+    
+    sb.append("    ids: ").append(toIndentedString(ids)).append("\n");
+    sb.append("    tags: ").append(toIndentedString(tags)).append("\n");
+    sb.append("    userId: ").append(toIndentedString(userId)).append("\n");
+    sb.append("}");
+    return sb.toString();
+  }
+
+  /**
+   * Convert the given object to string with each line indented by 4 spaces
+   * (except the first line).
+   */
+  private String toIndentedString(Object o) {
+    if (o == null) {
+      return "null";
+    }
+    return o.toString().replace("\n", "\n    ");
+  }
+}
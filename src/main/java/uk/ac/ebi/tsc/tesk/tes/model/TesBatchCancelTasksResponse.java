@@ -0,0 +1,89 @@
+package uk.ac.ebi.tsc.tesk.tes.model;
+
+import java.util.Objects;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import io.swagger.annotations.ApiModel;
+import io.swagger.annotations.ApiModelProperty;
+import java.util.ArrayList;
+import java.util.List;
+import javax.validation.Valid;
+import javax.validation.constraints.*;
+
+/**
+ * BatchCancelTasksResponse describes a response from the BatchCancelTasks endpoint (TESK extension).
+ */
+@ApiModel(description = "BatchCancelTasksResponse describes a response from the BatchCancelTasks endpoint (TESK extension).")
+public class TesBatchCancelTasksResponse   {
+  @JsonProperty("results")
+  @Valid
+  private List<TesCancelTaskResult> results = new ArrayList<>();
+
+  public TesBatchCancelTasksResponse results(List<TesCancelTaskResult> results) {
+    this.results = results;
+    return this;
+  }
+
+  public TesBatchCancelTasksResponse addResultsItem(TesCancelTaskResult resultsItem) {
+    if (this.results == null) {
+      this.results = new ArrayList<>();
+    }
+    this.results.add(resultsItem);
+    return this;
+  }
+
+  /**
+   * Result per selected task (in the order of requested IDs, if selected by IDs).
+   * @return results
+  */
+  @ApiModelProperty(required = true, value = "Result per selected task (in the order of requested IDs, if selected by IDs).")
+  @NotNull
+
+  @Valid
+
+  public List<TesCancelTaskResult> getResults() {
+    return results;
+  }
+
+  public void setResults(List<TesCancelTaskResult> results) {
+    this.results = results;
+  }
+
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (o == null || getClass() != o.getClass()) {
+      return false;
+    }
+    TesBatchCancelTasksResponse tesBatchCancelTasksResponse = (TesBatchCancelTasksResponse) o;
+    return Objects.equals(this.results, tesBatchCancelTasksResponse.results);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(results);
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder sb = new StringBuilder();
+    sb.append("class TesBatchCancelTasksResponse {\n");
+    
+    sb.append("    results: ").append(toIndentedString(results)).append("\n");
+    sb.append("}");
+    return sb.toString();
+  }
+
+  /**
+   * Convert the given object to string with each line indented by 4 spaces
+   * (except the first line).
+   */
+  private String toIndentedString(Object o) {
+    if (o == null) {
+      return "null";
+    }
+    return o.toString().replace("\n", "\n    ");
+  }
+}
@@ -0,0 +1,86 @@
+package uk.ac.ebi.tsc.tesk.tes.model;
+
+import java.util.Objects;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import io.swagger.annotations.ApiModel;
+import io.swagger.annotations.ApiModelProperty;
+import java.util.ArrayList;
+import java.util.List;
+import javax.validation.constraints.*;
+
+/**
+ * BatchGetTasksRequest describes a request to the BatchGetTasks endpoint (TESK extension).
+ */
+@ApiModel(description = "BatchGetTasksRequest describes a request to the BatchGetTasks endpoint (TESK extension).")
+public class TesBatchGetTasksRequest   {
+  @JsonProperty("ids")
+  private List<String> ids = new ArrayList<>();
+
+  public TesBatchGetTasksRequest ids(List<String> ids) {
+    this.ids = ids;
+    return this;
+  }
+
+  public TesBatchGetTasksRequest addIdsItem(String idsItem) {
+    if (this.ids == null) {
+      this.ids = new ArrayList<>();
+    }
+    this.ids.add(idsItem);
+    return this;
+  }
+
+  /**
+   * IDs of tasks to get. Number of distinct IDs must not exceed the maximum page size of ListTasks.
+   * @return ids
+  */
+  @ApiModelProperty(required = true, value = "IDs of tasks to get. Number of distinct IDs must not exceed the maximum page size of ListTasks.")
+  @NotNull
+
+
+  public List<String> getIds() {
+    return ids;
+  }
+
+  public void setIds(List<String> ids) {
+    this.ids = ids;
+  }
+
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (o == null || getClass() != o.getClass()) {
+      return false;
+    }
+    TesBatchGetTasksRequest tesBatchGetTasksRequest = (TesBatchGetTasksRequest) o;
+    return Objects.equals(this.ids, tesBatchGetTasksRequest.ids);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(ids);
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder sb = new StringBuilder();
+    sb.append("class TesBatchGetTasksRequest {\n");
+    
+    sb.append("    ids: ").append(toIndentedString(ids)).append("\n");
+    sb.append("}");
+    return sb.toString();
+  }
+
+  /**
+   * Convert the given object to string with each line indented by 4 spaces
+   * (except the first line).
+   */
+  private String toIndentedString(Object o) {
+    if (o == null) {
+      return "null";
+    }
+    return o.toString().replace("\n", "\n    ");
+  }
+}
@@ -0,0 +1,122 @@
+package uk.ac.ebi.tsc.tesk.tes.model;
+
+import java.util.Objects;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import io.swagger.annotations.ApiModel;
+import io.swagger.annotations.ApiModelProperty;
+import java.util.ArrayList;
+import java.util.List;
+import javax.validation.Valid;
+import javax.validation.constraints.*;
+
+/**
+ * BatchGetTasksResponse describes a response from the BatchGetTasks endpoint (TESK extension).
+ */
+@ApiModel(description = "BatchGetTasksResponse describes a response from the BatchGetTasks endpoint (TESK extension).")
+public class TesBatchGetTasksResponse   {
+  @JsonProperty("tasks")
+  @Valid
+  private List<TesTask> tasks = new ArrayList<>();
+
+  @JsonProperty("missing_ids")
+  private List<String> missingIds = new ArrayList<>();
+
+  public TesBatchGetTasksResponse tasks(List<TesTask> tasks) {
+    this.tasks = tasks;
+    return this;
+  }
+
+  public TesBatchGetTasksResponse addTasksItem(TesTask tasksItem) {
+    if (this.tasks == null) {
+      this.tasks = new ArrayList<>();
+    }
+    this.tasks.add(tasksItem);
+    return this;
+  }
+
+  /**
+   * Found tasks, in the order of requested IDs (duplicated IDs are returned once).
+   * @return tasks
+  */
+  @ApiModelProperty(required = true, value = "Found tasks, in the order of requested IDs (duplicated IDs are returned once).")
+  @NotNull
+
+  @Valid
+
+  public List<TesTask> getTasks() {
+    return tasks;
+  }
+
+  public void setTasks(List<TesTask> tasks) {
+    this.tasks = tasks;
+  }
+
+  public TesBatchGetTasksResponse missingIds(List<String> missingIds) {
+    this.missingIds = missingIds;
+    return this;
+  }
+
+  public TesBatchGetTasksResponse addMissingIdsItem(String missingIdsItem) {
+    if (this.missingIds == null) {
+      this.missingIds = new ArrayList<>();
+    }
+    this.missingIds.add(missingIdsItem);
+    return this;
+  }
+
+  /**
+   * Requested IDs of tasks, that do not exist or the user is not allowed to see.
+   * @return missingIds
+  */
+  @ApiModelProperty(value = "Requested IDs of tasks, that do not exist or the user is not allowed to see.")
+
+
+  public List<String> getMissingIds() {
+    return missingIds;
+  }
+
+  public void setMissingIds(List<String> missingIds) {
+    this.missingIds = missingIds;
+  }
+
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (o == null || getClass() != o.getClass()) {
+      return false;
+    }
+    TesBatchGetTasksResponse tesBatchGetTasksResponse = (TesBatchGetTasksResponse) o;
+    return Objects.equals(this.tasks, tesBatchGetTasksResponse.tasks) &&
+        Objects.equals(this.missingIds, tesBatchGetTasksResponse.missingIds);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(tasks, missingIds);
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder sb = new StringBuilder();
+    sb.append("class TesBatchGetTasksResponse {\n");
+    
+    sb.append("    tasks: ").append(toIndentedString(tasks)).append("\n");
+    sb.append("    missingIds: ").append(toIndentedString(missingIds)).append("\n");
+    sb.append("}");
+    return sb.toString();
+  }
+
+  /**
+   * Convert the given object to string with each line indented by 4 spaces
+   * (except the first line).
+   */
+  private String toIndentedString(Object o) {
+    if (o == null) {
+      return "null";
+    }
+    return o.toString().replace("\n", "\n    ");
+  }
+}
@@ -0,0 +1,168 @@
+package uk.ac.ebi.tsc.tesk.tes.model;
+
+import java.util.Objects;
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonValue;
+import io.swagger.annotations.ApiModel;
+import io.swagger.annotations.ApiModelProperty;
+import javax.validation.constraints.*;
+
+/**
+ * CancelTaskResult describes the outcome of cancelling a single task in BatchCancelTasks (TESK extension).
+ */
+@ApiModel(description = "CancelTaskResult describes the outcome of cancelling a single task in BatchCancelTasks (TESK extension).")
+public class TesCancelTaskResult   {
+  /**
+   * Outcome of cancelling the task.
+   */
+  public enum ResultEnum {
+    CANCELED("CANCELED"),
+    
+    NOT_FOUND("NOT_FOUND"),
+    
+    NOT_RUNNING("NOT_RUNNING"),
+    
+    FAILED("FAILED");
+
+    private String value;
+
+    ResultEnum(String value) {
+      this.value = value;
+    }
+
+    @JsonValue
+    public String getValue() {
+      return value;
+    }
+
+    @Override
+    public String toString() {
+      return String.valueOf(value);
+    }
+
+    @JsonCreator
+    public static ResultEnum fromValue(String value) {
+      for (ResultEnum b : ResultEnum.values()) {
+        if (b.value.equals(value)) {
+          return b;
+        }
+      }
+      throw new IllegalArgumentException("Unexpected value '" + value + "'");
+    }
+  }
+
+  @JsonProperty("id")
+  private String id;
+
+  @JsonProperty("result")
+  private ResultEnum result;
+
+  @JsonProperty("message")
+  private String message;
+
+  public TesCancelTaskResult id(String id) {
+    this.id = id;
+    return this;
+  }
+
+  /**
+   * Task identifier.
+   * @return id
+  */
+  @ApiModelProperty(required = true, value = "Task identifier.")
+  @NotNull
+
+
+  public String getId() {
+    return id;
+  }
+
+  public void setId(String id) {
+    this.id = id;
+  }
+
+  public TesCancelTaskResult result(ResultEnum result) {
+    this.result = result;
+    return this;
+  }
+
+  /**
+   * Outcome of cancelling the task.
+   * @return result
+  */
+  @ApiModelProperty(required = true, value = "Outcome of cancelling the task.")
+  @NotNull
+
+
+  public ResultEnum getResult() {
+    return result;
+  }
+
+  public void setResult(ResultEnum result) {
+    this.result = result;
+  }
+
+  public TesCancelTaskResult message(String message) {
+    this.message = message;
+    return this;
+  }
+
+  /**
+   * Reason of a failure.
+   * @return message
+  */
+  @ApiModelProperty(value = "Reason of a failure.")
+
+
+  public String getMessage() {
+    return message;
+  }
+
+  public void setMessage(String message) {
+    this.message = message;
+  }
+
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (o == null || getClass() != o.getClass()) {
+      return false;
+    }
+    TesCancelTaskResult tesCancelTaskResult = (TesCancelTaskResult) o;
+    return Objects.equals(this.id, tesCancelTaskResult.id) &&
+        Objects.equals(this.result, tesCancelTaskResult.result) &&
+        Objects.equals(this.message, tesCancelTaskResult.message);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(id, result, message);
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder sb = new StringBuilder();
+    sb.append("class TesCancelTaskResult {\n");
+    
+    sb.append("    id: ").append(toIndentedString(id)).append("\n");
+    sb.append("    result: ").append(toIndentedString(result)).append("\n");
+    sb.append("    message: ").append(toIndentedString(message)).append("\n");
+    sb.append("}");
+    return sb.toString();
+  }
+
+  /**
+   * Convert the given object to string with each line indented by 4 spaces
+   * (except the first line).
+   */
+  private String toIndentedString(Object o) {
+    if (o == null) {
+      return "null";
+    }
+    return o.toString().replace("\n", "\n    ");
+  }
+}
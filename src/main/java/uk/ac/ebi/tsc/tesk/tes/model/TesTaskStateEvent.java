@@ -0,0 +1,102 @@
+package uk.ac.ebi.tsc.tesk.tes.model;
+
+import java.util.Objects;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import io.swagger.annotations.ApiModel;
+import io.swagger.annotations.ApiModelProperty;
+import javax.validation.constraints.*;
+
+/**
+ * TaskStateEvent is data of a single event of the WatchTasks stream: a task changed its state (TESK extension).
+ */
+@ApiModel(description = "TaskStateEvent is data of a single event of the WatchTasks stream: a task changed its state (TESK extension).")
+public class TesTaskStateEvent   {
+  @JsonProperty("id")
+  private String id;
+
+  @JsonProperty("state")
+  private TesState state;
+
+  public TesTaskStateEvent id(String id) {
+    this.id = id;
+    return this;
+  }
+
+  /**
+   * Task identifier.
+   * @return id
+  */
+  @ApiModelProperty(required = true, value = "Task identifier.")
+  @NotNull
+
+
+  public String getId() {
+    return id;
+  }
+
+  public void setId(String id) {
+    this.id = id;
+  }
+
+  public TesTaskStateEvent state(TesState state) {
+    this.state = state;
+    return this;
+  }
+
+  /**
+   * New state of the task.
+   * @return state
+  */
+  @ApiModelProperty(required = true, value = "New state of the task.")
+  @NotNull
+
+
+  public TesState getState() {
+    return state;
+  }
+
+  public void setState(TesState state) {
+    this.state = state;
+  }
+
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (o == null || getClass() != o.getClass()) {
+      return false;
+    }
+    TesTaskStateEvent tesTaskStateEvent = (TesTaskStateEvent) o;
+    return Objects.equals(this.id, tesTaskStateEvent.id) &&
+        Objects.equals(this.state, tesTaskStateEvent.state);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(id, state);
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder sb = new StringBuilder();
+    sb.append("class TesTaskStateEvent {\n");
+    
+    sb.append("    id: ").append(toIndentedString(id)).append("\n");
+    sb.append("    state: ").append(toIndentedString(state)).append("\n");
+    sb.append("}");
+    return sb.toString();
+  }
+
+  /**
+   * Convert the given object to string with each line indented by 4 spaces
+   * (except the first line).
+   */
+  private String toIndentedString(Object o) {
+    if (o == null) {
+      return "null";
+    }
+    return o.toString().replace("\n", "\n    ");
+  }
+}
@@ -0,0 +1,89 @@
+package uk.ac.ebi.tsc.tesk.tes.model;
+
+import java.util.Objects;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import io.swagger.annotations.ApiModel;
+import io.swagger.annotations.ApiModelProperty;
+import java.util.ArrayList;
+import java.util.List;
+import javax.validation.Valid;
+import javax.validation.constraints.*;
+
+/**
+ * TaskStateNotification is a document posted to the callback URL of tasks: a batch of state changes (TESK extension).
+ */
+@ApiModel(description = "TaskStateNotification is a document posted to the callback URL of tasks: a batch of state changes (TESK extension).")
+public class TesTaskStateNotification   {
+  @JsonProperty("events")
+  @Valid
+  private List<TesTaskStateEvent> events = new ArrayList<>();
+
+  public TesTaskStateNotification events(List<TesTaskStateEvent> events) {
+    this.events = events;
+    return this;
+  }
+
+  public TesTaskStateNotification addEventsItem(TesTaskStateEvent eventsItem) {
+    if (this.events == null) {
+      this.events = new ArrayList<>();
+    }
+    this.events.add(eventsItem);
+    return this;
+  }
+
+  /**
+   * State changes of tasks, in the order they were observed.
+   * @return events
+  */
+  @ApiModelProperty(required = true, value = "State changes of tasks, in the order they were observed.")
+  @NotNull
+
+  @Valid
+
+  public List<TesTaskStateEvent> getEvents() {
+    return events;
+  }
+
+  public void setEvents(List<TesTaskStateEvent> events) {
+    this.events = events;
+  }
+
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (o == null || getClass() != o.getClass()) {
+      return false;
+    }
+    TesTaskStateNotification tesTaskStateNotification = (TesTaskStateNotification) o;
+    return Objects.equals(this.events, tesTaskStateNotification.events);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(events);
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder sb = new StringBuilder();
+    sb.append("class TesTaskStateNotification {\n");
+    
+    sb.append("    events: ").append(toIndentedString(events)).append("\n");
+    sb.append("}");
+    return sb.toString();
+  }
+
+  /**
+   * Convert the given object to string with each line indented by 4 spaces
+   * (except the first line).
+   */
+  private String toIndentedString(Object o) {
+    if (o == null) {
+      return "null";
+    }
+    return o.toString().replace("\n", "\n    ");
+  }
+}
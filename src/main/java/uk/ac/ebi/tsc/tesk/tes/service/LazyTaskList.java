@@ -0,0 +1,38 @@
+package uk.ac.ebi.tsc.tesk.tes.service;
+
+import uk.ac.ebi.tsc.tesk.k8s.convert.data.Task;
+import uk.ac.ebi.tsc.tesk.tes.model.TesTask;
+
+import java.util.AbstractList;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * @author Ania Niewielska <aniewielska@ebi.ac.uk>
+ * <p>
+ * Read-only list of TES tasks of a listTasks page, which converts K8s objects of a task only when the element is accessed
+ * and does not keep the result. Serialized into the response, tasks are converted and written one by one,
+ * so a single converted task is held in memory at a time, whatever the page size.
+ * Each access converts again (in FULL view - reads pod logs again).
+ */
+class LazyTaskList extends AbstractList<TesTask> {
+
+    private final List<Task> tasks;
+
+    private final Function<Task, TesTask> conversion;
+
+    LazyTaskList(List<Task> tasks, Function<Task, TesTask> conversion) {
+        this.tasks = tasks;
+        this.conversion = conversion;
+    }
+
+    @Override
+    public TesTask get(int index) {
+        return this.conversion.apply(this.tasks.get(index));
+    }
+
+    @Override
+    public int size() {
+        return this.tasks.size();
+    }
+}
@@ -0,0 +1,115 @@
+package uk.ac.ebi.tsc.tesk.tes.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import uk.ac.ebi.tsc.tesk.tes.model.TaskFields;
+import uk.ac.ebi.tsc.tesk.tes.model.TaskView;
+import uk.ac.ebi.tsc.tesk.tes.model.TesTask;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author Ania Niewielska <aniewielska@ebi.ac.uk>
+ * <p>
+ * Serialized (compact JSON) single tasks in terminal states (canceled ones, once all their pods stopped) - their representation
+ * no longer changes - per task ID, view
+ * and field mask, kept with their version and owner labels, so that a repeated read needs no K8s calls (incl. pod logs)
+ * nor conversion. Bounded by total size in bytes (LRU eviction) and by age (a deleted task disappears at the latest,
+ * when it would from clients' caches). MINIMAL view without a field mask is cheap to build and not cached.
+ */
+@Component
+public class RenderedTaskCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(RenderedTaskCache.class);
+
+    private final Cache<String, RenderedTask> tasks;
+
+    private final ObjectWriter writer;
+
+    private final ObjectReader reader;
+
+    public RenderedTaskCache(ObjectMapper objectMapper,
+                             @Value("${tesk.api.terminal-task-cache-size}") long maxSize,
+                             @Value("${tesk.api.terminal-task-max-age}") long maxAge) {
+        this.tasks = CacheBuilder.newBuilder().maximumWeight(maxSize)
+                .weigher((String key, RenderedTask task) -> key.length() + task.content.length)
+                .expireAfterWrite(maxAge, TimeUnit.SECONDS).build();
+        this.writer = objectMapper.writer().without(SerializationFeature.INDENT_OUTPUT);
+        this.reader = objectMapper.readerFor(TesTask.class);
+    }
+
+    /**
+     * @return cached task (or not modified, if If-None-Match matches its version); empty, if not cached
+     */
+    Optional<Versioned<TesTask>> get(String taskId, TaskView view, TaskFields fields, String ifNoneMatch) {
+        if (!isCacheable(view, fields)) {
+            return Optional.empty();
+        }
+        String key = key(taskId, view, fields);
+        RenderedTask cached = this.tasks.getIfPresent(key);
+        if (cached == null) {
+            return Optional.empty();
+        }
+        if (TaskVersions.matches(ifNoneMatch, cached.eTag)) {
+            return Optional.of(new Versioned<>(null, cached.eTag, true, cached.ownerLabels));
+        }
+        try {
+            //new copy for every read - callers may modify it
+            return Optional.of(new Versioned<>(this.reader.readValue(cached.content), cached.eTag, true, cached.ownerLabels));
+        } catch (IOException e) {
+            logger.warn("Reading cached task {} failed; {}", taskId, e.getMessage());
+            this.tasks.invalidate(key);
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Caches the task, if it is in a terminal state and no longer changes
+     */
+    void put(String taskId, TaskView view, TaskFields fields, Versioned<TesTask> task) {
+        if (!task.isTerminal() || task.isNotModified() || !isCacheable(view, fields)) {
+            return;
+        }
+        try {
+            this.tasks.put(key(taskId, view, fields), new RenderedTask(this.writer.writeValueAsBytes(task.getValue()),
+                    task.getETag(), task.getOwnerLabels()));
+        } catch (JsonProcessingException e) {
+            logger.warn("Caching task {} failed; {}", taskId, e.getMessage());
+        }
+    }
+
+    private static boolean isCacheable(TaskView view, TaskFields fields) {
+        return !fields.isAll() || view != TaskView.MINIMAL;
+    }
+
+    private static String key(String taskId, TaskView view, TaskFields fields) {
+        return taskId + '\0' + view.name() + '\0' + fields;
+    }
+
+    private static class RenderedTask {
+
+        private final byte[] content;
+
+        private final String eTag;
+
+        private final Map<String, String> ownerLabels;
+
+        private RenderedTask(byte[] content, String eTag, Map<String, String> ownerLabels) {
+            this.content = content;
+            this.eTag = eTag;
+            this.ownerLabels = ownerLabels;
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package uk.ac.ebi.tsc.tesk.tes.service;
+
+import uk.ac.ebi.tsc.tesk.tes.model.TesState;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * @author Ania Niewielska <aniewielska@ebi.ac.uk>
+ * <p>
+ * Bounded in-memory log (ring buffer) of the latest task state changes, from which event streams are resumed.
+ * Each event gets a cursor "epoch-sequence number"; the epoch differs between API instances (and restarts),
+ * so that a cursor issued by another instance is never mistaken for a local one.
+ */
+class TaskEventLog {
+
+    private final String epoch;
+
+    private final TaskEvent[] buffer;
+
+    /**
+     * Sequence number of the latest event (0 - no events yet)
+     */
+    private long lastSequence;
+
+    TaskEventLog(int capacity) {
+        this(Long.toString(System.currentTimeMillis(), 36), capacity);
+    }
+
+    TaskEventLog(String epoch, int capacity) {
+        this.epoch = epoch;
+        this.buffer = new TaskEvent[Math.max(capacity, 1)];
+    }
+
+    synchronized TaskEvent append(String taskId, TesState state, Map<String, String> taskmasterLabels) {
+        this.lastSequence++;
+        TaskEvent event = new TaskEvent(this.cursor(this.lastSequence), taskId, state, taskmasterLabels);
+        this.buffer[(int) (this.lastSequence % this.buffer.length)] = event;
+        return event;
+    }
+
+    /**
+     * @return cursor of the latest event (a new stream starting from it gets only future events)
+     */
+    synchronized String currentCursor() {
+        return this.cursor(this.lastSequence);
+    }
+
+    /**
+     * Events following the one with a given cursor.
+     *
+     * @return empty, if the cursor is not known (issued by other instance or malformed)
+     * or some of the following events are no longer kept
+     */
+    synchronized Optional<List<TaskEvent>> since(String cursor) {
+        int separator = cursor.lastIndexOf('-');
+        if (separator < 0 || !this.epoch.equals(cursor.substring(0, separator))) {
+            return Optional.empty();
+        }
+        long sequence;
+        try {
+            sequence = Long.parseLong(cursor.substring(separator + 1));
+        } catch (NumberFormatException e) {
+            return Optional.empty();
+        }
+        if (sequence < 0 || sequence > this.lastSequence || this.lastSequence - sequence > this.buffer.length) {
+            return Optional.empty();
+        }
+        List<TaskEvent> events = new ArrayList<>((int) (this.lastSequence - sequence));
+        for (long next = sequence + 1; next <= this.lastSequence; next++) {
+            events.add(this.buffer[(int) (next % this.buffer.length)]);
+        }
+        return Optional.of(events);
+    }
+
+    private String cursor(long sequence) {
+        return this.epoch + "-" + sequence;
+    }
+
+    /**
+     * Single state change with taskmaster's labels (for filtering per user)
+     */
+    static class TaskEvent {
+
+        private final String cursor;
+
+        private final String taskId;
+
+        private final TesState state;
+
+        private final Map<String, String> taskmasterLabels;
+
+        TaskEvent(String cursor, String taskId, TesState state, Map<String, String> taskmasterLabels) {
+            this.cursor = cursor;
+            this.taskId = taskId;
+            this.state = state;
+            this.taskmasterLabels = taskmasterLabels;
+        }
+
+        String getCursor() {
+            return cursor;
+        }
+
+        String getTaskId() {
+            return taskId;
+        }
+
+        TesState getState() {
+            return state;
+        }
+
+        Map<String, String> getTaskmasterLabels() {
+            return taskmasterLabels;
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package uk.ac.ebi.tsc.tesk.tes.service;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * @author Ania Niewielska <aniewielska@ebi.ac.uk>
+ * <p>
+ * Settings of the stream of task state changes (server-sent events) and of waiting for a change of a single task
+ */
+@Configuration
+@ConfigurationProperties(prefix = "tesk.api.task-events")
+@Data
+public class TaskEventsProperties {
+
+    /**
+     * Number of the latest events kept in memory, from which a client can resume the stream
+     */
+    private int bufferSize = 1000;
+
+    /**
+     * How often (in ms) changes of K8s objects are collected and states of affected tasks evaluated
+     */
+    private int interval = 500;
+
+    /**
+     * Timeout (in seconds) of a single event stream connection; clients are expected to reconnect with the last event ID
+     */
+    private int streamTimeout = 1800;
+
+    /**
+     * How often (in seconds) a comment is sent to idle streams, to keep connections open and detect gone clients
+     */
+    private int heartbeat = 30;
+
+    /**
+     * Maximum time (in seconds), a request waiting for a change of task state is held
+     */
+    private int maxWait = 300;
+
+    /**
+     * Number of threads completing requests waiting for a change of task state (reading the changed task)
+     */
+    private int waiterThreads = 4;
+
+    /**
+     * Number of threads writing events to streams; a slow client occupies at most one of them
+     */
+    private int senderThreads = 4;
+
+    /**
+     * Maximum number of events waiting to be sent to a single stream; a client falling further behind is disconnected
+     * (and may resume from its last received event, if it is still within buffer-size)
+     */
+    private int subscriberQueueSize = 100;
+}
@@ -0,0 +1,482 @@
+package uk.ac.ebi.tsc.tesk.tes.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import io.kubernetes.client.models.V1Job;
+import io.kubernetes.client.models.V1Pod;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import uk.ac.ebi.tsc.tesk.config.security.User;
+import uk.ac.ebi.tsc.tesk.k8s.cache.KubernetesObjectsCache;
+import uk.ac.ebi.tsc.tesk.k8s.cache.LabelSelector;
+import uk.ac.ebi.tsc.tesk.k8s.cache.TaskObjectsIndex;
+import uk.ac.ebi.tsc.tesk.k8s.convert.TesKubernetesConverter;
+import uk.ac.ebi.tsc.tesk.k8s.convert.data.Task;
+import uk.ac.ebi.tsc.tesk.k8s.convert.data.TaskBuilder;
+import uk.ac.ebi.tsc.tesk.k8s.service.KubernetesClientWrapper;
+import uk.ac.ebi.tsc.tesk.tes.model.TesState;
+import uk.ac.ebi.tsc.tesk.tes.model.TesTaskStateEvent;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+import static uk.ac.ebi.tsc.tesk.k8s.constant.Constants.*;
+
+/**
+ * @author Ania Niewielska <aniewielska@ebi.ac.uk>
+ * <p>
+ * Pushes changes of task state to subscribed clients as server-sent events.
+ * Fed by the watch of the local cache of Jobs and Pods ({@link KubernetesObjectsCache}), shared by all subscribers:
+ * changed objects mark their task, states of marked tasks are evaluated periodically (from objects of those tasks only,
+ * looked up by task ID in the cache) and compared with the last known ones. Each change is recorded in {@link TaskEventLog},
+ * from which a client can resume. Events are filtered per user by the same rules as {@link KubernetesClientWrapper#listAllTaskmasterJobsForUser}
+ * and queued per subscriber - written to streams by a separate pool of threads, so that a slow client delays nobody else;
+ * a client, whose queue is full, is disconnected.
+ * <p>
+ * Events of the stream: "state" (data: {@link TesTaskStateEvent}) and "reset" - sent on connection without a cursor
+ * or with a cursor, which cannot be resumed from; the client should (re)list tasks and continue from the reset event's ID.
+ * <p>
+ * The same evaluation wakes requests waiting for a change of state of a single task ({@link #awaitStateChange})
+ * and feeds other listeners of state changes ({@link #addStateListener}), which get the states of all tasks
+ * from the first evaluation too ({@link #addInitialStatesListener}) - to catch up with changes they missed while not running.
+ * Active only, when tesk.api.k8s.cache.enabled=true
+ */
+@Component
+@ConditionalOnProperty(value = "tesk.api.k8s.cache.enabled", havingValue = "true")
+public class TaskStateWatcher {
+
+    private static final Logger logger = LoggerFactory.getLogger(TaskStateWatcher.class);
+
+    static final String EVENT_STATE = "state";
+
+    static final String EVENT_RESET = "reset";
+
+    private static final LabelSelector TASKMASTER_SELECTOR = LabelSelector.parse(LABEL_JOBTYPE_KEY + "=" + LABEL_JOBTYPE_VALUE_TASKM);
+
+    private final KubernetesObjectsCache cache;
+
+    private final KubernetesClientWrapper kubernetesClientWrapper;
+
+    private final TesKubernetesConverter converter;
+
+    private final TaskEventsProperties properties;
+
+    /**
+     * Event data in a single line (multiline data would need to be split into many SSE data fields)
+     */
+    private final ObjectWriter eventWriter;
+
+    private final TaskEventLog eventLog;
+
+    /**
+     * IDs of tasks, which objects changed since the last evaluation
+     */
+    private final Set<String> changedTaskIds = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Last known state of each task (updated by the evaluating thread only)
+     */
+    private final Map<String, TesState> states = new ConcurrentHashMap<>();
+
+    /**
+     * Requests waiting for a change of state, by task ID
+     */
+    private final Map<String, List<Waiter>> waiters = new ConcurrentHashMap<>();
+
+    /**
+     * Have the states of all tasks been evaluated (accessed by the evaluating thread only)
+     */
+    private boolean initialised;
+
+    private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+
+    private final List<BiConsumer<V1Job, TesState>> stateListeners = new CopyOnWriteArrayList<>();
+
+    private final List<Consumer<List<Map.Entry<V1Job, TesState>>>> initialStatesListeners = new CopyOnWriteArrayList<>();
+
+    private final ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(1, daemonThreads("task-state-watcher"));
+
+    /**
+     * Completes waiting requests (continuations read the changed task - not within the evaluating thread)
+     */
+    private final ExecutorService waiterExecutor;
+
+    /**
+     * Writes queued events to streams of subscribers
+     */
+    private final ExecutorService senderExecutor;
+
+    @Autowired
+    public TaskStateWatcher(KubernetesObjectsCache cache, KubernetesClientWrapper kubernetesClientWrapper,
+                            TesKubernetesConverter converter, TaskEventsProperties properties, ObjectMapper objectMapper) {
+        this(cache, kubernetesClientWrapper, converter, properties, objectMapper, new TaskEventLog(properties.getBufferSize()),
+                Executors.newFixedThreadPool(properties.getSenderThreads(), daemonThreads("task-events-sender")));
+    }
+
+    TaskStateWatcher(KubernetesObjectsCache cache, KubernetesClientWrapper kubernetesClientWrapper, TesKubernetesConverter converter,
+                     TaskEventsProperties properties, ObjectMapper objectMapper, TaskEventLog eventLog, ExecutorService senderExecutor) {
+        this.cache = cache;
+        this.kubernetesClientWrapper = kubernetesClientWrapper;
+        this.converter = converter;
+        this.properties = properties;
+        this.eventWriter = objectMapper.writer().without(SerializationFeature.INDENT_OUTPUT);
+        this.eventLog = eventLog;
+        //timeouts of woken waiters do not pile up
+        this.scheduler.setRemoveOnCancelPolicy(true);
+        this.waiterExecutor = Executors.newFixedThreadPool(properties.getWaiterThreads(), daemonThreads("task-waiter"));
+        this.senderExecutor = senderExecutor;
+        this.cache.addJobListener((oldJob, newJob) -> this.markChanged(TaskObjectsIndex.taskIdOfJob(newJob != null ? newJob : oldJob)));
+        this.cache.addPodListener((oldPod, newPod) -> this.markChanged(TaskObjectsIndex.taskIdOfPod(newPod != null ? newPod : oldPod)));
+    }
+
+    @PostConstruct
+    public void start() {
+        this.scheduler.scheduleWithFixedDelay(this::evaluateChanges, this.properties.getInterval(), this.properties.getInterval(), TimeUnit.MILLISECONDS);
+        this.scheduler.scheduleWithFixedDelay(this::sendHeartbeat, this.properties.getHeartbeat(), this.properties.getHeartbeat(), TimeUnit.SECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        this.scheduler.shutdownNow();
+        this.waiterExecutor.shutdownNow();
+        this.subscribers.forEach(Subscriber::drop);
+        this.senderExecutor.shutdown();
+    }
+
+    /**
+     * Opens a stream of state changes of tasks, the user is allowed to see.
+     *
+     * @param cursor - ID of the last event received by the client (null - new stream)
+     */
+    public SseEmitter subscribe(User user, String cursor) {
+        SseEmitter emitter = new SseEmitter(TimeUnit.SECONDS.toMillis(this.properties.getStreamTimeout()));
+        Subscriber subscriber = new Subscriber(emitter, this.kubernetesClientWrapper.taskmasterLabelsFilter(user));
+        emitter.onCompletion(() -> this.subscribers.remove(subscriber));
+        emitter.onTimeout(emitter::complete);
+        emitter.onError(error -> this.subscribers.remove(subscriber));
+        //no event published in between replay and registration
+        synchronized (this) {
+            Optional<List<TaskEventLog.TaskEvent>> missed = cursor == null ? Optional.empty() : this.eventLog.since(cursor);
+            if (missed.isPresent()) {
+                missed.get().forEach(event -> subscriber.send(event, this.toData(event)));
+            } else {
+                subscriber.send(SseEmitter.event().id(this.eventLog.currentCursor()).name(EVENT_RESET).data(""));
+            }
+            this.subscribers.add(subscriber);
+        }
+        return emitter;
+    }
+
+    /**
+     * Registers a listener of state changes (taskmaster's job, new state), called by the evaluating thread - should be fast.
+     */
+    public void addStateListener(BiConsumer<V1Job, TesState> listener) {
+        this.stateListeners.add(listener);
+    }
+
+    /**
+     * Registers a listener of states of all tasks (taskmaster's job, state) from the first evaluation,
+     * called by the evaluating thread once, before any state change.
+     */
+    public void addInitialStatesListener(Consumer<List<Map.Entry<V1Job, TesState>>> listener) {
+        this.initialStatesListeners.add(listener);
+    }
+
+    /**
+     * Waits (without blocking the caller) for the state of a task to differ from a given one.
+     * The returned future completes with the new state; with null, if the timeout (capped by max-wait) expires
+     * or the task is deleted. Cancelling the future stops waiting.
+     */
+    public CompletableFuture<TesState> awaitStateChange(String taskId, TesState fromState, long timeoutMillis) {
+        Waiter waiter = new Waiter(fromState);
+        this.waiters.compute(taskId, (id, list) -> {
+            List<Waiter> waiting = list != null ? list : new ArrayList<>();
+            waiting.add(waiter);
+            return waiting;
+        });
+        long timeout = Math.min(timeoutMillis, TimeUnit.SECONDS.toMillis(this.properties.getMaxWait()));
+        ScheduledFuture<?> expiry = this.scheduler.schedule(() -> this.complete(waiter, null), timeout, TimeUnit.MILLISECONDS);
+        waiter.future.whenComplete((state, e) -> {
+            expiry.cancel(false);
+            this.waiters.computeIfPresent(taskId, (id, list) -> {
+                list.remove(waiter);
+                return list.isEmpty() ? null : list;
+            });
+        });
+        //state might have changed before registration
+        TesState known = this.states.get(taskId);
+        if (known != null && known != fromState) {
+            this.complete(waiter, known);
+        }
+        return waiter.future;
+    }
+
+    /**
+     * Wakes waiters of a task, whose state differs from the new one (all waiters, if the task is gone - null state)
+     */
+    private void wake(String taskId, TesState state) {
+        List<Waiter> woken = new ArrayList<>();
+        this.waiters.computeIfPresent(taskId, (id, list) -> {
+            list.removeIf(waiter -> (state == null || waiter.fromState != state) && woken.add(waiter));
+            return list.isEmpty() ? null : list;
+        });
+        woken.forEach(waiter -> this.complete(waiter, state));
+    }
+
+    private void complete(Waiter waiter, TesState state) {
+        try {
+            this.waiterExecutor.execute(() -> waiter.future.complete(state));
+        } catch (RejectedExecutionException e) {
+            //shutting down
+            waiter.future.cancel(false);
+        }
+    }
+
+    private void markChanged(String taskId) {
+        if (taskId != null) {
+            this.changedTaskIds.add(taskId);
+        }
+    }
+
+    /**
+     * Evaluates states of tasks, which objects changed (all tasks for the first time, without publishing).
+     * Objects of changed tasks are looked up by task ID (the whole cache is scanned only for the first time).
+     */
+    void evaluateChanges() {
+        if (!this.cache.isSynced() || (this.initialised && this.changedTaskIds.isEmpty())) {
+            return;
+        }
+        List<String> taskIds = new ArrayList<>(this.changedTaskIds);
+        this.changedTaskIds.removeAll(taskIds);
+        try {
+            List<V1Job> taskmasters = new ArrayList<>();
+            List<V1Job> otherJobs = new ArrayList<>();
+            List<V1Pod> pods = new ArrayList<>();
+            if (this.initialised) {
+                for (String taskId : taskIds) {
+                    for (V1Job job : this.cache.listTaskJobs(taskId)) {
+                        if (TASKMASTER_SELECTOR.matches(job.getMetadata().getLabels())) {
+                            taskmasters.add(job);
+                        } else if (job.getMetadata().getLabels() != null) {
+                            otherJobs.add(job);
+                        }
+                    }
+                    pods.addAll(this.cache.listTaskPods(taskId));
+                }
+                Set<String> existing = taskmasters.stream().map(job -> job.getMetadata().getName()).collect(Collectors.toSet());
+                taskIds.stream().filter(taskId -> !existing.contains(taskId)).forEach(taskId -> {
+                    this.states.remove(taskId);
+                    this.wake(taskId, null);
+                });
+            } else {
+                taskmasters.addAll(this.cache.listJobs(TASKMASTER_SELECTOR));
+                this.cache.listJobs(LabelSelector.EVERYTHING).stream()
+                        .filter(job -> job.getMetadata().getLabels() != null && !TASKMASTER_SELECTOR.matches(job.getMetadata().getLabels()))
+                        .forEach(otherJobs::add);
+                pods.addAll(this.cache.listPods(LabelSelector.EVERYTHING));
+            }
+            List<Task> tasks = TaskBuilder.newTaskList().addJobList(taskmasters).addJobList(otherJobs).addPodList(pods).getTaskList();
+            List<Map.Entry<V1Job, TesState>> initialStates = new ArrayList<>();
+            for (Task task : tasks) {
+                V1Job taskmaster = task.getTaskmaster().getJob();
+                TesState state = this.converter.extractStateFromK8sJobs(task);
+                //no null values in the concurrent map
+                TesState previous = state != null ? this.states.put(taskmaster.getMetadata().getName(), state)
+                        : this.states.remove(taskmaster.getMetadata().getName());
+                if (this.initialised && state != previous) {
+                    this.publish(taskmaster.getMetadata().getName(), state, taskmaster.getMetadata().getLabels());
+                    this.notifyListeners(taskmaster, state);
+                } else if (!this.initialised && state != null) {
+                    initialStates.add(new AbstractMap.SimpleImmutableEntry<>(taskmaster, state));
+                }
+                this.wake(taskmaster.getMetadata().getName(), state);
+            }
+            if (!this.initialised) {
+                this.notifyInitialStatesListeners(initialStates);
+            }
+            this.initialised = true;
+        } catch (RuntimeException e) {
+            logger.warn("Evaluating state changes of tasks failed, will retry.", e);
+            this.changedTaskIds.addAll(taskIds);
+        }
+    }
+
+    private synchronized void publish(String taskId, TesState state, Map<String, String> taskmasterLabels) {
+        TaskEventLog.TaskEvent event = this.eventLog.append(taskId, state, taskmasterLabels);
+        String data = this.toData(event);
+        for (Subscriber subscriber : this.subscribers) {
+            subscriber.send(event, data);
+        }
+    }
+
+    private void notifyListeners(V1Job taskmaster, TesState state) {
+        for (BiConsumer<V1Job, TesState> listener : this.stateListeners) {
+            try {
+                listener.accept(taskmaster, state);
+            } catch (RuntimeException e) {
+                logger.warn("Listener of state changes failed for task " + taskmaster.getMetadata().getName(), e);
+            }
+        }
+    }
+
+    private void notifyInitialStatesListeners(List<Map.Entry<V1Job, TesState>> initialStates) {
+        for (Consumer<List<Map.Entry<V1Job, TesState>>> listener : this.initialStatesListeners) {
+            try {
+                listener.accept(initialStates);
+            } catch (RuntimeException e) {
+                logger.warn("Listener of initial states of tasks failed", e);
+            }
+        }
+    }
+
+    private synchronized void sendHeartbeat() {
+        for (Subscriber subscriber : this.subscribers) {
+            subscriber.send(SseEmitter.event().comment(""));
+        }
+    }
+
+    private String toData(TaskEventLog.TaskEvent event) {
+        try {
+            return this.eventWriter.writeValueAsString(new TesTaskStateEvent().id(event.getTaskId()).state(event.getState()));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static ThreadFactory daemonThreads(String name) {
+        return runnable -> {
+            Thread thread = new Thread(runnable, name);
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    private static class Waiter {
+
+        private final TesState fromState;
+
+        private final CompletableFuture<TesState> future = new CompletableFuture<>();
+
+        Waiter(TesState fromState) {
+            this.fromState = fromState;
+        }
+    }
+
+    /**
+     * Stream of a client with a queue of events to be sent. Events are written by one sender thread at a time, in order.
+     */
+    private class Subscriber {
+
+        private final SseEmitter emitter;
+
+        private final Predicate<Map<String, String>> filter;
+
+        private final Queue<SseEmitter.SseEventBuilder> queue = new ConcurrentLinkedQueue<>();
+
+        private final AtomicInteger queued = new AtomicInteger();
+
+        /**
+         * Is a sender thread scheduled (or writing)
+         */
+        private final AtomicBoolean sending = new AtomicBoolean();
+
+        /**
+         * Client gone or fell behind - no more events are queued
+         */
+        private volatile boolean dropped;
+
+        /**
+         * Stream of a dropped client completed (or failed)
+         */
+        private volatile boolean closed;
+
+        Subscriber(SseEmitter emitter, Predicate<Map<String, String>> filter) {
+            this.emitter = emitter;
+            this.filter = filter;
+        }
+
+        void send(TaskEventLog.TaskEvent event, String data) {
+            if (this.filter.test(event.getTaskmasterLabels())) {
+                this.send(SseEmitter.event().id(event.getCursor()).name(EVENT_STATE).data(data));
+            }
+        }
+
+        void send(SseEmitter.SseEventBuilder event) {
+            if (this.dropped) {
+                return;
+            }
+            if (this.queued.incrementAndGet() > properties.getSubscriberQueueSize()) {
+                logger.info("Client of the stream of task events fell behind, disconnecting.");
+                this.drop();
+                return;
+            }
+            this.queue.add(event);
+            this.schedule();
+        }
+
+        /**
+         * Stops queueing events; the stream is completed by a sender thread (not to wait for a write in progress)
+         */
+        void drop() {
+            this.dropped = true;
+            subscribers.remove(this);
+            this.queue.clear();
+            this.schedule();
+        }
+
+        private void schedule() {
+            if (this.sending.compareAndSet(false, true)) {
+                try {
+                    senderExecutor.execute(this::sendQueued);
+                } catch (RejectedExecutionException e) {
+                    //shutting down
+                    this.dropped = true;
+                    this.closed = true;
+                    subscribers.remove(this);
+                }
+            }
+        }
+
+        private void sendQueued() {
+            try {
+                SseEmitter.SseEventBuilder event;
+                while (!this.dropped && (event = this.queue.poll()) != null) {
+                    this.queued.decrementAndGet();
+                    try {
+                        this.emitter.send(event);
+                    } catch (IOException | IllegalStateException e) {
+                        //client gone or stream already completed
+                        this.dropped = true;
+                        this.closed = true;
+                        subscribers.remove(this);
+                    }
+                }
+                if (this.dropped && !this.closed) {
+                    this.closed = true;
+                    this.emitter.complete();
+                }
+            } finally {
+                this.sending.set(false);
+            }
+            //queued after the last poll
+            if (this.dropped ? !this.closed : !this.queue.isEmpty()) {
+                this.schedule();
+            }
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package uk.ac.ebi.tsc.tesk.tes.service;
+
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import io.kubernetes.client.models.V1ObjectMeta;
+import io.kubernetes.client.models.V1Pod;
+import uk.ac.ebi.tsc.tesk.k8s.convert.data.Job;
+import uk.ac.ebi.tsc.tesk.k8s.convert.data.Task;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * @author Ania Niewielska <aniewielska@ebi.ac.uk>
+ * <p>
+ * Versions (weak ETags) of tasks: hash of names and resourceVersions of all K8s objects of the tasks
+ * (taskmaster, executor and filer jobs with their pods, as collected by TaskBuilder) and of qualifiers of the representation
+ * (view, field mask, ...). Weak - the same version is shared by all encodings (JSON, Smile, CBOR) of the same content.
+ */
+class TaskVersions {
+
+    private TaskVersions() {
+    }
+
+    /**
+     * @return ETag or null, if some object carries no resourceVersion
+     */
+    static String eTag(List<Task> tasks, String... qualifiers) {
+        Hasher hasher = Hashing.murmur3_128().newHasher();
+        for (String qualifier : qualifiers) {
+            putString(hasher, qualifier);
+        }
+        for (Task task : tasks) {
+            List<Job> jobs = new ArrayList<>(task.getExecutors());
+            jobs.add(0, task.getTaskmaster());
+            task.getOutputFiler().ifPresent(jobs::add);
+            for (Job job : jobs) {
+                if (!putObject(hasher, job.getJob().getMetadata())) {
+                    return null;
+                }
+                for (V1Pod pod : job.getPods()) {
+                    if (!putObject(hasher, pod.getMetadata())) {
+                        return null;
+                    }
+                }
+            }
+        }
+        return "W/\"" + hasher.hash() + "\"";
+    }
+
+    /**
+     * Weak comparison of If-None-Match header with the current ETag
+     */
+    static boolean matches(String ifNoneMatch, String eTag) {
+        if (ifNoneMatch == null || eTag == null) {
+            return false;
+        }
+        String opaque = eTag.substring(2);
+        for (String tag : ifNoneMatch.split(",")) {
+            String trimmed = tag.trim();
+            if ("*".equals(trimmed) || opaque.equals(trimmed.startsWith("W/") ? trimmed.substring(2) : trimmed)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean putObject(Hasher hasher, V1ObjectMeta metadata) {
+        if (metadata.getResourceVersion() == null) {
+            return false;
+        }
+        putString(hasher, metadata.getName());
+        putString(hasher, metadata.getResourceVersion());
+        return true;
+    }
+
+    private static void putString(Hasher hasher, String value) {
+        hasher.putUnencodedChars(String.valueOf(value)).putChar('\0');
+    }
+}
@@ -1,14 +1,23 @@
 package uk.ac.ebi.tsc.tesk.tes.service;
 
 import org.springframework.security.access.prepost.PostAuthorize;
+import org.springframework.security.access.prepost.PostFilter;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 import uk.ac.ebi.tsc.tesk.config.security.User;
+import uk.ac.ebi.tsc.tesk.tes.model.TaskFields;
+import uk.ac.ebi.tsc.tesk.tes.model.TesBatchCancelTasksRequest;
+import uk.ac.ebi.tsc.tesk.tes.model.TesCancelTaskResult;
 import uk.ac.ebi.tsc.tesk.tes.model.TesCreateTaskResponse;
 import uk.ac.ebi.tsc.tesk.tes.model.TesListTasksResponse;
+import uk.ac.ebi.tsc.tesk.tes.model.TesState;
 import uk.ac.ebi.tsc.tesk.tes.model.TesTask;
 import uk.ac.ebi.tsc.tesk.tes.model.TaskView;
 import uk.ac.ebi.tsc.tesk.k8s.convert.data.Task;
 
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
 /**
  * @author Ania Niewielska <aniewielska@ebi.ac.uk>
  * <p>
@@ -32,37 +41,108 @@ public interface TesService {
      *
      * @param taskId - TES task ID (==taskmaster's job name)
      * @param view   - one of {@link TaskView} values, decides on how much detail is put in results
+     * @param fields - field mask; if given, decides instead of the view, what is computed (the result may contain more fields)
      * @return - TES task details
      */
-    @PostAuthorize("(#user.username == returnObject.logs[0].metadata['USER_ID'] AND returnObject.logs[0].metadata['GROUP_NAME'] != null AND #user.isGroupMember(returnObject.logs[0].metadata['GROUP_NAME']))" +
-            " OR (#user.teskAdmin)" +
-            " OR (returnObject.logs[0].metadata['GROUP_NAME'] != null AND #user.isGroupManager(returnObject.logs[0].metadata['GROUP_NAME']))")
-    TesTask getTask(String taskId, TaskView view, User user);
+    @PostAuthorize("#user.canAccessTask(returnObject.logs[0].metadata['USER_ID'], returnObject.logs[0].metadata['GROUP_NAME'])")
+    TesTask getTask(String taskId, TaskView view, TaskFields fields, User user);
+
+    /**
+     * Conditional version of {@link #getTask(String, TaskView, TaskFields, User)}: if the version (ETag) of the objects
+     * of the task matches ifNoneMatch, the task is not converted at all. Tasks in terminal states may come from a cache.
+     *
+     * @param ifNoneMatch - value of If-None-Match header (may be null)
+     * @return - TES task details (none, if not modified) with their version
+     */
+    @PostAuthorize("#user.canAccessTask(returnObject.ownerLabels['creator-user-id'], returnObject.ownerLabels['creator-group-name'])")
+    Versioned<TesTask> getTask(String taskId, TaskView view, TaskFields fields, String ifNoneMatch, User user);
+
+    /**
+     * Waits (without holding the calling thread) for the state of a task to differ from a given one
+     * and then gets task's details ({@link TaskStateWatcher}). If the state differs already - gets them at once.
+     * Available only, when watch-driven cache of K8s objects is enabled; throws TaskWatchNotAvailable otherwise.
+     *
+     * @param task          - minimal view of the task got by {@link #getTask} (authorised already)
+     * @param fromState     - state, which change is awaited
+     * @param timeoutMillis - time to wait at most (server side maximum applies); after it task's details are got anyway
+     * @return - TES task details; cancelling the future stops waiting
+     */
+    CompletableFuture<TesTask> getTaskOnStateChange(TesTask task, TesState fromState, long timeoutMillis,
+                                                    TaskView view, TaskFields fields, User user);
+
+    /**
+     * Gets a number of tasks by IDs at once. Performs Kubernetes API batch calls for all the tasks
+     * and converts each found task with means of the converter. Tasks, the user is not allowed to see, are filtered out.
+     *
+     * @param taskIds - TES task IDs (==taskmasters' job names); duplicates are ignored
+     * @param view    - one of {@link TaskView} values, decides on how much detail is put in each resulting task
+     * @param fields  - field mask; if given, decides instead of the view, what is computed for each task
+     * @return - found tasks, the user is allowed to see, in the order of IDs
+     */
+    @PostFilter("#user.canAccessTask(filterObject.logs[0].metadata['USER_ID'], filterObject.logs[0].metadata['GROUP_NAME'])")
+    List<TesTask> getTasks(List<String> taskIds, TaskView view, TaskFields fields, User user);
+
+    /**
+     * Gets a page of tasks. Performs Kubernetes API batch calls (a page of taskmasters and then executors, filers and pods
+     * of tasks on that page), combines them together into valid {@link Task} objects and converts to result with means of the converter.
+     *
+     * @param namePrefix  - if not empty, only tasks which name starts with the prefix are returned
+     * @param pageSize    - number of tasks in a page (server side default and maximum apply)
+     * @param pageToken   - token of the next page (from the previous result)
+     * @param view        - one of {@link TaskView} values, decides on how much detail is put in each resulting task
+     * @param fields      - field mask; if given, decides instead of the view, what is computed for each task
+     * @param ifNoneMatch - value of If-None-Match header; if it matches the version (ETag) of the page, tasks are not converted
+     * @return - resulting list of tasks plus paging token (when supported; none, if not modified) with its version
+     */
+    @PreAuthorize("#user.teskAdmin OR #user.manager OR #user.member")
+    Versioned<TesListTasksResponse> listTasks(String namePrefix,
+                                              Long pageSize,
+                                              String pageToken,
+                                              TaskView view,
+                                              TaskFields fields,
+                                              String ifNoneMatch,
+                                              User user);
 
     /**
-     * Gets a full list of tasks. Performs Kubernetes API batch calls (all taskmasters, all executors, all pods),
-     * combines them together into valid {@link Task} objects and converts to result with means of the converter.
+     * Opens a stream (server-sent events) of state changes of tasks, the user is allowed to see ({@link TaskStateWatcher}).
+     * Available only, when watch-driven cache of K8s objects is enabled; throws TaskWatchNotAvailable otherwise.
      *
-     * @param namePrefix - Unsupported
-     * @param pageSize   - Unsupported, in future releases should enable list chunking
-     * @param pageToken  - Unsupported, in future releases should enable list chunking
-     * @param view       - one of {@link TaskView} values, decides on how much detail is put in each resulting task
-     * @return - resulting list of tasks plus paging token (when supported)
+     * @param cursor - ID of the last event received by the client, to resume from (null - new stream)
      */
     @PreAuthorize("#user.teskAdmin OR #user.manager OR #user.member")
-    TesListTasksResponse listTasks(String namePrefix,
-                                   Long pageSize,
-                                   String pageToken,
-                                   TaskView view,
-                                   User user);
+    SseEmitter watchTasks(String cursor, User user);
+
+    /**
+     * Selects tasks for bulk cancellation by IDs, or by tags and/or creator (only running tasks), from batched reads.
+     * Tasks, the user is not allowed to see, are filtered out.
+     *
+     * @return objects of selected tasks needed for their cancellation (taskmaster's job and pods)
+     */
+    @PostFilter("#user.canAccessTask(filterObject.taskmaster.job.metadata.labels['creator-user-id'], filterObject.taskmaster.job.metadata.labels['creator-group-name'])")
+    List<Task> getTasksToCancel(TesBatchCancelTasksRequest request, User user);
+
+    /**
+     * Cancels a number of tasks (selected by {@link #getTasksToCancel}), sending cancellation patches concurrently.
+     *
+     * @return result per task, in the order of tasks
+     */
+    @PreAuthorize("hasRole(@authorisationProperties.baseGroupFull)")
+    List<TesCancelTaskResult> cancelTasks(List<Task> tasks);
 
     /**
-     * Cancels a task with a given id, by setting a label to taskmaster Job and Pod object.
+     * Reads objects of a task needed for its cancellation (taskmaster's job and pods) - once,
+     * for authorisation (the same tasks, a user can see), for state check and for the cancellation itself.
      * If not task with a given Id - throws TaskNotFoundException
-     * If task completed, throws CancelNotRunningTask
      *
      * @param taskId - TES task ID (==taskmaster's job name)
      */
+    @PostAuthorize("#user.canAccessTask(returnObject.taskmaster.job.metadata.labels['creator-user-id'], returnObject.taskmaster.job.metadata.labels['creator-group-name'])")
+    Task getTaskToCancel(String taskId, User user);
+
+    /**
+     * Cancels a task read by {@link #getTaskToCancel}, by setting a label to taskmaster Job and Pod object.
+     * If task completed, throws CancelNotRunningTask
+     */
     @PreAuthorize("hasRole(@authorisationProperties.baseGroupFull)")
-    void cancelTask(String taskId);
+    void cancelTask(Task task);
 }
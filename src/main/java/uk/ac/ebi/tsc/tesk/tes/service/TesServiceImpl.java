@@ -1,24 +1,42 @@
 package uk.ac.ebi.tsc.tesk.tes.service;
 
+import io.kubernetes.client.models.V1ConfigMap;
 import io.kubernetes.client.models.V1Job;
 import io.kubernetes.client.models.V1JobList;
+import io.kubernetes.client.models.V1Pod;
 import io.kubernetes.client.models.V1PodList;
+import io.kubernetes.client.models.V1Secret;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 import uk.ac.ebi.tsc.tesk.config.security.User;
 import uk.ac.ebi.tsc.tesk.tes.exception.CancelNotRunningTask;
+import uk.ac.ebi.tsc.tesk.tes.exception.InvalidTaskSelection;
+import uk.ac.ebi.tsc.tesk.tes.exception.TaskNotFoundException;
+import uk.ac.ebi.tsc.tesk.tes.exception.TaskWatchNotAvailable;
+import uk.ac.ebi.tsc.tesk.tes.exception.TooManyTasksRequested;
 import uk.ac.ebi.tsc.tesk.k8s.exception.KubernetesException;
 import uk.ac.ebi.tsc.tesk.tes.model.*;
+import uk.ac.ebi.tsc.tesk.k8s.service.KubernetesCallExecutor;
 import uk.ac.ebi.tsc.tesk.k8s.service.KubernetesClientWrapper;
 import uk.ac.ebi.tsc.tesk.k8s.convert.TesKubernetesConverter;
 import uk.ac.ebi.tsc.tesk.tes.model.TaskView;
+import uk.ac.ebi.tsc.tesk.k8s.constant.Constants;
+import uk.ac.ebi.tsc.tesk.k8s.constant.K8sConstants.PodPhase;
 import uk.ac.ebi.tsc.tesk.k8s.convert.data.*;
+import uk.ac.ebi.tsc.tesk.webhook.WebhookNotifier;
 
-import java.util.List;
-import java.util.Optional;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
-import static uk.ac.ebi.tsc.tesk.k8s.constant.Constants.COMPLETED_STATES;
-import static uk.ac.ebi.tsc.tesk.k8s.constant.Constants.JOB_CREATE_ATTEMPTS_NO;
+import static uk.ac.ebi.tsc.tesk.k8s.constant.Constants.*;
+import static uk.ac.ebi.tsc.tesk.k8s.constant.K8sConstants.LABEL_JOB_NAME_KEY;
 
 /**
  * @author Ania Niewielska <aniewielska@ebi.ac.uk>
@@ -30,13 +48,45 @@ import static uk.ac.ebi.tsc.tesk.k8s.constant.Constants.JOB_CREATE_ATTEMPTS_NO;
 @Service
 public class TesServiceImpl implements TesService {
 
+    private final static Logger logger = LoggerFactory.getLogger(TesServiceImpl.class);
+
     private final KubernetesClientWrapper kubernetesClientWrapper;
 
     private final TesKubernetesConverter converter;
 
-    public TesServiceImpl(KubernetesClientWrapper kubernetesClientWrapper, TesKubernetesConverter converter) {
+    private final KubernetesCallExecutor calls;
+
+    private final int defaultPageSize;
+
+    private final int maxPageSize;
+
+    /**
+     * Present only, when watch-driven cache of K8s objects is enabled
+     */
+    private final Optional<TaskStateWatcher> taskStateWatcher;
+
+    /**
+     * Present only, when callbacks are enabled (validates callback tags)
+     */
+    private final Optional<WebhookNotifier> webhookNotifier;
+
+    private final RenderedTaskCache renderedTasks;
+
+    public TesServiceImpl(KubernetesClientWrapper kubernetesClientWrapper, TesKubernetesConverter converter,
+                          KubernetesCallExecutor calls,
+                          @Value("${tesk.api.list.default-page-size}") int defaultPageSize,
+                          @Value("${tesk.api.list.max-page-size}") int maxPageSize,
+                          Optional<TaskStateWatcher> taskStateWatcher,
+                          Optional<WebhookNotifier> webhookNotifier,
+                          RenderedTaskCache renderedTasks) {
         this.kubernetesClientWrapper = kubernetesClientWrapper;
         this.converter = converter;
+        this.calls = calls;
+        this.defaultPageSize = defaultPageSize;
+        this.maxPageSize = maxPageSize;
+        this.taskStateWatcher = taskStateWatcher;
+        this.webhookNotifier = webhookNotifier;
+        this.renderedTasks = renderedTasks;
     }
 
     /**
@@ -46,12 +96,17 @@ public class TesServiceImpl implements TesService {
     @Override
     public TesCreateTaskResponse createTask(TesTask task, User user) {
 
+        this.webhookNotifier.ifPresent(notifier -> notifier.validateCallback(task.getTags()));
         int attemptsNo = 0;
         while (true) {
             try {
                 V1Job taskMasterJob = this.converter.fromTesTaskToK8sJob(task, user);
-                V1Job createdJob = this.kubernetesClientWrapper.createJob(taskMasterJob);
-                return this.converter.fromK8sJobToTesCreateTaskResponse(createdJob);
+                Optional<V1ConfigMap> inputsConfigMap = this.converter.fromTesTaskToInputsConfigMap(taskMasterJob, task);
+                Optional<V1Secret> inputSecret = this.converter.fromTaskMasterJobToInputSecret(taskMasterJob, task);
+                if (!inputsConfigMap.isPresent() && !inputSecret.isPresent()) {
+                    return this.converter.fromK8sJobToTesCreateTaskResponse(this.kubernetesClientWrapper.createJob(taskMasterJob));
+                }
+                return this.converter.fromK8sJobToTesCreateTaskResponse(this.createJobWithDependents(taskMasterJob, inputsConfigMap, inputSecret));
             } catch (KubernetesException e) {
                 //in case of job name collision retry converting task to job (with new generated name) and creating the job
                 if (!e.isObjectNameDuplicated() || ++attemptsNo >= JOB_CREATE_ATTEMPTS_NO) {
@@ -61,34 +116,156 @@ public class TesServiceImpl implements TesService {
         }
     }
 
+    /**
+     * Config map with inline inputs and secret with taskmaster's input are created first, so that pods do not wait for their volumes,
+     * and then made owned by the job (deleted together with the job). They are removed, if the job could not be created.
+     */
+    private V1Job createJobWithDependents(V1Job taskMasterJob, Optional<V1ConfigMap> inputsConfigMap, Optional<V1Secret> inputSecret) {
+        Optional<String> configMapName = inputsConfigMap.map(configMap -> configMap.getMetadata().getName());
+        Optional<String> secretName = inputSecret.map(secret -> secret.getMetadata().getName());
+        inputsConfigMap.ifPresent(this.kubernetesClientWrapper::createConfigMap);
+        V1Job createdJob;
+        try {
+            inputSecret.ifPresent(this.kubernetesClientWrapper::createSecret);
+            try {
+                createdJob = this.kubernetesClientWrapper.createJob(taskMasterJob);
+            } catch (RuntimeException e) {
+                secretName.ifPresent(this.kubernetesClientWrapper::deleteSecret);
+                throw e;
+            }
+        } catch (RuntimeException e) {
+            configMapName.ifPresent(this.kubernetesClientWrapper::deleteConfigMap);
+            throw e;
+        }
+        //task is already running - on failure, config map or secret will only outlive the job
+        configMapName.ifPresent(name -> {
+            try {
+                this.kubernetesClientWrapper.setConfigMapOwner(name, createdJob);
+            } catch (KubernetesException e) {
+                logger.warn("Setting owner of config map " + name + " failed.", e);
+            }
+        });
+        secretName.ifPresent(name -> {
+            try {
+                this.kubernetesClientWrapper.setSecretOwner(name, createdJob);
+            } catch (KubernetesException e) {
+                logger.warn("Setting owner of secret " + name + " failed.", e);
+            }
+        });
+        return createdJob;
+    }
+
     /**
      * Gets single task's details based on ID.
      * Performs a series of kubernetes API calls and converts results with means of the converter.
+     * Calls not depending on each other are run concurrently
+     * (taskmaster job, executor jobs, output filer job and all pods of the task are read at once).
+     * Pods of tasks created without task ID label in pod templates are listed separately for each job.
      *
      * @param taskId - TES task ID (==taskmaster's job name)
      * @param view   - one of {@link TaskView} values, decides on how much detail is put in results
+     * @param fields - field mask; if given, decides instead of the view, what is computed (the result may contain more fields)
      * @return - TES task details
      */
     @Override
-    public TesTask getTask(String taskId, TaskView view, User user) {
+    public TesTask getTask(String taskId, TaskView view, TaskFields fields, User user) {
+        return this.getTask(this.readTask(taskId), view, fields, false);
+    }
 
-        V1Job taskMasterJob = this.kubernetesClientWrapper.readTaskmasterJob(taskId);
-        V1JobList executorJobs = this.kubernetesClientWrapper.listSingleTaskExecutorJobs(taskMasterJob.getMetadata().getName());
-        V1PodList taskMasterPods = this.kubernetesClientWrapper.listSingleJobPods(taskMasterJob);
-        TaskBuilder taskBuilder = TaskBuilder.newSingleTask().addJob(taskMasterJob).addJobList(executorJobs.getItems()).addPodList(taskMasterPods.getItems());
-        for (V1Job executorJob : executorJobs.getItems()) {
-            V1PodList executorJobPods = this.kubernetesClientWrapper.listSingleJobPods(executorJob);
-            taskBuilder.addPodList(executorJobPods.getItems());
+    /**
+     * Objects of the task are read as in {@link #getTask(String, TaskView, TaskFields, User)}; conversion is skipped,
+     * if their version matches ifNoneMatch. Tasks in terminal states are served from {@link RenderedTaskCache}, once rendered.
+     */
+    @Override
+    public Versioned<TesTask> getTask(String taskId, TaskView view, TaskFields fields, String ifNoneMatch, User user) {
+        Optional<Versioned<TesTask>> cached = this.renderedTasks.get(taskId, view, fields, ifNoneMatch);
+        if (cached.isPresent()) {
+            return cached.get();
+        }
+        Task taskObjects = this.readTask(taskId);
+        boolean terminal = this.isSettled(taskObjects);
+        String eTag = this.eTag(Collections.singletonList(taskObjects), terminal, view, fields);
+        Map<String, String> ownerLabels = taskObjects.getTaskmaster().getJob().getMetadata().getLabels();
+        if (TaskVersions.matches(ifNoneMatch, eTag)) {
+            return new Versioned<>(null, eTag, terminal, ownerLabels);
+        }
+        Versioned<TesTask> task = new Versioned<>(this.getTask(taskObjects, view, fields, false), eTag, terminal, ownerLabels);
+        this.renderedTasks.put(taskId, view, fields, task);
+        return task;
+    }
+
+    /**
+     * Task in a terminal state, whose representation no longer changes. A canceled task is labelled as such at once,
+     * while its pods are still shutting down (logs, end times, exit codes to come) - settled only, when all of them stopped.
+     */
+    private boolean isSettled(Task task) {
+        TesState state = this.converter.extractStateFromK8sJobs(task);
+        if (state != TesState.CANCELED) {
+            return COMPLETED_STATES.contains(state);
+        }
+        Set<String> stopped = new HashSet<>(Arrays.asList(PodPhase.SUCCEEDED.getCode(), PodPhase.FAILED.getCode()));
+        return Stream.concat(Stream.of(task.getTaskmaster()), Stream.concat(task.getExecutors().stream(), task.getOutputFiler().map(Stream::of).orElseGet(Stream::empty)))
+                .flatMap(job -> job.getPods().stream())
+                .allMatch(pod -> pod.getStatus() != null && stopped.contains(pod.getStatus().getPhase()));
+    }
+
+    /**
+     * Version of converted tasks; none, if they contain logs of pods, which may still change (not all tasks terminal)
+     */
+    private String eTag(List<Task> tasks, boolean terminal, TaskView view, TaskFields fields, String... qualifiers) {
+        boolean withPodLogs = fields.isAll() ? view == TaskView.FULL : fields.requires("logs.logs.stdout") || fields.requires("logs.system_logs");
+        if (withPodLogs && !terminal) {
+            return null;
         }
-        Optional<V1Job> outputFilerJob = this.kubernetesClientWrapper.getSingleTaskOutputFilerJob(taskMasterJob.getMetadata().getName());
-        outputFilerJob.ifPresent(taskBuilder::addJob);
-        return this.getTask(taskBuilder.getTask(), view, false);
+        List<String> allQualifiers = new ArrayList<>(Arrays.asList(view.name(), fields.toString()));
+        allQualifiers.addAll(Arrays.asList(qualifiers));
+        return TaskVersions.eTag(tasks, allQualifiers.toArray(new String[0]));
+    }
+
+    /**
+     * All objects of a single task: taskmaster, executors, output filer and their pods (read concurrently)
+     */
+    private Task readTask(String taskId) {
+
+        CompletableFuture<V1Job> taskMasterJob = this.calls.async(() -> this.kubernetesClientWrapper.readTaskmasterJob(taskId));
+        CompletableFuture<V1JobList> executorJobs = this.calls.async(() -> this.kubernetesClientWrapper.listSingleTaskExecutorJobs(taskId));
+        CompletableFuture<Optional<V1Job>> outputFilerJob = this.calls.async(() -> this.kubernetesClientWrapper.getSingleTaskOutputFilerJob(taskId));
+        //pods listed as soon as the taskmaster tells how - at once by task ID label or (older tasks) per job
+        CompletableFuture<List<V1Pod>> taskPods = taskMasterJob.thenCompose(taskMaster -> KubernetesClientWrapper.hasTaskIdPodLabel(taskMaster)
+                ? this.calls.async(() -> this.kubernetesClientWrapper.listSingleTaskPods(taskId).getItems())
+                : executorJobs.thenCompose(executors -> this.listJobsPodsSeparately(taskMaster, executors.getItems())));
+
+        //taskmaster first - if it does not exist, TaskNotFoundException wins
+        V1Job taskMaster = this.calls.join(taskMasterJob);
+        List<V1Job> executors = this.calls.join(executorJobs).getItems();
+        TaskBuilder taskBuilder = TaskBuilder.newSingleTask().addJob(taskMaster).addJobList(executors);
+        taskBuilder.addPodList(this.calls.join(taskPods));
+        this.calls.join(outputFilerJob).ifPresent(taskBuilder::addJob);
+        return taskBuilder.getTask();
+    }
+
+    /**
+     * Pods of each of the jobs listed concurrently (tasks without task ID label in pod templates)
+     */
+    private CompletableFuture<List<V1Pod>> listJobsPodsSeparately(V1Job taskMaster, List<V1Job> executors) {
+        List<CompletableFuture<V1PodList>> jobsPods = Stream.concat(Stream.of(taskMaster), executors.stream())
+                .map(job -> this.calls.async(() -> this.kubernetesClientWrapper.listSingleJobPods(job)))
+                .collect(Collectors.toList());
+        return CompletableFuture.allOf(jobsPods.toArray(new CompletableFuture[0])).thenApply(done -> jobsPods.stream()
+                .flatMap(jobPods -> jobPods.join().getItems().stream()).collect(Collectors.toList()));
     }
 
     /**
      * Common part of task's details retrieval for both single task and each of a list of tasks
      */
-    private TesTask getTask(Task taskObjects, TaskView view, boolean isList) {
+    private TesTask getTask(Task taskObjects, TaskView view, TaskFields fields, boolean isList) {
+
+        if (!fields.isAll()) {
+            TesTask task = this.converter.fromK8sJobsToTesTaskPartial(taskObjects, fields, isList);
+            this.addFullDetails(task, taskObjects, fields.requires("inputs.content"), fields.requires("logs.logs.stdout"),
+                    fields.requires("logs.system_logs"));
+            return task;
+        }
 
         if (view == TaskView.MINIMAL)
             return this.converter.fromK8sJobsToTesTaskMinimal(taskObjects, isList);
@@ -97,82 +274,447 @@ public class TesServiceImpl implements TesService {
 
         if (view == TaskView.BASIC) return task;
 
-        for (int i = 0; i < taskObjects.getExecutors().size(); i++) {
-            Job executorJob = taskObjects.getExecutors().get(i);
-            if (executorJob.hasPods()) {
+        this.addFullDetails(task, taskObjects, true, true, true);
+        return task;
+    }
+
+    /**
+     * Adds parts of FULL view, that need additional K8s API calls: contents of inputs (if moved to a secret or a config map),
+     * executors' stdout (executor pod logs) and system logs (taskmaster pod log)
+     */
+    private void addFullDetails(TesTask task, Task taskObjects, boolean inputContents, boolean stdout, boolean systemLogs) {
+
+        //contents of inputs moved to a secret (or, if inline inputs were mounted, to a config map) are read concurrently with logs
+        V1Job taskmasterJob = taskObjects.getTaskmaster().getJob();
+        Optional<String> inputsConfigMapName = !inputContents ? Optional.empty() : this.converter.getInputsConfigMapName(taskmasterJob);
+        CompletableFuture<Optional<V1ConfigMap>> inputsConfigMap = inputsConfigMapName
+                .map(configMapName -> this.calls.async(() -> this.kubernetesClientWrapper.readConfigMap(configMapName))).orElse(null);
+        CompletableFuture<Optional<V1Secret>> inputSecret = !inputContents || inputsConfigMapName.isPresent() ? null : this.converter.getInputSecretName(taskmasterJob)
+                .map(secretName -> this.calls.async(() -> this.kubernetesClientWrapper.readSecret(secretName))).orElse(null);
+
+        //pod logs read concurrently
+        List<Job> executors = taskObjects.getExecutors();
+        List<CompletableFuture<String>> executorPodLogs = new ArrayList<>(executors.size());
+        for (Job executorJob : executors) {
+            executorPodLogs.add(stdout && executorJob.hasPods() ? this.readPodLogAsync(executorJob) : null);
+        }
+        CompletableFuture<String> taskMasterPodLog = systemLogs && taskObjects.getTaskmaster().hasPods() ? this.readPodLogAsync(taskObjects.getTaskmaster()) : null;
+
+        for (int i = 0; i < executors.size(); i++) {
+            if (executorPodLogs.get(i) != null) {
                 TesExecutorLog executorLog = task.getLogs().get(0).getLogs().get(i);
-                if (view == TaskView.FULL) {
-                    String executorPodLog = this.kubernetesClientWrapper.readPodLog(executorJob.getFirstPod().getMetadata().getName());
-                    if (executorPodLog != null) { //to ensure compatibility with py-tes -- keep stdout non-null
-                        executorLog.setStdout(executorPodLog);
-                    }
+                String executorPodLog = this.calls.join(executorPodLogs.get(i));
+                if (executorPodLog != null) { //to ensure compatibility with py-tes -- keep stdout non-null
+                    executorLog.setStdout(executorPodLog);
                 }
             }
         }
 
-        if (taskObjects.getTaskmaster().hasPods()) {
-            String taskMasterPodLog = this.kubernetesClientWrapper.readPodLog(taskObjects.getTaskmaster().getFirstPod().getMetadata().getName());
-            if (taskMasterPodLog != null) {
+        if (inputSecret != null) {
+            this.calls.join(inputSecret).ifPresent(secret -> this.converter.restoreInputContents(task, secret));
+        }
+        if (inputsConfigMap != null) {
+            this.calls.join(inputsConfigMap).ifPresent(configMap -> this.converter.restoreInputContents(task, configMap));
+        }
+
+        if (taskMasterPodLog != null) {
+            String taskMasterPodLogContent = this.calls.join(taskMasterPodLog);
+            if (taskMasterPodLogContent != null) {
                 //to ensure compatibility with py-tes, which does not like the array of nulls
-                task.getLogs().get(0).addSystemLogsItem(taskMasterPodLog);
+                task.getLogs().get(0).addSystemLogsItem(taskMasterPodLogContent);
             }
         }
-        return task;
-
+    }
 
+    private CompletableFuture<String> readPodLogAsync(Job job) {
+        String podName = job.getFirstPod().getMetadata().getName();
+        return this.calls.async(() -> this.kubernetesClientWrapper.readPodLog(podName));
     }
 
     /**
-     * Gets a full list of tasks. Performs Kubernetes API batch calls (all taskmasters, all executors, all pods),
-     * combines them together into valid {@link Task} objects and converts to result with means of the converter.
+     * Gets a page of tasks. Lists a page of taskmasters first and then fetches only the objects of tasks on that page
+     * (see {@link #buildTaskList(List)}). Combines results together into valid {@link Task} objects, which are converted to result with means of the converter
+     * only when the response is written (see {@link LazyTaskList}) and not at all, if the version of the objects matches ifNoneMatch.
      *
-     * @param namePrefix - Unsupported
-     * @param pageSize   - Unsupported, in future releases should enable list chunking
-     * @param pageToken  - Unsupported, in future releases should enable list chunking
-     * @param view       - one of {@link TaskView} values, decides on how much detail is put in each resulting task
-     * @return - resulting list of tasks plus paging token (when supported)
+     * @param namePrefix  - if not empty, only tasks which name starts with the prefix are returned
+     * @param pageSize    - number of tasks in a page; defaults to tesk.api.list.default-page-size, limited by tesk.api.list.max-page-size
+     * @param pageToken   - token of the next page (from the previous result)
+     * @param view        - one of {@link TaskView} values, decides on how much detail is put in each resulting task
+     * @param fields      - field mask; if given, decides instead of the view, what is computed for each task
+     * @param ifNoneMatch - value of If-None-Match header (may be null)
+     * @return - resulting list of tasks plus paging token (none, if not modified) with its version
      */
     @Override
-    public TesListTasksResponse listTasks(String namePrefix,
-                                          Long pageSize,
-                                          String pageToken,
-                                          TaskView view,
-                                          User user) {
-
-        V1JobList taskmasterJobs = this.kubernetesClientWrapper.listAllTaskmasterJobsForUser(pageToken,
-                Optional.ofNullable(pageSize).map(Long::intValue).orElse(null), user);
-        V1JobList executorJobs = this.kubernetesClientWrapper.listAllTaskExecutorJobs();
-        V1JobList filerJobs = this.kubernetesClientWrapper.listAllFilerJobs();
-        V1PodList jobPods = this.kubernetesClientWrapper.listAllJobPods();
-        TaskBuilder taskListBuilder = TaskBuilder.newTaskList().addJobList(taskmasterJobs.getItems()).addJobList(executorJobs.getItems()).
-                addJobList(filerJobs.getItems()).addPodList(jobPods.getItems());
-        List<TesTask> tasks = taskListBuilder.getTaskList().stream().map(task -> this.getTask(task, view, true)).collect(Collectors.toList());
+    public Versioned<TesListTasksResponse> listTasks(String namePrefix,
+                                                     Long pageSize,
+                                                     String pageToken,
+                                                     TaskView view,
+                                                     TaskFields fields,
+                                                     String ifNoneMatch,
+                                                     User user) {
+
+        V1JobList taskmasterJobs = StringUtils.isEmpty(namePrefix) ?
+                this.kubernetesClientWrapper.listAllTaskmasterJobsForUser(pageToken, this.getPageSize(pageSize), user) :
+                this.kubernetesClientWrapper.listTaskmasterJobsForUserByNamePrefix(namePrefix, pageToken, this.getPageSize(pageSize), user);
+        List<Task> taskObjects = this.buildTaskList(taskmasterJobs.getItems());
+        boolean terminal = taskObjects.stream().allMatch(this::isSettled);
+        //the list depends on the user; the next page token - on the whole list
+        String eTag = this.eTag(taskObjects, terminal, view, fields, user.getUsername(), taskmasterJobs.getMetadata().getContinue());
+        if (TaskVersions.matches(ifNoneMatch, eTag)) {
+            return new Versioned<>(null, eTag, terminal, null);
+        }
+        //tasks converted lazily - one by one, while the response is written
+        List<TesTask> tasks = new LazyTaskList(taskObjects, task -> this.getTask(task, view, fields, true));
         TesListTasksResponse response = new TesListTasksResponse();
         response.tasks(tasks).nextPageToken(taskmasterJobs.getMetadata().getContinue());
 
-        return response;
+        return new Versioned<>(response, eTag, terminal, null);
 
     }
 
     /**
-     * Cancels a task with a given id, by setting a label to taskmaster Job and Pod object.
+     * Gets a number of tasks by IDs. Taskmaster jobs (carrying no label with their own name) are read by name or listed
+     * (see {@link #readTaskmasterJobs}), the rest of the objects are fetched at once for all the found tasks, as in {@link #listTasks}.
+     * Tasks are converted as single tasks (with owner's metadata needed for authorisation).
+     *
+     * @param taskIds - TES task IDs; duplicates are ignored
+     * @param view    - one of {@link TaskView} values, decides on how much detail is put in each resulting task
+     * @param fields  - field mask; if given, decides instead of the view, what is computed for each task
+     * @return - found tasks in the order of IDs
+     * @throws TooManyTasksRequested - if there are more distinct IDs than tesk.api.list.max-page-size
+     */
+    @Override
+    public List<TesTask> getTasks(List<String> taskIds, TaskView view, TaskFields fields, User user) {
+
+        List<String> distinctIds = taskIds.stream().distinct().collect(Collectors.toList());
+        if (distinctIds.size() > this.maxPageSize) {
+            throw new TooManyTasksRequested(distinctIds.size(), this.maxPageSize);
+        }
+        List<TesTask> tasks = new ArrayList<>();
+        for (Task task : this.buildTaskList(this.readTaskmasterJobs(distinctIds, user))) {
+            tasks.add(this.getTask(task, view, fields, false));
+        }
+        return tasks;
+    }
+
+    /**
+     * Finds taskmaster jobs by IDs; not existing are skipped. Up to {@link Constants#BATCH_GET_MAX_READS} jobs are read
+     * by name concurrently. For more, taskmasters visible to the user are listed in chunks (ordered by name) and filtered by IDs,
+     * until all are found or the greatest of IDs is passed.
+     *
+     * @return jobs in the order of IDs
+     */
+    private List<V1Job> readTaskmasterJobs(List<String> taskIds, User user) {
+        if (taskIds.size() > BATCH_GET_MAX_READS) {
+            return this.listTaskmasterJobs(taskIds, user);
+        }
+        List<CompletableFuture<Optional<V1Job>>> taskmasterJobs = taskIds.stream()
+                .map(taskId -> this.calls.async(() -> this.readTaskmasterJobIfExists(taskId)))
+                .collect(Collectors.toList());
+        List<V1Job> taskmasters = new ArrayList<>();
+        for (CompletableFuture<Optional<V1Job>> taskmasterJob : taskmasterJobs) {
+            this.calls.join(taskmasterJob).ifPresent(taskmasters::add);
+        }
+        return taskmasters;
+    }
+
+    private List<V1Job> listTaskmasterJobs(List<String> taskIds, User user) {
+        Set<String> remainingIds = new HashSet<>(taskIds);
+        String lastId = Collections.max(taskIds);
+        Map<String, V1Job> taskmastersById = new HashMap<>();
+        String pageToken = null;
+        do {
+            V1JobList chunk = this.kubernetesClientWrapper.listAllTaskmasterJobsForUser(pageToken, BATCH_GET_LIST_CHUNK_SIZE, user);
+            for (V1Job job : chunk.getItems()) {
+                if (remainingIds.remove(job.getMetadata().getName())) {
+                    taskmastersById.put(job.getMetadata().getName(), job);
+                }
+            }
+            boolean passedLastId = !chunk.getItems().isEmpty()
+                    && chunk.getItems().get(chunk.getItems().size() - 1).getMetadata().getName().compareTo(lastId) >= 0;
+            pageToken = passedLastId || chunk.getMetadata() == null ? null : chunk.getMetadata().getContinue();
+        } while (!remainingIds.isEmpty() && !StringUtils.isEmpty(pageToken));
+        return taskIds.stream().map(taskmastersById::get).filter(Objects::nonNull).collect(Collectors.toList());
+    }
+
+    private Optional<V1Job> readTaskmasterJobIfExists(String taskId) {
+        try {
+            return Optional.of(this.kubernetesClientWrapper.readTaskmasterJob(taskId));
+        } catch (TaskNotFoundException e) {
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Fetches objects of the tasks of given taskmasters: executor jobs and pods by set-based label selectors on task IDs
+     * (split into chunks of {@link Constants#LABEL_SELECTOR_MAX_VALUES}) and pods of output filers by names of their jobs.
+     * These calls are run concurrently. Pods of tasks created without task ID label in pod templates are listed by names of their jobs.
+     * Output filer jobs (no labels of their own) are read by name only, where they may decide on the state (see {@link #mayHaveFailedFiler}).
+     *
+     * @return tasks in the order of taskmasters
+     */
+    private List<Task> buildTaskList(List<V1Job> taskmasters) {
+        List<String> taskIds = taskmasters.stream().map(job -> job.getMetadata().getName()).collect(Collectors.toList());
+        List<String> labelledTaskIds = taskmasters.stream().filter(KubernetesClientWrapper::hasTaskIdPodLabel)
+                .map(job -> job.getMetadata().getName()).collect(Collectors.toList());
+
+        List<CompletableFuture<V1JobList>> executorJobs = this.inChunks(taskIds, this.kubernetesClientWrapper::listTaskExecutorJobs);
+        List<CompletableFuture<V1PodList>> taskPods = this.inChunks(labelledTaskIds, this.kubernetesClientWrapper::listTaskPods);
+        List<String> filerJobNames = taskIds.stream().map(taskId -> taskId + JOB_NAME_FILER_SUF).collect(Collectors.toList());
+        List<CompletableFuture<V1PodList>> filerPods = this.inChunks(filerJobNames, this.kubernetesClientWrapper::listJobsPods);
+
+        TaskBuilder taskListBuilder = TaskBuilder.newTaskList().addJobList(taskmasters);
+        //jobs of tasks without task ID label in pod templates
+        Set<String> unlabelledTaskIds = new HashSet<>(taskIds);
+        unlabelledTaskIds.removeAll(labelledTaskIds);
+        List<String> unlabelledJobNames = new ArrayList<>(unlabelledTaskIds);
+        for (CompletableFuture<V1JobList> executorJobsChunk : executorJobs) {
+            List<V1Job> executors = this.calls.join(executorJobsChunk).getItems();
+            taskListBuilder.addJobList(executors);
+            executors.stream().filter(job -> unlabelledTaskIds.contains(job.getMetadata().getLabels().get(LABEL_TESTASK_ID_KEY)))
+                    .map(job -> job.getMetadata().getName()).forEach(unlabelledJobNames::add);
+        }
+        List<CompletableFuture<V1PodList>> unlabelledJobPods = this.inChunks(unlabelledJobNames, this.kubernetesClientWrapper::listJobsPods);
+        Map<String, List<V1Pod>> filerPodsByJob = new HashMap<>();
+        for (CompletableFuture<V1PodList> pods : filerPods) {
+            this.calls.join(pods).getItems().forEach(pod -> filerPodsByJob.computeIfAbsent(pod.getMetadata().getLabels().get(LABEL_JOB_NAME_KEY),
+                    jobName -> new ArrayList<>()).add(pod));
+        }
+        List<CompletableFuture<Optional<V1Job>>> filerJobs = taskmasters.stream()
+                .filter(taskmaster -> mayHaveFailedFiler(taskmaster, filerPodsByJob.get(taskmaster.getMetadata().getName() + JOB_NAME_FILER_SUF)))
+                .map(taskmaster -> this.calls.async(() -> this.kubernetesClientWrapper.getSingleTaskOutputFilerJob(taskmaster.getMetadata().getName())))
+                .collect(Collectors.toList());
+        for (CompletableFuture<Optional<V1Job>> filerJob : filerJobs) {
+            this.calls.join(filerJob).ifPresent(taskListBuilder::addJob);
+        }
+        for (CompletableFuture<V1PodList> pods : Stream.concat(taskPods.stream(), unlabelledJobPods.stream()).collect(Collectors.toList())) {
+            taskListBuilder.addPodList(this.calls.join(pods).getItems());
+        }
+        return taskListBuilder.getTaskList();
+    }
+
+    /**
+     * Output filer matters for the state of a task only, if it has failed after the taskmaster had completed
+     * (see {@link TesKubernetesConverter#extractStateFromK8sJobs}); a failed filer job has a failed pod and none succeeded.
+     */
+    private static boolean mayHaveFailedFiler(V1Job taskmaster, List<V1Pod> filerPods) {
+        boolean taskmasterCompleted = taskmaster.getStatus() != null && Optional.ofNullable(taskmaster.getStatus().getSucceeded()).orElse(0) > 0;
+        if (!taskmasterCompleted || filerPods == null) {
+            return false;
+        }
+        Set<String> phases = filerPods.stream().map(pod -> pod.getStatus() == null ? null : pod.getStatus().getPhase()).collect(Collectors.toSet());
+        return phases.contains(PodPhase.FAILED.getCode()) && !phases.contains(PodPhase.SUCCEEDED.getCode());
+    }
+
+    /**
+     * Page size requested by client or default, not greater than max
+     */
+    private int getPageSize(Long pageSize) {
+        if (pageSize == null || pageSize <= 0) {
+            return this.defaultPageSize;
+        }
+        return (int) Math.min(pageSize, this.maxPageSize);
+    }
+
+    /**
+     * Starts a call for each chunk of values (set-based label selector values)
+     */
+    private <T> List<CompletableFuture<T>> inChunks(List<String> values, Function<List<String>, T> call) {
+        List<CompletableFuture<T>> chunks = new ArrayList<>();
+        for (int i = 0; i < values.size(); i += LABEL_SELECTOR_MAX_VALUES) {
+            List<String> chunk = values.subList(i, Math.min(i + LABEL_SELECTOR_MAX_VALUES, values.size()));
+            chunks.add(this.calls.async(() -> call.apply(chunk)));
+        }
+        return chunks;
+    }
+
+    /**
+     * The changed task is read on the watcher's waiter thread (not within the pool of K8s calls, which the read uses)
+     */
+    @Override
+    public CompletableFuture<TesTask> getTaskOnStateChange(TesTask task, TesState fromState, long timeoutMillis,
+                                                           TaskView view, TaskFields fields, User user) {
+        TaskStateWatcher watcher = this.taskStateWatcher.orElseThrow(TaskWatchNotAvailable::new);
+        if (task.getState() != fromState) {
+            return CompletableFuture.completedFuture(this.getTask(task.getId(), view, fields, user));
+        }
+        CompletableFuture<TesState> stateChange = watcher.awaitStateChange(task.getId(), fromState, timeoutMillis);
+        CompletableFuture<TesTask> result = stateChange.thenApply(state -> this.getTask(task.getId(), view, fields, user));
+        //result cancelled (client gone) - stop waiting
+        result.whenComplete((changedTask, e) -> stateChange.cancel(false));
+        return result;
+    }
+
+    @Override
+    public SseEmitter watchTasks(String cursor, User user) {
+        return this.taskStateWatcher.orElseThrow(TaskWatchNotAvailable::new).subscribe(user, cursor);
+    }
+
+    /**
+     * Selects tasks to cancel. Taskmaster jobs are read by name concurrently (selection by IDs) or listed (all the taskmasters
+     * visible to the user, filtered by creator's label and by tags) and pods of all of them are listed at once (by job-name label).
+     * State is evaluated from taskmaster's job and pods, as in {@link #cancelTask(Task)}.
+     * The read objects are passed to {@link #cancelTasks}, so that patches carry their resourceVersions.
+     *
+     * @throws InvalidTaskSelection  - if tasks are selected neither or both by IDs and by tags/creator
+     * @throws TooManyTasksRequested - if there are more distinct IDs than tesk.api.list.max-page-size
+     */
+    @Override
+    public List<Task> getTasksToCancel(TesBatchCancelTasksRequest request, User user) {
+
+        List<String> taskIds = request.getIds() == null ? Collections.emptyList() : request.getIds().stream().distinct().collect(Collectors.toList());
+        Map<String, String> tags = request.getTags() == null ? Collections.emptyMap() : request.getTags();
+        boolean byIds = !taskIds.isEmpty();
+        if (byIds == (!tags.isEmpty() || !StringUtils.isEmpty(request.getUserId()))) {
+            throw new InvalidTaskSelection();
+        }
+        List<V1Job> taskmasters;
+        if (byIds) {
+            if (taskIds.size() > this.maxPageSize) {
+                throw new TooManyTasksRequested(taskIds.size(), this.maxPageSize);
+            }
+            taskmasters = this.readTaskmasterJobs(taskIds, user);
+        } else {
+            taskmasters = this.kubernetesClientWrapper.listAllTaskmasterJobsForUser(null, null, user).getItems().stream()
+                    .filter(job -> StringUtils.isEmpty(request.getUserId()) || request.getUserId().equals(job.getMetadata().getLabels().get(LABEL_USERID_KEY)))
+                    .filter(job -> tags.entrySet().stream().allMatch(tag -> tag.getValue().equals(this.converter.getTags(job).get(tag.getKey()))))
+                    .collect(Collectors.toList());
+        }
+        List<String> jobNames = taskmasters.stream().map(job -> job.getMetadata().getName()).collect(Collectors.toList());
+        TaskBuilder taskBuilder = TaskBuilder.newTaskList().addJobList(taskmasters);
+        for (CompletableFuture<V1PodList> pods : this.inChunks(jobNames, this.kubernetesClientWrapper::listJobsPods)) {
+            taskBuilder.addPodList(this.calls.join(pods).getItems());
+        }
+        //selected by tags/creator - only running
+        return taskBuilder.getTaskList().stream()
+                .filter(task -> byIds || !COMPLETED_STATES.contains(this.converter.extractStateFromK8sJobs(task)))
+                .collect(Collectors.toCollection(ArrayList::new));
+    }
+
+    /**
+     * Labels taskmaster jobs and running pods of running tasks as cancelled, from the objects read by {@link #getTasksToCancel}
+     * and with the same preconditions and retries as {@link #cancelTask(Task)}. Tasks are patched concurrently
+     * (parallelism bounded by {@link KubernetesCallExecutor}'s pool). A failure of one task does not stop the others.
+     */
+    @Override
+    public List<TesCancelTaskResult> cancelTasks(List<Task> tasks) {
+
+        Map<String, CompletableFuture<TesCancelTaskResult>> results = new LinkedHashMap<>();
+        for (Task task : tasks) {
+            String taskId = task.getTaskmaster().getJobName();
+            if (COMPLETED_STATES.contains(this.converter.extractStateFromK8sJobs(task))) {
+                results.put(taskId, CompletableFuture.completedFuture(cancelResult(taskId, TesCancelTaskResult.ResultEnum.NOT_RUNNING)));
+            } else {
+                results.put(taskId, this.calls.async(() -> this.cancelRunningTask(task)));
+            }
+        }
+        List<TesCancelTaskResult> cancelled = new ArrayList<>(results.size());
+        for (Map.Entry<String, CompletableFuture<TesCancelTaskResult>> result : results.entrySet()) {
+            try {
+                cancelled.add(this.calls.join(result.getValue()));
+            } catch (KubernetesException e) {
+                //timeout
+                cancelled.add(cancelResult(result.getKey(), TesCancelTaskResult.ResultEnum.FAILED).message(e.getMessage()));
+            }
+        }
+        return cancelled;
+    }
+
+    /**
+     * Labels taskmaster's job and running pod as cancelled (NOT_RUNNING, if the task turns out to have completed)
+     */
+    private TesCancelTaskResult cancelRunningTask(Task task) {
+        String taskId = task.getTaskmaster().getJobName();
+        try {
+            return cancelResult(taskId, this.labelAsCancelled(task) ? TesCancelTaskResult.ResultEnum.CANCELED
+                    : TesCancelTaskResult.ResultEnum.NOT_RUNNING);
+        } catch (TaskNotFoundException e) {
+            //deleted in the meantime
+            return cancelResult(taskId, TesCancelTaskResult.ResultEnum.NOT_FOUND);
+        } catch (KubernetesException e) {
+            logger.warn("Cancelling task " + taskId + " failed.", e);
+            return cancelResult(taskId, TesCancelTaskResult.ResultEnum.FAILED).message(e.getMessage());
+        }
+    }
+
+    private static TesCancelTaskResult cancelResult(String taskId, TesCancelTaskResult.ResultEnum result) {
+        return new TesCancelTaskResult().id(taskId).result(result);
+    }
+
+    /**
+     * Reads objects of a task needed for its cancellation: taskmaster's job and pods.
      * If not task with a given Id - throws TaskNotFoundException
-     * If task completed, throws CancelNotRunningTask
      *
      * @param taskId - TES task ID (==taskmaster's job name)
      */
     @Override
-    public void cancelTask(String taskId) {
+    public Task getTaskToCancel(String taskId, User user) {
+        return this.readTaskToCancel(taskId);
+    }
+
+    private Task readTaskToCancel(String taskId) {
         V1Job taskMasterJob = this.kubernetesClientWrapper.readTaskmasterJob(taskId);
         V1PodList taskMasterPods = this.kubernetesClientWrapper.listSingleJobPods(taskMasterJob);
-        TaskBuilder taskBuilder = TaskBuilder.newSingleTask().addJob(taskMasterJob).addPodList(taskMasterPods.getItems());
-        TesState state = this.converter.extractStateFromK8sJobs(taskBuilder.getTask());
-        if (COMPLETED_STATES.contains(state)) {
-            throw new CancelNotRunningTask(taskId);
+        return TaskBuilder.newSingleTask().addJob(taskMasterJob).addPodList(taskMasterPods.getItems()).getTask();
+    }
+
+    /**
+     * Cancels a task (read by {@link #getTaskToCancel}), by setting a label to taskmaster Job and Pod object.
+     * Patches carry resourceVersion of the read objects as a precondition, so that the label is set only on the objects
+     * in the state that was checked. If the job has changed in the meantime, the task is read and checked again;
+     * if the pod has changed, pods are listed again (up to {@link Constants#CANCEL_ATTEMPTS_NO} attempts).
+     * If task completed, throws CancelNotRunningTask
+     *
+     * @param task - taskmaster's job and pods
+     */
+    @Override
+    public void cancelTask(Task task) {
+        if (!this.labelAsCancelled(task)) {
+            throw new CancelNotRunningTask(task.getTaskmaster().getJobName());
         }
-        this.kubernetesClientWrapper.labelJobAsCancelled(taskId);
-        this.converter.getNameOfFirstRunningPod(taskMasterPods).ifPresent(this.kubernetesClientWrapper::labelPodAsCancelled);
     }
 
+    /**
+     * Labels taskmaster's job and running pod as cancelled, with resourceVersions of the read objects as preconditions
+     * (re-read on conflict, see {@link #cancelTask(Task)})
+     *
+     * @return false, if the task has completed (nothing patched)
+     */
+    private boolean labelAsCancelled(Task task) {
+        String taskId = task.getTaskmaster().getJobName();
+        Task current = task;
+        int attemptsNo = 0;
+        while (true) {
+            if (COMPLETED_STATES.contains(this.converter.extractStateFromK8sJobs(current))) {
+                return false;
+            }
+            try {
+                this.kubernetesClientWrapper.labelJobAsCancelled(taskId, current.getTaskmaster().getJob().getMetadata().getResourceVersion());
+                break;
+            } catch (KubernetesException e) {
+                if (!e.isConflict() || ++attemptsNo >= CANCEL_ATTEMPTS_NO) {
+                    throw e;
+                }
+                current = this.readTaskToCancel(taskId);
+            }
+        }
+        List<V1Pod> taskMasterPods = current.getTaskmaster().getPods();
+        attemptsNo = 0;
+        while (true) {
+            Optional<V1Pod> runningPod = this.converter.getFirstRunningPod(new V1PodList().items(taskMasterPods));
+            if (!runningPod.isPresent()) {
+                return true;
+            }
+            try {
+                this.kubernetesClientWrapper.labelPodAsCancelled(runningPod.get().getMetadata().getName(), runningPod.get().getMetadata().getResourceVersion());
+                return true;
+            } catch (KubernetesException e) {
+                if (!e.isConflict() || ++attemptsNo >= CANCEL_ATTEMPTS_NO) {
+                    throw e;
+                }
+                taskMasterPods = this.kubernetesClientWrapper.listSingleJobPods(current.getTaskmaster().getJob()).getItems();
+            }
+        }
+    }
 
 }
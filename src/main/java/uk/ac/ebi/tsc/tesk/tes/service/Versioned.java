@@ -0,0 +1,68 @@
+package uk.ac.ebi.tsc.tesk.tes.service;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * @author Ania Niewielska <aniewielska@ebi.ac.uk>
+ * <p>
+ * Result of a conditional read (If-None-Match): converted value or nothing, if the client's version is current,
+ * together with the version (weak ETag) of K8s objects the value is converted from.
+ */
+public class Versioned<T> {
+
+    /**
+     * null - not modified
+     */
+    private final T value;
+
+    /**
+     * null - no version (content changes without a change of objects, e.g. logs of running pods)
+     */
+    private final String eTag;
+
+    /**
+     * All tasks of the value in one of {@link uk.ac.ebi.tsc.tesk.k8s.constant.Constants#COMPLETED_STATES}
+     * and no longer changing (canceled ones - with all pods stopped)
+     */
+    private final boolean terminal;
+
+    /**
+     * Labels of taskmaster's job of a single task (creator, group - for authorisation)
+     */
+    private final Map<String, String> ownerLabels;
+
+    public Versioned(T value, String eTag, boolean terminal, Map<String, String> ownerLabels) {
+        this.value = value;
+        this.eTag = eTag;
+        this.terminal = terminal;
+        this.ownerLabels = ownerLabels == null ? Collections.emptyMap() : ownerLabels;
+    }
+
+    /**
+     * Value without a version
+     */
+    public static <T> Versioned<T> of(T value) {
+        return new Versioned<>(value, null, false, null);
+    }
+
+    public T getValue() {
+        return value;
+    }
+
+    public String getETag() {
+        return eTag;
+    }
+
+    public boolean isTerminal() {
+        return terminal;
+    }
+
+    public Map<String, String> getOwnerLabels() {
+        return ownerLabels;
+    }
+
+    public boolean isNotModified() {
+        return this.value == null;
+    }
+}
@@ -14,5 +14,28 @@ import org.springframework.context.annotation.Configuration;
 public class TrsProperties {
     private String uriPattern;
     private String urlPattern;
+    /**
+     * How long (in seconds) a resolved image of a tool version is cached
+     */
+    private long cacheTtl = 3600;
+    /**
+     * How long (in seconds) a failed resolution (error or no Docker image) is cached
+     */
+    private long negativeCacheTtl = 60;
+    /**
+     * Max number of cached tool versions
+     */
+    private long cacheMaxSize = 1000;
+    /**
+     * Max number of concurrent requests to TRS (size of connection pool and thread pool)
+     */
+    private int maxConnections = 16;
+    /**
+     * Connect and read timeout (in milliseconds) of a single request to TRS
+     */
+    private int requestTimeout = 5000;
+    /**
+     * Total time (in milliseconds) to resolve all the images of a task; unresolved URIs are left unchanged
+     */
+    private long resolutionTimeout = 10000;
 }
-
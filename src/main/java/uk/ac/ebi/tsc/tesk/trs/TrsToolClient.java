@@ -1,8 +1,18 @@
 package uk.ac.ebi.tsc.tesk.trs;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
 import org.springframework.boot.web.client.RestTemplateBuilder;
 import org.springframework.http.*;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 import org.springframework.stereotype.Service;
 import org.springframework.util.AntPathMatcher;
 import org.springframework.web.client.RestTemplate;
@@ -10,41 +20,149 @@ import uk.ac.ebi.tsc.tesk.trs.model.ImageData;
 import uk.ac.ebi.tsc.tesk.trs.model.ImageType;
 import uk.ac.ebi.tsc.tesk.trs.model.ToolVersion;
 
-import java.util.Arrays;
-import java.util.Map;
-import java.util.Optional;
+import javax.annotation.PreDestroy;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * @author aniewielska
  * @since 22/09/2020
+ * <p>
+ * Resolved images are cached by (host, id, version) - failed resolutions for a shorter time.
+ * Concurrent lookups of the same tool version wait for a single request to TRS.
+ * Cache statistics are exposed via JMX.
+ * Requests go through a pool of persistent connections; images of all executors of a task are resolved concurrently
+ * ({@link #resolveDockerImages(Collection)}).
  */
 @Slf4j
 @Service
+@ManagedResource(objectName = "uk.ac.ebi.tsc.tesk:type=TrsToolClient", description = "TRS image resolution cache")
 public class TrsToolClient {
+    private final HttpComponentsClientHttpRequestFactory requestFactory;
     private final RestTemplate restTemplate;
+    private final ThreadPoolExecutor executor;
     private final TrsProperties properties;
+    private final AntPathMatcher matcher = new AntPathMatcher();
+    private final HttpEntity<?> requestEntity;
+    private final Cache<List<String>, Resolution> resolutions;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder loadTimeNanos = new LongAdder();
 
     public TrsToolClient(RestTemplateBuilder restTemplateBuilder, TrsProperties properties) {
-        this.restTemplate = restTemplateBuilder.build();
+        PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager();
+        connectionManager.setMaxTotal(properties.getMaxConnections());
+        connectionManager.setDefaultMaxPerRoute(properties.getMaxConnections());
+        this.requestFactory = new HttpComponentsClientHttpRequestFactory(HttpClientBuilder.create()
+                .setConnectionManager(connectionManager).useSystemProperties().build());
+        this.requestFactory.setConnectTimeout(properties.getRequestTimeout());
+        this.requestFactory.setConnectionRequestTimeout(properties.getRequestTimeout());
+        this.requestFactory.setReadTimeout(properties.getRequestTimeout());
+        this.restTemplate = restTemplateBuilder.requestFactory(() -> this.requestFactory).build();
         this.properties = properties;
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("trs-");
+        threadFactory.setDaemon(true);
+        this.executor = new ThreadPoolExecutor(properties.getMaxConnections(), properties.getMaxConnections(), 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), threadFactory);
+        this.executor.allowCoreThreadTimeOut(true);
+        HttpHeaders headers = new HttpHeaders();
+        headers.setAccept(Arrays.asList(MediaType.APPLICATION_JSON));
+        //Why do I need to emulate the browser is not quite clear.. TBC
+        headers.add("user-agent", "Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/54.0.2840.99 Safari/537.36");
+        this.requestEntity = new HttpEntity<>(headers);
+        this.resolutions = CacheBuilder.newBuilder().maximumSize(properties.getCacheMaxSize())
+                .expireAfterWrite(properties.getCacheTtl(), TimeUnit.SECONDS).build();
     }
 
     public String getDockerImageForToolVersionURI(String trsURI) {
         String[] toolCoordinates = new String[3];
         if (translateTrsURI(trsURI, toolCoordinates)) {
-            return getDockerImageForToolVersion(toolCoordinates[0], toolCoordinates[1], toolCoordinates[2]).orElse(trsURI);
+            return getCachedDockerImageForToolVersion(toolCoordinates[0], toolCoordinates[1], toolCoordinates[2]).orElse(trsURI);
         }
         return trsURI;
     }
 
+    /**
+     * Resolves (potential) TRS URIs concurrently, waiting for all of them at most tesk.api.trs.resolution-timeout ms.
+     * Lookups not completed within that time continue in the background (and populate the cache).
+     *
+     * @return map of image URI to Docker image; a URI, which is not TRS URI or could not be resolved (in time), maps to itself
+     */
+    public Map<String, String> resolveDockerImages(Collection<String> trsURIs) {
+        Map<String, CompletableFuture<String>> lookups = new LinkedHashMap<>();
+        Map<String, String> images = new HashMap<>();
+        String[] toolCoordinates = new String[3];
+        for (String trsURI : trsURIs) {
+            if (trsURI == null || images.containsKey(trsURI) || lookups.containsKey(trsURI)) {
+                continue;
+            }
+            if (translateTrsURI(trsURI, toolCoordinates)) {
+                String host = toolCoordinates[0], id = toolCoordinates[1], version = toolCoordinates[2];
+                lookups.put(trsURI, CompletableFuture.supplyAsync(() ->
+                        getCachedDockerImageForToolVersion(host, id, version).orElse(trsURI), this.executor));
+            } else {
+                images.put(trsURI, trsURI);
+            }
+        }
+        if (lookups.isEmpty()) {
+            return images;
+        }
+        try {
+            CompletableFuture.allOf(lookups.values().toArray(new CompletableFuture[0]))
+                    .get(this.properties.getResolutionTimeout(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            log.info("Resolving TRS URIs {} did not complete within {} ms", lookups.keySet(), this.properties.getResolutionTimeout());
+        } catch (ExecutionException e) {
+            log.info("Error {} resolving TRS URIs {}", e, lookups.keySet());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        lookups.forEach((trsURI, lookup) -> images.put(trsURI, lookup.isDone() && !lookup.isCompletedExceptionally() ? lookup.join() : trsURI));
+        return images;
+    }
+
+    Optional<String> getCachedDockerImageForToolVersion(String trsHost, String toolId, String toolVersion) {
+        List<String> key = Arrays.asList(trsHost, toolId, toolVersion);
+        Resolution resolution = this.resolve(key);
+        if (resolution.isExpired()) {
+            //failed resolution past its (shorter) TTL; only one of concurrent callers removes it
+            this.resolutions.asMap().remove(key, resolution);
+            resolution = this.resolve(key);
+        }
+        return resolution.image;
+    }
+
+    private Resolution resolve(List<String> key) {
+        boolean[] loaded = new boolean[1];
+        try {
+            Resolution resolution = this.resolutions.get(key, () -> {
+                loaded[0] = true;
+                long start = System.nanoTime();
+                Optional<String> image = getDockerImageForToolVersion(key.get(0), key.get(1), key.get(2));
+                this.loadTimeNanos.add(System.nanoTime() - start);
+                if (!image.isPresent()) {
+                    this.failures.increment();
+                }
+                return this.newResolution(image);
+            });
+            (loaded[0] ? this.misses : this.hits).increment();
+            return resolution;
+        } catch (ExecutionException | UncheckedExecutionException e) {
+            //not expected - errors are handled by getDockerImageForToolVersion
+            log.info("Error {} resolving TRS Version {}", e, key);
+            return this.newResolution(Optional.empty());
+        }
+    }
+
+    private Resolution newResolution(Optional<String> image) {
+        return new Resolution(image, System.nanoTime() + TimeUnit.SECONDS.toNanos(this.properties.getNegativeCacheTtl()));
+    }
+
     Optional<String> getDockerImageForToolVersion(String trsHost, String toolId, String toolVersion) {
         try {
-            HttpHeaders headers = new HttpHeaders();
-            headers.setAccept(Arrays.asList(MediaType.APPLICATION_JSON));
-            //Why do I need to emulate the browser is not quite clear.. TBC
-            headers.add("user-agent", "Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/54.0.2840.99 Safari/537.36");
-            HttpEntity entity = new HttpEntity(headers);
-            ResponseEntity<ToolVersion> response = restTemplate.exchange(properties.getUrlPattern(), HttpMethod.GET, entity, ToolVersion.class, trsHost, toolId, toolVersion);
+            ResponseEntity<ToolVersion> response = restTemplate.exchange(properties.getUrlPattern(), HttpMethod.GET, requestEntity, ToolVersion.class, trsHost, toolId, toolVersion);
             if (response.getStatusCode().is2xxSuccessful()) {
                 ToolVersion version = response.getBody();
                 if (response.getBody() != null && !version.getImages().isEmpty()) {
@@ -59,7 +177,6 @@ public class TrsToolClient {
     }
 
     boolean translateTrsURI(String trsURI, String[] result) {
-        AntPathMatcher matcher = new AntPathMatcher();
         if (matcher.match(properties.getUriPattern(), trsURI)) {
             Map<String, String> variables = matcher.extractUriTemplateVariables(properties.getUriPattern(), trsURI);
             result[0] = variables.get("host");
@@ -70,4 +187,60 @@ public class TrsToolClient {
         return false;
     }
 
+    @ManagedAttribute(description = "Lookups answered from cache (incl. waiting for a concurrent request)")
+    public long getCacheHits() {
+        return this.hits.sum();
+    }
+
+    @ManagedAttribute(description = "Lookups, that resulted in a request to TRS")
+    public long getCacheMisses() {
+        return this.misses.sum();
+    }
+
+    @ManagedAttribute(description = "Requests to TRS, that did not resolve a Docker image")
+    public long getFailures() {
+        return this.failures.sum();
+    }
+
+    @ManagedAttribute(description = "Average time of a request to TRS in ms")
+    public double getAverageLoadTimeMillis() {
+        long misses = this.misses.sum();
+        return misses == 0 ? 0 : this.loadTimeNanos.sum() / 1e6 / misses;
+    }
+
+    @ManagedAttribute(description = "Number of cached tool versions")
+    public long getCacheSize() {
+        return this.resolutions.size();
+    }
+
+    @ManagedOperation(description = "Removes all cached tool versions")
+    public void clearCache() {
+        this.resolutions.invalidateAll();
+    }
+
+    @PreDestroy
+    public void shutdown() throws Exception {
+        this.executor.shutdownNow();
+        this.requestFactory.destroy();
+    }
+
+    private static class Resolution {
+
+        private final Optional<String> image;
+
+        /**
+         * Applies only to failed resolutions (successful ones expire from the cache)
+         */
+        private final long negativeExpiresAtNanos;
+
+        private Resolution(Optional<String> image, long negativeExpiresAtNanos) {
+            this.image = image;
+            this.negativeExpiresAtNanos = negativeExpiresAtNanos;
+        }
+
+        private boolean isExpired() {
+            return !this.image.isPresent() && System.nanoTime() - this.negativeExpiresAtNanos >= 0;
+        }
+    }
+
 }
@@ -0,0 +1,46 @@
+package uk.ac.ebi.tsc.tesk.webhook;
+
+import org.apache.http.conn.DnsResolver;
+import org.apache.http.impl.conn.SystemDefaultDnsResolver;
+
+import java.net.Inet6Address;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+
+/**
+ * @author Ania Niewielska <aniewielska@ebi.ac.uk>
+ * <p>
+ * Resolves hosts of callback URLs for the HTTP client, which posts callbacks, so that the checked addresses are the ones
+ * connected to (no DNS rebinding between a check and the connection). If no allowed hosts are configured,
+ * hosts with any loopback, link-local, private (site-local or unique local), multicast or wildcard address are not resolved.
+ * Hosts from tesk.api.webhooks.allowed-hosts are trusted (they are the only ones, the client gets to - redirects are not followed).
+ */
+class CallbackDnsResolver implements DnsResolver {
+
+    private final WebhookProperties properties;
+
+    CallbackDnsResolver(WebhookProperties properties) {
+        this.properties = properties;
+    }
+
+    @Override
+    public InetAddress[] resolve(String host) throws UnknownHostException {
+        InetAddress[] addresses = SystemDefaultDnsResolver.INSTANCE.resolve(host);
+        if (!this.properties.getAllowedHosts().isEmpty()) {
+            return addresses;
+        }
+        for (InetAddress address : addresses) {
+            if (!isPublic(address)) {
+                throw new UnknownHostException(host + " resolves to a non-public address " + address.getHostAddress());
+            }
+        }
+        return addresses;
+    }
+
+    private static boolean isPublic(InetAddress address) {
+        return !address.isAnyLocalAddress() && !address.isLoopbackAddress() && !address.isLinkLocalAddress()
+                && !address.isSiteLocalAddress() && !address.isMulticastAddress()
+                //IPv6 unique local fc00::/7
+                && !(address instanceof Inet6Address && (address.getAddress()[0] & 0xfe) == 0xfc);
+    }
+}
@@ -0,0 +1,99 @@
+package uk.ac.ebi.tsc.tesk.webhook;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Consumer;
+
+/**
+ * @author Ania Niewielska <aniewielska@ebi.ac.uk>
+ * <p>
+ * Append-only file of lines (journal records). Each append (of one or more records) is forced to the storage device (fsync) before it returns,
+ * so that a record survives a crash of the node, not only of the process. Rewrite replaces the file atomically.
+ */
+class JournalFile implements Closeable {
+
+    private final Path file;
+
+    private FileChannel channel;
+
+    private Writer writer;
+
+    JournalFile(Path file) throws IOException {
+        this.file = file;
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+    }
+
+    Path getPath() {
+        return file;
+    }
+
+    /**
+     * Reads existing records (before the journal is opened for appending)
+     */
+    void forEachLine(Consumer<String> action) throws IOException {
+        if (!Files.exists(this.file)) {
+            return;
+        }
+        try (BufferedReader reader = Files.newBufferedReader(this.file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.isEmpty()) {
+                    action.accept(line);
+                }
+            }
+        }
+    }
+
+    /**
+     * Appends records, forced to the device once for all of them
+     */
+    void append(Iterable<String> lines) throws IOException {
+        for (String line : lines) {
+            this.writer.write(line);
+            this.writer.write('\n');
+        }
+        this.writer.flush();
+        this.channel.force(false);
+    }
+
+    /**
+     * Replaces the journal with given records (written and forced to a temporary file first) and opens it for appending
+     */
+    void rewrite(Iterable<String> lines) throws IOException {
+        this.close();
+        Path temp = this.file.resolveSibling(this.file.getFileName() + ".tmp");
+        try (FileChannel tempChannel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            Writer tempWriter = Channels.newWriter(tempChannel, StandardCharsets.UTF_8.name());
+            for (String line : lines) {
+                tempWriter.write(line);
+                tempWriter.write('\n');
+            }
+            tempWriter.flush();
+            tempChannel.force(true);
+        }
+        Files.move(temp, this.file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        this.channel = FileChannel.open(this.file, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        this.writer = Channels.newWriter(this.channel, StandardCharsets.UTF_8.name());
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (this.channel != null) {
+            //closes the channel
+            this.writer.close();
+            this.channel = null;
+            this.writer = null;
+        }
+    }
+}
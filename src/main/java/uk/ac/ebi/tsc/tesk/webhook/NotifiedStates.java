@@ -0,0 +1,143 @@
+package uk.ac.ebi.tsc.tesk.webhook;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import uk.ac.ebi.tsc.tesk.tes.model.TesState;
+import uk.ac.ebi.tsc.tesk.tes.model.TesTaskStateEvent;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * @author Ania Niewielska <aniewielska@ebi.ac.uk>
+ * <p>
+ * Last handled state of each task with a callback (queued for delivery or filtered out by CALLBACK_EVENTS),
+ * kept in an append-only journal file of {@link TesTaskStateEvent} lines, so that after a restart states
+ * of tasks can be compared with the ones from before it - transitions made while the API was down are not lost.
+ * On start the journal is replayed and rewritten; it is also rewritten, when it grows much bigger than the map.
+ */
+class NotifiedStates implements Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(NotifiedStates.class);
+
+    /**
+     * Min number of journal records, for which the journal is compacted
+     */
+    private static final int COMPACT_THRESHOLD = 1000;
+
+    private final JournalFile journal;
+
+    private final ObjectMapper objectMapper;
+
+    /**
+     * Journal records in single lines
+     */
+    private final ObjectWriter recordWriter;
+
+    private final Map<String, TesState> states = new HashMap<>();
+
+    /**
+     * Has the journal been created by this instance (no states recorded before)
+     */
+    private final boolean created;
+
+    private int journalRecords;
+
+    NotifiedStates(Path file, ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+        this.recordWriter = objectMapper.writer().without(SerializationFeature.INDENT_OUTPUT);
+        try {
+            this.created = !Files.exists(file);
+            this.journal = new JournalFile(file);
+            this.journal.forEachLine(this::replay);
+            this.rewrite();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Opening states of webhooks " + file + " failed", e);
+        }
+    }
+
+    boolean isCreated() {
+        return created;
+    }
+
+    synchronized TesState get(String taskId) {
+        return this.states.get(taskId);
+    }
+
+    synchronized void put(String taskId, TesState state) {
+        this.putAll(Collections.singletonMap(taskId, state));
+    }
+
+    /**
+     * Records states of tasks (changed ones journalled with a single write)
+     */
+    synchronized void putAll(Map<String, TesState> taskStates) {
+        List<String> records = new ArrayList<>();
+        try {
+            for (Map.Entry<String, TesState> taskState : taskStates.entrySet()) {
+                if (taskState.getValue() != this.states.put(taskState.getKey(), taskState.getValue())) {
+                    records.add(this.recordWriter.writeValueAsString(new TesTaskStateEvent().id(taskState.getKey()).state(taskState.getValue())));
+                }
+            }
+            if (records.isEmpty()) {
+                return;
+            }
+            if (this.journalRecords + records.size() > COMPACT_THRESHOLD && this.journalRecords + records.size() > 2 * this.states.size()) {
+                this.rewrite();
+                return;
+            }
+            this.journal.append(records);
+            this.journalRecords += records.size();
+        } catch (IOException e) {
+            logger.warn("Writing states of webhooks {} failed; {}", this.journal.getPath(), e.getMessage());
+        }
+    }
+
+    /**
+     * Forgets states of tasks other than given ones (deleted tasks)
+     */
+    synchronized void retain(Set<String> taskIds) {
+        this.states.keySet().retainAll(taskIds);
+        try {
+            this.rewrite();
+        } catch (IOException e) {
+            logger.warn("Compacting states of webhooks {} failed; {}", this.journal.getPath(), e.getMessage());
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        this.journal.close();
+    }
+
+    private void replay(String line) {
+        try {
+            TesTaskStateEvent record = this.objectMapper.readValue(line, TesTaskStateEvent.class);
+            this.states.put(record.getId(), record.getState());
+        } catch (IOException | RuntimeException e) {
+            //last line torn by a crash
+            logger.warn("Skipping malformed record of states of webhooks {}; {}", this.journal.getPath(), e.getMessage());
+        }
+    }
+
+    private void rewrite() throws IOException {
+        List<String> records = new ArrayList<>(this.states.size());
+        for (Map.Entry<String, TesState> state : this.states.entrySet()) {
+            records.add(this.recordWriter.writeValueAsString(new TesTaskStateEvent().id(state.getKey()).state(state.getValue())));
+        }
+        this.journal.rewrite(records);
+        this.journalRecords = records.size();
+    }
+}
@@ -0,0 +1,354 @@
+package uk.ac.ebi.tsc.tesk.webhook;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import io.kubernetes.client.models.V1Job;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClientBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+import uk.ac.ebi.tsc.tesk.tes.exception.InvalidCallback;
+import uk.ac.ebi.tsc.tesk.tes.model.TesState;
+import uk.ac.ebi.tsc.tesk.tes.model.TesTaskStateEvent;
+import uk.ac.ebi.tsc.tesk.tes.model.TesTaskStateNotification;
+import uk.ac.ebi.tsc.tesk.tes.service.TaskStateWatcher;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.UnknownHostException;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static uk.ac.ebi.tsc.tesk.k8s.constant.Constants.*;
+
+/**
+ * @author Ania Niewielska <aniewielska@ebi.ac.uk>
+ * <p>
+ * Posts state changes of tasks to their callback URLs (tags CALLBACK_URL and CALLBACK_EVENTS, copied to taskmaster's annotations).
+ * Changes come from {@link TaskStateWatcher} (the same evaluation, that feeds the stream of task events) and are handed over
+ * in memory to a single thread, which adds them to a durable {@link WebhookQueue} (one journal write per batch of changes)
+ * and periodically posts pending changes batched per URL
+ * ({@link TesTaskStateNotification}); failed batches are retried with exponential backoff and dropped after max attempts.
+ * Delivery is at least once; every API instance watching the same namespace delivers its own notifications.
+ * The last handled state of each task is kept in {@link NotifiedStates}; after a restart it is compared with the states
+ * from the first evaluation, so that changes made while the API was down (or handed over, but not journalled) are notified too.
+ * Callbacks go to allowed hosts only; if none are configured, to any host not resolving to a loopback, link-local,
+ * private (site-local or unique local) or multicast address - checked on validation and by the HTTP client
+ * on connection ({@link CallbackDnsResolver}). Redirects are not followed; only 2xx responses count as delivered.
+ * Active only, when tesk.api.k8s.cache.enabled=true and tesk.api.webhooks.enabled=true
+ */
+@Component
+@ConditionalOnProperty(value = {"tesk.api.k8s.cache.enabled", "tesk.api.webhooks.enabled"}, havingValue = "true")
+public class WebhookNotifier {
+
+    private static final Logger logger = LoggerFactory.getLogger(WebhookNotifier.class);
+
+    /**
+     * Suffix of the file with states of tasks (next to the queue file)
+     */
+    private static final String STATES_FILE_SUF = ".states";
+
+    private final WebhookProperties properties;
+
+    private final RestTemplate restTemplate;
+
+    private final WebhookQueue queue;
+
+    private final NotifiedStates notifiedStates;
+
+    private final CallbackDnsResolver dnsResolver;
+
+    /**
+     * Notifications in a single line
+     */
+    private final ObjectWriter notificationWriter;
+
+    /**
+     * State changes handed over from the evaluating thread, in order
+     */
+    private final Queue<StateChanges> stateChanges = new ConcurrentLinkedQueue<>();
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "webhook-sender");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @Autowired
+    public WebhookNotifier(TaskStateWatcher watcher, WebhookProperties properties, RestTemplateBuilder restTemplateBuilder,
+                           ObjectMapper objectMapper) {
+        this(watcher, properties, callbackRestTemplate(restTemplateBuilder, properties),
+                new WebhookQueue(Paths.get(properties.getQueueFile()), objectMapper),
+                new NotifiedStates(Paths.get(properties.getQueueFile() + STATES_FILE_SUF), objectMapper), objectMapper);
+    }
+
+    WebhookNotifier(TaskStateWatcher watcher, WebhookProperties properties, RestTemplate restTemplate, WebhookQueue queue,
+                    NotifiedStates notifiedStates, ObjectMapper objectMapper) {
+        this.properties = properties;
+        this.restTemplate = restTemplate;
+        this.queue = queue;
+        this.notifiedStates = notifiedStates;
+        this.dnsResolver = new CallbackDnsResolver(properties);
+        this.notificationWriter = objectMapper.writer().without(SerializationFeature.INDENT_OUTPUT);
+        watcher.addInitialStatesListener(this::onInitialStates);
+        watcher.addStateListener(this::onStateChange);
+    }
+
+    /**
+     * Client, which does not follow redirects and resolves hosts with {@link CallbackDnsResolver}
+     */
+    private static RestTemplate callbackRestTemplate(RestTemplateBuilder restTemplateBuilder, WebhookProperties properties) {
+        CloseableHttpClient httpClient = HttpClientBuilder.create().useSystemProperties().disableRedirectHandling()
+                .setDnsResolver(new CallbackDnsResolver(properties)).build();
+        return restTemplateBuilder.requestFactory(() -> new HttpComponentsClientHttpRequestFactory(httpClient))
+                .setConnectTimeout(properties.getRequestTimeout()).setReadTimeout(properties.getRequestTimeout()).build();
+    }
+
+    @PostConstruct
+    public void start() {
+        this.scheduler.scheduleWithFixedDelay(this::deliver, this.properties.getInterval(), this.properties.getInterval(), TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() throws IOException {
+        this.scheduler.shutdownNow();
+        this.queue.close();
+        this.notifiedStates.close();
+    }
+
+    /**
+     * Validates callback tags of a new task; throws InvalidCallback
+     */
+    public void validateCallback(Map<String, String> tags) {
+        if (tags == null || !tags.containsKey(TAG_CALLBACK_URL)) {
+            return;
+        }
+        if (!this.isAllowed(tags.get(TAG_CALLBACK_URL))) {
+            throw new InvalidCallback(TAG_CALLBACK_URL, tags.get(TAG_CALLBACK_URL));
+        }
+        String events = tags.getOrDefault(TAG_CALLBACK_EVENTS, CALLBACK_EVENTS_TERMINAL);
+        if (!CALLBACK_EVENTS_TERMINAL.equals(events) && !CALLBACK_EVENTS_ALL.equals(events)) {
+            throw new InvalidCallback(TAG_CALLBACK_EVENTS, events);
+        }
+    }
+
+    /**
+     * Absolute http(s) URL to one of allowed hosts (if none configured - to a host with public addresses only)
+     */
+    boolean isAllowed(String url) {
+        try {
+            URI uri = new URI(url);
+            if (!"http".equalsIgnoreCase(uri.getScheme()) && !"https".equalsIgnoreCase(uri.getScheme()) || uri.getHost() == null) {
+                return false;
+            }
+            if (!this.properties.getAllowedHosts().isEmpty()) {
+                return this.properties.getAllowedHosts().stream().anyMatch(uri.getHost()::equalsIgnoreCase);
+            }
+            //the same check, as the client's on connection
+            this.dnsResolver.resolve(uri.getHost());
+            return true;
+        } catch (URISyntaxException | UnknownHostException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Called on the evaluating thread of {@link TaskStateWatcher} - only hands the states over to the sender thread
+     */
+    void onInitialStates(List<Map.Entry<V1Job, TesState>> initialStates) {
+        this.stateChanges.add(new StateChanges(true, initialStates));
+    }
+
+    /**
+     * Called on the evaluating thread of {@link TaskStateWatcher} - only hands the change over to the sender thread
+     */
+    void onStateChange(V1Job taskmaster, TesState state) {
+        this.stateChanges.add(new StateChanges(false, Collections.singletonList(new AbstractMap.SimpleImmutableEntry<>(taskmaster, state))));
+    }
+
+    /**
+     * Queues notifications of state changes handed over since the last call and records the states,
+     * each with a single (forced) write of its journal
+     */
+    void handleStateChanges() {
+        List<Map.Entry<String, TesTaskStateEvent>> notifications = new ArrayList<>();
+        Map<String, TesState> handled = new LinkedHashMap<>();
+        StateChanges changes;
+        while ((changes = this.stateChanges.poll()) != null) {
+            if (changes.initial) {
+                this.record(notifications, handled);
+                this.handleInitialStates(changes.states);
+                continue;
+            }
+            for (Map.Entry<V1Job, TesState> change : changes.states) {
+                this.handle(change.getKey(), change.getValue(), notifications, handled);
+            }
+        }
+        this.record(notifications, handled);
+    }
+
+    /**
+     * Compares states of tasks from the first evaluation with the ones handled before restart
+     * (all taken as handled, if there were no states before) and forgets deleted tasks
+     */
+    private void handleInitialStates(List<Map.Entry<V1Job, TesState>> initialStates) {
+        List<Map.Entry<String, TesTaskStateEvent>> notifications = new ArrayList<>();
+        Map<String, TesState> handled = new LinkedHashMap<>();
+        Set<String> taskIds = new HashSet<>();
+        for (Map.Entry<V1Job, TesState> initialState : initialStates) {
+            V1Job taskmaster = initialState.getKey();
+            if (callbackUrl(taskmaster) == null) {
+                continue;
+            }
+            taskIds.add(taskmaster.getMetadata().getName());
+            if (this.notifiedStates.isCreated()) {
+                handled.put(taskmaster.getMetadata().getName(), initialState.getValue());
+            } else if (initialState.getValue() != this.notifiedStates.get(taskmaster.getMetadata().getName())) {
+                this.handle(taskmaster, initialState.getValue(), notifications, handled);
+            }
+        }
+        this.record(notifications, handled);
+        this.notifiedStates.retain(taskIds);
+    }
+
+    private void handle(V1Job taskmaster, TesState state, List<Map.Entry<String, TesTaskStateEvent>> notifications,
+                        Map<String, TesState> handled) {
+        String url = callbackUrl(taskmaster);
+        if (url == null || state == null) {
+            return;
+        }
+        if (CALLBACK_EVENTS_ALL.equals(taskmaster.getMetadata().getAnnotations().get(ANN_CALLBACK_EVENTS_KEY)) || COMPLETED_STATES.contains(state)) {
+            notifications.add(new AbstractMap.SimpleImmutableEntry<>(url, new TesTaskStateEvent().id(taskmaster.getMetadata().getName()).state(state)));
+        }
+        handled.put(taskmaster.getMetadata().getName(), state);
+    }
+
+    private void record(List<Map.Entry<String, TesTaskStateEvent>> notifications, Map<String, TesState> handled) {
+        //queued first - a crash in between repeats notifications rather than loses them
+        if (!notifications.isEmpty()) {
+            this.queue.addAll(notifications);
+            notifications.clear();
+        }
+        if (!handled.isEmpty()) {
+            this.notifiedStates.putAll(handled);
+            handled.clear();
+        }
+    }
+
+    private static String callbackUrl(V1Job taskmaster) {
+        Map<String, String> annotations = taskmaster.getMetadata().getAnnotations();
+        return annotations == null ? null : annotations.get(ANN_CALLBACK_URL_KEY);
+    }
+
+    /**
+     * Handles state changes, then posts pending notifications, in batches per URL, in order; stops at the first failed batch of a URL
+     * (all its pending notifications wait for the retry)
+     */
+    void deliver() {
+        this.handleStateChanges();
+        long now = System.currentTimeMillis();
+        Map<String, List<WebhookQueue.Delivery>> byUrl = this.queue.pending().stream()
+                .collect(Collectors.groupingBy(WebhookQueue.Delivery::getUrl, LinkedHashMap::new, Collectors.toList()));
+        for (Map.Entry<String, List<WebhookQueue.Delivery>> deliveries : byUrl.entrySet()) {
+            List<WebhookQueue.Delivery> all = deliveries.getValue();
+            if (all.get(0).getNotBefore() > now) {
+                continue;
+            }
+            //allowed hosts (or addresses of the host) might have changed since creation
+            if (!this.isAllowed(deliveries.getKey())) {
+                logger.warn("Callback URL {} is not allowed, dropping {} state changes", deliveries.getKey(), all.size());
+                this.queue.remove(all.stream().map(WebhookQueue.Delivery::getId).collect(Collectors.toList()));
+                continue;
+            }
+            for (int i = 0; i < all.size(); i += this.properties.getBatchSize()) {
+                List<WebhookQueue.Delivery> batch = all.subList(i, Math.min(i + this.properties.getBatchSize(), all.size()));
+                if (!this.post(deliveries.getKey(), batch)) {
+                    this.failed(deliveries.getKey(), all.subList(i, all.size()), now);
+                    break;
+                }
+                this.queue.remove(batch.stream().map(WebhookQueue.Delivery::getId).collect(Collectors.toList()));
+            }
+        }
+    }
+
+    private boolean post(String url, List<WebhookQueue.Delivery> batch) {
+        TesTaskStateNotification notification = new TesTaskStateNotification()
+                .events(batch.stream().map(WebhookQueue.Delivery::getEvent).collect(Collectors.toList()));
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        try {
+            ResponseEntity<Void> response = this.restTemplate.postForEntity(url,
+                    new HttpEntity<>(this.notificationWriter.writeValueAsString(notification), headers), Void.class);
+            if (!response.getStatusCode().is2xxSuccessful()) {
+                //e.g. a redirect, which is not followed
+                logger.info("Posting {} state changes to {} failed; status {}", batch.size(), url, response.getStatusCodeValue());
+                return false;
+            }
+            return true;
+        } catch (RestClientException | JsonProcessingException e) {
+            logger.info("Posting {} state changes to {} failed; {}", batch.size(), url, e.getMessage());
+            return false;
+        }
+    }
+
+    private void failed(String url, List<WebhookQueue.Delivery> deliveries, long now) {
+        List<Long> dropped = new ArrayList<>();
+        for (WebhookQueue.Delivery delivery : deliveries) {
+            int attempts = delivery.failed(now + this.backoff(delivery.getAttempts() + 1));
+            if (attempts >= this.properties.getMaxAttempts()) {
+                dropped.add(delivery.getId());
+            }
+        }
+        if (!dropped.isEmpty()) {
+            logger.warn("Dropping {} state changes for {} after {} attempts", dropped.size(), url, this.properties.getMaxAttempts());
+            this.queue.remove(dropped);
+        }
+    }
+
+    /**
+     * Delay (in ms) after a given number of failed attempts
+     */
+    long backoff(int attempts) {
+        long seconds = (long) this.properties.getInitialBackoff() << Math.min(attempts - 1, 30);
+        return TimeUnit.SECONDS.toMillis(Math.min(seconds, this.properties.getMaxBackoff()));
+    }
+
+    /**
+     * States of tasks from a single call of a listener
+     */
+    private static class StateChanges {
+
+        /**
+         * From the first evaluation
+         */
+        private final boolean initial;
+
+        private final List<Map.Entry<V1Job, TesState>> states;
+
+        StateChanges(boolean initial, List<Map.Entry<V1Job, TesState>> states) {
+            this.initial = initial;
+            this.states = states;
+        }
+    }
+}
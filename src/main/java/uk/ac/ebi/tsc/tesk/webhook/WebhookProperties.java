@@ -0,0 +1,66 @@
+package uk.ac.ebi.tsc.tesk.webhook;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * @author Ania Niewielska <aniewielska@ebi.ac.uk>
+ * <p>
+ * Settings of callbacks (webhooks) with state changes of tasks
+ */
+@Configuration
+@ConfigurationProperties(prefix = "tesk.api.webhooks")
+@Data
+public class WebhookProperties {
+
+    /**
+     * Are state changes posted to callback URLs of tasks (requires the cache of K8s objects)
+     */
+    private boolean enabled = false;
+
+    /**
+     * File, in which not yet delivered notifications are kept, next to the file with last notified states of tasks (with suffix .states);
+     * should be on a persistent volume to survive pod restarts
+     */
+    private String queueFile = System.getProperty("java.io.tmpdir") + "/tesk-api-webhooks.journal";
+
+    /**
+     * Hosts, to which callbacks are allowed (empty - any host with public addresses only;
+     * loopback, link-local, private and multicast addresses are rejected)
+     */
+    private List<String> allowedHosts = new ArrayList<>();
+
+    /**
+     * How often (in ms) pending notifications are sent
+     */
+    private int interval = 1000;
+
+    /**
+     * Max number of state changes posted to a single URL in one request
+     */
+    private int batchSize = 100;
+
+    /**
+     * Connect and read timeout (in milliseconds) of a single callback request
+     */
+    private int requestTimeout = 5000;
+
+    /**
+     * Delay (in seconds) before the first retry of a failed delivery; doubled with each next attempt
+     */
+    private int initialBackoff = 5;
+
+    /**
+     * Max delay (in seconds) between retries
+     */
+    private int maxBackoff = 600;
+
+    /**
+     * Number of attempts, after which a notification is dropped
+     */
+    private int maxAttempts = 10;
+}
@@ -0,0 +1,224 @@
+package uk.ac.ebi.tsc.tesk.webhook;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import uk.ac.ebi.tsc.tesk.tes.model.TesTaskStateEvent;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * @author Ania Niewielska <aniewielska@ebi.ac.uk>
+ * <p>
+ * Queue of notifications to deliver, kept in memory and in an append-only journal file, so that it survives restarts:
+ * each added notification is a line {"id":..,"url":..,"event":{..}}, each delivered (or dropped) batch - {"done":[ids]}.
+ * On start the journal is replayed; it is truncated, when the queue gets empty, and rewritten, when it grows
+ * much bigger than the queue. Records are forced to disk ({@link JournalFile}), before add or remove returns.
+ * Attempts of delivery are not journalled (after restart retries start from scratch).
+ */
+class WebhookQueue implements Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(WebhookQueue.class);
+
+    /**
+     * Min number of journal records, for which the journal is compacted (when most of them are delivered)
+     */
+    private static final int COMPACT_THRESHOLD = 1000;
+
+    private final JournalFile journal;
+
+    private final ObjectMapper objectMapper;
+
+    /**
+     * Journal records in single lines
+     */
+    private final ObjectWriter recordWriter;
+
+    private final Map<Long, Delivery> pending = new LinkedHashMap<>();
+
+    private long lastId;
+
+    private int journalRecords;
+
+    WebhookQueue(Path file, ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+        this.recordWriter = objectMapper.writer().without(SerializationFeature.INDENT_OUTPUT);
+        try {
+            this.journal = new JournalFile(file);
+            this.journal.forEachLine(this::replay);
+            this.rewrite();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Opening webhook queue " + file + " failed", e);
+        }
+    }
+
+    synchronized Delivery add(String url, TesTaskStateEvent event) {
+        return this.addAll(Collections.singletonList(new AbstractMap.SimpleImmutableEntry<>(url, event))).get(0);
+    }
+
+    /**
+     * Adds notifications (URL, event), journalled with a single write
+     */
+    synchronized List<Delivery> addAll(List<Map.Entry<String, TesTaskStateEvent>> notifications) {
+        List<Delivery> deliveries = new ArrayList<>(notifications.size());
+        List<JsonNode> records = new ArrayList<>(notifications.size());
+        for (Map.Entry<String, TesTaskStateEvent> notification : notifications) {
+            Delivery delivery = new Delivery(++this.lastId, notification.getKey(), notification.getValue());
+            this.pending.put(delivery.id, delivery);
+            deliveries.add(delivery);
+            ObjectNode record = this.objectMapper.createObjectNode().put("id", delivery.id).put("url", delivery.url);
+            record.set("event", this.objectMapper.valueToTree(delivery.event));
+            records.add(record);
+        }
+        this.append(records);
+        return deliveries;
+    }
+
+    /**
+     * Removes delivered (or dropped) notifications
+     */
+    synchronized void remove(Collection<Long> ids) {
+        ids.forEach(this.pending::remove);
+        try {
+            if (this.pending.isEmpty()) {
+                this.rewrite();
+                return;
+            }
+            if (this.journalRecords > COMPACT_THRESHOLD && this.journalRecords > 2 * this.pending.size()) {
+                this.rewrite();
+                return;
+            }
+        } catch (IOException e) {
+            logger.warn("Compacting webhook queue {} failed; {}", this.journal.getPath(), e.getMessage());
+        }
+        ObjectNode record = this.objectMapper.createObjectNode();
+        ArrayNode done = record.putArray("done");
+        ids.forEach(done::add);
+        this.append(Collections.singletonList(record));
+    }
+
+    /**
+     * Snapshot of not yet delivered notifications, in the order they were added
+     */
+    synchronized List<Delivery> pending() {
+        return new ArrayList<>(this.pending.values());
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        this.journal.close();
+    }
+
+    private void replay(String line) {
+        try {
+            JsonNode record = this.objectMapper.readTree(line);
+            if (record.has("done")) {
+                record.get("done").forEach(id -> this.pending.remove(id.asLong()));
+            } else {
+                Delivery delivery = new Delivery(record.get("id").asLong(), record.get("url").asText(),
+                        this.objectMapper.treeToValue(record.get("event"), TesTaskStateEvent.class));
+                this.pending.put(delivery.id, delivery);
+                this.lastId = Math.max(this.lastId, delivery.id);
+            }
+        } catch (IOException | RuntimeException e) {
+            //last line torn by a crash
+            logger.warn("Skipping malformed record of webhook queue {}; {}", this.journal.getPath(), e.getMessage());
+        }
+    }
+
+    /**
+     * Replaces the journal with pending notifications only
+     */
+    private void rewrite() throws IOException {
+        List<String> records = new ArrayList<>(this.pending.size());
+        for (Delivery delivery : this.pending.values()) {
+            ObjectNode record = this.objectMapper.createObjectNode().put("id", delivery.id).put("url", delivery.url);
+            record.set("event", this.objectMapper.valueToTree(delivery.event));
+            records.add(this.recordWriter.writeValueAsString(record));
+        }
+        this.journal.rewrite(records);
+        this.journalRecords = records.size();
+    }
+
+    private void append(List<JsonNode> records) {
+        try {
+            List<String> lines = new ArrayList<>(records.size());
+            for (JsonNode record : records) {
+                lines.add(this.recordWriter.writeValueAsString(record));
+            }
+            this.journal.append(lines);
+            this.journalRecords += lines.size();
+        } catch (IOException e) {
+            //still delivered from memory, only not durable
+            logger.warn("Writing to webhook queue {} failed; {}", this.journal.getPath(), e.getMessage());
+        }
+    }
+
+    /**
+     * Single notification with the state of delivery (attempts kept in memory only)
+     */
+    static class Delivery {
+
+        private final long id;
+
+        private final String url;
+
+        private final TesTaskStateEvent event;
+
+        private int attempts;
+
+        private long notBefore;
+
+        Delivery(long id, String url, TesTaskStateEvent event) {
+            this.id = id;
+            this.url = url;
+            this.event = event;
+        }
+
+        long getId() {
+            return id;
+        }
+
+        String getUrl() {
+            return url;
+        }
+
+        TesTaskStateEvent getEvent() {
+            return event;
+        }
+
+        int getAttempts() {
+            return attempts;
+        }
+
+        long getNotBefore() {
+            return notBefore;
+        }
+
+        /**
+         * Records a failed attempt
+         *
+         * @param retryAt - time (in ms), before which the next attempt is not made
+         * @return number of attempts made so far
+         */
+        int failed(long retryAt) {
+            this.notBefore = retryAt;
+            return ++this.attempts;
+        }
+    }
+}
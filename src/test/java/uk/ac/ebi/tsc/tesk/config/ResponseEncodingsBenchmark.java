@@ -0,0 +1,64 @@
+package uk.ac.ebi.tsc.tesk.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import uk.ac.ebi.tsc.tesk.TestUtils;
+import uk.ac.ebi.tsc.tesk.tes.model.TesListTasksResponse;
+import uk.ac.ebi.tsc.tesk.tes.model.TesTask;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * @author Ania Niewielska <aniewielska@ebi.ac.uk>
+ * <p>
+ * Rough comparison of payload size and serialization time of API response encodings
+ * (a page of 256 FULL tasks; see {@link MessageConvertersConfig}). Not a test - run manually (main).
+ */
+public class ResponseEncodingsBenchmark {
+
+    private static final int TASKS = 256;
+
+    private static final int WARMUP = 200;
+
+    private static final int ITERATIONS = 1000;
+
+    public static void main(String[] args) throws Exception {
+        Jackson2ObjectMapperBuilder builder = Jackson2ObjectMapperBuilder.json()
+                .serializationInclusion(com.fasterxml.jackson.annotation.JsonInclude.Include.NON_NULL);
+        ObjectMapper json = builder.build();
+        TesTask task = json.readValue(TestUtils.getFileContentFromResources("fromK8sToTes/task.json"), TesTask.class);
+        TesListTasksResponse page = new TesListTasksResponse();
+        for (int i = 0; i < TASKS; i++) {
+            page.addTasksItem(task);
+        }
+        Map<String, ObjectWriter> encodings = new LinkedHashMap<>();
+        encodings.put("JSON (indented)", json.writer().with(SerializationFeature.INDENT_OUTPUT));
+        encodings.put("JSON (compact)", json.writer());
+        ObjectMapper smile = new ObjectMapper(new SmileFactory());
+        builder.configure(smile);
+        encodings.put("Smile", smile.writer());
+        ObjectMapper cbor = new ObjectMapper(new CBORFactory());
+        builder.configure(cbor);
+        encodings.put("CBOR", cbor.writer());
+
+        System.out.printf("%-16s %12s %14s%n", "encoding", "bytes", "us/response");
+        for (Map.Entry<String, ObjectWriter> encoding : encodings.entrySet()) {
+            ObjectWriter writer = encoding.getValue();
+            int size = 0;
+            for (int i = 0; i < WARMUP; i++) {
+                size = writer.writeValueAsBytes(page).length;
+            }
+            long start = System.nanoTime();
+            for (int i = 0; i < ITERATIONS; i++) {
+                size = writer.writeValueAsBytes(page).length;
+            }
+            long micros = (System.nanoTime() - start) / 1000 / ITERATIONS;
+            System.out.printf("%-16s %12d %14d%n", encoding.getKey(), size, micros);
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package uk.ac.ebi.tsc.tesk.k8s.cache;
+
+import com.google.common.collect.ImmutableMap;
+import org.junit.Test;
+
+import java.util.Map;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+public class LabelSelectorTest {
+
+    private static final Map<String, String> LABELS = ImmutableMap.of("job-type", "taskmaster",
+            "creator-group-name", "TEST", "creator-user-id", "test-user");
+
+    @Test
+    public void matches_equality() {
+        assertThat(LabelSelector.parse("job-type=taskmaster").matches(LABELS), is(true));
+        assertThat(LabelSelector.parse("job-type==taskmaster").matches(LABELS), is(true));
+        assertThat(LabelSelector.parse("job-type=executor").matches(LABELS), is(false));
+        assertThat(LabelSelector.parse("job-type!=executor").matches(LABELS), is(true));
+        assertThat(LabelSelector.parse("executor-no!=1").matches(LABELS), is(true));
+    }
+
+    @Test
+    public void matches_existence() {
+        assertThat(LabelSelector.parse("job-type").matches(LABELS), is(true));
+        assertThat(LabelSelector.parse("!job-type").matches(LABELS), is(false));
+        assertThat(LabelSelector.parse("!job-type").matches(null), is(true));
+        assertThat(LabelSelector.parse("job-name").matches(LABELS), is(false));
+    }
+
+    @Test
+    public void matches_set() {
+        assertThat(LabelSelector.parse("job-type=taskmaster,creator-group-name in (TEST,OTHER),creator-user-id=test-user").matches(LABELS), is(true));
+        assertThat(LabelSelector.parse("creator-group-name in (OTHER, ANOTHER)").matches(LABELS), is(false));
+        assertThat(LabelSelector.parse("creator-group-name notin (OTHER)").matches(LABELS), is(true));
+        assertThat(LabelSelector.parse("job-name notin (OTHER)").matches(LABELS), is(true));
+        assertThat(LabelSelector.parse("job-type=taskmaster,creator-user-id=other").matches(LABELS), is(false));
+    }
+
+    @Test
+    public void matches_empty() {
+        assertThat(LabelSelector.parse(null).matches(LABELS), is(true));
+        assertThat(LabelSelector.parse("").matches(null), is(true));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void parse_unbalanced() {
+        LabelSelector.parse("creator-group-name in (TEST");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void parse_unknownOperator() {
+        LabelSelector.parse("creator-group-name within (TEST)");
+    }
+}
@@ -0,0 +1,140 @@
+package uk.ac.ebi.tsc.tesk.k8s.cache;
+
+import com.squareup.okhttp.Call;
+import io.kubernetes.client.models.*;
+import io.kubernetes.client.util.Watch;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+
+public class ResourceInformerTest {
+
+    private TestInformer informer;
+
+    private List<V1Job> listResult;
+
+    @Before
+    public void setUp() {
+        this.informer = new TestInformer();
+        this.listResult = new ArrayList<>();
+    }
+
+    @Test
+    public void relist_replacesContent() throws Exception {
+        this.informer.put(job("old", "5"));
+        this.listResult.addAll(Arrays.asList(job("a", "8"), job("b", "9")));
+        this.informer.relist();
+        assertThat(this.informer.hasSynced(), is(true));
+        assertThat(this.informer.get("old").isPresent(), is(false));
+        assertThat(this.informer.list(LabelSelector.EVERYTHING), hasSize(2));
+    }
+
+    @Test
+    public void relist_keepsNewerWrittenThrough() throws Exception {
+        this.informer.put(job("new", "20"));
+        this.listResult.add(job("a", "8"));
+        this.informer.relist();
+        assertThat(this.informer.get("new").isPresent(), is(true));
+    }
+
+    @Test
+    public void handle_ignoresOlderEvents() {
+        V1Job patched = job("a", "12");
+        this.informer.put(patched);
+        this.informer.handle(event("MODIFIED", job("a", "11")));
+        assertThat(this.informer.get("a").get(), is(sameInstance(patched)));
+        V1Job modified = job("a", "13");
+        this.informer.handle(event("MODIFIED", modified));
+        assertThat(this.informer.get("a").get(), is(sameInstance(modified)));
+        this.informer.handle(event("DELETED", job("a", "14")));
+        assertThat(this.informer.get("a").isPresent(), is(false));
+    }
+
+    @Test
+    public void handle_notifiesListeners() {
+        List<String> changes = new ArrayList<>();
+        this.informer.addListener((oldJob, newJob) -> changes.add((oldJob == null ? "-" : oldJob.getMetadata().getResourceVersion())
+                + ">" + (newJob == null ? "-" : newJob.getMetadata().getResourceVersion())));
+        this.informer.handle(event("ADDED", job("a", "1")));
+        this.informer.handle(event("MODIFIED", job("a", "2")));
+        this.informer.handle(event("MODIFIED", job("a", "2")));
+        this.informer.handle(event("DELETED", job("a", "3")));
+        assertThat(changes, contains("->1", "1>2", "2>-"));
+    }
+
+    @Test
+    public void handle_error() {
+        assertThat(this.informer.handle(event("ERROR", new V1Job())), is(false));
+    }
+
+    @Test
+    public void list_bySelector() {
+        V1Job taskmaster = job("a", "1");
+        taskmaster.getMetadata().putLabelsItem("job-type", "taskmaster");
+        this.informer.put(taskmaster);
+        this.informer.put(job("b", "2"));
+        assertThat(this.informer.list(LabelSelector.parse("job-type=taskmaster")), hasSize(1));
+        assertThat(this.informer.list(LabelSelector.parse("!job-type")), hasSize(1));
+    }
+
+    private static V1Job job(String name, String resourceVersion) {
+        return new V1Job().metadata(new V1ObjectMeta().name(name).resourceVersion(resourceVersion));
+    }
+
+    private static Watch.Response<V1Job> event(String type, V1Job job) {
+        try {
+            Constructor<Watch.Response> constructor = Watch.Response.class.getDeclaredConstructor(String.class, Object.class);
+            constructor.setAccessible(true);
+            @SuppressWarnings("unchecked")
+            Watch.Response<V1Job> response = constructor.newInstance(type, job);
+            return response;
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private class TestInformer extends ResourceInformer<V1Job, V1JobList> {
+
+        TestInformer() {
+            super("test", null, new KubernetesCacheProperties());
+        }
+
+        @Override
+        protected V1JobList list(String _continue, int limit) {
+            return new V1JobList().items(listResult).metadata(new V1ListMeta().resourceVersion("10"));
+        }
+
+        @Override
+        protected List<V1Job> getItems(V1JobList list) {
+            return list.getItems();
+        }
+
+        @Override
+        protected V1ListMeta getListMetadata(V1JobList list) {
+            return list.getMetadata();
+        }
+
+        @Override
+        protected Call watchCall(String resourceVersion, int timeoutSeconds) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        protected Type watchType() {
+            return V1Job.class;
+        }
+
+        @Override
+        protected V1ObjectMeta getMetadata(V1Job object) {
+            return object.getMetadata();
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package uk.ac.ebi.tsc.tesk.k8s.cache;
+
+import io.kubernetes.client.models.V1Job;
+import io.kubernetes.client.models.V1ObjectMeta;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+public class TaskNameIndexTest {
+
+    @Test
+    public void findJobNames() {
+        TaskNameIndex index = new TaskNameIndex();
+        index.accept(null, taskmaster("task-3", "hello-b"));
+        index.accept(null, taskmaster("task-1", "hello-a"));
+        index.accept(null, taskmaster("task-2", "hello"));
+        index.accept(null, taskmaster("task-4", "hellO"));
+        index.accept(null, taskmaster("task-5", "bye"));
+        index.accept(null, taskmaster("task-6", "hello-a"));
+        assertThat(index.findJobNames("hello"), is(Arrays.asList("task-2", "task-1", "task-6", "task-3")));
+        assertThat(index.findJobNames("hello-a"), is(Arrays.asList("task-1", "task-6")));
+        assertThat(index.findJobNames("b"), is(Collections.singletonList("task-5")));
+        assertThat(index.findJobNames("x"), is(empty()));
+        assertThat(index.findJobNames("").size(), is(6));
+    }
+
+    @Test
+    public void accept_updateAndDelete() {
+        TaskNameIndex index = new TaskNameIndex();
+        V1Job job = taskmaster("task-1", "hello");
+        index.accept(null, job);
+        V1Job modified = taskmaster("task-1", "hello");
+        index.accept(job, modified);
+        assertThat(index.size(), is(1));
+        V1Job renamed = taskmaster("task-1", "bye");
+        index.accept(modified, renamed);
+        assertThat(index.findJobNames("hello"), is(empty()));
+        assertThat(index.findJobNames("bye"), is(Collections.singletonList("task-1")));
+        index.accept(renamed, null);
+        assertThat(index.size(), is(0));
+    }
+
+    @Test
+    public void accept_notTaskmaster() {
+        TaskNameIndex index = new TaskNameIndex();
+        index.accept(null, new V1Job().metadata(new V1ObjectMeta().name("task-1-ex-00").putLabelsItem("job-type", "executor")
+                .putAnnotationsItem("tes-task-name", "hello")));
+        index.accept(null, new V1Job().metadata(new V1ObjectMeta().name("task-2").putLabelsItem("job-type", "taskmaster")));
+        index.accept(null, new V1Job().metadata(new V1ObjectMeta().name("task-1-outputs-filer")));
+        assertThat(index.size(), is(0));
+    }
+
+    private static V1Job taskmaster(String name, String taskName) {
+        return new V1Job().metadata(new V1ObjectMeta().name(name).putLabelsItem("job-type", "taskmaster")
+                .putAnnotationsItem("tes-task-name", taskName));
+    }
+}
@@ -0,0 +1,64 @@
+package uk.ac.ebi.tsc.tesk.k8s.cache;
+
+import io.kubernetes.client.models.V1Job;
+import io.kubernetes.client.models.V1ObjectMeta;
+import io.kubernetes.client.models.V1Pod;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static uk.ac.ebi.tsc.tesk.k8s.constant.Constants.*;
+
+public class TaskObjectsIndexTest {
+
+    private static V1Job taskmaster(String name) {
+        return new V1Job().metadata(new V1ObjectMeta().name(name).putLabelsItem(LABEL_JOBTYPE_KEY, LABEL_JOBTYPE_VALUE_TASKM));
+    }
+
+    private static V1Job executor(String taskId, String name) {
+        return new V1Job().metadata(new V1ObjectMeta().name(name)
+                .putLabelsItem(LABEL_JOBTYPE_KEY, LABEL_JOBTYPE_VALUE_EXEC).putLabelsItem(LABEL_TESTASK_ID_KEY, taskId));
+    }
+
+    @Test
+    public void findNames() {
+        TaskObjectsIndex<V1Job> index = new TaskObjectsIndex<>(V1Job::getMetadata, TaskObjectsIndex::taskIdOfJob);
+        index.accept(null, taskmaster("task-1"));
+        index.accept(null, executor("task-1", "task-1-ex-00"));
+        index.accept(null, new V1Job().metadata(new V1ObjectMeta().name("task-1" + JOB_NAME_FILER_SUF)));
+        index.accept(null, taskmaster("task-2"));
+        assertThat(index.findNames("task-1"), is(new HashSet<>(Arrays.asList("task-1", "task-1-ex-00", "task-1-outputs-filer"))));
+        assertThat(index.findNames("task-2"), is(new HashSet<>(Arrays.asList("task-2"))));
+        assertThat(index.findNames("task-3"), is(empty()));
+    }
+
+    @Test
+    public void accept_updateAndDelete() {
+        TaskObjectsIndex<V1Job> index = new TaskObjectsIndex<>(V1Job::getMetadata, TaskObjectsIndex::taskIdOfJob);
+        V1Job executor = executor("task-1", "task-1-ex-00");
+        index.accept(null, executor);
+        V1Job modified = executor("task-1", "task-1-ex-00");
+        index.accept(executor, modified);
+        assertThat(index.findNames("task-1"), is(new HashSet<>(Arrays.asList("task-1-ex-00"))));
+        index.accept(modified, null);
+        assertThat(index.findNames("task-1"), is(empty()));
+        assertThat(index.size(), is(0));
+    }
+
+    @Test
+    public void taskIds() {
+        V1Job filer = new V1Job().metadata(new V1ObjectMeta().name("task-1" + JOB_NAME_FILER_SUF));
+        assertThat(TaskObjectsIndex.taskIdOfJob(taskmaster("task-1")), is("task-1"));
+        assertThat(TaskObjectsIndex.taskIdOfJob(executor("task-1", "task-1-ex-00")), is("task-1"));
+        assertThat(TaskObjectsIndex.taskIdOfJob(filer), is("task-1"));
+        assertThat(TaskObjectsIndex.taskIdOfPod(new V1Pod().metadata(new V1ObjectMeta().putLabelsItem(LABEL_TESTASK_ID_KEY, "task-1"))), is("task-1"));
+        assertThat(TaskObjectsIndex.taskIdOfPod(new V1Pod().metadata(new V1ObjectMeta().putLabelsItem("job-name", "task-1-ex-01"))), is("task-1"));
+        assertThat(TaskObjectsIndex.taskIdOfPod(new V1Pod().metadata(new V1ObjectMeta().putLabelsItem("job-name", "task-1"))), is("task-1"));
+        assertThat(TaskObjectsIndex.taskIdOfPod(new V1Pod().metadata(new V1ObjectMeta())), is(nullValue()));
+    }
+}
@@ -0,0 +1,70 @@
+package uk.ac.ebi.tsc.tesk.k8s.convert;
+
+import com.google.gson.Gson;
+import io.kubernetes.client.JSON;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * @author Ania Niewielska <aniewielska@ebi.ac.uk>
+ * <p>
+ * Not a test - to be run manually (main method). Compares the cost of creating new taskmaster's job object
+ * under sustained load of concurrent submissions, when the template is:
+ * - built for every job (reading and parsing taskmaster.json and applying configuration - as before),
+ * - built once and copied for every job.
+ */
+public class KubernetesObjectsSupplierBenchmark {
+
+    private static final int THREADS = 4;
+
+    private static final long WARMUP_MILLIS = 5000;
+
+    private static final long MEASURE_MILLIS = 10000;
+
+    public static void main(String[] args) throws Exception {
+        Gson gson = new JSON().getGson();
+        JobNameGenerator jobNameGenerator = new JobNameGenerator();
+        TaskmasterEnvProperties properties = new TaskmasterEnvProperties();
+        properties.setImageName("eu.gcr.io/tes-wes/taskmaster");
+        properties.setImageVersion("v0.10.0");
+        properties.setFilerImageName("eu.gcr.io/tes-wes/filer");
+        properties.setFilerImageVersion("v0.10.0");
+        properties.setServiceAccountName("default");
+        properties.getEnvironment().put("some.var", "value");
+        KubernetesObjectsSupplier shared = new KubernetesObjectsSupplier(gson, jobNameGenerator, properties, "default");
+
+        run("built for every job", () -> new KubernetesObjectsSupplier(gson, jobNameGenerator, properties, "default").taskMasterTemplate());
+        run("built once, copied ", shared::taskMasterTemplate);
+    }
+
+    private static void run(String name, Supplier<?> creation) throws Exception {
+        measure(creation, WARMUP_MILLIS);
+        long created = measure(creation, MEASURE_MILLIS);
+        System.out.printf("%s: %,d jobs/s, %.1f us per job%n", name, created * 1000 / MEASURE_MILLIS,
+                (double) MEASURE_MILLIS * 1000 * THREADS / created);
+    }
+
+    private static long measure(Supplier<?> creation, long millis) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        LongAdder created = new LongAdder();
+        long end = System.currentTimeMillis() + millis;
+        List<Future<?>> workers = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            workers.add(executor.submit(() -> {
+                while (System.currentTimeMillis() < end) {
+                    creation.get();
+                    created.increment();
+                }
+            }));
+        }
+        for (Future<?> worker : workers) {
+            worker.get();
+        }
+        executor.shutdown();
+        return created.sum();
+    }
+}
@@ -0,0 +1,62 @@
+package uk.ac.ebi.tsc.tesk.k8s.convert;
+
+import io.kubernetes.client.JSON;
+import io.kubernetes.client.models.V1Container;
+import io.kubernetes.client.models.V1EnvVar;
+import io.kubernetes.client.models.V1Job;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.stream.Collectors;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+
+public class KubernetesObjectsSupplierTest {
+
+    private KubernetesObjectsSupplier supplier;
+
+    @Before
+    public void setUp() {
+        JobNameGenerator jobNameGenerator = mock(JobNameGenerator.class);
+        given(jobNameGenerator.getTaskMasterName()).willReturn("task-1", "task-2");
+        TaskmasterEnvProperties properties = new TaskmasterEnvProperties();
+        properties.setImageName("taskmaster");
+        properties.setImageVersion("v1");
+        properties.setFilerImageName("filer");
+        properties.setFilerImageVersion("v2");
+        properties.setServiceAccountName("tesk");
+        properties.getEnvironment().put("some.var", "value");
+        this.supplier = new KubernetesObjectsSupplier(new JSON().getGson(), jobNameGenerator, properties, "test-namespace");
+    }
+
+    @Test
+    public void taskMasterTemplate() {
+        V1Job job = this.supplier.taskMasterTemplate();
+        V1Container container = job.getSpec().getTemplate().getSpec().getContainers().get(0);
+        assertThat(job.getMetadata().getName(), is("task-1"));
+        assertThat(job.getMetadata().getLabels(), hasEntry("job-type", "taskmaster"));
+        assertThat(job.getSpec().getTemplate().getMetadata().getLabels(), hasEntry("taskmaster-name", "task-1"));
+        assertThat(job.getSpec().getTemplate().getSpec().getServiceAccountName(), is("tesk"));
+        assertThat(container.getName(), is("task-1"));
+        assertThat(container.getImage(), is("taskmaster:v1"));
+        assertThat(container.getArgs(), contains("$(JSON_INPUT)", "-n", "test-namespace", "-fn", "filer", "-fv", "v2"));
+        assertThat(container.getEnv().stream().map(V1EnvVar::getName).collect(Collectors.toList()), contains("JSON_INPUT", "SOME_VAR"));
+    }
+
+    @Test
+    public void taskMasterTemplate_independentCopies() {
+        V1Job first = this.supplier.taskMasterTemplate();
+        first.getSpec().getTemplate().getSpec().getContainers().get(0).getEnv().get(0).setValue("{}");
+        first.getMetadata().putLabelsItem("creator-user-id", "123");
+        V1Job second = this.supplier.taskMasterTemplate();
+        assertThat(second.getMetadata().getName(), is("task-2"));
+        assertThat(second.getSpec().getTemplate().getMetadata().getLabels(), hasEntry("taskmaster-name", "task-2"));
+        assertThat(second.getMetadata().getLabels(), not(hasKey("creator-user-id")));
+        assertThat(second.getSpec().getTemplate().getSpec().getContainers().get(0).getEnv().get(0).getValue(), is(""));
+        assertThat(first.getSpec().getTemplate().getMetadata().getLabels(), hasEntry("taskmaster-name", "task-1"));
+    }
+
+}
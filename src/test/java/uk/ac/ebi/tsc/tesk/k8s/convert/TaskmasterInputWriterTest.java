@@ -0,0 +1,86 @@
+package uk.ac.ebi.tsc.tesk.k8s.convert;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.gson.Gson;
+import io.kubernetes.client.JSON;
+import io.kubernetes.client.models.V1Job;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import uk.ac.ebi.tsc.tesk.TestUtils;
+import uk.ac.ebi.tsc.tesk.tes.model.TesInput;
+import uk.ac.ebi.tsc.tesk.tes.model.TesResources;
+import uk.ac.ebi.tsc.tesk.tes.model.TesTask;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static uk.ac.ebi.tsc.tesk.k8s.constant.Constants.TASKMASTER_INPUT_EXEC_KEY;
+
+public class TaskmasterInputWriterTest {
+
+    private ObjectMapper objectMapper;
+
+    private Gson gson;
+
+    private TaskmasterInputWriter writer;
+
+    @Before
+    public void setUp() {
+        this.objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        this.gson = new JSON().getGson();
+        this.writer = new TaskmasterInputWriter(this.objectMapper, this.gson);
+    }
+
+    /**
+     * Former conversion: Jackson -> JSON -> Gson Map -> (+ executors) -> JSON
+     */
+    @SuppressWarnings("unchecked")
+    private String legacyWrite(TesTask task, List<V1Job> executors) throws IOException {
+        String jobAsJson = this.objectMapper.writeValueAsString(new TesTask().inputs(task.getInputs()).outputs(task.getOutputs())
+                .volumes(task.getVolumes()).resources(new TesResources().diskGb(task.getResources().getDiskGb())));
+        Map<String, Object> taskMasterInput = new HashMap<>(this.gson.fromJson(jobAsJson, Map.class));
+        taskMasterInput.put(TASKMASTER_INPUT_EXEC_KEY, executors);
+        return this.gson.toJson(taskMasterInput);
+    }
+
+    private String write(TesTask task, List<V1Job> executors) throws IOException {
+        return this.writer.write(task.getInputs(), task.getOutputs(), task.getVolumes(), task.getResources().getDiskGb(), executors);
+    }
+
+    private List<V1Job> executors() throws IOException {
+        V1Job executor = this.gson.fromJson(TestUtils.getFileContentFromResources("fromK8sToTes/executor.json"), V1Job.class);
+        return Arrays.asList(executor, executor);
+    }
+
+    @Test
+    public void sameAsLegacy() throws IOException {
+        TesTask task = this.objectMapper.readValue(TestUtils.getFileContentFromResources("fromTesToK8s/task.json"), TesTask.class);
+        assertThat(write(task, executors()), is(legacyWrite(task, executors())));
+    }
+
+    @Test
+    public void sameAsLegacy_specialCharacters() throws IOException {
+        TesTask task = new TesTask()
+                .inputs(Collections.singletonList(new TesInput().path("/in/a=b.txt").content("x = '<a href=\"&\">' é中\n\t\\  ")))
+                .outputs(new ArrayList<>()).volumes(Arrays.asList("/tmp", "/tmp/<b>"))
+                .resources(new TesResources().diskGb(0.1));
+        assertThat(write(task, Collections.emptyList()), is(legacyWrite(task, Collections.emptyList())));
+    }
+
+    @Test
+    public void emptyTask() throws IOException {
+        TesTask task = new TesTask().inputs(new ArrayList<>()).outputs(new ArrayList<>()).volumes(new ArrayList<>())
+                .resources(new TesResources().diskGb(10.0));
+        assertThat(write(task, Collections.emptyList()),
+                is("{\"outputs\":[],\"inputs\":[],\"volumes\":[],\"resources\":{\"disk_gb\":10.0},\"executors\":[]}"));
+        assertThat(write(task, Collections.emptyList()), is(legacyWrite(task, Collections.emptyList())));
+    }
+}
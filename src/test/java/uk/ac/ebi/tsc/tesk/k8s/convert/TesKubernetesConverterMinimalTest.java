@@ -92,7 +92,7 @@ public class TesKubernetesConverterMinimalTest {
         trsToolClient = mock(TrsToolClient.class);
         when(trsToolClient.getDockerImageForToolVersionURI(anyString())).then(returnsFirstArg());
         this.converter = new TesKubernetesConverter(executorTemplateSupplier, taskmasterTemplateSupplier,
-                objectMapper, gson, trsToolClient);
+                objectMapper, gson, trsToolClient, 1000000, 0, 0);
     }
 
     @Test
@@ -2,10 +2,16 @@ package uk.ac.ebi.tsc.tesk.k8s.convert;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+import io.kubernetes.client.models.V1ConfigMap;
 import io.kubernetes.client.models.V1Job;
 import io.kubernetes.client.models.V1JobStatus;
 import io.kubernetes.client.models.V1ObjectMeta;
 import io.kubernetes.client.models.V1PodList;
+import io.kubernetes.client.models.V1Secret;
+import io.kubernetes.client.models.V1Container;
+import io.kubernetes.client.models.V1EnvVar;
+import io.kubernetes.client.models.V1VolumeMount;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -28,24 +34,37 @@ import uk.ac.ebi.tsc.tesk.config.GsonConfig;
 import uk.ac.ebi.tsc.tesk.config.security.User;
 import uk.ac.ebi.tsc.tesk.k8s.constant.Constants;
 import uk.ac.ebi.tsc.tesk.k8s.convert.data.TaskBuilder;
+import uk.ac.ebi.tsc.tesk.tes.model.TaskFields;
+import uk.ac.ebi.tsc.tesk.tes.model.TesInput;
 import uk.ac.ebi.tsc.tesk.tes.model.TesState;
 import uk.ac.ebi.tsc.tesk.tes.model.TesTask;
 import uk.ac.ebi.tsc.tesk.trs.TrsToolClient;
 
 import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPInputStream;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.function.Supplier;
 
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.hasItem;
 import static org.hamcrest.Matchers.isEmptyOrNullString;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertThat;
 import static org.mockito.AdditionalAnswers.returnsFirstArg;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.BDDMockito.given;
-import static org.mockito.Mockito.mock;
-import static org.mockito.Mockito.when;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
 import static uk.ac.ebi.tsc.tesk.k8s.constant.Constants.LABEL_TASKSTATE_KEY;
 import static uk.ac.ebi.tsc.tesk.k8s.constant.Constants.LABEL_TASKSTATE_VALUE_CANC;
 
@@ -104,7 +123,7 @@ public class TesKubernetesConverterTest {
         trsToolClient = mock(TrsToolClient.class);
         when(trsToolClient.getDockerImageForToolVersionURI(anyString())).then(returnsFirstArg());
         this.converter = new TesKubernetesConverter(executorTemplateSupplier, taskmasterTemplateSupplier,
-                objectMapper, gson, trsToolClient);
+                objectMapper, gson, trsToolClient, 1000000, 0, 0);
     }
 
     @Test
@@ -160,6 +179,7 @@ public class TesKubernetesConverterTest {
         taskMasterInputJson.extractingJsonPathArrayValue("executors[*].metadata.labels['job-type']").containsOnly("executor").hasSize(2);
         taskMasterInputJson.extractingJsonPathArrayValue("executors[*].metadata.labels['taskmaster-name']").containsOnly("task-35605447").hasSize(2);
         taskMasterInputJson.extractingJsonPathArrayValue("executors[*].metadata.labels['creator-user-id']").containsOnly("test-user-id").hasSize(2);
+        taskMasterInputJson.extractingJsonPathArrayValue("executors[*].spec.template.metadata.labels['taskmaster-name']").containsOnly("task-35605447").hasSize(2);
 
         taskMasterInputJson.extractingJsonPathStringValue("executors[0].metadata.name").isEqualTo("task-35605447-ex-00");
         taskMasterInputJson.extractingJsonPathStringValue("executors[0].spec.template.metadata.name").isEqualTo("task-35605447-ex-00");
@@ -200,6 +220,159 @@ public class TesKubernetesConverterTest {
         assertEquals(expectedJob, outputJob);
     }
 
+    @Test
+    public void fromTesTaskToK8sJob_callback() throws IOException {
+        given(this.jobNameGenerator.getTaskMasterName()).willReturn("task-35605447");
+        TesTask inputTask = this.objectMapper.readValue(TestUtils.getFileContentFromResources("fromTesToK8s/task.json"), TesTask.class);
+        inputTask.putTagsItem("CALLBACK_URL", "https://example.org/hooks");
+        V1Job outputJob = this.converter.fromTesTaskToK8sJob(inputTask, User.builder("test-user-id").build());
+        assertEquals(outputJob.getMetadata().getAnnotations().get("callback-url"), "https://example.org/hooks");
+        assertEquals(outputJob.getMetadata().getAnnotations().get("callback-events"), "TERMINAL");
+    }
+
+    @Test
+    public void fromTesTaskToK8sJob_imagesResolvedAtOnce() throws IOException {
+        given(this.jobNameGenerator.getTaskMasterName()).willReturn("task-35605447");
+        given(this.trsToolClient.resolveDockerImages(Arrays.asList("ubuntu", "alpine")))
+                .willReturn(Collections.singletonMap("ubuntu", "ubuntu:22.04"));
+        TesTask inputTask = this.objectMapper.readValue(TestUtils.getFileContentFromResources("fromTesToK8s/task.json"), TesTask.class);
+        V1Job outputJob = this.converter.fromTesTaskToK8sJob(inputTask, User.builder("test-user-id").build());
+        JsonContentAssert taskMasterInputJson = new JsonContentAssert(this.getClass(), outputJob.getSpec().getTemplate().getSpec().
+                getContainers().get(0).getEnv().stream().filter(env -> env.getName().equals("JSON_INPUT")).findAny().get().getValue());
+        taskMasterInputJson.extractingJsonPathStringValue("executors[0].spec.template.spec.containers[0].image").isEqualTo("ubuntu:22.04");
+        //not resolved - original value kept
+        taskMasterInputJson.extractingJsonPathStringValue("executors[1].spec.template.spec.containers[0].image").isEqualTo("alpine");
+        verify(this.trsToolClient, never()).getDockerImageForToolVersionURI(anyString());
+    }
+
+    private TesTask readFullTask() throws IOException {
+        return this.objectMapper.readValue(TestUtils.getFileContentFromResources("fromTesToK8s/task.json"), TesTask.class);
+    }
+
+    @Test
+    public void fromTaskMasterJobToInputSecret_belowThreshold() throws IOException {
+        given(this.jobNameGenerator.getTaskMasterName()).willReturn("task-35605447");
+        TesTask inputTask = this.readFullTask();
+        V1Job outputJob = this.converter.fromTesTaskToK8sJob(inputTask, User.builder("test-user-id").build());
+        assertThat(this.converter.fromTaskMasterJobToInputSecret(outputJob, inputTask).isPresent(), is(false));
+        TesKubernetesConverter withThreshold = new TesKubernetesConverter(executorTemplateSupplier, taskmasterTemplateSupplier,
+                objectMapper, gson, trsToolClient, 1000000, 100000, 0);
+        assertThat(withThreshold.fromTaskMasterJobToInputSecret(outputJob, inputTask).isPresent(), is(false));
+        assertThat(outputJob.getMetadata().getAnnotations().containsKey("json-input-secret"), is(false));
+        assertThat(outputJob.getSpec().getTemplate().getSpec().getContainers().get(0).getArgs().get(0), is("$(JSON_INPUT)"));
+    }
+
+    @Test
+    public void fromTaskMasterJobToInputSecret() throws IOException {
+        given(this.jobNameGenerator.getTaskMasterName()).willReturn("task-35605447");
+        TesKubernetesConverter withThreshold = new TesKubernetesConverter(executorTemplateSupplier, taskmasterTemplateSupplier,
+                objectMapper, gson, trsToolClient, 1000000, 1, 0);
+        TesTask inputTask = this.readFullTask();
+        V1Job outputJob = withThreshold.fromTesTaskToK8sJob(inputTask, User.builder("test-user-id").build());
+        V1Container container = outputJob.getSpec().getTemplate().getSpec().getContainers().get(0);
+        String taskMasterInput = container.getEnv().stream().filter(env -> env.getName().equals("JSON_INPUT")).findAny().get().getValue();
+
+        V1Secret secret = withThreshold.fromTaskMasterJobToInputSecret(outputJob, inputTask).get();
+
+        assertThat(secret.getMetadata().getName(), is("task-35605447"));
+        assertThat(secret.getMetadata().getLabels().get("taskmaster-name"), is("task-35605447"));
+        assertThat(secret.getMetadata().getLabels().get("creator-user-id"), is("test-user-id"));
+        try (Reader reader = new InputStreamReader(new GZIPInputStream(new ByteArrayInputStream(secret.getData().get("JSON_INPUT.gz"))), StandardCharsets.UTF_8)) {
+            assertThat(new BufferedReader(reader).lines().collect(Collectors.joining("\n")), is(taskMasterInput));
+        }
+        assertThat(container.getEnv().stream().map(V1EnvVar::getName).collect(Collectors.toList()), not(hasItem("JSON_INPUT")));
+        assertThat(container.getArgs().subList(0, 3), contains("-f", "/jsoninput/JSON_INPUT.gz", "-n"));
+        assertThat(container.getVolumeMounts().stream().filter(mount -> mount.getName().equals("jsoninput")).findAny().get().getMountPath(), is("/jsoninput"));
+        assertThat(outputJob.getSpec().getTemplate().getSpec().getVolumes().stream().filter(volume -> volume.getName().equals("jsoninput"))
+                .findAny().get().getSecret().getSecretName(), is("task-35605447"));
+        assertThat(outputJob.getMetadata().getAnnotations().get("json-input-secret"), is("task-35605447"));
+        assertThat(outputJob.getMetadata().getAnnotations().get("json-input"), not(containsString("aaabbbcccddd")));
+        assertThat(withThreshold.getInputSecretName(outputJob).get(), is("task-35605447"));
+
+        //contents restored from the secret
+        TesTask taskWithoutContents = this.objectMapper.readValue(outputJob.getMetadata().getAnnotations().get("json-input"), TesTask.class);
+        assertThat(taskWithoutContents.getInputs().get(2).getContent(), is(nullValue()));
+        withThreshold.restoreInputContents(taskWithoutContents, secret);
+        assertEquals(inputTask.getInputs(), taskWithoutContents.getInputs());
+    }
+
+    @Test
+    public void fromTesTaskToInputsConfigMap_notOnlyInline() throws IOException {
+        given(this.jobNameGenerator.getTaskMasterName()).willReturn("task-35605447");
+        TesKubernetesConverter withInlineInputs = new TesKubernetesConverter(executorTemplateSupplier, taskmasterTemplateSupplier,
+                objectMapper, gson, trsToolClient, 1000000, 0, 100000);
+        TesTask inputTask = this.readFullTask();
+        V1Job outputJob = withInlineInputs.fromTesTaskToK8sJob(inputTask, User.builder("test-user-id").build());
+        assertThat(withInlineInputs.fromTesTaskToInputsConfigMap(outputJob, inputTask).isPresent(), is(false));
+        assertThat(this.converter.fromTesTaskToInputsConfigMap(outputJob, inputTask).isPresent(), is(false));
+    }
+
+    @Test
+    public void fromTesTaskToInputsConfigMap() throws IOException {
+        given(this.jobNameGenerator.getTaskMasterName()).willReturn("task-35605447");
+        TesKubernetesConverter withInlineInputs = new TesKubernetesConverter(executorTemplateSupplier, taskmasterTemplateSupplier,
+                objectMapper, gson, trsToolClient, 1000000, 0, 10);
+        TesTask inputTask = this.readFullTask();
+        inputTask.setInputs(Arrays.asList(new TesInput().path("/in/a.txt").content("aaaa"), new TesInput().path("/in/b.txt").content("bbbbbb")));
+        V1Job outputJob = withInlineInputs.fromTesTaskToK8sJob(inputTask, User.builder("test-user-id").build());
+
+        V1ConfigMap configMap = withInlineInputs.fromTesTaskToInputsConfigMap(outputJob, inputTask).get();
+
+        assertThat(configMap.getMetadata().getName(), is("task-35605447-inputs"));
+        assertThat(configMap.getMetadata().getLabels().get("taskmaster-name"), is("task-35605447"));
+        assertThat(configMap.getMetadata().getLabels().get("creator-user-id"), is("test-user-id"));
+        assertThat(configMap.getData().get("input-0"), is("aaaa"));
+        assertThat(configMap.getData().get("input-1"), is("bbbbbb"));
+        String taskMasterInput = outputJob.getSpec().getTemplate().getSpec().getContainers().get(0).getEnv().stream()
+                .filter(env -> env.getName().equals("JSON_INPUT")).findAny().get().getValue();
+        Map<?, ?> taskMasterInputMap = this.gson.fromJson(taskMasterInput, Map.class);
+        assertThat((List<?>) taskMasterInputMap.get("inputs"), is(Collections.emptyList()));
+        List<V1Job> executors = this.gson.fromJson(this.gson.toJson(taskMasterInputMap.get("executors")), new TypeToken<List<V1Job>>() {
+        }.getType());
+        for (V1Job executor : executors) {
+            assertThat(executor.getSpec().getTemplate().getSpec().getVolumes().stream().filter(volume -> volume.getName().equals("inline-inputs"))
+                    .findAny().get().getConfigMap().getName(), is("task-35605447-inputs"));
+            List<V1VolumeMount> mounts = executor.getSpec().getTemplate().getSpec().getContainers().get(0).getVolumeMounts().stream()
+                    .filter(mount -> mount.getName().equals("inline-inputs")).collect(Collectors.toList());
+            assertThat(mounts.stream().map(V1VolumeMount::getMountPath).collect(Collectors.toList()), contains("/in/a.txt", "/in/b.txt"));
+            assertThat(mounts.stream().map(V1VolumeMount::getSubPath).collect(Collectors.toList()), contains("input-0", "input-1"));
+        }
+        //annotation keeps the original inputs
+        TesTask annotatedTask = this.objectMapper.readValue(outputJob.getMetadata().getAnnotations().get("json-input"), TesTask.class);
+        assertEquals(inputTask.getInputs(), annotatedTask.getInputs());
+
+        //over the limit
+        inputTask.getInputs().get(1).setContent("bbbbbbb");
+        assertThat(withInlineInputs.fromTesTaskToInputsConfigMap(outputJob, inputTask).isPresent(), is(false));
+    }
+
+    @Test
+    public void fromTaskMasterJobToInputSecret_inlineInputs() throws IOException {
+        given(this.jobNameGenerator.getTaskMasterName()).willReturn("task-35605447");
+        TesKubernetesConverter withBoth = new TesKubernetesConverter(executorTemplateSupplier, taskmasterTemplateSupplier,
+                objectMapper, gson, trsToolClient, 1000000, 1, 10);
+        TesTask inputTask = this.readFullTask();
+        inputTask.setInputs(Arrays.asList(new TesInput().name("a").path("/in/a.txt").content("aaaa"), new TesInput().path("/in/b.txt").content("bbbbbb")));
+        V1Job outputJob = withBoth.fromTesTaskToK8sJob(inputTask, User.builder("test-user-id").build());
+        V1ConfigMap configMap = withBoth.fromTesTaskToInputsConfigMap(outputJob, inputTask).get();
+        V1Secret secret = withBoth.fromTaskMasterJobToInputSecret(outputJob, inputTask).get();
+
+        assertThat(withBoth.getInputSecretName(outputJob).get(), is("task-35605447"));
+        assertThat(withBoth.getInputsConfigMapName(outputJob).get(), is("task-35605447-inputs"));
+
+        //read back in FULL view
+        TaskBuilder taskBuilder = this.prepareBaseTaskBuider(false);
+        taskBuilder.getTask().getTaskmaster().getJob().setMetadata(outputJob.getMetadata());
+        TesTask task = withBoth.fromK8sJobsToTesTaskBasic(taskBuilder.getTask(), false);
+        assertThat(task.getInputs().get(0).getContent(), is(nullValue()));
+        //no inputs in the secret - inputs left as they are
+        withBoth.restoreInputContents(task, secret);
+        assertThat(task.getInputs().size(), is(2));
+        assertThat(task.getInputs().get(0).getPath(), is("/in/a.txt"));
+        withBoth.restoreInputContents(task, configMap);
+        assertEquals(inputTask.getInputs(), task.getInputs());
+    }
+
     private TaskBuilder prepareBaseTaskBuider(boolean withExecutor) throws IOException {
         TaskBuilder taskBuilder = TaskBuilder.newSingleTask();
         taskBuilder.addJob(this.gson.fromJson(TestUtils.getFileContentFromResources("fromK8sToTes/taskmaster.json"), V1Job.class));
@@ -227,6 +400,48 @@ public class TesKubernetesConverterTest {
         assertThat(outputTask, is(expectedTask));
     }
 
+    @Test
+    public void fromK8sToTask_requestParsedOnce() throws IOException {
+        ObjectMapper spiedMapper = spy(this.objectMapper);
+        TesKubernetesConverter converter = new TesKubernetesConverter(executorTemplateSupplier, taskmasterTemplateSupplier,
+                spiedMapper, gson, trsToolClient, 1000000, 0, 0);
+        TaskBuilder taskBuilder = this.prepareBaseTaskBuider();
+        V1ObjectMeta metadata = taskBuilder.getTask().getTaskmaster().getJob().getMetadata();
+        metadata.setUid("34a36c28-64b4-11e8-a06f-fa163ecf0042");
+        metadata.putAnnotationsItem(Constants.ANN_JSON_INPUT_KEY, this.objectMapper.writeValueAsString(
+                new TesTask().name("hello").addInputsItem(new TesInput().path("/tes/input").content("hello content"))));
+        TesTask full = converter.fromK8sJobsToTesTaskBasic(taskBuilder.getTask(), false);
+        TesTask basic = converter.fromK8sJobsToTesTaskBasic(taskBuilder.getTask(), true);
+        TesTask fullAgain = converter.fromK8sJobsToTesTaskBasic(taskBuilder.getTask(), false);
+        verify(spiedMapper, times(1)).readValue(anyString(), eq(TesTask.class));
+        assertThat(full.getInputs().get(0).getContent(), is("hello content"));
+        assertThat(basic.getInputs().get(0).getContent(), is(nullValue()));
+        assertThat(basic.getInputs().get(0).getPath(), is("/tes/input"));
+        assertThat(fullAgain, is(full));
+        assertThat(fullAgain.getLogs() == full.getLogs(), is(false));
+    }
+
+    @Test
+    public void fromK8sToTask_partial() throws IOException {
+        ObjectMapper spiedMapper = spy(this.objectMapper);
+        TesKubernetesConverter converter = new TesKubernetesConverter(executorTemplateSupplier, taskmasterTemplateSupplier,
+                spiedMapper, gson, trsToolClient, 1000000, 0, 0);
+        TaskBuilder taskBuilder = this.prepareBaseTaskBuider();
+        taskBuilder.getTask().getTaskmaster().getJob().getMetadata().setUid("34a36c28-64b4-11e8-a06f-fa163ecf0042");
+        TesTask expectedTask = this.prepareBaseExpectedTask();
+        TesTask listed = converter.fromK8sJobsToTesTaskPartial(taskBuilder.getTask(), TaskFields.fromString("id,state,creation_time"), true);
+        verify(spiedMapper, never()).readValue(anyString(), eq(TesTask.class));
+        assertThat(listed, is(new TesTask().id(expectedTask.getId()).state(expectedTask.getState()).creationTime(expectedTask.getCreationTime())));
+        TesTask single = converter.fromK8sJobsToTesTaskPartial(taskBuilder.getTask(), TaskFields.fromString("name,logs.end_time"), false);
+        verify(spiedMapper, times(1)).readValue(anyString(), eq(TesTask.class));
+        assertThat(single.getName(), is(expectedTask.getName()));
+        assertThat(single.getState(), is(nullValue()));
+        assertThat(single.getLogs().get(0).getEndTime(), is(expectedTask.getLogs().get(0).getEndTime()));
+        assertThat(single.getLogs().get(0).getStartTime(), is(nullValue()));
+        assertThat(single.getLogs().get(0).getLogs().isEmpty(), is(true));
+        assertThat(single.getLogs().get(0).getMetadata(), is(expectedTask.getLogs().get(0).getMetadata()));
+    }
+
     @Test
     public void fromK8sToTask_cancelled() throws IOException {
         TaskBuilder taskBuilder = this.prepareBaseTaskBuider();
@@ -103,6 +103,26 @@ public class TaskBuilderTest {
         assertThat(taskBuilder.getAllJobsByName().get("task_125").getPods(), containsInAnyOrder(matching1, matching2));
     }
 
+    @Test
+    public void addPodList_indexed() {
+        TaskBuilder taskBuilder = new TaskBuilder(buildStrategy);
+        V1Job job1 = new V1Job().metadata(new V1ObjectMeta().name("task_125").putLabelsItem("job-type", "executor")).spec(new V1JobSpec().selector(new V1LabelSelector().putMatchLabelsItem("controller-uid", "1")));
+        V1Job job2 = new V1Job().metadata(new V1ObjectMeta().name("task_126").putLabelsItem("job-type", "executor")).spec(new V1JobSpec().selector(new V1LabelSelector().putMatchLabelsItem("controller-uid", "2").putMatchLabelsItem("A", "1")));
+        V1Job job3 = new V1Job().metadata(new V1ObjectMeta().name("task_127").putLabelsItem("job-type", "executor")).spec(new V1JobSpec().selector(new V1LabelSelector().putMatchLabelsItem("job-name", "task_127")));
+        V1Job noSelector = new V1Job().metadata(new V1ObjectMeta().name("task_128").putLabelsItem("job-type", "executor"));
+        V1Pod pod1 = new V1Pod().metadata(new V1ObjectMeta().putLabelsItem("controller-uid", "1").putLabelsItem("job-name", "task_125"));
+        V1Pod pod2 = new V1Pod().metadata(new V1ObjectMeta().putLabelsItem("controller-uid", "2").putLabelsItem("A", "1"));
+        V1Pod pod2Unmatching = new V1Pod().metadata(new V1ObjectMeta().putLabelsItem("controller-uid", "2"));
+        V1Pod pod3 = new V1Pod().metadata(new V1ObjectMeta().putLabelsItem("controller-uid", "3").putLabelsItem("job-name", "task_127"));
+        V1Pod noLabels = new V1Pod().metadata(new V1ObjectMeta());
+        taskBuilder.addJobList(Lists.newArrayList(job1, job2, job3, noSelector));
+        taskBuilder.addPodList(Lists.newArrayList(pod1, pod2, pod2Unmatching, pod3, noLabels));
+        assertThat(taskBuilder.getAllJobsByName().get("task_125").getPods(), contains(pod1));
+        assertThat(taskBuilder.getAllJobsByName().get("task_126").getPods(), contains(pod2));
+        assertThat(taskBuilder.getAllJobsByName().get("task_127").getPods(), contains(pod3));
+        assertThat(taskBuilder.getAllJobsByName().get("task_128").hasPods(), is(false));
+    }
+
     @Test
     public void getTask() {
         given(buildStrategy.getTask()).willReturn(new Task("123"));
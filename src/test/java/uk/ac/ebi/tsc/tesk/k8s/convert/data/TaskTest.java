@@ -7,9 +7,11 @@ import org.junit.Test;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Collectors;
 
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.collection.IsEmptyCollection.empty;
+import static org.hamcrest.collection.IsIterableContainingInOrder.contains;
 import static org.junit.Assert.assertThat;
 
 public class TaskTest {
@@ -36,6 +38,27 @@ public class TaskTest {
         assertThat(executors.get(3).getJobName(), is("123-ex-115"));
     }
 
+    @Test
+    public void getExecutors_duplicatesAndUnknown() {
+        Task task = new Task("123");
+        for (Job exec : prepareExecutors()) {
+            task.addExecutor(exec);
+        }
+        task.addExecutor(new Job(new V1Job().metadata(new V1ObjectMeta().name("123-ex-02"))));
+        task.addExecutor(new Job(new V1Job().metadata(new V1ObjectMeta().name("other"))));
+        task.addExecutor(new Job(new V1Job().metadata(new V1ObjectMeta().name("123-ex-00"))));
+        List<Job> executors = task.getExecutors();
+        assertThat(executors.stream().map(Job::getJobName).collect(Collectors.toList()),
+                contains("123-ex-00", "123-ex-01", "123-ex-02", "123-ex-12", "123-ex-115", "other"));
+        assertThat(task.getLastExecutor().get().getJobName(), is("other"));
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void getExecutors_unmodifiable() {
+        Task task = new Task("123");
+        task.getExecutors().add(new Job(new V1Job().metadata(new V1ObjectMeta().name("123-ex-00"))));
+    }
+
     @Test
     public void getExecutors_no() {
         Task task = new Task("123");
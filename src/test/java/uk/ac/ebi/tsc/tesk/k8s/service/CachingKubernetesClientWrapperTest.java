@@ -0,0 +1,250 @@
+package uk.ac.ebi.tsc.tesk.k8s.service;
+
+import io.kubernetes.client.ApiException;
+import io.kubernetes.client.apis.BatchV1Api;
+import io.kubernetes.client.apis.CoreV1Api;
+import io.kubernetes.client.models.*;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import org.springframework.util.StringUtils;
+import uk.ac.ebi.tsc.tesk.config.security.User;
+import uk.ac.ebi.tsc.tesk.k8s.cache.KubernetesObjectsCache;
+import uk.ac.ebi.tsc.tesk.k8s.cache.LabelSelector;
+import uk.ac.ebi.tsc.tesk.tes.exception.TaskNotFoundException;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.*;
+import static uk.ac.ebi.tsc.tesk.k8s.constant.Constants.*;
+
+public class CachingKubernetesClientWrapperTest {
+
+    private BatchV1Api batchApi;
+
+    private CoreV1Api coreApi;
+
+    private KubernetesObjectsCache cache;
+
+    private CachingKubernetesClientWrapper wrapper;
+
+    @Before
+    public void setUp() {
+        this.batchApi = mock(BatchV1Api.class);
+        this.coreApi = mock(CoreV1Api.class);
+        this.cache = mock(KubernetesObjectsCache.class);
+        given(this.cache.isSynced()).willReturn(true);
+        this.wrapper = new CachingKubernetesClientWrapper(batchApi, batchApi, coreApi, coreApi, "test-namespace", cache);
+    }
+
+    @Test
+    public void createJob_writesThrough() throws ApiException {
+        V1Job inJob = job("task-1", LABEL_JOBTYPE_VALUE_TASKM);
+        V1Job outJob = job("task-1", LABEL_JOBTYPE_VALUE_TASKM);
+        given(batchApi.createNamespacedJob("test-namespace", inJob, null)).willReturn(outJob);
+        assertThat(wrapper.createJob(inJob), is(outJob));
+        verify(cache).putJob(outJob);
+    }
+
+    @Test
+    public void readTaskmasterJob_fromCache() {
+        V1Job job = job("task-1", LABEL_JOBTYPE_VALUE_TASKM);
+        given(cache.getJob("task-1")).willReturn(Optional.of(job));
+        assertThat(wrapper.readTaskmasterJob("task-1"), is(job));
+        verifyZeroInteractions(batchApi);
+    }
+
+    @Test(expected = TaskNotFoundException.class)
+    public void readTaskmasterJob_wrongType() {
+        given(cache.getJob("task-1")).willReturn(Optional.of(job("task-1", LABEL_JOBTYPE_VALUE_EXEC)));
+        wrapper.readTaskmasterJob("task-1");
+    }
+
+    @Test
+    public void readTaskmasterJob_missingInCache() throws ApiException {
+        V1Job job = job("task-1", LABEL_JOBTYPE_VALUE_TASKM);
+        given(cache.getJob("task-1")).willReturn(Optional.empty());
+        given(batchApi.readNamespacedJob("task-1", "test-namespace", null, null, null)).willReturn(job);
+        assertThat(wrapper.readTaskmasterJob("task-1"), is(job));
+    }
+
+    @Test
+    public void readTaskmasterJob_notSynced() throws ApiException {
+        given(cache.isSynced()).willReturn(false);
+        V1Job job = job("task-1", LABEL_JOBTYPE_VALUE_TASKM);
+        given(batchApi.readNamespacedJob("task-1", "test-namespace", null, null, null)).willReturn(job);
+        assertThat(wrapper.readTaskmasterJob("task-1"), is(job));
+        verify(cache, never()).getJob(any());
+    }
+
+    @Test
+    public void listAllTaskmasterJobsForUser_paging() {
+        given(cache.listJobs(any())).willReturn(Arrays.asList(job("task-3", LABEL_JOBTYPE_VALUE_TASKM),
+                job("task-1", LABEL_JOBTYPE_VALUE_TASKM), job("task-2", LABEL_JOBTYPE_VALUE_TASKM)));
+        User user = User.builder("123").teskAdmin(true).build();
+        V1JobList firstPage = wrapper.listAllTaskmasterJobsForUser(null, 2, user);
+        assertThat(names(firstPage), contains("task-1", "task-2"));
+        assertThat(PageToken.parse(firstPage.getMetadata().getContinue()).getAfter(), is("task-2"));
+        V1JobList secondPage = wrapper.listAllTaskmasterJobsForUser(firstPage.getMetadata().getContinue(), 2, user);
+        assertThat(names(secondPage), is(Collections.singletonList("task-3")));
+        assertThat(secondPage.getMetadata().getContinue(), is(nullValue()));
+    }
+
+    @Test
+    public void listAllTaskmasterJobsForUser_pagingAcrossSync() throws ApiException {
+        given(cache.listJobs(any())).willReturn(Arrays.asList(job("task-1", LABEL_JOBTYPE_VALUE_TASKM),
+                job("task-2", LABEL_JOBTYPE_VALUE_TASKM), job("task-3", LABEL_JOBTYPE_VALUE_TASKM)));
+        User user = User.builder("123").teskAdmin(true).build();
+        String cacheToken = wrapper.listAllTaskmasterJobsForUser(null, 1, user).getMetadata().getContinue();
+
+        //cache out of sync - K8s API lists from the beginning and skips the returned jobs
+        given(cache.isSynced()).willReturn(false);
+        given(batchApi.listNamespacedJob(eq("test-namespace"), isNull(), isNull(), isNull(), isNull(), eq("job-type=taskmaster"), eq(1), isNull(), isNull(), isNull()))
+                .willReturn(new V1JobList().items(Arrays.asList(job("task-1", LABEL_JOBTYPE_VALUE_TASKM))).metadata(new V1ListMeta()._continue("c1")));
+        given(batchApi.listNamespacedJob(eq("test-namespace"), isNull(), eq("c1"), isNull(), isNull(), eq("job-type=taskmaster"), eq(1), isNull(), isNull(), isNull()))
+                .willReturn(new V1JobList().items(Arrays.asList(job("task-2", LABEL_JOBTYPE_VALUE_TASKM))).metadata(new V1ListMeta()._continue("c2")));
+        V1JobList apiPage = wrapper.listAllTaskmasterJobsForUser(cacheToken, 1, user);
+        assertThat(names(apiPage), is(Collections.singletonList("task-2")));
+
+        //back in sync - the cache continues after the job of K8s API's token
+        given(cache.isSynced()).willReturn(true);
+        V1JobList cachePage = wrapper.listAllTaskmasterJobsForUser(apiPage.getMetadata().getContinue(), 1, user);
+        assertThat(names(cachePage), is(Collections.singletonList("task-3")));
+        assertThat(cachePage.getMetadata().getContinue(), is(nullValue()));
+    }
+
+    @Test
+    public void listAllTaskmasterJobsForUser_mixed() {
+        V1Job managed = job("task-1", LABEL_JOBTYPE_VALUE_TASKM);
+        managed.getMetadata().putLabelsItem(LABEL_GROUPNAME_KEY, "TEST").putLabelsItem(LABEL_USERID_KEY, "other");
+        V1Job own = job("task-2", LABEL_JOBTYPE_VALUE_TASKM);
+        own.getMetadata().putLabelsItem(LABEL_GROUPNAME_KEY, "XYZ").putLabelsItem(LABEL_USERID_KEY, "123");
+        V1Job foreign = job("task-3", LABEL_JOBTYPE_VALUE_TASKM);
+        foreign.getMetadata().putLabelsItem(LABEL_GROUPNAME_KEY, "XYZ").putLabelsItem(LABEL_USERID_KEY, "other");
+        ArgumentCaptor<LabelSelector> selector = ArgumentCaptor.forClass(LabelSelector.class);
+        given(cache.listJobs(selector.capture())).willReturn(Arrays.asList(managed, own, foreign));
+        User user = User.builder("123").teskManagedGroups(StringUtils.commaDelimitedListToSet("TEST")).teskMemberedGroups(StringUtils.commaDelimitedListToSet("XYZ")).build();
+        V1JobList result = wrapper.listAllTaskmasterJobsForUser(null, null, user);
+        assertThat(names(result), contains("task-1", "task-2"));
+        assertThat(selector.getValue().matches(managed.getMetadata().getLabels()), is(true));
+        assertThat(selector.getValue().matches(job("executor", LABEL_JOBTYPE_VALUE_EXEC).getMetadata().getLabels()), is(false));
+    }
+
+    @Test
+    public void listAllTaskmasterJobsForUser_memberFilteredBeforePaging() {
+        V1Job foreign = job("task-1", LABEL_JOBTYPE_VALUE_TASKM);
+        foreign.getMetadata().putLabelsItem(LABEL_GROUPNAME_KEY, "XYZ").putLabelsItem(LABEL_USERID_KEY, "other");
+        V1Job own = job("task-2", LABEL_JOBTYPE_VALUE_TASKM);
+        own.getMetadata().putLabelsItem(LABEL_GROUPNAME_KEY, "XYZ").putLabelsItem(LABEL_USERID_KEY, "123");
+        V1Job managed = job("task-3", LABEL_JOBTYPE_VALUE_TASKM);
+        managed.getMetadata().putLabelsItem(LABEL_GROUPNAME_KEY, "TEST").putLabelsItem(LABEL_USERID_KEY, "other");
+        given(cache.listJobs(any())).willReturn(Arrays.asList(foreign, own, managed));
+        User user = User.builder("123").teskManagedGroups(StringUtils.commaDelimitedListToSet("TEST")).teskMemberedGroups(StringUtils.commaDelimitedListToSet("XYZ")).build();
+        V1JobList firstPage = wrapper.listAllTaskmasterJobsForUser(null, 1, user);
+        assertThat(names(firstPage), is(Collections.singletonList("task-2")));
+        V1JobList secondPage = wrapper.listAllTaskmasterJobsForUser(firstPage.getMetadata().getContinue(), 1, user);
+        assertThat(names(secondPage), is(Collections.singletonList("task-3")));
+        assertThat(secondPage.getMetadata().getContinue(), is(nullValue()));
+    }
+
+    @Test
+    public void listSingleTaskPods_fromTaskIndex() {
+        V1Pod pod = new V1Pod().metadata(new V1ObjectMeta().name("task-1-abcde").putLabelsItem(LABEL_TESTASK_ID_KEY, "task-1"));
+        V1Pod legacyPod = new V1Pod().metadata(new V1ObjectMeta().name("task-1-ex-00-abcde").putLabelsItem("job-name", "task-1-ex-00"));
+        given(cache.listTaskPods("task-1")).willReturn(Arrays.asList(pod, legacyPod));
+        assertThat(wrapper.listSingleTaskPods("task-1").getItems(), contains(pod));
+        verify(cache, never()).listPods(any());
+        verifyZeroInteractions(coreApi);
+    }
+
+    @Test
+    public void listTaskmasterJobsForUserByNamePrefix_fromCache() {
+        V1Job own = job("task-2", LABEL_JOBTYPE_VALUE_TASKM);
+        own.getMetadata().putLabelsItem(LABEL_GROUPNAME_KEY, "TEST").putLabelsItem(LABEL_USERID_KEY, "123");
+        V1Job own2 = job("task-1", LABEL_JOBTYPE_VALUE_TASKM);
+        own2.getMetadata().putLabelsItem(LABEL_GROUPNAME_KEY, "TEST").putLabelsItem(LABEL_USERID_KEY, "123");
+        V1Job foreign = job("task-3", LABEL_JOBTYPE_VALUE_TASKM);
+        foreign.getMetadata().putLabelsItem(LABEL_GROUPNAME_KEY, "XYZ").putLabelsItem(LABEL_USERID_KEY, "123");
+        given(cache.listTaskmasterJobsByTaskNamePrefix("hello")).willReturn(Arrays.asList(own, foreign, own2));
+        User user = User.builder("123").teskMemberedGroups(StringUtils.commaDelimitedListToSet("TEST")).build();
+        V1JobList result = wrapper.listTaskmasterJobsForUserByNamePrefix("hello", null, 1, user);
+        assertThat(names(result), is(Collections.singletonList("task-1")));
+        result = wrapper.listTaskmasterJobsForUserByNamePrefix("hello", result.getMetadata().getContinue(), 1, user);
+        assertThat(names(result), is(Collections.singletonList("task-2")));
+        assertThat(result.getMetadata().getContinue(), is(nullValue()));
+        verifyZeroInteractions(batchApi);
+    }
+
+    @Test
+    public void getSingleTaskOutputFilerJob_fromCache() {
+        V1Job filer = new V1Job().metadata(new V1ObjectMeta().name("task-1-outputs-filer"));
+        given(cache.getJob("task-1-outputs-filer")).willReturn(Optional.of(filer));
+        assertThat(wrapper.getSingleTaskOutputFilerJob("task-1"), is(Optional.of(filer)));
+        verifyZeroInteractions(batchApi);
+    }
+
+    @Test
+    public void listSingleJobPods_fromCache() {
+        V1Pod pod = new V1Pod().metadata(new V1ObjectMeta().name("task-1-abcde").putLabelsItem("controller-uid", "uid-1"));
+        V1Job job = new V1Job().metadata(new V1ObjectMeta().name("task-1")).spec(new V1JobSpec().selector(new V1LabelSelector().
+                putMatchLabelsItem("controller-uid", "uid-1")));
+        V1Pod otherJobPod = new V1Pod().metadata(new V1ObjectMeta().name("task-1-ex-00-abcde").putLabelsItem("controller-uid", "uid-2"));
+        given(cache.listTaskPods("task-1")).willReturn(Arrays.asList(pod, otherJobPod));
+        assertThat(wrapper.listSingleJobPods(job).getItems(), contains(pod));
+        verify(cache, never()).listPods(any());
+        verifyZeroInteractions(coreApi);
+    }
+
+    @Test
+    public void listTaskExecutorJobs_notSynced() throws ApiException {
+        given(cache.isSynced()).willReturn(false);
+        wrapper.listTaskExecutorJobs(Arrays.asList("task-1", "task-2"));
+        Mockito.verify(batchApi).listNamespacedJob(eq("test-namespace"), isNull(), isNull(), isNull(), isNull(), eq("taskmaster-name in (task-1,task-2)"), isNull(), isNull(), isNull(), isNull());
+        verify(cache, never()).listJobs(any());
+    }
+
+    @Test
+    public void listJobsPods_fromCache() {
+        V1Pod pod = new V1Pod().metadata(new V1ObjectMeta().name("task-1-abcde").putLabelsItem("job-name", "task-1"));
+        V1Pod filerPod = new V1Pod().metadata(new V1ObjectMeta().name("task-2-outputs-filer-abcde").putLabelsItem("job-name", "task-2-outputs-filer"));
+        V1Pod executorPod = new V1Pod().metadata(new V1ObjectMeta().name("task-1-ex-00-abcde").putLabelsItem("job-name", "task-1-ex-00"));
+        given(cache.listTaskPods("task-1")).willReturn(Arrays.asList(pod, executorPod));
+        given(cache.listTaskPods("task-2")).willReturn(Collections.singletonList(filerPod));
+        assertThat(wrapper.listJobsPods(Arrays.asList("task-1", "task-2-outputs-filer")).getItems(), contains(pod, filerPod));
+        verify(cache, never()).listPods(any());
+        verifyZeroInteractions(coreApi);
+    }
+
+    @Test
+    public void labelJobAsCancelled_writesThrough() throws ApiException {
+        V1Job patched = job("task-1", LABEL_JOBTYPE_VALUE_TASKM);
+        given(batchApi.patchNamespacedJob("task-1", "test-namespace", JOB_CANCEL_PATCH, null)).willReturn(patched);
+        wrapper.labelJobAsCancelled("task-1", null);
+        verify(cache).putJob(patched);
+    }
+
+    @Test
+    public void labelPodAsCancelled_writesThrough() throws ApiException {
+        V1Pod patched = new V1Pod().metadata(new V1ObjectMeta().name("task-1-abcde"));
+        given(coreApi.patchNamespacedPod("task-1-abcde", "test-namespace", POD_CANCEL_PATCH, null)).willReturn(patched);
+        wrapper.labelPodAsCancelled("task-1-abcde", null);
+        verify(cache).putPod(patched);
+    }
+
+    private static V1Job job(String name, String type) {
+        return new V1Job().metadata(new V1ObjectMeta().name(name).putLabelsItem(LABEL_JOBTYPE_KEY, type));
+    }
+
+    private static List<String> names(V1JobList list) {
+        return list.getItems().stream().map(job -> job.getMetadata().getName()).collect(Collectors.toList());
+    }
+}
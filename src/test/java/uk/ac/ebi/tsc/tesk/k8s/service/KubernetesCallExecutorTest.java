@@ -0,0 +1,76 @@
+package uk.ac.ebi.tsc.tesk.k8s.service;
+
+import org.junit.After;
+import org.junit.Test;
+import uk.ac.ebi.tsc.tesk.k8s.exception.KubernetesException;
+import uk.ac.ebi.tsc.tesk.tes.exception.TaskNotFoundException;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+public class KubernetesCallExecutorTest {
+
+    private final KubernetesCallExecutor calls = new KubernetesCallExecutor(2, 1, 500);
+
+    @After
+    public void tearDown() {
+        calls.shutdown();
+    }
+
+    @Test
+    public void join_concurrent() {
+        CountDownLatch bothStarted = new CountDownLatch(2);
+        CompletableFuture<Boolean> first = calls.async(() -> awaitOther(bothStarted));
+        CompletableFuture<Boolean> second = calls.async(() -> awaitOther(bothStarted));
+        assertThat(calls.join(first), is(true));
+        assertThat(calls.join(second), is(true));
+    }
+
+    @Test
+    public void join_callerRunsWhenSaturated() {
+        CountDownLatch release = new CountDownLatch(1);
+        calls.async(() -> await(release));
+        calls.async(() -> await(release));
+        calls.async(() -> await(release));
+        CompletableFuture<String> inCaller = calls.async(() -> Thread.currentThread().getName());
+        release.countDown();
+        assertThat(calls.join(inCaller), is(Thread.currentThread().getName()));
+    }
+
+    @Test(expected = TaskNotFoundException.class)
+    public void join_rethrows() {
+        CompletableFuture<String> notFound = calls.async(() -> {
+            throw new TaskNotFoundException("task-123");
+        });
+        calls.join(notFound.thenApplyAsync(String::trim, calls.getExecutor()));
+    }
+
+    @Test
+    public void join_timeout() {
+        CountDownLatch never = new CountDownLatch(2);
+        try {
+            calls.join(calls.async(() -> awaitOther(never)));
+            fail();
+        } catch (KubernetesException e) {
+            assertThat(e.getApiException().getCode(), is(504));
+        }
+    }
+
+    private static boolean awaitOther(CountDownLatch latch) {
+        latch.countDown();
+        return await(latch);
+    }
+
+    private static boolean await(CountDownLatch latch) {
+        try {
+            return latch.await(2, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            return false;
+        }
+    }
+}
@@ -23,6 +23,7 @@ import java.util.Arrays;
 import java.util.Optional;
 
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
 import static org.junit.Assert.assertThat;
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.BDDMockito.given;
@@ -99,7 +100,72 @@ public class KubernetesClientWrapperTest {
         V1JobList result = wrapper.listAllTaskmasterJobsForUser(null, null, user);
         Mockito.verify(batchApi).listNamespacedJob(eq("test-namespace"), isNull(), isNull(), isNull(), isNull(), argument.capture(), isNull(), isNull(), isNull(), isNull());
         assertThat(argument.getValue(), is("job-type=taskmaster"));
-        assertThat(result, is(this.resultList()));
+        assertThat(result.getItems(), is(this.resultList().getItems()));
+    }
+
+    @Test
+    public void listTaskmasterJobsForUserByNamePrefix() throws ApiException {
+
+        User user = User.builder("123").teskAdmin(true).build();
+        V1Job match1 = named("task-1", "hello-1");
+        V1Job match2 = named("task-3", "hello-2");
+        V1Job match3 = named("task-5", "hello-3");
+        given(batchApi.listNamespacedJob(eq(namespace), isNull(), isNull(), isNull(), isNull(), eq("job-type=taskmaster"), eq(100), isNull(), isNull(), isNull()))
+                .willReturn(new V1JobList().items(Arrays.asList(match1, named("task-2", "other"))).metadata(new V1ListMeta()._continue("c1")));
+        given(batchApi.listNamespacedJob(eq(namespace), isNull(), eq("c1"), isNull(), isNull(), eq("job-type=taskmaster"), eq(100), isNull(), isNull(), isNull()))
+                .willReturn(new V1JobList().items(Arrays.asList(match2, named("task-4", "other"))).metadata(new V1ListMeta()._continue("c2")));
+        V1JobList result = wrapper.listTaskmasterJobsForUserByNamePrefix("hello", null, 2, user);
+        assertThat(result.getItems(), is(Arrays.asList(match1, match2)));
+        PageToken token = PageToken.parse(result.getMetadata().getContinue());
+        assertThat(token.getAfter(), is("task-3"));
+        assertThat(token.getContinueToken(), is("c2"));
+
+        given(batchApi.listNamespacedJob(eq(namespace), isNull(), eq("c2"), isNull(), isNull(), eq("job-type=taskmaster"), eq(100), isNull(), isNull(), isNull()))
+                .willReturn(new V1JobList().items(Arrays.asList(named("task-6", "other"), match3)).metadata(new V1ListMeta()));
+        result = wrapper.listTaskmasterJobsForUserByNamePrefix("hello", result.getMetadata().getContinue(), 2, user);
+        assertThat(result.getItems(), is(Arrays.asList(match3)));
+        assertThat(result.getMetadata().getContinue(), is(nullValue()));
+    }
+
+    @Test
+    public void listTaskmasterJobsForUserByNamePrefix_overflow() throws ApiException {
+
+        User user = User.builder("123").teskAdmin(true).build();
+        //one chunk with more matches than the page
+        given(batchApi.listNamespacedJob(eq(namespace), isNull(), isNull(), isNull(), isNull(), eq("job-type=taskmaster"), eq(100), isNull(), isNull(), isNull()))
+                .willReturn(new V1JobList().items(Arrays.asList(named("task-1", "hello-1"), named("task-2", "other"),
+                        named("task-3", "hello-2"), named("task-4", "hello-3"))).metadata(new V1ListMeta()));
+        V1JobList result = wrapper.listTaskmasterJobsForUserByNamePrefix("hello", null, 2, user);
+        assertThat(result.getItems().size(), is(2));
+        PageToken token = PageToken.parse(result.getMetadata().getContinue());
+        assertThat(token.getAfter(), is("task-3"));
+        assertThat(token.getContinueToken(), is(nullValue()));
+
+        result = wrapper.listTaskmasterJobsForUserByNamePrefix("hello", result.getMetadata().getContinue(), 2, user);
+        assertThat(result.getItems().get(0).getMetadata().getName(), is("task-4"));
+        assertThat(result.getMetadata().getContinue(), is(nullValue()));
+        Mockito.verify(batchApi, Mockito.times(2)).listNamespacedJob(any(), any(), any(), any(), any(), any(), any(), any(), any(), any());
+    }
+
+    @Test
+    public void listAllTaskmasterJobsForUser_pageToken() throws ApiException {
+
+        User user = User.builder("123").teskAdmin(true).build();
+        //page of 1 from a chunk of 2 - the next page starts within the same chunk
+        given(batchApi.listNamespacedJob(eq(namespace), isNull(), eq("c1"), isNull(), isNull(), eq("job-type=taskmaster"), eq(1), isNull(), isNull(), isNull()))
+                .willReturn(new V1JobList().items(Arrays.asList(named("task-1", "a"), named("task-2", "b"))).metadata(new V1ListMeta()._continue("c2")));
+        V1JobList result = wrapper.listAllTaskmasterJobsForUser(new PageToken("task-1", "c1").toString(), 1, user);
+        assertThat(result.getItems().get(0).getMetadata().getName(), is("task-2"));
+        PageToken token = PageToken.parse(result.getMetadata().getContinue());
+        assertThat(token.getAfter(), is("task-2"));
+        assertThat(token.getContinueToken(), is("c2"));
+
+        //plain K8s continue token
+        given(batchApi.listNamespacedJob(eq(namespace), isNull(), eq("c3"), isNull(), isNull(), eq("job-type=taskmaster"), eq(1), isNull(), isNull(), isNull()))
+                .willReturn(new V1JobList().items(Arrays.asList(named("task-3", "c"))).metadata(new V1ListMeta()));
+        result = wrapper.listAllTaskmasterJobsForUser("c3", 1, user);
+        assertThat(result.getItems().get(0).getMetadata().getName(), is("task-3"));
+        assertThat(result.getMetadata().getContinue(), is(nullValue()));
     }
 
     @Test
@@ -111,7 +177,7 @@ public class KubernetesClientWrapperTest {
         V1JobList result = wrapper.listAllTaskmasterJobsForUser(null, null, user);
         Mockito.verify(batchApi).listNamespacedJob(eq(namespace), isNull(), isNull(), isNull(), isNull(), argument.capture(), isNull(), isNull(), isNull(), isNull());
         assertThat(argument.getValue(), is("job-type=taskmaster"));
-        assertThat(result, is(this.resultList()));
+        assertThat(result.getItems(), is(this.resultList().getItems()));
     }
 
     @Test
@@ -123,7 +189,7 @@ public class KubernetesClientWrapperTest {
         V1JobList result = wrapper.listAllTaskmasterJobsForUser(null, null, user);
         Mockito.verify(batchApi).listNamespacedJob(eq(namespace), isNull(), isNull(), isNull(), isNull(), argument.capture(), isNull(), isNull(), isNull(), isNull());
         assertThat(argument.getValue(), is("job-type=taskmaster,creator-group-name in (TEST),creator-user-id=123"));
-        assertThat(result, is(this.resultList()));
+        assertThat(result.getItems(), is(this.resultList().getItems()));
     }
 
     @Test
@@ -135,7 +201,7 @@ public class KubernetesClientWrapperTest {
         V1JobList result = wrapper.listAllTaskmasterJobsForUser(null, null, user);
         Mockito.verify(batchApi).listNamespacedJob(eq(namespace), isNull(), isNull(), isNull(), isNull(), argument.capture(), isNull(), isNull(), isNull(), isNull());
         assertThat(argument.getValue(), is("job-type=taskmaster,creator-group-name in (TEST,XYZ)"));
-        assertThat(result, is(this.resultList()));
+        assertThat(result.getItems(), is(this.resultList().getItems()));
     }
 
     @Test
@@ -147,7 +213,7 @@ public class KubernetesClientWrapperTest {
         V1JobList result = wrapper.listAllTaskmasterJobsForUser(null, null, user);
         Mockito.verify(batchApi).listNamespacedJob(eq(namespace), isNull(), isNull(), isNull(), isNull(), argument.capture(), isNull(), isNull(), isNull(), isNull());
         assertThat(argument.getValue(), is("job-type=taskmaster,creator-group-name in (XYZ,TEST)"));
-        assertThat(result, is(filteredResultList()));
+        assertThat(result.getItems(), is(filteredResultList().getItems()));
     }
 
     @Test
@@ -174,19 +240,11 @@ public class KubernetesClientWrapperTest {
     }
 
     @Test
-    public void listAllTaskExecutorJobs() throws ApiException {
+    public void listTaskExecutorJobs() throws ApiException {
         ArgumentCaptor<String> argument = ArgumentCaptor.forClass(String.class);
-        wrapper.listAllTaskExecutorJobs();
+        wrapper.listTaskExecutorJobs(Arrays.asList("123", "124"));
         Mockito.verify(batchApi).listNamespacedJob(eq("test-namespace"), isNull(), isNull(), isNull(), isNull(), argument.capture(), isNull(), isNull(), isNull(), isNull());
-        assertThat(argument.getValue(), is("job-type=executor"));
-    }
-
-    @Test
-    public void listAllFilerJobs() throws ApiException {
-        ArgumentCaptor<String> argument = ArgumentCaptor.forClass(String.class);
-        wrapper.listAllFilerJobs();
-        Mockito.verify(batchApi).listNamespacedJob(eq("test-namespace"), isNull(), isNull(), isNull(), isNull(), argument.capture(), isNull(), isNull(), isNull(), isNull());
-        assertThat(argument.getValue(), is("!job-type"));
+        assertThat(argument.getValue(), is("taskmaster-name in (123,124)"));
     }
 
     @Test
@@ -200,9 +258,34 @@ public class KubernetesClientWrapperTest {
     }
 
     @Test
-    public void listAllJobPods() throws ApiException {
-        wrapper.listAllJobPods();
-        Mockito.verify(coreApi).listNamespacedPod(eq("test-namespace"), isNull(), isNull(), isNull(), isNull(), eq("job-name"), isNull(), isNull(), isNull(), isNull());
+    public void listSingleTaskPods() throws ApiException {
+        wrapper.listSingleTaskPods("123");
+        Mockito.verify(coreApi).listNamespacedPod(eq("test-namespace"), isNull(), isNull(), isNull(), isNull(), eq("taskmaster-name=123"), isNull(), isNull(), isNull(), isNull());
+    }
+
+    @Test
+    public void hasTaskIdPodLabel() {
+        V1Job labelled = new V1Job().spec(new V1JobSpec().template(new V1PodTemplateSpec().metadata(new V1ObjectMeta().putLabelsItem("taskmaster-name", "123"))));
+        V1Job legacy = new V1Job().spec(new V1JobSpec().template(new V1PodTemplateSpec().metadata(new V1ObjectMeta().name("123"))));
+        assertThat(KubernetesClientWrapper.hasTaskIdPodLabel(labelled), is(true));
+        assertThat(KubernetesClientWrapper.hasTaskIdPodLabel(legacy), is(false));
+        assertThat(KubernetesClientWrapper.hasTaskIdPodLabel(new V1Job().spec(new V1JobSpec())), is(false));
+    }
+
+    @Test
+    public void listTaskPods() throws ApiException {
+        wrapper.listTaskPods(Arrays.asList("123", "124"));
+        Mockito.verify(coreApi).listNamespacedPod(eq("test-namespace"), isNull(), isNull(), isNull(), isNull(), eq("taskmaster-name in (123,124)"), isNull(), isNull(), isNull(), isNull());
+    }
+
+    @Test
+    public void listJobsPods() throws ApiException {
+        wrapper.listJobsPods(Arrays.asList("123", "123-ex-00"));
+        Mockito.verify(coreApi).listNamespacedPod(eq("test-namespace"), isNull(), isNull(), isNull(), isNull(), eq("job-name in (123,123-ex-00)"), isNull(), isNull(), isNull(), isNull());
+    }
+
+    private static V1Job named(String name, String taskName) {
+        return new V1Job().metadata(new V1ObjectMeta().name(name).putAnnotationsItem("tes-task-name", taskName));
     }
 
     private V1JobList resultList() {
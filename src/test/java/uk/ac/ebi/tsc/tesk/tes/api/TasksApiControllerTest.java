@@ -1,5 +1,8 @@
 package uk.ac.ebi.tsc.tesk.tes.api;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -21,15 +24,38 @@ import org.springframework.security.oauth2.provider.OAuth2Request;
 import org.springframework.security.oauth2.provider.token.ResourceServerTokenServices;
 import org.springframework.test.context.junit4.SpringRunner;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 import uk.ac.ebi.tsc.tesk.config.security.User;
+import uk.ac.ebi.tsc.tesk.tes.exception.TooManyTasksRequested;
+import uk.ac.ebi.tsc.tesk.tes.model.TesCancelTaskResult;
+import uk.ac.ebi.tsc.tesk.tes.model.TesListTasksResponse;
+import uk.ac.ebi.tsc.tesk.tes.model.TesState;
+import uk.ac.ebi.tsc.tesk.tes.model.TesTask;
 import uk.ac.ebi.tsc.tesk.tes.service.ServiceInfoService;
 import uk.ac.ebi.tsc.tesk.tes.service.TesService;
+import uk.ac.ebi.tsc.tesk.tes.service.Versioned;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.not;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 import static uk.ac.ebi.tsc.tesk.TestUtils.getFileContentFromResources;
 import static uk.ac.ebi.tsc.tesk.UrlConstants.TASK_URL;
@@ -72,6 +98,9 @@ public class TasksApiControllerTest {
     @Autowired
     private MockMvc mvc;
 
+    @Autowired
+    private ObjectMapper objectMapper;
+
     @MockBean
     private TesService tesService;
     @MockBean
@@ -182,4 +211,207 @@ public class TasksApiControllerTest {
 
     }
 
-}
\ No newline at end of file
+    @Test
+    public void listTasks_notIndented() throws Exception {
+        when(this.tesService.listTasks(any(), any(), any(), any(), any(), any(), any())).thenReturn(Versioned.of(new TesListTasksResponse()
+                .addTasksItem(new TesTask().id("task-1").state(TesState.RUNNING))
+                .addTasksItem(new TesTask().id("task-2").state(TesState.COMPLETE)).nextPageToken("next")));
+        this.mvc.perform(get(TASK_URL)
+                .header("Authorization", "Bearer BAR")
+                .accept(MediaType.APPLICATION_JSON)).andExpect(status().isOk())
+                .andExpect(content().string("{\"tasks\":[{\"id\":\"task-1\",\"state\":\"RUNNING\"},{\"id\":\"task-2\",\"state\":\"COMPLETE\"}],\"next_page_token\":\"next\"}"));
+    }
+
+    private TesTask fullTask() throws Exception {
+        return this.objectMapper.readValue(getFileContentFromResources("fromK8sToTes/task.json"), TesTask.class);
+    }
+
+    @Test
+    public void getTask_compactFlag() throws Exception {
+        when(this.tesService.getTask(any(), any(), any(), any(), any())).thenReturn(Versioned.of(fullTask()));
+        String indented = this.mvc.perform(get(TASK_URL + "/{id}?view=FULL", "task-123")
+                .header("Authorization", "Bearer BAR")
+                .accept(MediaType.APPLICATION_JSON)).andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        String compact = this.mvc.perform(get(TASK_URL + "/{id}?view=FULL&compact=true", "task-123")
+                .header("Authorization", "Bearer BAR")
+                .accept(MediaType.APPLICATION_JSON)).andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        assertThat(indented, containsString("\n"));
+        assertThat(compact, not(containsString("\n")));
+        assertEquals(this.objectMapper.readTree(indented), this.objectMapper.readTree(compact));
+    }
+
+    @Test
+    public void getTask_smile() throws Exception {
+        TesTask task = fullTask();
+        when(this.tesService.getTask(any(), any(), any(), any(), any())).thenReturn(Versioned.of(task));
+        byte[] body = this.mvc.perform(get(TASK_URL + "/{id}?view=FULL", "task-123")
+                .header("Authorization", "Bearer BAR")
+                .accept(MediaType.valueOf("application/x-jackson-smile"))).andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith("application/x-jackson-smile"))
+                .andReturn().getResponse().getContentAsByteArray();
+        assertEquals(task, new ObjectMapper(new SmileFactory()).readValue(body, TesTask.class));
+    }
+
+    @Test
+    public void listTasks_cbor() throws Exception {
+        TesListTasksResponse response = new TesListTasksResponse().addTasksItem(fullTask()).addTasksItem(fullTask()).nextPageToken("next");
+        when(this.tesService.listTasks(any(), any(), any(), any(), any(), any(), any())).thenReturn(Versioned.of(response));
+        byte[] body = this.mvc.perform(get(TASK_URL)
+                .header("Authorization", "Bearer BAR")
+                .accept(MediaType.valueOf("application/cbor"))).andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith("application/cbor"))
+                .andReturn().getResponse().getContentAsByteArray();
+        assertEquals(response, new ObjectMapper(new CBORFactory()).readValue(body, TesListTasksResponse.class));
+    }
+
+    @Test
+    public void getTask_fields() throws Exception {
+        when(this.tesService.getTask(any(), any(), any(), any(), any())).thenReturn(Versioned.of(fullTask()));
+        this.mvc.perform(get(TASK_URL + "/{id}?fields=id,state,logs.end_time", "task-123")
+                .header("Authorization", "Bearer BAR")
+                .accept(MediaType.APPLICATION_JSON)).andExpect(status().isOk())
+                .andExpect(jsonPath("$.id").value("task-9ef9856b"))
+                .andExpect(jsonPath("$.state").exists())
+                .andExpect(jsonPath("$.logs[0].end_time").exists())
+                .andExpect(jsonPath("$.logs[0].start_time").doesNotExist())
+                .andExpect(jsonPath("$.executors").doesNotExist())
+                .andExpect(jsonPath("$.inputs").doesNotExist());
+    }
+
+    @Test
+    public void listTasks_fields() throws Exception {
+        when(this.tesService.listTasks(any(), any(), any(), any(), any(), any(), any()))
+                .thenReturn(Versioned.of(new TesListTasksResponse().addTasksItem(fullTask()).nextPageToken("next")));
+        this.mvc.perform(get(TASK_URL + "?fields=id,state")
+                .header("Authorization", "Bearer BAR")
+                .accept(MediaType.APPLICATION_JSON)).andExpect(status().isOk())
+                .andExpect(jsonPath("$.tasks[0].id").value("task-9ef9856b"))
+                .andExpect(jsonPath("$.tasks[0].state").exists())
+                .andExpect(jsonPath("$.tasks[0].name").doesNotExist())
+                .andExpect(jsonPath("$.next_page_token").value("next"));
+    }
+
+    @Test
+    public void getTask_unknownField() throws Exception {
+        this.mvc.perform(get(TASK_URL + "/{id}?fields=id,foo", "task-123")
+                .header("Authorization", "Bearer BAR")
+                .accept(MediaType.APPLICATION_JSON)).andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void batchGetTasks() throws Exception {
+        TesTask task = fullTask();
+        when(this.tesService.getTasks(any(), any(), any(), any())).thenReturn(new ArrayList<>(Collections.singletonList(task)));
+        this.mvc.perform(post(TASK_URL + ":batchGet")
+                .header("Authorization", "Bearer BAR")
+                .content("{\"ids\": [\"task-1\", \"" + task.getId() + "\", \"task-1\", \"task-2\"]}")
+                .contentType(MediaType.APPLICATION_JSON)
+                .accept(MediaType.APPLICATION_JSON)).andExpect(status().isOk())
+                .andExpect(jsonPath("$.tasks[0].id").value(task.getId()))
+                .andExpect(jsonPath("$.tasks[0].state").exists())
+                .andExpect(jsonPath("$.tasks[0].logs").doesNotExist())
+                .andExpect(jsonPath("$.missing_ids.length()").value(2))
+                .andExpect(jsonPath("$.missing_ids[0]").value("task-1"))
+                .andExpect(jsonPath("$.missing_ids[1]").value("task-2"));
+    }
+
+    @Test
+    public void batchGetTasks_tooMany() throws Exception {
+        when(this.tesService.getTasks(any(), any(), any(), any())).thenThrow(new TooManyTasksRequested(3, 2));
+        this.mvc.perform(post(TASK_URL + ":batchGet")
+                .header("Authorization", "Bearer BAR")
+                .content("{\"ids\": [\"task-1\", \"task-2\", \"task-3\"]}")
+                .contentType(MediaType.APPLICATION_JSON)
+                .accept(MediaType.APPLICATION_JSON)).andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void batchCancelTasks() throws Exception {
+        when(this.tesService.getTasksToCancel(any(), any())).thenReturn(new ArrayList<>());
+        when(this.tesService.cancelTasks(any())).thenReturn(Arrays.asList(
+                new TesCancelTaskResult().id("task-2").result(TesCancelTaskResult.ResultEnum.CANCELED),
+                new TesCancelTaskResult().id("task-1").result(TesCancelTaskResult.ResultEnum.NOT_RUNNING)));
+        this.mvc.perform(post(TASK_URL + ":batchCancel")
+                .header("Authorization", "Bearer BAR")
+                .content("{\"ids\": [\"task-1\", \"task-3\", \"task-2\", \"task-1\"]}")
+                .contentType(MediaType.APPLICATION_JSON)
+                .accept(MediaType.APPLICATION_JSON)).andExpect(status().isOk())
+                .andExpect(jsonPath("$.results.length()").value(3))
+                .andExpect(jsonPath("$.results[0].result").value("NOT_RUNNING"))
+                .andExpect(jsonPath("$.results[1].id").value("task-3"))
+                .andExpect(jsonPath("$.results[1].result").value("NOT_FOUND"))
+                .andExpect(jsonPath("$.results[2].result").value("CANCELED"));
+    }
+
+    @Test
+    public void watchTasks_resumedFromLastEventId() throws Exception {
+        SseEmitter emitter = new SseEmitter();
+        when(this.tesService.watchTasks(eq("abc-5"), any())).thenReturn(emitter);
+        MvcResult result = this.mvc.perform(get(TASK_URL + ":watch")
+                .header("Authorization", "Bearer BAR")
+                .header("Last-Event-ID", "abc-5")
+                .accept(MediaType.TEXT_EVENT_STREAM))
+                .andExpect(request().asyncStarted()).andReturn();
+        emitter.send(SseEmitter.event().id("abc-6").name("state").data("{\"id\":\"task-1\",\"state\":\"RUNNING\"}"));
+        assertThat(result.getResponse().getContentAsString(), containsString("id:abc-6\nevent:state\ndata:{\"id\":\"task-1\",\"state\":\"RUNNING\"}\n\n"));
+    }
+
+    @Test
+    public void getTask_notModified() throws Exception {
+        when(this.tesService.getTask(eq("task-123"), any(), any(), eq("W/\"abc\""), any()))
+                .thenReturn(new Versioned<>(null, "W/\"abc\"", true, null));
+        this.mvc.perform(get(TASK_URL + "/{id}", "task-123")
+                .header("Authorization", "Bearer BAR")
+                .header("If-None-Match", "W/\"abc\""))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string("ETag", "W/\"abc\""))
+                .andExpect(header().string("Cache-Control", "max-age=3600"))
+                .andExpect(content().string(""));
+    }
+
+    @Test
+    public void listTasks_eTag() throws Exception {
+        when(this.tesService.listTasks(any(), any(), any(), any(), any(), eq(null), any()))
+                .thenReturn(new Versioned<>(new TesListTasksResponse().addTasksItem(new TesTask().id("task-1").state(TesState.RUNNING)), "W/\"abc\"", false, null));
+        this.mvc.perform(get(TASK_URL)
+                .header("Authorization", "Bearer BAR"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "W/\"abc\""))
+                .andExpect(header().string("Vary", "Accept"))
+                .andExpect(jsonPath("$.tasks[0].id").value("task-1"));
+    }
+
+    @Test
+    public void getTask_waitForChange() throws Exception {
+        TesTask running = new TesTask().id("task-123").state(TesState.RUNNING);
+        CompletableFuture<TesTask> changed = new CompletableFuture<>();
+        when(this.tesService.getTask(eq("task-123"), any(), any(), any())).thenReturn(running);
+        when(this.tesService.getTaskOnStateChange(eq(running), eq(TesState.RUNNING), eq(120000L), any(), any(), any())).thenReturn(changed);
+        MvcResult result = this.mvc.perform(get(TASK_URL + "/task-123")
+                .param("wait_for_change_from", "RUNNING")
+                .param("timeout", "2m")
+                .header("Authorization", "Bearer BAR"))
+                .andExpect(request().asyncStarted()).andReturn();
+        changed.complete(new TesTask().id("task-123").state(TesState.COMPLETE));
+        this.mvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.state").value("COMPLETE"))
+                .andExpect(jsonPath("$.logs").doesNotExist());
+    }
+
+    @Test
+    public void getTask_waitForChange_invalidParams() throws Exception {
+        this.mvc.perform(get(TASK_URL + "/task-123")
+                .param("wait_for_change_from", "FINISHED")
+                .header("Authorization", "Bearer BAR"))
+                .andExpect(status().isBadRequest());
+        this.mvc.perform(get(TASK_URL + "/task-123")
+                .param("wait_for_change_from", "RUNNING")
+                .param("timeout", "soon")
+                .header("Authorization", "Bearer BAR"))
+                .andExpect(status().isBadRequest());
+    }
+
+}
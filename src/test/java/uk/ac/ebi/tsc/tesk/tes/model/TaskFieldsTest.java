@@ -0,0 +1,55 @@
+package uk.ac.ebi.tsc.tesk.tes.model;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.junit.Test;
+import uk.ac.ebi.tsc.tesk.tes.exception.InvalidFieldsException;
+
+import java.io.IOException;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+public class TaskFieldsTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    public void fromString_empty() {
+        assertThat(TaskFields.fromString(null).isAll(), is(true));
+        assertThat(TaskFields.fromString(" , ").isAll(), is(true));
+        assertThat(TaskFields.fromString("id").isAll(), is(false));
+    }
+
+    @Test(expected = InvalidFieldsException.class)
+    public void fromString_unknownField() {
+        TaskFields.fromString("id,foo.bar");
+    }
+
+    @Test(expected = InvalidFieldsException.class)
+    public void fromString_trailingDot() {
+        TaskFields.fromString("logs.");
+    }
+
+    @Test
+    public void requires() {
+        TaskFields fields = TaskFields.fromString("id, logs.end_time,inputs");
+        assertThat(fields.requires("id"), is(true));
+        assertThat(fields.requires("logs"), is(true));
+        assertThat(fields.requires("logs.end_time"), is(true));
+        assertThat(fields.requires("logs.start_time"), is(false));
+        assertThat(fields.requires("inputs.content"), is(true));
+        assertThat(fields.requires("state"), is(false));
+        assertThat(TaskFields.all().requires("state"), is(true));
+    }
+
+    @Test
+    public void retain() throws IOException {
+        ObjectNode task = (ObjectNode) this.objectMapper.readTree("{\"id\":\"task-1\",\"state\":\"RUNNING\","
+                + "\"inputs\":[{\"url\":\"a\",\"path\":\"/a\"}],"
+                + "\"logs\":[{\"start_time\":\"s\",\"end_time\":\"e\",\"logs\":[{\"exit_code\":0,\"stdout\":\"x\"}]}]}");
+        TaskFields.fromString("id,inputs,logs.end_time,logs.logs.exit_code").retain(task);
+        assertThat(task, is(this.objectMapper.readTree("{\"id\":\"task-1\",\"inputs\":[{\"url\":\"a\",\"path\":\"/a\"}],"
+                + "\"logs\":[{\"end_time\":\"e\",\"logs\":[{\"exit_code\":0}]}]}")));
+    }
+}
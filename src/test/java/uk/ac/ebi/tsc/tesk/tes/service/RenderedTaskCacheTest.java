@@ -0,0 +1,85 @@
+package uk.ac.ebi.tsc.tesk.tes.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import uk.ac.ebi.tsc.tesk.tes.model.TaskFields;
+import uk.ac.ebi.tsc.tesk.tes.model.TaskView;
+import uk.ac.ebi.tsc.tesk.tes.model.TesExecutorLog;
+import uk.ac.ebi.tsc.tesk.tes.model.TesState;
+import uk.ac.ebi.tsc.tesk.tes.model.TesTask;
+import uk.ac.ebi.tsc.tesk.tes.model.TesTaskLog;
+
+import java.util.Collections;
+import java.util.stream.IntStream;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+
+public class RenderedTaskCacheTest {
+
+    private ObjectMapper objectMapper;
+
+    private RenderedTaskCache cache;
+
+    @Before
+    public void setUp() {
+        this.objectMapper = Jackson2ObjectMapperBuilder.json().indentOutput(true).build();
+        this.cache = new RenderedTaskCache(this.objectMapper, 1000000, 3600);
+    }
+
+    private static TesTask task(String id, TesState state) {
+        return new TesTask().id(id).state(state)
+                .addLogsItem(new TesTaskLog().addLogsItem(new TesExecutorLog().stdout("hello executor!")));
+    }
+
+    @Test
+    public void terminalTask_cached() {
+        this.cache.put("task-1", TaskView.FULL, TaskFields.all(),
+                new Versioned<>(task("task-1", TesState.COMPLETE), "W/\"v1\"", true, Collections.singletonMap("creator-user-id", "alice")));
+
+        Versioned<TesTask> cached = this.cache.get("task-1", TaskView.FULL, TaskFields.all(), null).get();
+        assertThat(cached.getValue().getLogs().get(0).getLogs().get(0).getStdout(), is("hello executor!"));
+        assertThat(cached.getETag(), is("W/\"v1\""));
+        assertThat(cached.isTerminal(), is(true));
+        assertThat(cached.getOwnerLabels(), hasEntry("creator-user-id", "alice"));
+        //a copy each time
+        cached.getValue().setLogs(null);
+        assertThat(this.cache.get("task-1", TaskView.FULL, TaskFields.all(), null).get().getValue().getLogs(), hasSize(1));
+
+        assertThat(this.cache.get("task-1", TaskView.FULL, TaskFields.all(), "W/\"v1\"").get().isNotModified(), is(true));
+        assertThat(this.cache.get("task-1", TaskView.BASIC, TaskFields.all(), null).isPresent(), is(false));
+        assertThat(this.cache.get("task-1", TaskView.FULL, TaskFields.fromString("id,state"), null).isPresent(), is(false));
+    }
+
+    @Test
+    public void notCached() {
+        this.cache.put("task-1", TaskView.FULL, TaskFields.all(),
+                new Versioned<>(task("task-1", TesState.RUNNING), null, false, null));
+        this.cache.put("task-2", TaskView.MINIMAL, TaskFields.all(),
+                new Versioned<>(task("task-2", TesState.COMPLETE), "W/\"v1\"", true, null));
+        this.cache.put("task-3", TaskView.FULL, TaskFields.all(), new Versioned<>(null, "W/\"v1\"", true, null));
+
+        assertThat(this.cache.get("task-1", TaskView.FULL, TaskFields.all(), null).isPresent(), is(false));
+        assertThat(this.cache.get("task-2", TaskView.MINIMAL, TaskFields.all(), null).isPresent(), is(false));
+        assertThat(this.cache.get("task-3", TaskView.FULL, TaskFields.all(), null).isPresent(), is(false));
+    }
+
+    @Test
+    public void sizeBounded() throws Exception {
+        int taskSize = this.objectMapper.writer().without(SerializationFeature.INDENT_OUTPUT)
+                .writeValueAsBytes(task("task-10", TesState.COMPLETE)).length;
+        //room for ~half of the tasks; (approximate) LRU is per segment of the cache
+        RenderedTaskCache small = new RenderedTaskCache(this.objectMapper, 10 * (taskSize + 20), 3600);
+        for (int i = 10; i < 30; i++) {
+            small.put("task-" + i, TaskView.BASIC, TaskFields.all(),
+                    new Versioned<>(task("task-" + i, TesState.COMPLETE), null, true, null));
+        }
+        assertThat(small.get("task-29", TaskView.BASIC, TaskFields.all(), null).isPresent(), is(true));
+        long cached = IntStream.range(10, 30)
+                .filter(i -> small.get("task-" + i, TaskView.BASIC, TaskFields.all(), null).isPresent()).count();
+        assertThat(cached, is(lessThanOrEqualTo(10L)));
+    }
+}
@@ -0,0 +1,59 @@
+package uk.ac.ebi.tsc.tesk.tes.service;
+
+import org.junit.Before;
+import org.junit.Test;
+import uk.ac.ebi.tsc.tesk.tes.model.TesState;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+
+public class TaskEventLogTest {
+
+    private TaskEventLog log;
+
+    @Before
+    public void setUp() {
+        this.log = new TaskEventLog("e1", 3);
+    }
+
+    private void append(String... taskIds) {
+        for (String taskId : taskIds) {
+            this.log.append(taskId, TesState.RUNNING, Collections.emptyMap());
+        }
+    }
+
+    private List<String> taskIdsSince(String cursor) {
+        return this.log.since(cursor).get().stream().map(TaskEventLog.TaskEvent::getTaskId).collect(Collectors.toList());
+    }
+
+    @Test
+    public void since() {
+        assertThat(this.log.currentCursor(), is("e1-0"));
+        assertThat(taskIdsSince("e1-0"), is(empty()));
+        this.append("task-1", "task-2");
+        assertThat(this.log.currentCursor(), is("e1-2"));
+        assertThat(taskIdsSince("e1-0"), contains("task-1", "task-2"));
+        assertThat(taskIdsSince("e1-1"), contains("task-2"));
+        assertThat(taskIdsSince("e1-2"), is(empty()));
+    }
+
+    @Test
+    public void since_evicted() {
+        this.append("task-1", "task-2", "task-3", "task-4");
+        assertThat(this.log.since("e1-0").isPresent(), is(false));
+        assertThat(taskIdsSince("e1-1"), contains("task-2", "task-3", "task-4"));
+    }
+
+    @Test
+    public void since_unknownCursor() {
+        this.append("task-1");
+        assertThat(this.log.since("e0-1").isPresent(), is(false));
+        assertThat(this.log.since("e1-2").isPresent(), is(false));
+        assertThat(this.log.since("e1-x").isPresent(), is(false));
+        assertThat(this.log.since("foo").isPresent(), is(false));
+    }
+}
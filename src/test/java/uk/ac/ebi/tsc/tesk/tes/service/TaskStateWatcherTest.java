@@ -0,0 +1,323 @@
+package uk.ac.ebi.tsc.tesk.tes.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.util.concurrent.MoreExecutors;
+import io.kubernetes.client.models.*;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import uk.ac.ebi.tsc.tesk.config.security.User;
+import uk.ac.ebi.tsc.tesk.k8s.cache.KubernetesObjectsCache;
+import uk.ac.ebi.tsc.tesk.k8s.cache.TaskObjectsIndex;
+import uk.ac.ebi.tsc.tesk.k8s.convert.TesKubernetesConverter;
+import uk.ac.ebi.tsc.tesk.k8s.convert.data.Task;
+import uk.ac.ebi.tsc.tesk.k8s.service.KubernetesClientWrapper;
+import uk.ac.ebi.tsc.tesk.tes.model.TesState;
+
+import java.util.*;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static uk.ac.ebi.tsc.tesk.k8s.constant.Constants.*;
+
+public class TaskStateWatcherTest {
+
+    private KubernetesObjectsCache cache;
+
+    private TaskStateWatcher watcher;
+
+    private MockMvc mvc;
+
+    private final Map<String, V1Job> jobs = new LinkedHashMap<>();
+
+    private final Map<String, TesState> states = new HashMap<>();
+
+    private BiConsumer<V1Job, V1Job> jobListener;
+
+    private KubernetesClientWrapper wrapper;
+
+    private TesKubernetesConverter converter;
+
+    private ObjectMapper objectMapper;
+
+    @RestController
+    private static class WatchController {
+
+        private final TaskStateWatcher watcher;
+
+        WatchController(TaskStateWatcher watcher) {
+            this.watcher = watcher;
+        }
+
+        @GetMapping("/watch")
+        public SseEmitter watch(@RequestParam(value = "cursor", required = false) String cursor) {
+            return this.watcher.subscribe(User.builder("alice").build(), cursor);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    @Before
+    public void setUp() {
+        this.cache = mock(KubernetesObjectsCache.class);
+        when(this.cache.isSynced()).thenReturn(true);
+        when(this.cache.listJobs(any())).thenAnswer(invocation -> new ArrayList<>(this.jobs.values()));
+        when(this.cache.listTaskJobs(anyString())).thenAnswer(invocation -> this.jobs.values().stream()
+                .filter(job -> invocation.getArgument(0).equals(TaskObjectsIndex.taskIdOfJob(job))).collect(Collectors.toList()));
+        this.wrapper = mock(KubernetesClientWrapper.class);
+        //alice sees only own tasks
+        when(this.wrapper.taskmasterLabelsFilter(any())).thenReturn(labels -> "alice".equals(labels.get(LABEL_USERID_KEY)));
+        this.converter = mock(TesKubernetesConverter.class);
+        when(this.converter.extractStateFromK8sJobs(any())).thenAnswer(invocation -> this.states.get(invocation.<Task>getArgument(0).getTaskmaster().getJobName()));
+        this.objectMapper = Jackson2ObjectMapperBuilder.json().indentOutput(true).build();
+
+        this.watcher = this.newWatcher(new TaskEventsProperties(), MoreExecutors.newDirectExecutorService());
+    }
+
+    @SuppressWarnings("unchecked")
+    private TaskStateWatcher newWatcher(TaskEventsProperties properties, ExecutorService senderExecutor) {
+        TaskStateWatcher watcher = new TaskStateWatcher(this.cache, this.wrapper, this.converter, properties, this.objectMapper,
+                new TaskEventLog("e1", 10), senderExecutor);
+        ArgumentCaptor<BiConsumer<V1Job, V1Job>> listener = ArgumentCaptor.forClass(BiConsumer.class);
+        verify(this.cache, atLeastOnce()).addJobListener(listener.capture());
+        this.jobListener = listener.getValue();
+        this.mvc = MockMvcBuilders.standaloneSetup(new WatchController(watcher)).build();
+        return watcher;
+    }
+
+    private static V1Job taskmaster(String name, String creator) {
+        return new V1Job().metadata(new V1ObjectMeta().name(name)
+                .putLabelsItem(LABEL_JOBTYPE_KEY, LABEL_JOBTYPE_VALUE_TASKM).putLabelsItem(LABEL_USERID_KEY, creator))
+                .spec(new V1JobSpec().selector(new V1LabelSelector().putMatchLabelsItem("controller-uid", "uid-" + name)));
+    }
+
+    private void changeState(String name, TesState state) {
+        this.states.put(name, state);
+        this.jobListener.accept(this.jobs.get(name), this.jobs.get(name));
+    }
+
+    private MvcResult subscribe(String cursor) throws Exception {
+        return this.mvc.perform(get("/watch").param("cursor", cursor)).andExpect(request().asyncStarted()).andReturn();
+    }
+
+    @Test
+    public void stateChanges_publishedToAllowedSubscribers() throws Exception {
+        this.jobs.put("task-1", taskmaster("task-1", "alice"));
+        this.jobs.put("task-2", taskmaster("task-2", "bob"));
+        this.states.put("task-1", TesState.QUEUED);
+        this.states.put("task-2", TesState.QUEUED);
+        //initial evaluation publishes nothing
+        this.watcher.evaluateChanges();
+        MvcResult result = this.subscribe(null);
+        assertThat(result.getResponse().getContentAsString(), is("id:e1-0\nevent:reset\ndata:\n\n"));
+
+        this.changeState("task-1", TesState.RUNNING);
+        this.changeState("task-2", TesState.RUNNING);
+        this.watcher.evaluateChanges();
+        assertThat(result.getResponse().getContentAsString(),
+                endsWith("event:state\ndata:{\"id\":\"task-1\",\"state\":\"RUNNING\"}\n\n"));
+        assertThat(result.getResponse().getContentAsString(), not(containsString("task-2")));
+
+        //objects changed, state did not
+        this.changeState("task-1", TesState.RUNNING);
+        this.watcher.evaluateChanges();
+        assertThat(result.getResponse().getContentAsString(), not(containsString("id:e1-3")));
+    }
+
+    @Test
+    public void initialStates_listenedOnce() {
+        this.jobs.put("task-1", taskmaster("task-1", "alice"));
+        this.jobs.put("task-2", taskmaster("task-2", "bob"));
+        this.states.put("task-1", TesState.COMPLETE);
+        this.states.put("task-2", TesState.RUNNING);
+        List<List<Map.Entry<V1Job, TesState>>> initialStates = new ArrayList<>();
+        List<String> changes = new ArrayList<>();
+        this.watcher.addInitialStatesListener(initialStates::add);
+        this.watcher.addStateListener((job, state) -> changes.add(job.getMetadata().getName() + ":" + state));
+        this.watcher.evaluateChanges();
+        assertThat(initialStates, hasSize(1));
+        assertThat(initialStates.get(0).stream().map(entry -> entry.getKey().getMetadata().getName() + ":" + entry.getValue())
+                .collect(Collectors.toList()), containsInAnyOrder("task-1:COMPLETE", "task-2:RUNNING"));
+        assertThat(changes, is(empty()));
+
+        this.changeState("task-2", TesState.COMPLETE);
+        this.watcher.evaluateChanges();
+        assertThat(initialStates, hasSize(1));
+        assertThat(changes, contains("task-2:COMPLETE"));
+    }
+
+    @Test
+    public void newAndDeletedTasks() throws Exception {
+        this.watcher.evaluateChanges();
+        MvcResult result = this.subscribe(null);
+        this.jobs.put("task-1", taskmaster("task-1", "alice"));
+        this.changeState("task-1", TesState.QUEUED);
+        this.watcher.evaluateChanges();
+        assertThat(result.getResponse().getContentAsString(), containsString("data:{\"id\":\"task-1\",\"state\":\"QUEUED\"}"));
+
+        V1Job deleted = this.jobs.remove("task-1");
+        this.jobListener.accept(deleted, null);
+        this.watcher.evaluateChanges();
+        this.jobs.put("task-1", deleted);
+        this.changeState("task-1", TesState.QUEUED);
+        this.watcher.evaluateChanges();
+        assertThat(result.getResponse().getContentAsString(), containsString("id:e1-2\nevent:state"));
+    }
+
+    @Test
+    public void resumeFromCursor() throws Exception {
+        this.jobs.put("task-1", taskmaster("task-1", "alice"));
+        this.watcher.evaluateChanges();
+        this.changeState("task-1", TesState.INITIALIZING);
+        this.watcher.evaluateChanges();
+        this.changeState("task-1", TesState.RUNNING);
+        this.watcher.evaluateChanges();
+
+        assertThat(this.subscribe("e1-1").getResponse().getContentAsString(),
+                is("id:e1-2\nevent:state\ndata:{\"id\":\"task-1\",\"state\":\"RUNNING\"}\n\n"));
+        assertThat(this.subscribe("e0-1").getResponse().getContentAsString(), is("id:e1-2\nevent:reset\ndata:\n\n"));
+    }
+
+    @Test
+    public void notSynced_nothingEvaluated() throws Exception {
+        when(this.cache.isSynced()).thenReturn(false);
+        this.jobs.put("task-1", taskmaster("task-1", "alice"));
+        this.changeState("task-1", TesState.RUNNING);
+        this.watcher.evaluateChanges();
+        when(this.cache.isSynced()).thenReturn(true);
+        //first evaluation after sync is the initial one
+        this.watcher.evaluateChanges();
+        assertThat(this.subscribe(null).getResponse().getContentAsString(), containsString("id:e1-0"));
+    }
+
+    @Test
+    public void awaitStateChange() throws Exception {
+        this.jobs.put("task-1", taskmaster("task-1", "alice"));
+        this.states.put("task-1", TesState.QUEUED);
+        this.watcher.evaluateChanges();
+        CompletableFuture<TesState> fromQueued = this.watcher.awaitStateChange("task-1", TesState.QUEUED, 60000);
+        CompletableFuture<TesState> fromRunning = this.watcher.awaitStateChange("task-1", TesState.RUNNING, 60000);
+        //already differs
+        assertThat(fromRunning.get(5, TimeUnit.SECONDS), is(TesState.QUEUED));
+
+        this.changeState("task-1", TesState.QUEUED);
+        this.watcher.evaluateChanges();
+        assertThat(fromQueued.isDone(), is(false));
+        this.changeState("task-1", TesState.RUNNING);
+        this.watcher.evaluateChanges();
+        assertThat(fromQueued.get(5, TimeUnit.SECONDS), is(TesState.RUNNING));
+    }
+
+    @Test
+    public void awaitStateChange_timeoutAndDeletion() throws Exception {
+        this.jobs.put("task-1", taskmaster("task-1", "alice"));
+        this.states.put("task-1", TesState.RUNNING);
+        this.watcher.evaluateChanges();
+        assertThat(this.watcher.awaitStateChange("task-1", TesState.RUNNING, 10).get(5, TimeUnit.SECONDS), is(nullValue()));
+
+        CompletableFuture<TesState> waiting = this.watcher.awaitStateChange("task-1", TesState.RUNNING, 60000);
+        V1Job deleted = this.jobs.remove("task-1");
+        this.jobListener.accept(deleted, null);
+        this.watcher.evaluateChanges();
+        assertThat(waiting.get(5, TimeUnit.SECONDS), is(nullValue()));
+    }
+
+    @Test
+    public void changesEvaluatedFromObjectsOfChangedTasks() throws Exception {
+        this.jobs.put("task-1", taskmaster("task-1", "alice"));
+        this.jobs.put("task-2", taskmaster("task-2", "alice"));
+        this.states.put("task-1", TesState.QUEUED);
+        this.watcher.evaluateChanges();
+        this.changeState("task-1", TesState.RUNNING);
+        this.watcher.evaluateChanges();
+        this.changeState("task-1", TesState.COMPLETE);
+        this.watcher.evaluateChanges();
+        //whole cache scanned only by the initial evaluation
+        verify(this.cache, times(2)).listJobs(any());
+        verify(this.cache, times(1)).listPods(any());
+        verify(this.cache, times(2)).listTaskJobs("task-1");
+        verify(this.cache, times(2)).listTaskPods("task-1");
+        verify(this.cache, times(0)).listTaskJobs("task-2");
+        assertThat(this.watcher.awaitStateChange("task-1", TesState.RUNNING, 60000).get(5, TimeUnit.SECONDS), is(TesState.COMPLETE));
+    }
+
+    @Test
+    public void slowSubscriber_dropped() throws Exception {
+        //sender, that does not run anything until asked to
+        List<Runnable> pending = new ArrayList<>();
+        ExecutorService heldSender = new AbstractExecutorService() {
+            @Override
+            public void execute(Runnable command) {
+                pending.add(command);
+            }
+
+            @Override
+            public void shutdown() {
+            }
+
+            @Override
+            public List<Runnable> shutdownNow() {
+                return pending;
+            }
+
+            @Override
+            public boolean isShutdown() {
+                return false;
+            }
+
+            @Override
+            public boolean isTerminated() {
+                return false;
+            }
+
+            @Override
+            public boolean awaitTermination(long timeout, TimeUnit unit) {
+                return true;
+            }
+        };
+        TaskEventsProperties properties = new TaskEventsProperties();
+        properties.setSubscriberQueueSize(2);
+        TaskStateWatcher watcher = this.newWatcher(properties, heldSender);
+        this.jobs.put("task-1", taskmaster("task-1", "alice"));
+        watcher.evaluateChanges();
+        MvcResult result = this.subscribe(null);
+        //publishing does not wait for the client
+        this.changeState("task-1", TesState.INITIALIZING);
+        watcher.evaluateChanges();
+        assertThat(result.getResponse().getContentAsString(), is(""));
+        assertThat(pending, hasSize(1));
+        //reset and 1 state event queued, the next one is over the limit
+        this.changeState("task-1", TesState.RUNNING);
+        watcher.evaluateChanges();
+        new ArrayList<>(pending).forEach(Runnable::run);
+        assertThat(result.getResponse().getContentAsString(), not(containsString("event:state")));
+        assertThat(result.getAsyncResult(5000), is(nullValue()));
+
+        pending.clear();
+        this.changeState("task-1", TesState.COMPLETE);
+        watcher.evaluateChanges();
+        assertThat(pending, is(empty()));
+    }
+}
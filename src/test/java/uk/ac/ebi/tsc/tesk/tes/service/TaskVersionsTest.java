@@ -0,0 +1,47 @@
+package uk.ac.ebi.tsc.tesk.tes.service;
+
+import io.kubernetes.client.models.V1Job;
+import io.kubernetes.client.models.V1ObjectMeta;
+import io.kubernetes.client.models.V1Pod;
+import org.junit.Test;
+import uk.ac.ebi.tsc.tesk.k8s.convert.data.Job;
+import uk.ac.ebi.tsc.tesk.k8s.convert.data.Task;
+
+import java.util.Collections;
+import java.util.List;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+
+public class TaskVersionsTest {
+
+    private static List<Task> task(String jobVersion, String podVersion) {
+        Job taskmaster = new Job(new V1Job().metadata(new V1ObjectMeta().name("task-1").resourceVersion(jobVersion)));
+        taskmaster.addPod(new V1Pod().metadata(new V1ObjectMeta().name("task-1-abcde").resourceVersion(podVersion)));
+        Task task = new Task(taskmaster);
+        task.addExecutor(new Job(new V1Job().metadata(new V1ObjectMeta().name("task-1-ex-00").resourceVersion("7"))));
+        return Collections.singletonList(task);
+    }
+
+    @Test
+    public void eTag() {
+        String eTag = TaskVersions.eTag(task("1", "2"), "MINIMAL");
+        assertThat(eTag, startsWith("W/\""));
+        assertThat(TaskVersions.eTag(task("1", "2"), "MINIMAL"), is(eTag));
+        assertThat(TaskVersions.eTag(task("1", "3"), "MINIMAL"), is(not(eTag)));
+        assertThat(TaskVersions.eTag(task("1", "2"), "BASIC"), is(not(eTag)));
+        //no version - no ETag
+        assertThat(TaskVersions.eTag(task("1", null), "MINIMAL"), is(nullValue()));
+    }
+
+    @Test
+    public void matches() {
+        String eTag = "W/\"abc\"";
+        assertThat(TaskVersions.matches("W/\"abc\"", eTag), is(true));
+        assertThat(TaskVersions.matches("\"xyz\", \"abc\"", eTag), is(true));
+        assertThat(TaskVersions.matches("*", eTag), is(true));
+        assertThat(TaskVersions.matches("W/\"xyz\"", eTag), is(false));
+        assertThat(TaskVersions.matches(null, eTag), is(false));
+        assertThat(TaskVersions.matches("*", null), is(false));
+    }
+}
@@ -0,0 +1,169 @@
+package uk.ac.ebi.tsc.tesk.trs;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestTemplate;
+import uk.ac.ebi.tsc.tesk.trs.model.ImageData;
+import uk.ac.ebi.tsc.tesk.trs.model.ImageType;
+import uk.ac.ebi.tsc.tesk.trs.model.ToolVersion;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.*;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.*;
+
+public class TrsToolClientCacheTest {
+
+    private static final String URI = "trs://example.com/tool/versions/1";
+
+    private RestTemplate restTemplate;
+
+    private TrsProperties properties;
+
+    @Before
+    public void setUp() {
+        this.restTemplate = mock(RestTemplate.class);
+        this.properties = new TrsProperties();
+        this.properties.setUriPattern("trs://{host}/{id}/versions/{version}");
+        this.properties.setUrlPattern("https://{host}/ga4gh/trs/v2/tools/{id}/versions/{version}");
+    }
+
+    private TrsToolClient client() {
+        RestTemplateBuilder builder = mock(RestTemplateBuilder.class, RETURNS_SELF);
+        given(builder.build()).willReturn(this.restTemplate);
+        return new TrsToolClient(builder, this.properties);
+    }
+
+    private void verifyRequests(int times) {
+        verify(this.restTemplate, times(times)).exchange(anyString(), eq(HttpMethod.GET), any(HttpEntity.class), eq(ToolVersion.class),
+                eq("example.com"), eq("tool"), eq("1"));
+    }
+
+    private static ResponseEntity<ToolVersion> dockerImage(String name) {
+        ToolVersion toolVersion = new ToolVersion();
+        ImageData imageData = new ImageData();
+        imageData.setImageType(ImageType.Docker);
+        imageData.setImageName(name);
+        toolVersion.getImages().add(imageData);
+        return new ResponseEntity<>(toolVersion, HttpStatus.OK);
+    }
+
+    @Test
+    public void resolvedImageCached() {
+        given(this.restTemplate.exchange(anyString(), eq(HttpMethod.GET), any(HttpEntity.class), eq(ToolVersion.class), any(), any(), any()))
+                .willReturn(dockerImage("ubuntu:latest"));
+        TrsToolClient client = client();
+        assertThat(client.getDockerImageForToolVersionURI(URI), is("ubuntu:latest"));
+        assertThat(client.getDockerImageForToolVersionURI(URI), is("ubuntu:latest"));
+        verifyRequests(1);
+        assertThat(client.getCacheMisses(), is(1L));
+        assertThat(client.getCacheHits(), is(1L));
+        assertThat(client.getFailures(), is(0L));
+        assertThat(client.getCacheSize(), is(1L));
+    }
+
+    @Test
+    public void failureCached() {
+        given(this.restTemplate.exchange(anyString(), eq(HttpMethod.GET), any(HttpEntity.class), eq(ToolVersion.class), any(), any(), any()))
+                .willThrow(new ResourceAccessException("timeout"));
+        TrsToolClient client = client();
+        assertThat(client.getDockerImageForToolVersionURI(URI), is(URI));
+        assertThat(client.getDockerImageForToolVersionURI(URI), is(URI));
+        verifyRequests(1);
+        assertThat(client.getFailures(), is(1L));
+    }
+
+    @Test
+    public void failureExpiresAfterNegativeTtl() {
+        this.properties.setNegativeCacheTtl(0);
+        given(this.restTemplate.exchange(anyString(), eq(HttpMethod.GET), any(HttpEntity.class), eq(ToolVersion.class), any(), any(), any()))
+                .willThrow(new ResourceAccessException("timeout")).willReturn(dockerImage("ubuntu:latest"));
+        TrsToolClient client = client();
+        //failure expires immediately, so the same lookup retries
+        assertThat(client.getDockerImageForToolVersionURI(URI), is("ubuntu:latest"));
+        assertThat(client.getDockerImageForToolVersionURI(URI), is("ubuntu:latest"));
+        verifyRequests(2);
+        assertThat(client.getFailures(), is(1L));
+    }
+
+    @Test
+    public void concurrentLookupsSingleRequest() throws Exception {
+        CountDownLatch requestStarted = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        given(this.restTemplate.exchange(anyString(), eq(HttpMethod.GET), any(HttpEntity.class), eq(ToolVersion.class), any(), any(), any()))
+                .willAnswer(invocation -> {
+                    requestStarted.countDown();
+                    release.await(5, TimeUnit.SECONDS);
+                    return dockerImage("ubuntu:latest");
+                });
+        TrsToolClient client = client();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            Future<String> first = executor.submit(() -> client.getDockerImageForToolVersionURI(URI));
+            assertThat(requestStarted.await(5, TimeUnit.SECONDS), is(true));
+            Future<String> second = executor.submit(() -> client.getDockerImageForToolVersionURI(URI));
+            Future<String> third = executor.submit(() -> client.getDockerImageForToolVersionURI(URI));
+            release.countDown();
+            assertThat(first.get(5, TimeUnit.SECONDS), is("ubuntu:latest"));
+            assertThat(second.get(5, TimeUnit.SECONDS), is("ubuntu:latest"));
+            assertThat(third.get(5, TimeUnit.SECONDS), is("ubuntu:latest"));
+        } finally {
+            executor.shutdownNow();
+        }
+        verifyRequests(1);
+        assertThat(client.getCacheHits(), is(2L));
+    }
+
+    @Test
+    public void resolveDockerImages_concurrently() {
+        CountDownLatch bothRequestsStarted = new CountDownLatch(2);
+        given(this.restTemplate.exchange(anyString(), eq(HttpMethod.GET), any(HttpEntity.class), eq(ToolVersion.class), any(), any(), any()))
+                .willAnswer(invocation -> {
+                    bothRequestsStarted.countDown();
+                    //would time out, if requests were sequential
+                    bothRequestsStarted.await(5, TimeUnit.SECONDS);
+                    return dockerImage("image-" + invocation.getArgument(6));
+                });
+        TrsToolClient client = client();
+        Map<String, String> images = client.resolveDockerImages(Arrays.asList(URI, "trs://example.com/tool/versions/2", URI, "alpine"));
+        assertThat(bothRequestsStarted.getCount(), is(0L));
+        assertThat(images.get(URI), is("image-1"));
+        assertThat(images.get("trs://example.com/tool/versions/2"), is("image-2"));
+        assertThat(images.get("alpine"), is("alpine"));
+        assertThat(images.size(), is(3));
+        assertThat(client.getCacheMisses(), is(2L));
+    }
+
+    @Test
+    public void resolveDockerImages_deadline() {
+        this.properties.setResolutionTimeout(100);
+        CountDownLatch release = new CountDownLatch(1);
+        given(this.restTemplate.exchange(anyString(), eq(HttpMethod.GET), any(HttpEntity.class), eq(ToolVersion.class), any(), any(), any()))
+                .willAnswer(invocation -> {
+                    if ("2".equals(invocation.getArgument(6))) {
+                        release.await(5, TimeUnit.SECONDS);
+                    }
+                    return dockerImage("image-" + invocation.getArgument(6));
+                });
+        TrsToolClient client = client();
+        try {
+            Map<String, String> images = client.resolveDockerImages(Arrays.asList(URI, "trs://example.com/tool/versions/2"));
+            assertThat(images.get(URI), is("image-1"));
+            //not resolved in time - URI kept
+            assertThat(images.get("trs://example.com/tool/versions/2"), is("trs://example.com/tool/versions/2"));
+        } finally {
+            release.countDown();
+        }
+    }
+}
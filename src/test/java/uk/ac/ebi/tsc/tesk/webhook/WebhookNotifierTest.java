@@ -0,0 +1,262 @@
+package uk.ac.ebi.tsc.tesk.webhook;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.tomakehurst.wiremock.client.WireMock;
+import com.github.tomakehurst.wiremock.junit.WireMockRule;
+import io.kubernetes.client.models.V1Job;
+import io.kubernetes.client.models.V1ObjectMeta;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.client.MockRestServiceServer;
+import org.springframework.web.client.RestTemplate;
+import uk.ac.ebi.tsc.tesk.tes.exception.InvalidCallback;
+import uk.ac.ebi.tsc.tesk.tes.model.TesState;
+import uk.ac.ebi.tsc.tesk.tes.service.TaskStateWatcher;
+
+import java.io.IOException;
+import java.net.UnknownHostException;
+import java.nio.file.Paths;
+import java.util.AbstractMap;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.anyRequestedFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.ok;
+import static com.github.tomakehurst.wiremock.client.WireMock.postRequestedFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlEqualTo;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.wireMockConfig;
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.content;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.method;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.requestTo;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withServerError;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withSuccess;
+
+public class WebhookNotifierTest {
+
+    private static final String URL = "http://example.org/hooks";
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Rule
+    public WireMockRule callbackServer = new WireMockRule(wireMockConfig().dynamicPort());
+
+    private WebhookProperties properties;
+
+    private WebhookQueue queue;
+
+    private RestTemplate restTemplate;
+
+    private MockRestServiceServer server;
+
+    private WebhookNotifier notifier;
+
+    @Before
+    public void setUp() {
+        this.properties = new WebhookProperties();
+        this.properties.setInitialBackoff(0);
+        this.properties.setMaxAttempts(2);
+        //no name resolution
+        this.properties.setAllowedHosts(Collections.singletonList("example.org"));
+        this.queue = new WebhookQueue(this.folder.getRoot().toPath().resolve("webhooks.journal"), OBJECT_MAPPER);
+        this.restTemplate = new RestTemplate();
+        this.server = MockRestServiceServer.bindTo(this.restTemplate).build();
+        this.notifier = this.newNotifier();
+    }
+
+    private WebhookNotifier newNotifier() {
+        return new WebhookNotifier(mock(TaskStateWatcher.class), this.properties, this.restTemplate, this.queue,
+                new NotifiedStates(this.folder.getRoot().toPath().resolve("webhooks.journal.states"), OBJECT_MAPPER), OBJECT_MAPPER);
+    }
+
+    private static Map.Entry<V1Job, TesState> initialState(String name, TesState state) {
+        return new AbstractMap.SimpleImmutableEntry<>(taskmaster(name, "ALL"), state);
+    }
+
+    private List<String> queuedEvents() {
+        return this.queue.pending().stream().map(delivery -> delivery.getEvent().getId() + ":" + delivery.getEvent().getState())
+                .collect(Collectors.toList());
+    }
+
+    private static V1Job taskmaster(String name, String events) {
+        return taskmaster(name, events, URL);
+    }
+
+    private static V1Job taskmaster(String name, String events, String url) {
+        V1ObjectMeta metadata = new V1ObjectMeta().name(name).putAnnotationsItem("callback-url", url);
+        if (events != null) {
+            metadata.putAnnotationsItem("callback-events", events);
+        }
+        return new V1Job().metadata(metadata);
+    }
+
+    @Test
+    public void batchedPerUrl() {
+        this.notifier.onStateChange(taskmaster("task-1", "TERMINAL"), TesState.RUNNING);
+        this.notifier.onStateChange(taskmaster("task-1", "TERMINAL"), TesState.COMPLETE);
+        this.notifier.onStateChange(taskmaster("task-2", "ALL"), TesState.RUNNING);
+        this.notifier.onStateChange(new V1Job().metadata(new V1ObjectMeta().name("task-3")), TesState.COMPLETE);
+        this.server.expect(requestTo(URL)).andExpect(method(HttpMethod.POST))
+                .andExpect(content().json("{\"events\":[{\"id\":\"task-1\",\"state\":\"COMPLETE\"},{\"id\":\"task-2\",\"state\":\"RUNNING\"}]}"))
+                .andRespond(withSuccess());
+        this.notifier.deliver();
+        this.server.verify();
+        assertThat(this.queue.pending(), is(empty()));
+    }
+
+    @Test
+    public void stateChanges_queuedOnSenderThread() {
+        this.notifier.onStateChange(taskmaster("task-1", "ALL"), TesState.RUNNING);
+        this.notifier.onStateChange(taskmaster("task-1", "ALL"), TesState.COMPLETE);
+        //nothing written on the evaluating thread
+        assertThat(this.queue.pending(), is(empty()));
+        this.notifier.handleStateChanges();
+        assertThat(this.queuedEvents(), contains("task-1:RUNNING", "task-1:COMPLETE"));
+    }
+
+    @Test
+    public void retriedAndDropped() {
+        this.notifier.onStateChange(taskmaster("task-1", null), TesState.EXECUTOR_ERROR);
+        this.server.expect(requestTo(URL)).andRespond(withServerError());
+        this.notifier.deliver();
+        assertThat(this.queue.pending().get(0).getAttempts(), is(1));
+        this.server.verify();
+
+        this.server.reset();
+        this.server.expect(requestTo(URL)).andRespond(withServerError());
+        this.notifier.deliver();
+        this.server.verify();
+        assertThat(this.queue.pending(), is(empty()));
+    }
+
+    @Test
+    public void notAllowedUrl_droppedOnDelivery() {
+        this.notifier.onStateChange(taskmaster("task-1", null), TesState.COMPLETE);
+        this.properties.setAllowedHosts(Collections.singletonList("other.org"));
+        this.notifier.deliver();
+        this.server.verify();
+        assertThat(this.queue.pending(), is(empty()));
+    }
+
+    @Test
+    public void initialStates_changesWhileDownNotified() throws IOException {
+        //no states before - taken as notified
+        this.notifier.onInitialStates(Arrays.asList(initialState("task-1", TesState.RUNNING), initialState("task-2", TesState.QUEUED),
+                initialState("task-3", TesState.COMPLETE)));
+        this.notifier.onStateChange(taskmaster("task-2", "ALL"), TesState.RUNNING);
+        this.notifier.handleStateChanges();
+        assertThat(this.queuedEvents(), contains("task-2:RUNNING"));
+        this.notifier.stop();
+
+        this.queue = new WebhookQueue(this.folder.getRoot().toPath().resolve("webhooks.journal"), OBJECT_MAPPER);
+        this.queue.remove(Collections.singletonList(this.queue.pending().get(0).getId()));
+        this.notifier = this.newNotifier();
+        //task-3 deleted, task-4 created while down
+        this.notifier.onInitialStates(Arrays.asList(initialState("task-1", TesState.COMPLETE), initialState("task-2", TesState.RUNNING),
+                initialState("task-4", TesState.QUEUED)));
+        this.notifier.handleStateChanges();
+        assertThat(this.queuedEvents(), contains("task-1:COMPLETE", "task-4:QUEUED"));
+        this.notifier.stop();
+
+        NotifiedStates states = new NotifiedStates(this.folder.getRoot().toPath().resolve("webhooks.journal.states"), OBJECT_MAPPER);
+        assertThat(states.get("task-1"), is(TesState.COMPLETE));
+        assertThat(states.get("task-3"), is(nullValue()));
+        states.close();
+    }
+
+    @Test
+    public void isAllowed_noAllowedHosts_publicAddressesOnly() {
+        this.properties.setAllowedHosts(Collections.emptyList());
+        assertThat(this.notifier.isAllowed("http://93.184.216.34/hooks"), is(true));
+        assertThat(this.notifier.isAllowed("http://127.0.0.1:8080/hooks"), is(false));
+        assertThat(this.notifier.isAllowed("http://localhost/hooks"), is(false));
+        assertThat(this.notifier.isAllowed("http://169.254.169.254/latest/meta-data"), is(false));
+        assertThat(this.notifier.isAllowed("http://10.0.0.1/hooks"), is(false));
+        assertThat(this.notifier.isAllowed("https://192.168.1.1/hooks"), is(false));
+        assertThat(this.notifier.isAllowed("http://0.0.0.0/hooks"), is(false));
+        assertThat(this.notifier.isAllowed("http://[::1]/hooks"), is(false));
+        assertThat(this.notifier.isAllowed("http://[fd00::1]/hooks"), is(false));
+    }
+
+    @Test
+    public void redirect_notFollowed() throws IOException {
+        this.properties.setAllowedHosts(Collections.singletonList("localhost"));
+        this.properties.setQueueFile(this.folder.getRoot().toPath().resolve("client/webhooks.journal").toString());
+        WebhookNotifier notifier = new WebhookNotifier(mock(TaskStateWatcher.class), this.properties, new RestTemplateBuilder(), OBJECT_MAPPER);
+        this.callbackServer.givenThat(WireMock.post("/hooks").willReturn(aResponse().withStatus(303)
+                .withHeader("Location", "http://localhost:" + this.callbackServer.port() + "/internal")));
+        this.callbackServer.givenThat(WireMock.any(urlEqualTo("/internal")).willReturn(ok()));
+
+        notifier.onStateChange(taskmaster("task-1", null, "http://localhost:" + this.callbackServer.port() + "/hooks"), TesState.COMPLETE);
+        notifier.deliver();
+        this.callbackServer.verify(1, postRequestedFor(urlEqualTo("/hooks")));
+        this.callbackServer.verify(0, anyRequestedFor(urlEqualTo("/internal")));
+        notifier.stop();
+        //not delivered - left for a retry
+        WebhookQueue queue = new WebhookQueue(Paths.get(this.properties.getQueueFile()), OBJECT_MAPPER);
+        assertThat(queue.pending(), hasSize(1));
+        queue.close();
+    }
+
+    @Test
+    public void dnsResolver_noAllowedHosts_publicAddressesOnly() throws UnknownHostException {
+        this.properties.setAllowedHosts(Collections.emptyList());
+        CallbackDnsResolver resolver = new CallbackDnsResolver(this.properties);
+        assertThat(resolver.resolve("93.184.216.34").length, is(1));
+        try {
+            resolver.resolve("127.0.0.1");
+        } catch (UnknownHostException e) {
+            this.properties.setAllowedHosts(Collections.singletonList("localhost"));
+            assertThat(resolver.resolve("127.0.0.1").length, is(1));
+            return;
+        }
+        throw new AssertionError("UnknownHostException expected");
+    }
+
+    @Test
+    public void backoff() {
+        this.properties.setInitialBackoff(5);
+        this.properties.setMaxBackoff(60);
+        assertThat(this.notifier.backoff(1), is(5000L));
+        assertThat(this.notifier.backoff(3), is(20000L));
+        assertThat(this.notifier.backoff(100), is(60000L));
+    }
+
+    @Test(expected = InvalidCallback.class)
+    public void validateCallback_notHttp() {
+        this.notifier.validateCallback(Collections.singletonMap("CALLBACK_URL", "file:///etc/passwd"));
+    }
+
+    @Test
+    public void validateCallback_allowedHosts() {
+        this.properties.setAllowedHosts(Collections.singletonList("example.org"));
+        Map<String, String> tags = new HashMap<>();
+        tags.put("CALLBACK_URL", URL);
+        tags.put("CALLBACK_EVENTS", "ALL");
+        this.notifier.validateCallback(tags);
+        assertThat(this.notifier.isAllowed("https://other.org/hooks"), is(false));
+        tags.put("CALLBACK_EVENTS", "SOME");
+        try {
+            this.notifier.validateCallback(tags);
+        } catch (InvalidCallback e) {
+            assertThat(e.getMessage(), containsString("CALLBACK_EVENTS"));
+            return;
+        }
+        throw new AssertionError("InvalidCallback expected");
+    }
+}
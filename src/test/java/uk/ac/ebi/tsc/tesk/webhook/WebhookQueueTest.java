@@ -0,0 +1,79 @@
+package uk.ac.ebi.tsc.tesk.webhook;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import uk.ac.ebi.tsc.tesk.tes.model.TesState;
+import uk.ac.ebi.tsc.tesk.tes.model.TesTaskStateEvent;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+
+public class WebhookQueueTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private Path file;
+
+    @Before
+    public void setUp() {
+        this.file = this.folder.getRoot().toPath().resolve("queue/webhooks.journal");
+    }
+
+    private static TesTaskStateEvent event(String taskId) {
+        return new TesTaskStateEvent().id(taskId).state(TesState.COMPLETE);
+    }
+
+    private static Object taskIds(WebhookQueue queue) {
+        return queue.pending().stream().map(delivery -> delivery.getEvent().getId()).collect(Collectors.toList());
+    }
+
+    @Test
+    public void pendingSurviveRestart() throws IOException {
+        WebhookQueue queue = new WebhookQueue(this.file, this.objectMapper);
+        WebhookQueue.Delivery first = queue.add("http://example.org/a", event("task-1"));
+        queue.add("http://example.org/b", event("task-2"));
+        queue.add("http://example.org/a", event("task-3"));
+        queue.remove(Collections.singletonList(first.getId()));
+        queue.close();
+
+        WebhookQueue reopened = new WebhookQueue(this.file, this.objectMapper);
+        assertThat(taskIds(reopened), is(Arrays.asList("task-2", "task-3")));
+        assertThat(reopened.pending().get(1).getUrl(), is("http://example.org/a"));
+        //compacted on start
+        assertThat(Files.readAllLines(this.file).size(), is(2));
+        //IDs not reused
+        assertThat(reopened.add("http://example.org/a", event("task-4")).getId(), is(4L));
+    }
+
+    @Test
+    public void truncatedWhenEmpty() throws IOException {
+        WebhookQueue queue = new WebhookQueue(this.file, this.objectMapper);
+        WebhookQueue.Delivery delivery = queue.add("http://example.org/a", event("task-1"));
+        queue.remove(Collections.singletonList(delivery.getId()));
+        assertThat(Files.size(this.file), is(0L));
+        queue.close();
+    }
+
+    @Test
+    public void tornRecordSkipped() throws IOException {
+        WebhookQueue queue = new WebhookQueue(this.file, this.objectMapper);
+        queue.add("http://example.org/a", event("task-1"));
+        queue.close();
+        Files.write(this.file, "{\"id\":2,\"url\":\"http://exa".getBytes(), StandardOpenOption.APPEND);
+        assertThat(taskIds(new WebhookQueue(this.file, this.objectMapper)), is(Collections.singletonList("task-1")));
+    }
+}